@@ -0,0 +1,63 @@
+package com.example.expense.benchmark;
+
+import com.example.expense.model.ExpenseColumns;
+import com.example.expense.model.ExpenseColumns.Filter;
+import com.example.expense.model.ExpenseStatistics;
+import com.example.expense.service.AggregationEngine;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sequential against fork/join aggregation over growing row counts, to place
+ * {@link AggregationEngine#DEFAULT_PARALLEL_THRESHOLD} at the crossover.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AggregationBenchmark {
+
+    @Param({"10000", "50000", "100000", "200000", "500000", "1000000", "5000000"})
+    public int rows;
+
+    @Param({"sequential", "parallel"})
+    public String mode;
+
+    private ExpenseColumns columns;
+    private AggregationEngine engine;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDate start = LocalDate.of(2020, 1, 1);
+        ExpenseColumns.Builder builder = ExpenseColumns.builder(rows);
+        for (int i = 0; i < rows; i++) {
+            long user = random.nextInt(500);
+            builder.add(start.plusDays(random.nextInt(3 * 365)), BigDecimal.valueOf(random.nextInt(50_000), 2),
+                    "Category " + random.nextInt(12), user, "user" + user);
+        }
+        columns = builder.build();
+        engine = new AggregationEngine("parallel".equals(mode) ? 0 : Integer.MAX_VALUE, ForkJoinPool.commonPool());
+    }
+
+    @Benchmark
+    public ExpenseStatistics aggregate() {
+        return engine.aggregate(columns, Filter.ALL);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.expense.benchmark;
+
+import com.example.expense.model.User;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Login throughput from four concurrent clients. Successful and wrong
+ * password logins are dominated by the BCrypt check; unknown users only
+ * cost the lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+@Threads(4)
+public class AuthenticationBenchmark {
+
+    private BenchmarkDatabase database;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase().seed(10, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Optional<User> validLogin() {
+        return database.userService.authenticate("user1", BenchmarkDatabase.PASSWORD);
+    }
+
+    @Benchmark
+    public Optional<User> wrongPassword() {
+        return database.userService.authenticate("user1", "wrong");
+    }
+
+    @Benchmark
+    public Optional<User> unknownUser() {
+        return database.userService.authenticate("nobody", BenchmarkDatabase.PASSWORD);
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.expense.benchmark;
+
+import com.example.expense.model.Category;
+import com.example.expense.model.Expense;
+import com.example.expense.model.ExpenseRow;
+import com.example.expense.model.Role;
+import com.example.expense.model.User;
+import com.example.expense.repository.CategoryRepository;
+import com.example.expense.repository.ExpenseRepository;
+import com.example.expense.repository.SchemaMigrator;
+import com.example.expense.repository.UnitOfWork;
+import com.example.expense.repository.UserRepository;
+import com.example.expense.service.BudgetService;
+import com.example.expense.service.CategoryService;
+import com.example.expense.service.ExpenseService;
+import com.example.expense.service.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Services wired to a private in-memory H2 database, seeded with
+ * deterministic synthetic expenses spread over users, categories and three
+ * years. Each instance gets its own database, so benchmarks with different
+ * parameters do not see each other's rows.
+ */
+final class BenchmarkDatabase implements AutoCloseable {
+
+    static final String PASSWORD = "secret";
+    static final LocalDate FIRST_DAY = LocalDate.of(2021, 1, 1);
+    static final int DAYS = 3 * 365;
+    private static final String[] CATEGORIES = {"Food", "Transport", "Rent", "Entertainment", "Health",
+            "Utilities", "Travel", "Education", "Gifts", "Insurance"};
+    private static final String[] WORDS = {"lunch", "taxi", "rent", "cinema", "pharmacy", "power", "train",
+            "books", "present", "premium", "coffee", "groceries", "bus", "concert", "dentist"};
+    private static final int SEED_BATCH = 10_000;
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    final EntityManagerFactory entityManagerFactory;
+    final ExpenseRepository expenseRepository;
+    final ExpenseService expenseService;
+    final UserService userService;
+    final CategoryService categoryService;
+    final BudgetService budgetService = new BudgetService();
+    final List<User> users = new ArrayList<>();
+
+    BenchmarkDatabase() {
+        Map<String, String> properties = new HashMap<>();
+        properties.put("jakarta.persistence.jdbc.url",
+                "jdbc:h2:mem:bench" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1");
+        properties.put("jakarta.persistence.jdbc.driver", "org.h2.Driver");
+        properties.put("jakarta.persistence.jdbc.user", "sa");
+        properties.put("jakarta.persistence.jdbc.password", "");
+        properties.put("hibernate.hbm2ddl.auto", "create-drop");
+        properties.put("hibernate.show_sql", "false");
+        properties.put("hibernate.format_sql", "false");
+        properties.put("hibernate.generate_statistics", "false");
+        entityManagerFactory = Persistence.createEntityManagerFactory("expense-tracker-unit", properties);
+        new SchemaMigrator(entityManagerFactory).migrate();
+
+        UnitOfWork unitOfWork = new UnitOfWork(entityManagerFactory);
+        expenseRepository = new ExpenseRepository(unitOfWork);
+        expenseService = new ExpenseService(expenseRepository);
+        userService = new UserService(new UserRepository(unitOfWork));
+        categoryService = new CategoryService(new CategoryRepository(unitOfWork));
+    }
+
+    /**
+     * Adds {@code userCount} users, all with {@link #PASSWORD}, and
+     * {@code rows} expenses through the batched insert path. The first user
+     * gets a tenth of the rows; the rest are spread evenly.
+     */
+    BenchmarkDatabase seed(int userCount, int rows) {
+        List<Category> categories = new ArrayList<>();
+        for (String name : CATEGORIES) {
+            categories.add(categoryService.getOrCreateCategory(name));
+        }
+        for (int i = 0; i < userCount; i++) {
+            users.add(userService.registerUser("user" + i, PASSWORD, i == 0 ? Role.ADMIN : Role.USER));
+        }
+        Random random = new Random(42);
+        List<Expense> batch = new ArrayList<>(SEED_BATCH);
+        for (int i = 0; i < rows; i++) {
+            User user = i % 10 == 0 || userCount == 1 ? users.get(0) : users.get(1 + random.nextInt(userCount - 1));
+            batch.add(new Expense(amount(random), FIRST_DAY.plusDays(random.nextInt(DAYS)), description(random),
+                    user, categories.get(random.nextInt(categories.size()))));
+            if (batch.size() == SEED_BATCH) {
+                expenseService.addExpenses(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            expenseService.addExpenses(batch);
+        }
+        return this;
+    }
+
+    /**
+     * Rows like the seeded ones, built in memory only, for benchmarks that
+     * do not need the database.
+     */
+    static List<ExpenseRow> rows(int count) {
+        Random random = new Random(42);
+        List<ExpenseRow> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            rows.add(new ExpenseRow((long) i + 1, FIRST_DAY.plusDays(random.nextInt(DAYS)),
+                    CATEGORIES[random.nextInt(CATEGORIES.length)], description(random), amount(random)));
+        }
+        return rows;
+    }
+
+    static List<String> categoryNames() {
+        return List.of(CATEGORIES);
+    }
+
+    private static BigDecimal amount(Random random) {
+        return BigDecimal.valueOf(100 + random.nextInt(20_000), 2);
+    }
+
+    private static String description(Random random) {
+        return WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)];
+    }
+
+    @Override
+    public void close() {
+        entityManagerFactory.close();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.expense.benchmark;
+
+import com.example.expense.model.Expense;
+import com.example.expense.model.ExpenseRow;
+import com.example.expense.model.User;
+import com.example.expense.service.BudgetService;
+import com.example.expense.service.BudgetStatus;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Budget evaluation over a month's worth of loaded expenses, against the
+ * BigDecimal stream reduction it replaced.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BudgetBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private final BudgetService budgetService = new BudgetService();
+    private final User user = new User();
+    private List<Expense> expenses;
+
+    @Setup
+    public void setUp() {
+        user.setMonthlyBudget(new BigDecimal("5000.00"));
+        expenses = BenchmarkDatabase.rows(rows).stream()
+                .map(row -> new Expense(row.amount(), row.date(), row.description(), user, null))
+                .toList();
+    }
+
+    @Benchmark
+    public BudgetStatus evaluate() {
+        return budgetService.evaluate(user, expenses);
+    }
+
+    @Benchmark
+    public boolean bigDecimalReduce() {
+        BigDecimal total = expenses.stream().map(Expense::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+        return total.compareTo(user.getMonthlyBudget()) > 0;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.expense.benchmark;
+
+import com.example.expense.model.Category;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Resolving category names typed by users, e.g. during an import, from four
+ * threads at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class CategoryBenchmark {
+
+    private BenchmarkDatabase database;
+    private String[] names;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase().seed(1, 0);
+        List<String> categories = BenchmarkDatabase.categoryNames();
+        names = categories.stream().map(name -> " " + name.toUpperCase() + " ").toArray(String[]::new);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public Optional<Category> find() {
+        return database.categoryService.findCategory(names[ThreadLocalRandom.current().nextInt(names.length)]);
+    }
+
+    @Benchmark
+    public Category getOrCreate() {
+        return database.categoryService.getOrCreateCategory(names[ThreadLocalRandom.current().nextInt(names.length)]);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.expense.benchmark;
+
+import com.example.expense.model.ExpenseRow;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CSV and PDF export of rows already in memory, written to a temporary file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgs = {"-Djava.awt.headless=true", "-Xmx2g"})
+public class ExportBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private BenchmarkDatabase database;
+    private List<ExpenseRow> expenses;
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        database = new BenchmarkDatabase();
+        expenses = BenchmarkDatabase.rows(rows);
+        file = Files.createTempFile("export-benchmark", null).toFile();
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+        database.close();
+    }
+
+    @Benchmark
+    public long csv() throws IOException {
+        database.expenseService.exportToCsv(expenses, file);
+        return file.length();
+    }
+
+    @Benchmark
+    public long pdf() throws Exception {
+        database.expenseService.exportToPdf(expenses, file, "benchmark");
+        return file.length();
+    }
+}
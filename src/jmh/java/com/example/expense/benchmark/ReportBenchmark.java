@@ -0,0 +1,65 @@
+package com.example.expense.benchmark;
+
+import com.example.expense.model.ExpenseRow;
+import com.example.expense.model.User;
+import com.example.expense.service.ReportPeriod;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Report queries for one user and period, straight from the database and
+ * through the service's report cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReportBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"DAILY", "WEEKLY", "MONTHLY", "YEARLY"})
+    public ReportPeriod period;
+
+    private BenchmarkDatabase database;
+    private User user;
+    private LocalDate date;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase().seed(20, rows);
+        user = database.users.get(0);
+        date = BenchmarkDatabase.FIRST_DAY.plusDays(400);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<ExpenseRow> query() {
+        return database.expenseRepository.findRowsByUserAndDateBetween(user, period.start(date), period.end(date));
+    }
+
+    @Benchmark
+    public List<ExpenseRow> cached() {
+        return database.expenseService.getReport(user, period, date);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.expense.benchmark;
+
+import com.example.expense.model.ExpenseQuery;
+import com.example.expense.model.ExpenseRow;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Filtering the paged expense tables by search text: the count and the
+ * first page, as the table asks for them. The search index is built once
+ * during warmup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"ta", "coffee bus", "nomatch"})
+    public String search;
+
+    private BenchmarkDatabase database;
+    private ExpenseQuery query;
+
+    @Setup
+    public void setUp() {
+        database = new BenchmarkDatabase().seed(20, rows);
+        query = ExpenseQuery.all().withSearch(search);
+    }
+
+    @TearDown
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<ExpenseRow> filter() {
+        database.expenseService.countExpenseRows(query);
+        return database.expenseService.getExpenseRows(query, 0, 200);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.expense.benchmark;
+
+import com.example.expense.model.ExpenseRow;
+import com.example.expense.view.ExpenseTableModel;
+import java.util.List;
+import javax.swing.RowSorter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sorting the report table after its rows were replaced, which includes
+ * computing the column's sort ranks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Djava.awt.headless=true")
+public class TableModelBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    @Param({"0", "1", "2", "3"})
+    public int column;
+
+    private final ExpenseTableModel model = new ExpenseTableModel();
+    private RowSorter<ExpenseTableModel> sorter;
+    private List<ExpenseRow> expenses;
+
+    @Setup
+    public void setUp() {
+        expenses = BenchmarkDatabase.rows(rows);
+        sorter = model.createRowSorter();
+    }
+
+    @Benchmark
+    public int sort() {
+        model.setExpenses(expenses);
+        sorter.toggleSortOrder(column);
+        return sorter.convertRowIndexToModel(0);
+    }
+}
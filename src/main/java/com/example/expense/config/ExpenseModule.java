@@ -3,20 +3,30 @@ package com.example.expense.config;
 import com.example.expense.repository.ExpenseRepository;
 import com.example.expense.repository.UserRepository;
 import com.example.expense.repository.CategoryRepository;
+import com.example.expense.repository.SchemaMigrator;
+import com.example.expense.repository.UnitOfWork;
 import com.example.expense.service.ExpenseService;
+import com.example.expense.service.ExportJobService;
 import com.example.expense.service.UserService;
 import com.example.expense.service.CategoryService;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import jakarta.inject.Singleton;
-import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
 
 public class ExpenseModule extends AbstractModule {
 
+    static final String PERSISTENCE_UNIT = "expense-tracker-unit";
+
     @Override
     protected void configure() {
+        // One EntityManager per operation, connections come from the pool
+        bind(UnitOfWork.class).in(Singleton.class);
+
         // Bind repositories and services
         bind(ExpenseRepository.class).in(Singleton.class);
         bind(UserRepository.class).in(Singleton.class);
@@ -25,17 +35,30 @@ public class ExpenseModule extends AbstractModule {
         bind(ExpenseService.class).in(Singleton.class);
         bind(UserService.class).in(Singleton.class);
         bind(CategoryService.class).in(Singleton.class);
+        bind(ExportJobService.class).in(Singleton.class);
     }
 
     @Provides
     @Singleton
     EntityManagerFactory provideEntityManagerFactory() {
-        return Persistence.createEntityManagerFactory("expense-tracker-unit");
+        EntityManagerFactory entityManagerFactory = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT,
+                persistenceOverrides(System.getProperties()));
+        new SchemaMigrator(entityManagerFactory).migrate();
+        return entityManagerFactory;
     }
 
-    @Provides
-    @Singleton
-    EntityManager provideEntityManager(EntityManagerFactory entityManagerFactory) {
-        return entityManagerFactory.createEntityManager();
+    /**
+     * Lets deployments tune the connection pool and JDBC settings without
+     * editing persistence.xml, e.g. {@code -Dhibernate.hikari.maximumPoolSize=20}
+     * or {@code -Djakarta.persistence.jdbc.url=...}.
+     */
+    static Map<String, String> persistenceOverrides(Properties properties) {
+        Map<String, String> overrides = new HashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith("hibernate.") || name.startsWith("jakarta.persistence.")) {
+                overrides.put(name, properties.getProperty(name));
+            }
+        }
+        return overrides;
     }
 }
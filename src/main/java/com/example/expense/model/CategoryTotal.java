@@ -0,0 +1,9 @@
+package com.example.expense.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Sum and number of expenses in one category, computed by the database.
+ */
+public record CategoryTotal(String category, BigDecimal total, long count) {
+}
@@ -1,20 +1,40 @@
 package com.example.expense.model;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.NamedAttributeNode;
+import jakarta.persistence.NamedEntityGraph;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "expenses")
+@Table(name = "expenses", indexes = {
+        // Every report filters by user and date range
+        @Index(name = "idx_expenses_user_date", columnList = "user_id, date"),
+        @Index(name = "idx_expenses_category", columnList = "category_id")
+})
+@NamedEntityGraph(name = Expense.GRAPH_DETAILS, attributeNodes = {
+        @NamedAttributeNode("user"),
+        @NamedAttributeNode("category")
+})
 public class Expense {
 
+    /**
+     * Entity graph that loads user and category in the same select. Use it
+     * when the associations are read after the entity is detached.
+     */
+    public static final String GRAPH_DETAILS = "Expense.details";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "expense_seq")
+    @SequenceGenerator(name = "expense_seq", sequenceName = "expenses_seq", allocationSize = 50)
     private Long id;
 
     private BigDecimal amount;
@@ -23,10 +43,10 @@ public class Expense {
 
     private String description;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private User user;
 
-    @ManyToOne(cascade = jakarta.persistence.CascadeType.ALL)
+    @ManyToOne(fetch = FetchType.LAZY)
     private Category category;
 
     public Expense() {
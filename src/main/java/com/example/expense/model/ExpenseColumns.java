@@ -0,0 +1,524 @@
+package com.example.expense.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column-oriented, read-only copy of many expenses for analytics. Each row is
+ * stored across primitive arrays: the amount in minor units (cents), the date
+ * as an epoch day, and category and user as ids into small dictionaries. A
+ * row takes 20 bytes, so five million rows fit in about 100 MB.
+ *
+ * <p>
+ * The kernels ({@link #sum}, {@link #count}, {@link #sumByCategory},
+ * {@link #sumByUser}, {@link #sumByDay}) scan the arrays without allocating
+ * per row; group-by kernels write into arrays supplied by the caller, and
+ * {@link #sumAll} fills every grouping in a single pass over a row range.
+ * Amounts stay exact: an amount with more than two decimals is rejected when
+ * the columns are built.
+ */
+public final class ExpenseColumns {
+
+    /** Category or user id of rows that have none. */
+    public static final int NONE = -1;
+    /** Filter value matching every category or user. */
+    public static final int ANY = Integer.MIN_VALUE;
+
+    /**
+     * Row filter for the kernels: an inclusive epoch-day range and a user and
+     * category id, each of which may be {@link #ANY}.
+     */
+    public record Filter(int fromDay, int toDay, int user, int category) {
+
+        public static final Filter ALL = new Filter(Integer.MIN_VALUE, Integer.MAX_VALUE, ANY, ANY);
+
+        public Filter between(LocalDate from, LocalDate to) {
+            return new Filter((int) from.toEpochDay(), (int) to.toEpochDay(), user, category);
+        }
+
+        public Filter forUser(int user) {
+            return new Filter(fromDay, toDay, user, category);
+        }
+
+        public Filter forCategory(int category) {
+            return new Filter(fromDay, toDay, user, category);
+        }
+    }
+
+    private final int size;
+    private final long[] amounts;
+    private final int[] days;
+    private final int[] categories;
+    private final int[] users;
+    private final String[] categoryNames;
+    private final String[] usernames;
+    private final int firstDay;
+    private final int lastDay;
+
+    private ExpenseColumns(Builder builder) {
+        this.size = builder.size;
+        this.amounts = Arrays.copyOf(builder.amounts, size);
+        this.days = Arrays.copyOf(builder.days, size);
+        this.categories = Arrays.copyOf(builder.categories, size);
+        this.users = Arrays.copyOf(builder.users, size);
+        this.categoryNames = builder.categoryNames.toArray(new String[0]);
+        this.usernames = builder.usernames.toArray(new String[0]);
+        this.firstDay = builder.firstDay;
+        this.lastDay = builder.lastDay;
+    }
+
+    public static Builder builder() {
+        return new Builder(1024);
+    }
+
+    public static Builder builder(int expectedRows) {
+        return new Builder(expectedRows);
+    }
+
+    /**
+     * The amount in cents, exactly.
+     *
+     * @throws ArithmeticException if the amount has more than two decimals
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        return Money.minorUnitsOf(amount);
+    }
+
+    public static BigDecimal fromMinorUnits(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, 2);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long amountAt(int row) {
+        return amounts[row];
+    }
+
+    public int dayAt(int row) {
+        return days[row];
+    }
+
+    public int categoryAt(int row) {
+        return categories[row];
+    }
+
+    public int userAt(int row) {
+        return users[row];
+    }
+
+    /**
+     * Epoch day of the earliest row; {@link Integer#MAX_VALUE} when empty.
+     */
+    public int firstDay() {
+        return firstDay;
+    }
+
+    /**
+     * Epoch day of the latest row; {@link Integer#MIN_VALUE} when empty.
+     */
+    public int lastDay() {
+        return lastDay;
+    }
+
+    public int categoryCount() {
+        return categoryNames.length;
+    }
+
+    public String categoryName(int category) {
+        return categoryNames[category];
+    }
+
+    /**
+     * The dictionary id of the category, or {@link #NONE} if no row has it.
+     */
+    public int categoryId(String name) {
+        return Arrays.asList(categoryNames).indexOf(name);
+    }
+
+    public int userCount() {
+        return usernames.length;
+    }
+
+    public String username(int user) {
+        return usernames[user];
+    }
+
+    public int userId(String username) {
+        return Arrays.asList(usernames).indexOf(username);
+    }
+
+    /**
+     * Sum of the matching amounts in minor units.
+     */
+    public long sum(Filter filter) {
+        return sum(filter, 0, size);
+    }
+
+    /**
+     * Like {@link #sum(Filter)}, over the rows {@code [from, to)} only, so
+     * callers can split the work.
+     */
+    public long sum(Filter filter, int from, int to) {
+        long total = 0;
+        for (int row = from; row < to; row++) {
+            if (matches(filter, row)) {
+                total += amounts[row];
+            }
+        }
+        return total;
+    }
+
+    public long count(Filter filter) {
+        long count = 0;
+        for (int row = 0; row < size; row++) {
+            if (matches(filter, row)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Adds each matching row's amount and a count of one to the slots of its
+     * category. Both arrays need {@link #categoryCount()} slots; rows without
+     * a category are skipped.
+     */
+    public void sumByCategory(Filter filter, long[] sums, long[] counts) {
+        sumByCategory(filter, 0, size, sums, counts);
+    }
+
+    public void sumByCategory(Filter filter, int from, int to, long[] sums, long[] counts) {
+        for (int row = from; row < to; row++) {
+            int category = categories[row];
+            if (category != NONE && matches(filter, row)) {
+                sums[category] += amounts[row];
+                counts[category]++;
+            }
+        }
+    }
+
+    /**
+     * Like {@link #sumByCategory(Filter, long[], long[])}, per user; the
+     * arrays need {@link #userCount()} slots.
+     */
+    public void sumByUser(Filter filter, long[] sums, long[] counts) {
+        sumByUser(filter, 0, size, sums, counts);
+    }
+
+    public void sumByUser(Filter filter, int from, int to, long[] sums, long[] counts) {
+        for (int row = from; row < to; row++) {
+            int user = users[row];
+            if (user != NONE && matches(filter, row)) {
+                sums[user] += amounts[row];
+                counts[user]++;
+            }
+        }
+    }
+
+    /**
+     * Adds each matching row's amount to {@code sums[day - firstDay]}. Rows
+     * outside the array's days are skipped.
+     */
+    public void sumByDay(Filter filter, int firstDay, long[] sums) {
+        sumByDay(filter, 0, size, firstDay, sums);
+    }
+
+    public void sumByDay(Filter filter, int from, int to, int firstDay, long[] sums) {
+        for (int row = from; row < to; row++) {
+            int slot = days[row] - firstDay;
+            if (slot >= 0 && slot < sums.length && matches(filter, row)) {
+                sums[slot] += amounts[row];
+            }
+        }
+    }
+
+    /**
+     * Empty totals with a slot for every category and user, and for every day
+     * the filter and the rows have in common.
+     */
+    public Totals newTotals(Filter filter) {
+        return totalsForDays(filter, firstDay, lastDay);
+    }
+
+    /**
+     * Like {@link #newTotals(Filter)}, with day slots only for the days of
+     * the rows in {@code [from, to)}, so that summing a slice of the rows
+     * does not allocate a slot for every day of the whole data set.
+     */
+    public Totals newTotals(Filter filter, int from, int to) {
+        int first = Integer.MAX_VALUE;
+        int last = Integer.MIN_VALUE;
+        for (int row = from; row < to; row++) {
+            first = Math.min(first, days[row]);
+            last = Math.max(last, days[row]);
+        }
+        return totalsForDays(filter, first, last);
+    }
+
+    private Totals totalsForDays(Filter filter, int firstDay, int lastDay) {
+        int from = Math.max(firstDay, filter.fromDay());
+        int to = Math.min(lastDay, filter.toDay());
+        return new Totals(categoryCount(), userCount(), from, (int) Math.max((long) to - from + 1, 0));
+    }
+
+    /**
+     * Adds the matching rows in {@code [from, to)} to the overall total and to
+     * the category, user and day groups of {@code totals} in one pass.
+     * {@code totals} must come from {@link #newTotals(Filter)}, or from
+     * {@link #newTotals(Filter, int, int)} for the same rows, with the same
+     * filter.
+     */
+    public void sumAll(Filter filter, int from, int to, Totals totals) {
+        long count = 0;
+        long sum = 0;
+        for (int row = from; row < to; row++) {
+            if (matches(filter, row)) {
+                long amount = amounts[row];
+                count++;
+                sum += amount;
+                int category = categories[row];
+                if (category != NONE) {
+                    totals.categorySums[category] += amount;
+                    totals.categoryCounts[category]++;
+                }
+                int user = users[row];
+                if (user != NONE) {
+                    totals.userSums[user] += amount;
+                    totals.userCounts[user]++;
+                }
+                int day = days[row] - totals.firstDay;
+                totals.daySums[day] += amount;
+                totals.dayCounts[day]++;
+            }
+        }
+        totals.count += count;
+        totals.sum += sum;
+    }
+
+    /**
+     * Category totals of the matching rows, largest total first, like
+     * {@code ExpenseRepository.totalsByCategory}.
+     */
+    public List<CategoryTotal> categoryTotals(Filter filter) {
+        long[] sums = new long[categoryCount()];
+        long[] counts = new long[categoryCount()];
+        sumByCategory(filter, sums, counts);
+        List<CategoryTotal> totals = new ArrayList<>();
+        for (int category = 0; category < sums.length; category++) {
+            if (counts[category] > 0) {
+                totals.add(new CategoryTotal(categoryNames[category], fromMinorUnits(sums[category]),
+                        counts[category]));
+            }
+        }
+        totals.sort(Comparator.comparing(CategoryTotal::total).reversed());
+        return totals;
+    }
+
+    public List<UserTotal> userTotals(Filter filter) {
+        long[] sums = new long[userCount()];
+        long[] counts = new long[userCount()];
+        sumByUser(filter, sums, counts);
+        List<UserTotal> totals = new ArrayList<>();
+        for (int user = 0; user < sums.length; user++) {
+            if (counts[user] > 0) {
+                totals.add(new UserTotal(usernames[user], fromMinorUnits(sums[user]), counts[user]));
+            }
+        }
+        totals.sort(Comparator.comparing(UserTotal::total).reversed());
+        return totals;
+    }
+
+    private boolean matches(Filter filter, int row) {
+        int day = days[row];
+        return day >= filter.fromDay() && day <= filter.toDay()
+                && (filter.user() == ANY || users[row] == filter.user())
+                && (filter.category() == ANY || categories[row] == filter.category());
+    }
+
+    /**
+     * Mutable sums and counts per category, user and day, in minor units, as
+     * filled by {@link #sumAll}. Partial totals of disjoint row ranges are
+     * combined with {@link #merge}. Not thread-safe.
+     */
+    public static final class Totals {
+
+        private final long[] categorySums;
+        private final long[] categoryCounts;
+        private final long[] userSums;
+        private final long[] userCounts;
+        private int firstDay;
+        private long[] daySums;
+        private long[] dayCounts;
+        private long count;
+        private long sum;
+
+        private Totals(int categories, int users, int firstDay, int days) {
+            this.categorySums = new long[categories];
+            this.categoryCounts = new long[categories];
+            this.userSums = new long[users];
+            this.userCounts = new long[users];
+            this.firstDay = firstDay;
+            this.daySums = new long[days];
+            this.dayCounts = new long[days];
+        }
+
+        /**
+         * Adds the other totals, which must come from the same columns and
+         * filter, into these. The day slots grow to cover the days of both.
+         */
+        public Totals merge(Totals other) {
+            add(categorySums, 0, other.categorySums);
+            add(categoryCounts, 0, other.categoryCounts);
+            add(userSums, 0, other.userSums);
+            add(userCounts, 0, other.userCounts);
+            if (other.daySums.length > 0) {
+                coverDays(other.firstDay, other.firstDay + other.daySums.length);
+                add(daySums, other.firstDay - firstDay, other.daySums);
+                add(dayCounts, other.firstDay - firstDay, other.dayCounts);
+            }
+            count += other.count;
+            sum += other.sum;
+            return this;
+        }
+
+        /**
+         * Widens the day slots, if needed, to the epoch days {@code [from, to)}.
+         */
+        private void coverDays(int from, int to) {
+            if (daySums.length > 0) {
+                from = Math.min(from, firstDay);
+                to = Math.max(to, firstDay + daySums.length);
+            }
+            if (from == firstDay && to - from == daySums.length) {
+                return;
+            }
+            long[] sums = new long[to - from];
+            long[] counts = new long[to - from];
+            System.arraycopy(daySums, 0, sums, daySums.length > 0 ? firstDay - from : 0, daySums.length);
+            System.arraycopy(dayCounts, 0, counts, dayCounts.length > 0 ? firstDay - from : 0, dayCounts.length);
+            firstDay = from;
+            daySums = sums;
+            dayCounts = counts;
+        }
+
+        private static void add(long[] into, int offset, long[] values) {
+            for (int i = 0; i < values.length; i++) {
+                into[offset + i] += values[i];
+            }
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long sum() {
+            return sum;
+        }
+
+        public long categorySum(int category) {
+            return categorySums[category];
+        }
+
+        public long categoryCount(int category) {
+            return categoryCounts[category];
+        }
+
+        public long userSum(int user) {
+            return userSums[user];
+        }
+
+        public long userCount(int user) {
+            return userCounts[user];
+        }
+
+        /**
+         * Epoch day of the first day slot.
+         */
+        public int firstDay() {
+            return firstDay;
+        }
+
+        public int dayCount() {
+            return daySums.length;
+        }
+
+        public long daySum(int slot) {
+            return daySums[slot];
+        }
+
+        public long dayRowCount(int slot) {
+            return dayCounts[slot];
+        }
+    }
+
+    /**
+     * Collects rows one at a time, growing the arrays as needed, and builds
+     * trimmed columns. Not thread-safe.
+     */
+    public static final class Builder {
+
+        private long[] amounts;
+        private int[] days;
+        private int[] categories;
+        private int[] users;
+        private int size;
+        private final List<String> categoryNames = new ArrayList<>();
+        private final Map<String, Integer> categoryIds = new HashMap<>();
+        private final List<String> usernames = new ArrayList<>();
+        private final Map<Long, Integer> userIds = new HashMap<>();
+        private int firstDay = Integer.MAX_VALUE;
+        private int lastDay = Integer.MIN_VALUE;
+
+        private Builder(int expectedRows) {
+            int capacity = Math.max(expectedRows, 16);
+            amounts = new long[capacity];
+            days = new int[capacity];
+            categories = new int[capacity];
+            users = new int[capacity];
+        }
+
+        /**
+         * Adds a row. {@code category} and {@code userId} may be null.
+         */
+        public Builder add(LocalDate date, BigDecimal amount, String category, Long userId, String username) {
+            if (size == amounts.length) {
+                int capacity = size + (size >> 1);
+                amounts = Arrays.copyOf(amounts, capacity);
+                days = Arrays.copyOf(days, capacity);
+                categories = Arrays.copyOf(categories, capacity);
+                users = Arrays.copyOf(users, capacity);
+            }
+            amounts[size] = toMinorUnits(amount);
+            int day = (int) date.toEpochDay();
+            days[size] = day;
+            firstDay = Math.min(firstDay, day);
+            lastDay = Math.max(lastDay, day);
+            categories[size] = category != null ? categoryIds.computeIfAbsent(category, name -> {
+                categoryNames.add(name);
+                return categoryNames.size() - 1;
+            }) : NONE;
+            users[size] = userId != null ? userIds.computeIfAbsent(userId, id -> {
+                usernames.add(username);
+                return usernames.size() - 1;
+            }) : NONE;
+            size++;
+            return this;
+        }
+
+        public Builder add(ExpenseRow row) {
+            return add(row.date(), row.amount(), row.category(), null, null);
+        }
+
+        public ExpenseColumns build() {
+            return new ExpenseColumns(this);
+        }
+    }
+}
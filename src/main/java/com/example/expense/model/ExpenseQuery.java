@@ -0,0 +1,67 @@
+package com.example.expense.model;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Filter and order for the windowed row queries behind paged tables. A null
+ * {@code user} covers every user. The search text is split into
+ * {@link #words(String) words}, and a row matches when its description or
+ * category contains every one of them, ignoring case; a search without words
+ * matches every row. The repository and the service's search index both
+ * match this way.
+ * Rows with equal sort values are ordered by id, so windows never overlap.
+ */
+public record ExpenseQuery(User user, String search, SortColumn sortColumn, boolean descending) {
+
+    public enum SortColumn {
+        DATE, CATEGORY, DESCRIPTION, AMOUNT, ID
+    }
+
+    public ExpenseQuery {
+        search = words(search).isEmpty() ? null : search.trim();
+        sortColumn = sortColumn == null ? SortColumn.ID : sortColumn;
+    }
+
+    public static ExpenseQuery forUser(User user) {
+        return new ExpenseQuery(user, null, SortColumn.DATE, false);
+    }
+
+    public static ExpenseQuery all() {
+        return new ExpenseQuery(null, null, SortColumn.ID, false);
+    }
+
+    /**
+     * The lower-case runs of letters and digits in the text, in order and
+     * without repeats; everything else separates words.
+     */
+    public static Set<String> words(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        if (text != null) {
+            int start = -1;
+            for (int i = 0; i <= text.length(); i++) {
+                boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+                if (wordChar && start < 0) {
+                    start = i;
+                } else if (!wordChar && start >= 0) {
+                    words.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                    start = -1;
+                }
+            }
+        }
+        return words;
+    }
+
+    public Set<String> searchWords() {
+        return words(search);
+    }
+
+    public ExpenseQuery withSearch(String search) {
+        return new ExpenseQuery(user, search, sortColumn, descending);
+    }
+
+    public ExpenseQuery sortedBy(SortColumn sortColumn, boolean descending) {
+        return new ExpenseQuery(user, search, sortColumn, descending);
+    }
+}
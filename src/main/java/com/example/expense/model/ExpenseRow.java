@@ -0,0 +1,19 @@
+package com.example.expense.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Read-only view of an expense for tables, reports and exports. Carries only
+ * the columns those need, with the category flattened to its name, so it can
+ * be loaded with one query and without touching the User association.
+ * {@code category} is null for uncategorised expenses.
+ */
+public record ExpenseRow(Long id, LocalDate date, String category, String description, BigDecimal amount) {
+
+    public static ExpenseRow of(Expense expense) {
+        return new ExpenseRow(expense.getId(), expense.getDate(),
+                expense.getCategory() != null ? expense.getCategory().getName() : null,
+                expense.getDescription(), expense.getAmount());
+    }
+}
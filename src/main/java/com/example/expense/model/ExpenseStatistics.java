@@ -0,0 +1,21 @@
+package com.example.expense.model;
+
+import java.util.List;
+
+/**
+ * Immutable set of aggregates over the same expenses, computed together so
+ * that every chart drawn from it agrees: the overall total and count, totals
+ * per category and per user (largest first), and totals per day, ISO week
+ * and month (oldest first, only periods with expenses).
+ */
+public record ExpenseStatistics(Money total, long count, List<CategoryTotal> byCategory, List<UserTotal> byUser,
+        List<PeriodTotal> byDay, List<PeriodTotal> byWeek, List<PeriodTotal> byMonth) {
+
+    public ExpenseStatistics {
+        byCategory = List.copyOf(byCategory);
+        byUser = List.copyOf(byUser);
+        byDay = List.copyOf(byDay);
+        byWeek = List.copyOf(byWeek);
+        byMonth = List.copyOf(byMonth);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.expense.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Exact amount of money. Amounts that fit are held as a {@code long} number
+ * of minor units (cents), so adding and comparing them needs no
+ * {@link BigDecimal}; an amount with finer than cent precision, or beyond
+ * the {@code long} range, is held as a {@link BigDecimal} instead. Arithmetic
+ * switches to the {@link BigDecimal} form on overflow rather than wrapping.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final Money ZERO = new Money(0, null);
+
+    private final long minorUnits;
+    // Only set when the value cannot be held in minor units
+    private final BigDecimal exact;
+
+    private Money(long minorUnits, BigDecimal exact) {
+        this.minorUnits = minorUnits;
+        this.exact = exact;
+    }
+
+    public static Money ofMinorUnits(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits, null);
+    }
+
+    public static Money of(BigDecimal amount) {
+        try {
+            return ofMinorUnits(minorUnitsOf(amount));
+        } catch (ArithmeticException e) {
+            return new Money(0, amount);
+        }
+    }
+
+    /**
+     * The amount in minor units.
+     *
+     * @throws ArithmeticException if it has finer than cent precision or does
+     *         not fit in a {@code long}
+     */
+    public static long minorUnitsOf(BigDecimal amount) {
+        return amount.movePointRight(2).longValueExact();
+    }
+
+    public boolean hasMinorUnits() {
+        return exact == null;
+    }
+
+    /**
+     * @throws ArithmeticException if {@link #hasMinorUnits()} is false
+     */
+    public long minorUnits() {
+        if (exact != null) {
+            throw new ArithmeticException("Amount does not fit in minor units: " + exact);
+        }
+        return minorUnits;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return exact != null ? exact : BigDecimal.valueOf(minorUnits, 2);
+    }
+
+    public Money plus(Money other) {
+        if (exact == null && other.exact == null) {
+            long sum = minorUnits + other.minorUnits;
+            // Overflow iff both operands have the sign the result lacks
+            if (((minorUnits ^ sum) & (other.minorUnits ^ sum)) >= 0) {
+                return ofMinorUnits(sum);
+            }
+        }
+        return of(toBigDecimal().add(other.toBigDecimal()));
+    }
+
+    public Money minus(Money other) {
+        if (exact == null && other.exact == null) {
+            long difference = minorUnits - other.minorUnits;
+            if (((minorUnits ^ other.minorUnits) & (minorUnits ^ difference)) >= 0) {
+                return ofMinorUnits(difference);
+            }
+        }
+        return of(toBigDecimal().subtract(other.toBigDecimal()));
+    }
+
+    public int signum() {
+        return exact != null ? exact.signum() : Long.signum(minorUnits);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        if (exact == null && other.exact == null) {
+            return Long.compare(minorUnits, other.minorUnits);
+        }
+        return toBigDecimal().compareTo(other.toBigDecimal());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money other && compareTo(other) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        // Values that fit in minor units are always held that way, so the forms never mix for one value
+        return exact != null ? exact.stripTrailingZeros().hashCode() : Long.hashCode(minorUnits);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
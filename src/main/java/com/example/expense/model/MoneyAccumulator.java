@@ -0,0 +1,59 @@
+package com.example.expense.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Mutable running total for summing many amounts exactly. The total is kept
+ * in a {@code long} of minor units; it moves to a {@link BigDecimal} only if
+ * an addition would overflow or an amount has finer than cent precision, so
+ * summing cents allocates nothing. Not thread-safe.
+ */
+public final class MoneyAccumulator {
+
+    private long minorUnits;
+    private long count;
+    // Set once the total no longer fits in minor units
+    private BigDecimal overflow;
+
+    public MoneyAccumulator add(long amountMinorUnits) {
+        count++;
+        if (overflow == null) {
+            long sum = minorUnits + amountMinorUnits;
+            if (((minorUnits ^ sum) & (amountMinorUnits ^ sum)) >= 0) {
+                minorUnits = sum;
+                return this;
+            }
+            overflow = BigDecimal.valueOf(minorUnits, 2);
+        }
+        overflow = overflow.add(BigDecimal.valueOf(amountMinorUnits, 2));
+        return this;
+    }
+
+    public MoneyAccumulator add(BigDecimal amount) {
+        if (overflow == null) {
+            try {
+                return add(Money.minorUnitsOf(amount));
+            } catch (ArithmeticException e) {
+                overflow = BigDecimal.valueOf(minorUnits, 2);
+            }
+        }
+        count++;
+        overflow = overflow.add(amount);
+        return this;
+    }
+
+    public MoneyAccumulator add(Money amount) {
+        return amount.hasMinorUnits() ? add(amount.minorUnits()) : add(amount.toBigDecimal());
+    }
+
+    /**
+     * Number of amounts added so far.
+     */
+    public long count() {
+        return count;
+    }
+
+    public Money total() {
+        return overflow != null ? Money.of(overflow) : Money.ofMinorUnits(minorUnits);
+    }
+}
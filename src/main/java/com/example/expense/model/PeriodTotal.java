@@ -0,0 +1,15 @@
+package com.example.expense.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Sum and number of expenses in the day, week or month starting at
+ * {@code periodStart}.
+ */
+public record PeriodTotal(LocalDate periodStart, BigDecimal total, long count) {
+
+    public PeriodTotal add(PeriodTotal other) {
+        return new PeriodTotal(periodStart, total.add(other.total), count + other.count);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.expense.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Sum and number of expenses recorded by one user, computed by the database.
+ */
+public record UserTotal(String username, BigDecimal total, long count) {
+}
@@ -1,47 +1,230 @@
 package com.example.expense.repository;
 
+import jakarta.persistence.CacheRetrieveMode;
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
 
 public abstract class BaseRepository<T> {
 
-    protected final EntityManager entityManager;
+    public static final int DEFAULT_BATCH_SIZE = 50;
+    public static final int DEFAULT_FETCH_SIZE = 500;
+    static final String BATCH_SIZE_PROPERTY = "hibernate.jdbc.batch_size";
+
+    protected final UnitOfWork unitOfWork;
     private final Class<T> entityClass;
+    private final boolean cacheable;
+    private int batchSize;
 
-    protected BaseRepository(EntityManager entityManager, Class<T> entityClass) {
-        this.entityManager = entityManager;
+    protected BaseRepository(UnitOfWork unitOfWork, Class<T> entityClass) {
+        this.unitOfWork = unitOfWork;
         this.entityClass = entityClass;
+        this.cacheable = entityClass.isAnnotationPresent(Cacheable.class);
+        this.batchSize = resolveBatchSize(unitOfWork);
     }
 
     public T save(T entity) {
-        entityManager.getTransaction().begin();
-        entityManager.persist(entity);
-        entityManager.getTransaction().commit();
-        return entity;
+        return unitOfWork.inTransaction(entityManager -> {
+            entityManager.persist(entity);
+            return entity;
+        });
     }
 
     public T update(T entity) {
-        entityManager.getTransaction().begin();
-        T merged = entityManager.merge(entity);
-        entityManager.getTransaction().commit();
-        return merged;
+        return unitOfWork.inTransaction(entityManager -> entityManager.merge(entity));
     }
 
+    /**
+     * Removes the entity. Entities returned by earlier calls are detached, so
+     * they are merged into the current unit of work first.
+     */
     public void delete(T entity) {
-        entityManager.getTransaction().begin();
-        entityManager.remove(entity);
-        entityManager.getTransaction().commit();
+        unitOfWork.runInTransaction(entityManager -> remove(entityManager, entity));
+    }
+
+    /**
+     * Persists all entities in one transaction. The persistence context is
+     * flushed and cleared every {@link #getBatchSize()} entities so that
+     * Hibernate sends them as JDBC batches and memory does not grow with the
+     * size of the collection. Entities of earlier batches are detached when
+     * this method returns.
+     */
+    public List<T> saveAll(Collection<T> entities) {
+        return inBatches(entities, (entityManager, entity) -> {
+            entityManager.persist(entity);
+            return entity;
+        });
+    }
+
+    /**
+     * Merges all entities in one transaction, flushing and clearing in batches
+     * like {@link #saveAll(Collection)}. Returns the merged instances.
+     */
+    public List<T> updateAll(Collection<T> entities) {
+        return inBatches(entities, EntityManager::merge);
+    }
+
+    /**
+     * Removes all entities in one transaction. Detached instances are merged
+     * first so callers can pass entities loaded by an earlier query.
+     */
+    public void deleteAll(Collection<T> entities) {
+        inBatches(entities, (entityManager, entity) -> {
+            remove(entityManager, entity);
+            return entity;
+        });
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.batchSize = batchSize;
     }
 
     public Optional<T> findById(Long id) {
-        return Optional.ofNullable(entityManager.find(entityClass, id));
+        return unitOfWork.call(entityManager -> Optional.ofNullable(entityManager.find(entityClass, id)));
     }
 
+    /**
+     * Returns every entity. For entities in the second-level cache the result
+     * goes to the query cache as well, and is invalidated by any write to the
+     * table.
+     */
     public List<T> findAll() {
         String jpql = "SELECT e FROM " + entityClass.getSimpleName() + " e";
-        TypedQuery<T> query = entityManager.createQuery(jpql, entityClass);
-        return query.getResultList();
+        return unitOfWork.call(entityManager -> {
+            TypedQuery<T> query = entityManager.createQuery(jpql, entityClass);
+            return (cacheable ? cacheable(query) : query).getResultList();
+        });
+    }
+
+    /**
+     * Streams every entity in id order through a forward-only cursor. Rows are
+     * detached as they are consumed, so memory stays constant however large
+     * the table is. The stream holds a JDBC cursor and must be closed.
+     */
+    public Stream<T> streamAll() {
+        String jpql = "SELECT e FROM " + entityClass.getSimpleName() + " e ORDER BY e.id";
+        return unitOfWork.stream(entityManager ->
+                stream(entityManager, entityManager.createQuery(jpql, entityClass)));
+    }
+
+    /**
+     * Returns up to {@code size} entities with an id greater than
+     * {@code afterId} (or from the start when it is null), in id order.
+     */
+    public Page<T> findPage(Long afterId, int size) {
+        String jpql = "SELECT e FROM " + entityClass.getSimpleName() + " e"
+                + (afterId != null ? " WHERE e.id > :afterId" : "") + " ORDER BY e.id";
+        return unitOfWork.call(entityManager -> {
+            TypedQuery<T> query = entityManager.createQuery(jpql, entityClass);
+            if (afterId != null) {
+                query.setParameter("afterId", afterId);
+            }
+            return page(entityManager, query, size);
+        });
+    }
+
+    protected Stream<T> stream(EntityManager entityManager, TypedQuery<T> query) {
+        withBulkFetch(entityManager, query);
+        query.setHint(HibernateHints.HINT_FETCH_SIZE, DEFAULT_FETCH_SIZE);
+        query.setHint(HibernateHints.HINT_READ_ONLY, true);
+        return query.getResultStream().map(entity -> {
+            entityManager.detach(entity);
+            return entity;
+        });
+    }
+
+    protected Page<T> page(EntityManager entityManager, TypedQuery<T> query, int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        withBulkFetch(entityManager, query);
+        query.setMaxResults(size + 1);
+        return Page.of(query.getResultList(), size);
+    }
+
+    /**
+     * Hook for subclasses to fetch the associations that callers of streams
+     * and pages read after the entities are detached, e.g. with an entity
+     * graph. The default leaves lazy associations unloaded.
+     */
+    protected TypedQuery<T> withBulkFetch(EntityManager entityManager, TypedQuery<T> query) {
+        return query;
+    }
+
+    /**
+     * Puts the query's results in the query cache. Only worthwhile for
+     * queries over cached entities: the cache holds ids and resolves them
+     * through the entity regions.
+     */
+    protected static <R> TypedQuery<R> cacheable(TypedQuery<R> query) {
+        return query.setHint(HibernateHints.HINT_CACHEABLE, true);
+    }
+
+    /**
+     * Reads the query's results from the database even for cached entities,
+     * and refreshes the second-level cache with them. For checks that must
+     * see writes made by other processes, which never invalidate this
+     * process's caches.
+     */
+    protected static <R> TypedQuery<R> uncached(TypedQuery<R> query) {
+        return query.setHint(SpecHints.HINT_SPEC_CACHE_RETRIEVE_MODE, CacheRetrieveMode.BYPASS)
+                .setHint(SpecHints.HINT_SPEC_CACHE_STORE_MODE, CacheStoreMode.REFRESH);
+    }
+
+    private static <T> void remove(EntityManager entityManager, T entity) {
+        entityManager.remove(entityManager.contains(entity) ? entity : entityManager.merge(entity));
+    }
+
+    private List<T> inBatches(Collection<T> entities, BiFunction<EntityManager, T, T> operation) {
+        if (entities.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return unitOfWork.inTransaction(entityManager -> {
+            List<T> results = new ArrayList<>(entities.size());
+            int count = 0;
+            for (T entity : entities) {
+                results.add(operation.apply(entityManager, entity));
+                if (++count % batchSize == 0) {
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+            return results;
+        });
+    }
+
+    // Flushing every hibernate.jdbc.batch_size entities keeps each flush to a
+    // single JDBC batch per statement type.
+    private static int resolveBatchSize(UnitOfWork unitOfWork) {
+        EntityManagerFactory factory = unitOfWork != null ? unitOfWork.getEntityManagerFactory() : null;
+        Object configured = factory != null ? factory.getProperties().get(BATCH_SIZE_PROPERTY) : null;
+        if (configured != null) {
+            try {
+                int size = Integer.parseInt(configured.toString().trim());
+                if (size > 0) {
+                    return size;
+                }
+            } catch (NumberFormatException e) {
+                // fall through to the default
+            }
+        }
+        return DEFAULT_BATCH_SIZE;
     }
 }
@@ -0,0 +1,18 @@
+package com.example.expense.repository;
+
+import org.hibernate.stat.Statistics;
+
+/**
+ * Snapshot of the second-level and query cache counters since the
+ * EntityManagerFactory started. All values are zero when
+ * {@code hibernate.generate_statistics} is off.
+ */
+public record CacheStats(long entityHits, long entityMisses, long entityPuts, long queryHits, long queryMisses,
+        long queryPuts) {
+
+    static CacheStats of(Statistics statistics) {
+        return new CacheStats(statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount(),
+                statistics.getSecondLevelCachePutCount(), statistics.getQueryCacheHitCount(),
+                statistics.getQueryCacheMissCount(), statistics.getQueryCachePutCount());
+    }
+}
@@ -1,27 +1,50 @@
 package com.example.expense.repository;
 
 import com.example.expense.model.Category;
-import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.TypedQuery;
+import java.util.List;
 import java.util.Optional;
 import com.google.inject.Inject;
 
 public class CategoryRepository extends BaseRepository<Category> {
 
     @Inject
-    public CategoryRepository(EntityManager entityManager) {
-        super(entityManager, Category.class);
+    public CategoryRepository(UnitOfWork unitOfWork) {
+        super(unitOfWork, Category.class);
     }
     
     public Optional<Category> findByName(String name) {
-        try {
-            TypedQuery<Category> query = entityManager.createQuery(
-                "SELECT c FROM Category c WHERE c.name = :name", Category.class);
-            query.setParameter("name", name);
-            return Optional.of(query.getSingleResult());
-        } catch (NoResultException e) {
-            return Optional.empty();
-        }
+        return unitOfWork.call(entityManager -> {
+            try {
+                TypedQuery<Category> query = entityManager.createQuery(
+                    "SELECT c FROM Category c WHERE c.name = :name", Category.class);
+                query.setParameter("name", name);
+                return Optional.of(cacheable(query).getSingleResult());
+            } catch (NoResultException e) {
+                return Optional.empty();
+            }
+        });
+    }
+
+    /**
+     * Looks a category up by name, ignoring case, in the database rather
+     * than the caches, so categories created by other processes are found.
+     */
+    public Optional<Category> findByNameInDatabase(String name) {
+        return unitOfWork.call(entityManager -> uncached(entityManager.createQuery(
+                "SELECT c FROM Category c WHERE LOWER(c.name) = LOWER(:name)", Category.class))
+                .setParameter("name", name)
+                .getResultStream()
+                .findFirst());
+    }
+
+    /**
+     * Returns every category as the database has it now, refreshing the
+     * cached entries.
+     */
+    public List<Category> findAllInDatabase() {
+        return unitOfWork.call(entityManager -> uncached(entityManager.createQuery(
+                "SELECT c FROM Category c", Category.class)).getResultList());
     }
 }
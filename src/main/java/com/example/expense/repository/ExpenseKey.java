@@ -0,0 +1,15 @@
+package com.example.expense.repository;
+
+import com.example.expense.model.Expense;
+import java.time.LocalDate;
+
+/**
+ * Keyset position in the (date, id) ordering used by the paged and streamed
+ * expense queries. Pass the key of the last row of a page to get the next one.
+ */
+public record ExpenseKey(LocalDate date, Long id) {
+
+    public static ExpenseKey of(Expense expense) {
+        return new ExpenseKey(expense.getDate(), expense.getId());
+    }
+}
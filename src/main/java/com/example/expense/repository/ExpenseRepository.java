@@ -1,31 +1,475 @@
 package com.example.expense.repository;
 
+import com.example.expense.model.CategoryTotal;
 import com.example.expense.model.Expense;
+import com.example.expense.model.ExpenseColumns;
+import com.example.expense.model.ExpenseQuery;
+import com.example.expense.model.ExpenseRow;
+import com.example.expense.model.PeriodTotal;
 import com.example.expense.model.User;
+import com.example.expense.model.UserTotal;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.hibernate.jpa.HibernateHints;
+import org.hibernate.jpa.SpecHints;
 
 public class ExpenseRepository extends BaseRepository<Expense> {
 
+    private static final String KEYSET_ORDER = " ORDER BY e.date, e.id";
+    private static final String SELECT_ROW = "SELECT new com.example.expense.model.ExpenseRow("
+            + "e.id, e.date, c.name, e.description, e.amount) FROM Expense e LEFT JOIN e.category c";
+    private static final String AFTER_KEY = " AND (e.date > :afterDate OR (e.date = :afterDate AND e.id > :afterId))";
+
     @jakarta.inject.Inject
-    public ExpenseRepository(EntityManager entityManager) {
-        super(entityManager, Expense.class);
+    public ExpenseRepository(UnitOfWork unitOfWork) {
+        super(unitOfWork, Expense.class);
     }
 
+    /**
+     * The user's expenses with user and category left as unloaded proxies;
+     * only their ids may be read once the entities are detached. Use
+     * {@link #findByUserWithDetails(User)} when the associations are needed.
+     */
     public List<Expense> findByUser(User user) {
-        String jpql = "SELECT e FROM Expense e WHERE e.user = :user";
-        TypedQuery<Expense> query = entityManager.createQuery(jpql, Expense.class);
-        query.setParameter("user", user);
-        return query.getResultList();
+        return findByUser(user, false);
+    }
+
+    /**
+     * Like {@link #findByUser(User)}, but user and category are fetched in the
+     * same select through the {@link Expense#GRAPH_DETAILS} entity graph.
+     */
+    public List<Expense> findByUserWithDetails(User user) {
+        return findByUser(user, true);
     }
 
     public List<Expense> findByUserAndDateBetween(User user, java.time.LocalDate startDate, java.time.LocalDate endDate) {
+        return findByUserAndDateBetween(user, startDate, endDate, false);
+    }
+
+    public List<Expense> findByUserAndDateBetweenWithDetails(User user, java.time.LocalDate startDate,
+            java.time.LocalDate endDate) {
+        return findByUserAndDateBetween(user, startDate, endDate, true);
+    }
+
+    public List<Expense> findAllWithDetails() {
+        return unitOfWork.call(entityManager -> withDetails(entityManager,
+                entityManager.createQuery("SELECT e FROM Expense e", Expense.class)).getResultList());
+    }
+
+    public Optional<Expense> findByIdWithDetails(Long id) {
+        return unitOfWork.call(entityManager -> Optional.ofNullable(entityManager.find(Expense.class, id,
+                Map.of(SpecHints.HINT_SPEC_FETCH_GRAPH, entityManager.getEntityGraph(Expense.GRAPH_DETAILS)))));
+    }
+
+    /**
+     * The user's expenses as {@link ExpenseRow} projections in (date, id)
+     * order. One query joins the category name; no entities are hydrated,
+     * tracked for dirty checking or followed to their User.
+     */
+    public List<ExpenseRow> findRowsByUser(User user) {
+        String jpql = SELECT_ROW + " WHERE e.user = :user" + KEYSET_ORDER;
+        return unitOfWork.call(entityManager -> entityManager.createQuery(jpql, ExpenseRow.class)
+                .setParameter("user", user)
+                .getResultList());
+    }
+
+    public List<ExpenseRow> findRowsByUserAndDateBetween(User user, java.time.LocalDate startDate,
+            java.time.LocalDate endDate) {
+        String jpql = SELECT_ROW + " WHERE e.user = :user AND e.date BETWEEN :startDate AND :endDate" + KEYSET_ORDER;
+        return unitOfWork.call(entityManager -> entityManager.createQuery(jpql, ExpenseRow.class)
+                .setParameter("user", user)
+                .setParameter("startDate", startDate)
+                .setParameter("endDate", endDate)
+                .getResultList());
+    }
+
+    public List<ExpenseRow> findAllRows() {
+        String jpql = SELECT_ROW + " ORDER BY e.id";
+        return unitOfWork.call(entityManager -> entityManager.createQuery(jpql, ExpenseRow.class)
+                .getResultList());
+    }
+
+    /**
+     * Loads the user's expenses, or everyone's when {@code user} is null, into
+     * {@link ExpenseColumns}. A scalar projection is streamed through a
+     * forward-only cursor straight into the column arrays, so no entity or
+     * row object is kept per expense.
+     */
+    public ExpenseColumns findColumns(User user) {
+        return findColumns(user, null, null);
+    }
+
+    /**
+     * Like {@link #findColumns(User)}, but only the expenses dated between
+     * the two days inclusive (either may be null for an open end); the range
+     * is applied by the database, so a short period reads only its own rows.
+     */
+    public ExpenseColumns findColumns(User user, LocalDate startDate, LocalDate endDate) {
+        String jpql = "SELECT e.date, e.amount, c.name, u.id, u.username FROM Expense e"
+                + " LEFT JOIN e.category c LEFT JOIN e.user u" + rangeWhere(user, startDate, endDate);
+        return unitOfWork.call(entityManager -> {
+            TypedQuery<Object[]> query = entityManager.createQuery(jpql, Object[].class)
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, DEFAULT_FETCH_SIZE)
+                    .setHint(HibernateHints.HINT_READ_ONLY, true);
+            bindRange(query, user, startDate, endDate);
+            ExpenseColumns.Builder columns = ExpenseColumns.builder();
+            try (Stream<Object[]> rows = query.getResultStream()) {
+                rows.forEach(row -> columns.add((LocalDate) row[0], (BigDecimal) row[1], (String) row[2],
+                        (Long) row[3], (String) row[4]));
+            }
+            return columns.build();
+        });
+    }
+
+    /**
+     * Streams the rows of the user's expenses, or everyone's when
+     * {@code user} is null, dated between the two days inclusive (either may
+     * be null for an open end), in (date, id) order through a forward-only
+     * cursor. Rows are projections, so memory stays flat however many there
+     * are. The stream must be closed, e.g. with try-with-resources.
+     */
+    public Stream<ExpenseRow> streamRows(User user, LocalDate startDate, LocalDate endDate) {
+        String jpql = SELECT_ROW + rangeWhere(user, startDate, endDate) + KEYSET_ORDER;
+        return unitOfWork.stream(entityManager -> {
+            TypedQuery<ExpenseRow> query = entityManager.createQuery(jpql, ExpenseRow.class)
+                    .setHint(HibernateHints.HINT_FETCH_SIZE, DEFAULT_FETCH_SIZE)
+                    .setHint(HibernateHints.HINT_READ_ONLY, true);
+            bindRange(query, user, startDate, endDate);
+            return query.getResultStream();
+        });
+    }
+
+    /**
+     * Number of rows {@link #streamRows(User, LocalDate, LocalDate)} returns.
+     */
+    public long countRows(User user, LocalDate startDate, LocalDate endDate) {
+        String jpql = "SELECT COUNT(e) FROM Expense e" + rangeWhere(user, startDate, endDate);
+        return unitOfWork.call(entityManager -> {
+            TypedQuery<Long> count = entityManager.createQuery(jpql, Long.class);
+            bindRange(count, user, startDate, endDate);
+            return count.getSingleResult();
+        });
+    }
+
+    private static String rangeWhere(User user, LocalDate startDate, LocalDate endDate) {
+        List<String> conditions = new ArrayList<>();
+        if (user != null) {
+            conditions.add("e.user = :user");
+        }
+        if (startDate != null) {
+            conditions.add("e.date >= :startDate");
+        }
+        if (endDate != null) {
+            conditions.add("e.date <= :endDate");
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private static void bindRange(TypedQuery<?> query, User user, LocalDate startDate, LocalDate endDate) {
+        if (user != null) {
+            query.setParameter("user", user);
+        }
+        if (startDate != null) {
+            query.setParameter("startDate", startDate);
+        }
+        if (endDate != null) {
+            query.setParameter("endDate", endDate);
+        }
+    }
+
+    /**
+     * Number of rows {@link #findRows(ExpenseQuery, int, int)} can return for
+     * the query. The category is only joined when searching, so an unfiltered
+     * count is answered from the (user_id, date) index.
+     */
+    public long countRows(ExpenseQuery query) {
+        String jpql = "SELECT COUNT(e) FROM Expense e" + (query.search() != null ? " LEFT JOIN e.category c" : "")
+                + where(query);
+        return unitOfWork.call(entityManager -> {
+            TypedQuery<Long> count = entityManager.createQuery(jpql, Long.class);
+            bind(count, query);
+            return count.getSingleResult();
+        });
+    }
+
+    /**
+     * Number of the query's rows that sort before {@code row}, which is the
+     * row's index in {@link #findRows(ExpenseQuery, int, int)} order. Null
+     * values sort first ascending and last descending, as in MySQL and H2.
+     */
+    public long countRowsBefore(ExpenseQuery query, ExpenseRow row) {
+        Object value = sortValue(query.sortColumn(), row);
+        String where = where(query);
+        String jpql = "SELECT COUNT(e) FROM Expense e LEFT JOIN e.category c" + where
+                + (where.isEmpty() ? " WHERE " : " AND ") + before(query, value == null);
+        return unitOfWork.call(entityManager -> {
+            TypedQuery<Long> count = entityManager.createQuery(jpql, Long.class);
+            bind(count, query);
+            count.setParameter("rowId", row.id());
+            if (value != null && query.sortColumn() != ExpenseQuery.SortColumn.ID) {
+                count.setParameter("rowValue", value);
+            }
+            return count.getSingleResult();
+        });
+    }
+
+    /**
+     * One window of the query's rows, in the query's order. The window is
+     * addressed by offset because tables jump to arbitrary scroll positions;
+     * the id tiebreaker keeps adjacent windows from overlapping.
+     */
+    public List<ExpenseRow> findRows(ExpenseQuery query, int offset, int limit) {
+        String direction = query.descending() ? " DESC" : "";
+        String jpql = SELECT_ROW + where(query) + " ORDER BY " + path(query.sortColumn()) + direction
+                + (query.sortColumn() != ExpenseQuery.SortColumn.ID ? ", e.id" + direction : "");
+        return unitOfWork.call(entityManager -> {
+            TypedQuery<ExpenseRow> rows = entityManager.createQuery(jpql, ExpenseRow.class);
+            bind(rows, query);
+            return rows.setFirstResult(offset).setMaxResults(limit).getResultList();
+        });
+    }
+
+    /**
+     * Streams the user's expenses in (date, id) order through a forward-only
+     * cursor. The stream must be closed, e.g. with try-with-resources.
+     */
+    public Stream<Expense> streamByUser(User user) {
+        String jpql = "SELECT e FROM Expense e WHERE e.user = :user" + KEYSET_ORDER;
+        return unitOfWork.stream(entityManager -> {
+            TypedQuery<Expense> query = entityManager.createQuery(jpql, Expense.class);
+            query.setParameter("user", user);
+            return stream(entityManager, query);
+        });
+    }
+
+    public Stream<Expense> streamByUserAndDateBetween(User user, java.time.LocalDate startDate,
+            java.time.LocalDate endDate) {
+        String jpql = "SELECT e FROM Expense e WHERE e.user = :user AND e.date BETWEEN :startDate AND :endDate"
+                + KEYSET_ORDER;
+        return unitOfWork.stream(entityManager -> {
+            TypedQuery<Expense> query = entityManager.createQuery(jpql, Expense.class);
+            query.setParameter("user", user);
+            query.setParameter("startDate", startDate);
+            query.setParameter("endDate", endDate);
+            return stream(entityManager, query);
+        });
+    }
+
+    /**
+     * Keyset pagination over the user's expenses in (date, id) order. Pass
+     * {@code null} for the first page, then the key of the last row returned.
+     * Unlike OFFSET paging, the cost of a page does not grow with its depth.
+     */
+    public Page<Expense> findPageByUser(User user, ExpenseKey after, int size) {
+        String jpql = "SELECT e FROM Expense e WHERE e.user = :user"
+                + (after != null ? AFTER_KEY : "") + KEYSET_ORDER;
+        return unitOfWork.call(entityManager -> {
+            TypedQuery<Expense> query = entityManager.createQuery(jpql, Expense.class);
+            query.setParameter("user", user);
+            bindAfter(query, after);
+            return page(entityManager, query, size);
+        });
+    }
+
+    public Page<Expense> findPageByUserAndDateBetween(User user, java.time.LocalDate startDate,
+            java.time.LocalDate endDate, ExpenseKey after, int size) {
+        String jpql = "SELECT e FROM Expense e WHERE e.user = :user AND e.date BETWEEN :startDate AND :endDate"
+                + (after != null ? AFTER_KEY : "") + KEYSET_ORDER;
+        return unitOfWork.call(entityManager -> {
+            TypedQuery<Expense> query = entityManager.createQuery(jpql, Expense.class);
+            query.setParameter("user", user);
+            query.setParameter("startDate", startDate);
+            query.setParameter("endDate", endDate);
+            bindAfter(query, after);
+            return page(entityManager, query, size);
+        });
+    }
+
+    /**
+     * Sum of the user's expenses, computed by the database so no rows are
+     * loaded. Zero when the user has none.
+     */
+    public BigDecimal sumByUser(User user) {
+        String jpql = "SELECT COALESCE(SUM(e.amount), 0) FROM Expense e WHERE e.user = :user";
+        return unitOfWork.call(entityManager -> entityManager.createQuery(jpql, BigDecimal.class)
+                .setParameter("user", user)
+                .getSingleResult());
+    }
+
+    public BigDecimal sumByUserAndDateBetween(User user, java.time.LocalDate startDate,
+            java.time.LocalDate endDate) {
+        String jpql = "SELECT COALESCE(SUM(e.amount), 0) FROM Expense e"
+                + " WHERE e.user = :user AND e.date BETWEEN :startDate AND :endDate";
+        return unitOfWork.call(entityManager -> entityManager.createQuery(jpql, BigDecimal.class)
+                .setParameter("user", user)
+                .setParameter("startDate", startDate)
+                .setParameter("endDate", endDate)
+                .getSingleResult());
+    }
+
+    /**
+     * Sum and count of the user's expenses per category, largest total first.
+     * Expenses without a category are not included.
+     */
+    public List<CategoryTotal> totalsByCategory(User user) {
+        String jpql = "SELECT new com.example.expense.model.CategoryTotal(c.name, SUM(e.amount), COUNT(e))"
+                + " FROM Expense e JOIN e.category c WHERE e.user = :user"
+                + " GROUP BY c.name ORDER BY SUM(e.amount) DESC";
+        return unitOfWork.call(entityManager -> entityManager.createQuery(jpql, CategoryTotal.class)
+                .setParameter("user", user)
+                .getResultList());
+    }
+
+    /**
+     * Sum and count per category across all users.
+     */
+    public List<CategoryTotal> totalsByCategory() {
+        String jpql = "SELECT new com.example.expense.model.CategoryTotal(c.name, SUM(e.amount), COUNT(e))"
+                + " FROM Expense e JOIN e.category c"
+                + " GROUP BY c.name ORDER BY SUM(e.amount) DESC";
+        return unitOfWork.call(entityManager -> entityManager.createQuery(jpql, CategoryTotal.class)
+                .getResultList());
+    }
+
+    /**
+     * Sum and count per user, largest total first.
+     */
+    public List<UserTotal> totalsByUser() {
+        String jpql = "SELECT new com.example.expense.model.UserTotal(u.username, SUM(e.amount), COUNT(e))"
+                + " FROM Expense e JOIN e.user u"
+                + " GROUP BY u.id, u.username ORDER BY SUM(e.amount) DESC";
+        return unitOfWork.call(entityManager -> entityManager.createQuery(jpql, UserTotal.class)
+                .getResultList());
+    }
+
+    /**
+     * Sum and count per day with expenses in the range, in date order. Days
+     * without expenses are omitted.
+     */
+    public List<PeriodTotal> totalsByDay(User user, java.time.LocalDate startDate, java.time.LocalDate endDate) {
+        String jpql = "SELECT new com.example.expense.model.PeriodTotal(e.date, SUM(e.amount), COUNT(e))"
+                + " FROM Expense e WHERE e.user = :user AND e.date BETWEEN :startDate AND :endDate"
+                + " GROUP BY e.date ORDER BY e.date";
+        return unitOfWork.call(entityManager -> entityManager.createQuery(jpql, PeriodTotal.class)
+                .setParameter("user", user)
+                .setParameter("startDate", startDate)
+                .setParameter("endDate", endDate)
+                .getResultList());
+    }
+
+    private List<Expense> findByUser(User user, boolean details) {
+        String jpql = "SELECT e FROM Expense e WHERE e.user = :user";
+        return unitOfWork.call(entityManager -> {
+            TypedQuery<Expense> query = entityManager.createQuery(jpql, Expense.class);
+            query.setParameter("user", user);
+            return (details ? withDetails(entityManager, query) : query).getResultList();
+        });
+    }
+
+    private List<Expense> findByUserAndDateBetween(User user, java.time.LocalDate startDate,
+            java.time.LocalDate endDate, boolean details) {
         String jpql = "SELECT e FROM Expense e WHERE e.user = :user AND e.date BETWEEN :startDate AND :endDate";
-        TypedQuery<Expense> query = entityManager.createQuery(jpql, Expense.class);
-        query.setParameter("user", user);
-        query.setParameter("startDate", startDate);
-        query.setParameter("endDate", endDate);
-        return query.getResultList();
+        return unitOfWork.call(entityManager -> {
+            TypedQuery<Expense> query = entityManager.createQuery(jpql, Expense.class);
+            query.setParameter("user", user);
+            query.setParameter("startDate", startDate);
+            query.setParameter("endDate", endDate);
+            return (details ? withDetails(entityManager, query) : query).getResultList();
+        });
+    }
+
+    // Streams and pages feed exports and paged tables, which read the
+    // category of every row; join it in rather than selecting it per row.
+    @Override
+    protected TypedQuery<Expense> withBulkFetch(EntityManager entityManager, TypedQuery<Expense> query) {
+        return withDetails(entityManager, query);
+    }
+
+    private static TypedQuery<Expense> withDetails(EntityManager entityManager, TypedQuery<Expense> query) {
+        return query.setHint(SpecHints.HINT_SPEC_FETCH_GRAPH, entityManager.getEntityGraph(Expense.GRAPH_DETAILS));
+    }
+
+    private static String path(ExpenseQuery.SortColumn column) {
+        switch (column) {
+            case DATE:
+                return "e.date";
+            case CATEGORY:
+                return "c.name";
+            case DESCRIPTION:
+                return "e.description";
+            case AMOUNT:
+                return "e.amount";
+            default:
+                return "e.id";
+        }
+    }
+
+    private static Object sortValue(ExpenseQuery.SortColumn column, ExpenseRow row) {
+        switch (column) {
+            case DATE:
+                return row.date();
+            case CATEGORY:
+                return row.category();
+            case DESCRIPTION:
+                return row.description();
+            case AMOUNT:
+                return row.amount();
+            default:
+                return row.id();
+        }
+    }
+
+    private static String before(ExpenseQuery query, boolean nullValue) {
+        String path = path(query.sortColumn());
+        String op = query.descending() ? " > " : " < ";
+        String tie = "e.id" + op + ":rowId";
+        if (query.sortColumn() == ExpenseQuery.SortColumn.ID) {
+            return tie;
+        }
+        if (nullValue) {
+            return query.descending()
+                    ? "(" + path + " IS NOT NULL OR " + tie + ")"
+                    : "(" + path + " IS NULL AND " + tie + ")";
+        }
+        return "(" + (query.descending() ? "" : path + " IS NULL OR ") + path + op + ":rowValue OR ("
+                + path + " = :rowValue AND " + tie + "))";
+    }
+
+    private static String where(ExpenseQuery query) {
+        List<String> conditions = new ArrayList<>();
+        if (query.user() != null) {
+            conditions.add("e.user = :user");
+        }
+        // Words are letters and digits only, so they need no LIKE escaping
+        int word = 0;
+        for (String ignored : query.searchWords()) {
+            conditions.add("(LOWER(e.description) LIKE :word" + word + " OR LOWER(c.name) LIKE :word" + word + ")");
+            word++;
+        }
+        return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+    }
+
+    private static void bind(TypedQuery<?> typedQuery, ExpenseQuery query) {
+        if (query.user() != null) {
+            typedQuery.setParameter("user", query.user());
+        }
+        int word = 0;
+        for (String searchWord : query.searchWords()) {
+            typedQuery.setParameter("word" + word++, "%" + searchWord + "%");
+        }
+    }
+
+    private static void bindAfter(TypedQuery<Expense> query, ExpenseKey after) {
+        if (after != null) {
+            query.setParameter("afterDate", after.date());
+            query.setParameter("afterId", after.id());
+        }
     }
 }
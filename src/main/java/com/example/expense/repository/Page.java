@@ -0,0 +1,25 @@
+package com.example.expense.repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * One slice of a keyset-paginated query. {@code hasNext} tells whether at
+ * least one more row follows the last element of {@code content}.
+ */
+public record Page<T>(List<T> content, boolean hasNext) {
+
+    public Page {
+        content = List.copyOf(content);
+    }
+
+    public Optional<T> last() {
+        return content.isEmpty() ? Optional.empty() : Optional.of(content.get(content.size() - 1));
+    }
+
+    // Queries fetch one row more than requested so hasNext needs no COUNT.
+    static <T> Page<T> of(List<T> fetched, int size) {
+        boolean hasNext = fetched.size() > size;
+        return new Page<>(hasNext ? fetched.subList(0, size) : fetched, hasNext);
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.expense.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.hibernate.Session;
+
+/**
+ * Brings an existing database up to the schema the entities expect.
+ * hibernate.hbm2ddl.auto=update only adds missing tables and columns, so
+ * databases created by older versions are missing the report indexes, and
+ * their id sequence tables start below the ids already in use. Every step
+ * checks the current state first, so running it on each startup is safe.
+ */
+public class SchemaMigrator {
+
+    private static final Logger LOGGER = LogManager.getLogger(SchemaMigrator.class);
+
+    record IndexDefinition(String table, String name, String columns, boolean unique) {
+
+        String ddl() {
+            return "CREATE " + (unique ? "UNIQUE " : "") + "INDEX " + name + " ON " + table + " (" + columns + ")";
+        }
+    }
+
+    record SequenceTable(String table, String sequence, int allocationSize) {
+    }
+
+    static final List<IndexDefinition> INDEXES = List.of(
+            new IndexDefinition("expenses", "idx_expenses_user_date", "user_id, date", false),
+            new IndexDefinition("expenses", "idx_expenses_category", "category_id", false),
+            new IndexDefinition("users", "ux_users_username", "username", true),
+            new IndexDefinition("categories", "ux_categories_name", "name", true));
+
+    static final List<SequenceTable> SEQUENCES = List.of(
+            new SequenceTable("expenses", "expenses_seq", 50),
+            new SequenceTable("users", "users_seq", 50),
+            new SequenceTable("categories", "categories_seq", 50));
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public SchemaMigrator(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public void migrate() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            entityManager.unwrap(Session.class).doWork(connection -> {
+                for (IndexDefinition index : INDEXES) {
+                    createIndexIfMissing(connection, index);
+                }
+                for (SequenceTable sequence : SEQUENCES) {
+                    alignSequenceTable(connection, sequence);
+                }
+            });
+            entityManager.getTransaction().commit();
+        } finally {
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            entityManager.close();
+        }
+    }
+
+    private void createIndexIfMissing(Connection connection, IndexDefinition index) throws SQLException {
+        if (!tableExists(connection, index.table()) || indexExists(connection, index)) {
+            return;
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate(index.ddl());
+            LOGGER.info("Created index {} on {}", index.name(), index.table());
+        } catch (SQLException e) {
+            // Typically duplicate values blocking a unique index; keep starting up
+            LOGGER.warn("Could not create index {} on {}: {}", index.name(), index.table(), e.getMessage());
+        }
+    }
+
+    // Tables created by the IDENTITY mapping already hold ids the pooled
+    // generator would hand out again; move the next value past them.
+    private void alignSequenceTable(Connection connection, SequenceTable sequence) throws SQLException {
+        if (!tableExists(connection, sequence.table()) || !tableExists(connection, sequence.sequence())) {
+            return;
+        }
+        long required;
+        try (Statement statement = connection.createStatement();
+                ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + sequence.table())) {
+            rs.next();
+            required = rs.getLong(1) + sequence.allocationSize() + 1;
+        }
+        try (Statement statement = connection.createStatement()) {
+            int updated = statement.executeUpdate("UPDATE " + sequence.sequence() + " SET next_val = " + required
+                    + " WHERE next_val < " + required);
+            if (updated > 0) {
+                LOGGER.info("Moved {} to {}", sequence.sequence(), required);
+            }
+        }
+    }
+
+    private static boolean tableExists(Connection connection, String table) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet rs = metaData.getTables(connection.getCatalog(), null, identifier(metaData, table),
+                new String[] { "TABLE" })) {
+            return rs.next();
+        }
+    }
+
+    // Matches by name, or by an index over the same columns: databases name
+    // the index backing a unique constraint in their own way.
+    private static boolean indexExists(Connection connection, IndexDefinition index) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        Map<String, List<String>> columnsByIndex = new HashMap<>();
+        Map<String, Boolean> uniqueByIndex = new HashMap<>();
+        try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), null, identifier(metaData, index.table()),
+                false, false)) {
+            while (rs.next()) {
+                String name = rs.getString("INDEX_NAME");
+                if (name == null) {
+                    continue;
+                }
+                if (index.name().equalsIgnoreCase(name)) {
+                    return true;
+                }
+                List<String> columns = columnsByIndex.computeIfAbsent(name, key -> new ArrayList<>());
+                int position = rs.getInt("ORDINAL_POSITION");
+                while (columns.size() < position) {
+                    columns.add(null);
+                }
+                columns.set(position - 1, rs.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+                uniqueByIndex.put(name, !rs.getBoolean("NON_UNIQUE"));
+            }
+        }
+        List<String> wanted = Arrays.stream(index.columns().split(","))
+                .map(column -> column.trim().toLowerCase(Locale.ROOT))
+                .toList();
+        return columnsByIndex.entrySet().stream()
+                .anyMatch(entry -> entry.getValue().equals(wanted)
+                        && (!index.unique() || uniqueByIndex.get(entry.getKey())));
+    }
+
+    private static String identifier(DatabaseMetaData metaData, String name) throws SQLException {
+        return metaData.storesUpperCaseIdentifiers() ? name.toUpperCase(Locale.ROOT) : name;
+    }
+}
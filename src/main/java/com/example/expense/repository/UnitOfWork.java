@@ -0,0 +1,111 @@
+package com.example.expense.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import org.hibernate.SessionFactory;
+
+/**
+ * Scopes an EntityManager to a single operation. Each call opens a fresh
+ * EntityManager (backed by a pooled connection), runs the work and closes it
+ * again, so persistence contexts never outlive the operation and repositories
+ * can be used from any thread. Calls nested inside another call on the same
+ * thread share the outer EntityManager and transaction, which lets several
+ * repository operations form one unit of work.
+ */
+public class UnitOfWork {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ThreadLocal<EntityManager> current = new ThreadLocal<>();
+
+    @jakarta.inject.Inject
+    public UnitOfWork(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    public EntityManagerFactory getEntityManagerFactory() {
+        return entityManagerFactory;
+    }
+
+    /**
+     * Counters of the second-level and query cache shared by every unit of
+     * work of this factory.
+     */
+    public CacheStats getCacheStats() {
+        return CacheStats.of(entityManagerFactory.unwrap(SessionFactory.class).getStatistics());
+    }
+
+    /**
+     * Runs read work with the current EntityManager, opening and closing one
+     * if this thread has none.
+     */
+    public <R> R call(Function<EntityManager, R> work) {
+        EntityManager active = current.get();
+        if (active != null) {
+            return work.apply(active);
+        }
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        current.set(entityManager);
+        try {
+            return work.apply(entityManager);
+        } finally {
+            current.remove();
+            entityManager.close();
+        }
+    }
+
+    /**
+     * Runs work inside a transaction, joining the caller's transaction when
+     * one is already active on this thread. The transaction is rolled back if
+     * the work throws.
+     */
+    public <R> R inTransaction(Function<EntityManager, R> work) {
+        return call(entityManager -> {
+            EntityTransaction transaction = entityManager.getTransaction();
+            if (transaction.isActive()) {
+                return work.apply(entityManager);
+            }
+            transaction.begin();
+            try {
+                R result = work.apply(entityManager);
+                transaction.commit();
+                return result;
+            } catch (RuntimeException e) {
+                if (transaction.isActive()) {
+                    transaction.rollback();
+                }
+                throw e;
+            }
+        });
+    }
+
+    public void runInTransaction(Consumer<EntityManager> work) {
+        inTransaction(entityManager -> {
+            work.accept(entityManager);
+            return null;
+        });
+    }
+
+    /**
+     * Opens a stream whose EntityManager stays open until the stream is
+     * closed. The stream may be consumed on another thread than the one that
+     * opened it, so it gets its own EntityManager unless it is opened inside
+     * an enclosing call.
+     */
+    public <R> Stream<R> stream(Function<EntityManager, Stream<R>> work) {
+        EntityManager active = current.get();
+        if (active != null) {
+            return work.apply(active);
+        }
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return work.apply(entityManager).onClose(entityManager::close);
+        } catch (RuntimeException e) {
+            entityManager.close();
+            throw e;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.example.expense.repository;
 
 import com.example.expense.model.User;
-import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.TypedQuery;
 import java.util.Optional;
@@ -10,18 +9,20 @@ import com.google.inject.Inject;
 public class UserRepository extends BaseRepository<User> {
 
     @Inject
-    public UserRepository(EntityManager entityManager) {
-        super(entityManager, User.class);
+    public UserRepository(UnitOfWork unitOfWork) {
+        super(unitOfWork, User.class);
     }
 
     public Optional<User> findByUsername(String username) {
-        try {
-            TypedQuery<User> query = entityManager.createQuery(
-                "SELECT u FROM User u WHERE u.username = :username", User.class);
-            query.setParameter("username", username);
-            return Optional.of(query.getSingleResult());
-        } catch (NoResultException e) {
-            return Optional.empty();
-        }
+        return unitOfWork.call(entityManager -> {
+            try {
+                TypedQuery<User> query = entityManager.createQuery(
+                    "SELECT u FROM User u WHERE u.username = :username", User.class);
+                query.setParameter("username", username);
+                return Optional.of(cacheable(query).getSingleResult());
+            } catch (NoResultException e) {
+                return Optional.empty();
+            }
+        });
     }
 }
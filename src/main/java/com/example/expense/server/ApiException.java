@@ -0,0 +1,38 @@
+package com.example.expense.server;
+
+/**
+ * Ends a request with an HTTP error status and a message for the client.
+ */
+public class ApiException extends RuntimeException {
+
+    private final int status;
+
+    public ApiException(int status, String message) {
+        super(message);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    static ApiException badRequest(String message) {
+        return new ApiException(400, message);
+    }
+
+    static ApiException unauthorized() {
+        return new ApiException(401, "Log in first");
+    }
+
+    static ApiException forbidden() {
+        return new ApiException(403, "Administrators only");
+    }
+
+    static ApiException notFound() {
+        return new ApiException(404, "Not found");
+    }
+
+    static ApiException methodNotAllowed() {
+        return new ApiException(405, "Method not allowed");
+    }
+}
@@ -0,0 +1,239 @@
+package com.example.expense.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One API call: the request's path below {@code /api}, its query parameters
+ * and JSON body, and the helpers that answer it. Malformed parameters are
+ * reported as {@link ApiException}s with status 400.
+ */
+final class ApiExchange {
+
+    static final int MAX_BODY_BYTES = 64 * 1024;
+    static final String JSON_TYPE = "application/json; charset=utf-8";
+
+    private final HttpExchange exchange;
+    private final List<String> path;
+    private final Map<String, String> query;
+    private boolean responseStarted;
+
+    ApiExchange(HttpExchange exchange, String prefix) {
+        this.exchange = exchange;
+        this.path = segments(exchange.getRequestURI().getRawPath().substring(prefix.length()));
+        this.query = parseQuery(exchange.getRequestURI().getRawQuery());
+    }
+
+    String method() {
+        return exchange.getRequestMethod();
+    }
+
+    /**
+     * The decoded path segments below the API prefix, e.g. ["expenses", "42"].
+     */
+    List<String> path() {
+        return path;
+    }
+
+    String query(String name) {
+        return query.get(name);
+    }
+
+    int queryInt(String name, int defaultValue) {
+        String value = query.get(name);
+        try {
+            return value != null ? Integer.parseInt(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            throw ApiException.badRequest(name + " must be a whole number, was: " + value);
+        }
+    }
+
+    Long queryLong(String name) {
+        String value = query.get(name);
+        try {
+            return value != null ? Long.valueOf(value) : null;
+        } catch (NumberFormatException e) {
+            throw ApiException.badRequest(name + " must be a whole number, was: " + value);
+        }
+    }
+
+    LocalDate queryDate(String name, LocalDate defaultValue) {
+        String value = query.get(name);
+        try {
+            return value != null ? LocalDate.parse(value) : defaultValue;
+        } catch (DateTimeParseException e) {
+            throw ApiException.badRequest(name + " must be a date like 2024-01-31, was: " + value);
+        }
+    }
+
+    boolean queryFlag(String name) {
+        String value = query.get(name);
+        return value != null && (value.isEmpty() || Boolean.parseBoolean(value));
+    }
+
+    /**
+     * The token of an {@code Authorization: Bearer} header, or null.
+     */
+    String bearerToken() {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) {
+            return null;
+        }
+        return header.substring(7).trim();
+    }
+
+    /**
+     * The request body as a JSON object; at most {@link #MAX_BODY_BYTES}.
+     */
+    Map<String, Object> body() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (bytes.size() + read > MAX_BODY_BYTES) {
+                    throw new ApiException(413, "Request body is larger than " + MAX_BODY_BYTES + " bytes");
+                }
+                bytes.write(buffer, 0, read);
+            }
+        }
+        if (bytes.size() == 0) {
+            throw ApiException.badRequest("Expected a JSON body");
+        }
+        try {
+            return Json.parseObject(bytes.toString(StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            throw ApiException.badRequest(e.getMessage());
+        }
+    }
+
+    void sendJson(int status, Object value) throws IOException {
+        byte[] bytes = Json.write(value).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON_TYPE);
+        responseStarted = true;
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    void sendError(int status, String message) throws IOException {
+        sendJson(status, Map.of("error", message != null ? message : "Error"));
+    }
+
+    void sendNoContent() throws IOException {
+        // A 204 finishes the exchange at once; a request body still unread
+        // at that point makes the server drop the kept-alive connection
+        exchange.getRequestBody().close();
+        responseStarted = true;
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    /**
+     * Starts a chunked 200 response for a download of unknown length. The
+     * caller writes the body and closes the stream.
+     */
+    OutputStream startDownload(String contentType, String fileName) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+        responseStarted = true;
+        exchange.sendResponseHeaders(200, 0);
+        return exchange.getResponseBody();
+    }
+
+    boolean isResponseStarted() {
+        return responseStarted;
+    }
+
+    static String stringField(Map<String, Object> body, String name, boolean required) {
+        Object value = body.get(name);
+        if (value == null) {
+            if (required) {
+                throw ApiException.badRequest(name + " is required");
+            }
+            return null;
+        }
+        if (!(value instanceof String text)) {
+            throw ApiException.badRequest(name + " must be a string");
+        }
+        return text;
+    }
+
+    static BigDecimal decimalField(Map<String, Object> body, String name, boolean required) {
+        Object value = body.get(name);
+        if (value == null) {
+            if (required) {
+                throw ApiException.badRequest(name + " is required");
+            }
+            return null;
+        }
+        if (value instanceof BigDecimal decimal) {
+            return decimal;
+        }
+        try {
+            // Amounts as strings keep their scale through clients that use doubles
+            return new BigDecimal(String.valueOf(value));
+        } catch (NumberFormatException e) {
+            throw ApiException.badRequest(name + " must be a number, was: " + value);
+        }
+    }
+
+    static LocalDate dateField(Map<String, Object> body, String name, boolean required) {
+        String value = stringField(body, name, required);
+        try {
+            return value != null ? LocalDate.parse(value) : null;
+        } catch (DateTimeParseException e) {
+            throw ApiException.badRequest(name + " must be a date like 2024-01-31, was: " + value);
+        }
+    }
+
+    static Boolean booleanField(Map<String, Object> body, String name, boolean required) {
+        Object value = body.get(name);
+        if (value == null && !required) {
+            return null;
+        }
+        if (!(value instanceof Boolean flag)) {
+            throw ApiException.badRequest(name + " must be true or false");
+        }
+        return flag;
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(URLDecoder.decode(segment.replace("+", "%2B"), StandardCharsets.UTF_8));
+            }
+        }
+        return segments;
+    }
+
+    static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int equals = pair.indexOf('=');
+            String name = URLDecoder.decode(equals < 0 ? pair : pair.substring(0, equals), StandardCharsets.UTF_8);
+            String value = equals < 0 ? "" : URLDecoder.decode(pair.substring(equals + 1), StandardCharsets.UTF_8);
+            parameters.putIfAbsent(name, value);
+        }
+        return parameters;
+    }
+}
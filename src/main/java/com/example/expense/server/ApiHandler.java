@@ -0,0 +1,529 @@
+package com.example.expense.server;
+
+import com.example.expense.model.Category;
+import com.example.expense.model.Expense;
+import com.example.expense.model.ExpenseQuery;
+import com.example.expense.model.ExpenseRow;
+import com.example.expense.model.Money;
+import com.example.expense.model.MoneyAccumulator;
+import com.example.expense.model.Role;
+import com.example.expense.model.User;
+import com.example.expense.repository.Page;
+import com.example.expense.service.BudgetService;
+import com.example.expense.service.BudgetStatus;
+import com.example.expense.service.CategoryService;
+import com.example.expense.service.ExpenseService;
+import com.example.expense.service.ExportFormat;
+import com.example.expense.service.ExportJobService;
+import com.example.expense.service.ExportMonitor;
+import com.example.expense.service.ReportPeriod;
+import com.example.expense.service.UserService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The JSON API over the services, mounted at {@link #PREFIX}. Every call
+ * but logging in and registering needs the bearer token a login returns,
+ * and acts as that token's user:
+ *
+ * <pre>
+ * POST   /api/sessions              {username, password} -&gt; {token, user}
+ * DELETE /api/sessions              log out
+ * GET    /api/me                    the logged-in user
+ * GET    /api/expenses              ?offset&amp;limit&amp;search&amp;sort=date|category|description|amount|id&amp;desc
+ * POST   /api/expenses              {date, amount, description, category}
+ * GET    /api/expenses/{id}
+ * PUT    /api/expenses/{id}         any of the fields of POST
+ * DELETE /api/expenses/{id}
+ * GET    /api/reports/{period}      ?date; period is daily, weekly, monthly or yearly
+ * GET    /api/statistics            ?from&amp;to (both or neither)&amp;all (all users, administrators only)
+ * GET    /api/budget                ?date; the budget of the month containing it
+ * GET    /api/exports               ?format=csv|csv.gz|pdf&amp;from&amp;to; streamed
+ * GET    /api/categories
+ * POST   /api/categories            {name}; administrators only
+ * DELETE /api/categories/{id}       administrators only
+ * GET    /api/users                 ?after&amp;limit; administrators only
+ * POST   /api/users                 {username, password, role}; role only for administrators
+ * PUT    /api/users/{id}/status     {enabled}; administrators only
+ * </pre>
+ *
+ * Errors come back as {@code {"error": message}} with a 4xx or 5xx status.
+ * Expenses of other users answer 404, as if they did not exist.
+ */
+public class ApiHandler implements HttpHandler {
+
+    public static final String PREFIX = "/api";
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private static final Logger LOGGER = LogManager.getLogger(ApiHandler.class);
+    private static final int DOWNLOAD_BUFFER_BYTES = 64 * 1024;
+
+    private final UserService userService;
+    private final ExpenseService expenseService;
+    private final CategoryService categoryService;
+    private final BudgetService budgetService;
+    private final SessionStore sessions;
+
+    @jakarta.inject.Inject
+    public ApiHandler(UserService userService, ExpenseService expenseService, CategoryService categoryService,
+            BudgetService budgetService, SessionStore sessions) {
+        this.userService = userService;
+        this.expenseService = expenseService;
+        this.categoryService = categoryService;
+        this.budgetService = budgetService;
+        this.sessions = sessions;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        ApiExchange api = new ApiExchange(exchange, PREFIX);
+        try {
+            route(api);
+        } catch (ApiException e) {
+            respondWithError(api, e, e.getStatus(), e.getMessage());
+        } catch (IllegalArgumentException e) {
+            // The services' validation messages are written for users
+            respondWithError(api, e, 400, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("{} {} failed", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+            respondWithError(api, e, 500, "Internal server error");
+        }
+        exchange.close();
+    }
+
+    /**
+     * Once a response has started its status cannot change, so a failure
+     * part way through a download is rethrown with the exchange left open:
+     * the server then drops the connection instead of writing the final
+     * chunk, and the client sees a truncated transfer rather than a short
+     * but valid file.
+     */
+    static void respondWithError(ApiExchange api, Exception e, int status, String message)
+            throws IOException {
+        if (api.isResponseStarted()) {
+            if (e instanceof IOException io) {
+                throw io;
+            }
+            throw e instanceof RuntimeException runtime ? runtime : new IllegalStateException(e);
+        }
+        api.sendError(status, message);
+    }
+
+    private void route(ApiExchange api) throws IOException {
+        List<String> path = api.path();
+        String resource = path.isEmpty() ? "" : path.get(0);
+        if (resource.equals("sessions") && path.size() == 1) {
+            sessions(api);
+            return;
+        }
+        if (resource.equals("users") && path.size() == 1 && api.method().equals("POST")) {
+            register(api, currentUser(api).orElse(null));
+            return;
+        }
+        User user = currentUser(api).orElseThrow(ApiException::unauthorized);
+        switch (resource) {
+            case "me":
+                requirePath(path, 1);
+                requireMethod(api, "GET");
+                api.sendJson(200, userJson(user));
+                break;
+            case "expenses":
+                expenses(api, user, path);
+                break;
+            case "reports":
+                requirePath(path, 2);
+                requireMethod(api, "GET");
+                report(api, user, path.get(1));
+                break;
+            case "statistics":
+                requirePath(path, 1);
+                requireMethod(api, "GET");
+                statistics(api, user);
+                break;
+            case "budget":
+                requirePath(path, 1);
+                requireMethod(api, "GET");
+                budget(api, user);
+                break;
+            case "exports":
+                requirePath(path, 1);
+                requireMethod(api, "GET");
+                export(api, user);
+                break;
+            case "categories":
+                categories(api, user, path);
+                break;
+            case "users":
+                users(api, user, path);
+                break;
+            default:
+                throw ApiException.notFound();
+        }
+    }
+
+    private Optional<User> currentUser(ApiExchange api) {
+        return sessions.find(api.bearerToken());
+    }
+
+    private void sessions(ApiExchange api) throws IOException {
+        switch (api.method()) {
+            case "POST":
+                Map<String, Object> body = api.body();
+                User user = userService.authenticate(ApiExchange.stringField(body, "username", true),
+                        ApiExchange.stringField(body, "password", true))
+                        .orElseThrow(() -> new ApiException(401, "Invalid username or password"));
+                if (!user.isEnabled()) {
+                    throw new ApiException(403, "Account is disabled");
+                }
+                Map<String, Object> session = new LinkedHashMap<>();
+                session.put("token", sessions.create(user));
+                session.put("user", userJson(user));
+                api.sendJson(201, session);
+                break;
+            case "DELETE":
+                sessions.invalidate(api.bearerToken());
+                api.sendNoContent();
+                break;
+            default:
+                throw ApiException.methodNotAllowed();
+        }
+    }
+
+    private void expenses(ApiExchange api, User user, List<String> path) throws IOException {
+        if (path.size() == 1) {
+            switch (api.method()) {
+                case "GET":
+                    listExpenses(api, user);
+                    return;
+                case "POST":
+                    Map<String, Object> body = api.body();
+                    Expense expense = new Expense(ApiExchange.decimalField(body, "amount", true),
+                            ApiExchange.dateField(body, "date", true),
+                            Objects.requireNonNullElse(ApiExchange.stringField(body, "description", false), ""),
+                            user, category(ApiExchange.stringField(body, "category", false)));
+                    api.sendJson(201, ExpenseRow.of(expenseService.addExpense(expense)));
+                    return;
+                default:
+                    throw ApiException.methodNotAllowed();
+            }
+        }
+        requirePath(path, 2);
+        Expense expense = expenseService.findExpense(id(path.get(1)))
+                .filter(found -> found.getUser() != null && Objects.equals(found.getUser().getId(), user.getId()))
+                .orElseThrow(ApiException::notFound);
+        switch (api.method()) {
+            case "GET":
+                api.sendJson(200, ExpenseRow.of(expense));
+                break;
+            case "PUT":
+                Map<String, Object> body = api.body();
+                BigDecimal amount = ApiExchange.decimalField(body, "amount", false);
+                LocalDate date = ApiExchange.dateField(body, "date", false);
+                String description = ApiExchange.stringField(body, "description", false);
+                if (amount != null) {
+                    expense.setAmount(amount);
+                }
+                if (date != null) {
+                    expense.setDate(date);
+                }
+                if (description != null) {
+                    expense.setDescription(description);
+                }
+                if (body.containsKey("category")) {
+                    expense.setCategory(category(ApiExchange.stringField(body, "category", false)));
+                }
+                expenseService.updateExpense(expense);
+                api.sendJson(200, ExpenseRow.of(expense));
+                break;
+            case "DELETE":
+                expenseService.deleteExpense(expense.getId());
+                api.sendNoContent();
+                break;
+            default:
+                throw ApiException.methodNotAllowed();
+        }
+    }
+
+    /**
+     * One window of the user's expenses in the requested order, with the
+     * number of matching rows so clients can page through them.
+     */
+    private void listExpenses(ApiExchange api, User user) throws IOException {
+        int offset = api.queryInt("offset", 0);
+        int limit = pageSize(api);
+        if (offset < 0) {
+            throw ApiException.badRequest("offset must not be negative");
+        }
+        ExpenseQuery query = ExpenseQuery.forUser(user)
+                .withSearch(api.query("search"))
+                .sortedBy(sortColumn(api.query("sort")), api.queryFlag("desc"));
+        Map<String, Object> page = new LinkedHashMap<>();
+        page.put("items", expenseService.getExpenseRows(query, offset, limit));
+        page.put("offset", offset);
+        page.put("limit", limit);
+        page.put("total", expenseService.countExpenseRows(query));
+        api.sendJson(200, page);
+    }
+
+    private void report(ApiExchange api, User user, String periodName) throws IOException {
+        ReportPeriod period = reportPeriod(periodName);
+        LocalDate date = api.queryDate("date", LocalDate.now());
+        List<ExpenseRow> rows = expenseService.getReport(user, period, date);
+        MoneyAccumulator total = new MoneyAccumulator();
+        rows.forEach(row -> total.add(row.amount()));
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("period", period);
+        report.put("start", period.start(date));
+        report.put("end", period.end(date));
+        report.put("total", total.total());
+        report.put("items", rows);
+        api.sendJson(200, report);
+    }
+
+    private void statistics(ApiExchange api, User user) throws IOException {
+        boolean allUsers = api.queryFlag("all");
+        if (allUsers) {
+            requireAdmin(user);
+        }
+        LocalDate from = api.queryDate("from", null);
+        LocalDate to = api.queryDate("to", null);
+        if ((from == null) != (to == null)) {
+            throw ApiException.badRequest("Give both from and to, or neither");
+        }
+        User scope = allUsers ? null : user;
+        api.sendJson(200, from == null ? expenseService.getStatistics(scope)
+                : expenseService.getStatistics(scope, from, to));
+    }
+
+    private void budget(ApiExchange api, User user) throws IOException {
+        YearMonth month = YearMonth.from(api.queryDate("date", LocalDate.now()));
+        BigDecimal spent = expenseService.getTotalByUser(user, month.atDay(1), month.atEndOfMonth());
+        BudgetStatus status = budgetService.evaluate(user, Money.of(spent != null ? spent : BigDecimal.ZERO));
+        Map<String, Object> budget = new LinkedHashMap<>();
+        budget.put("month", month.toString());
+        budget.put("total", status.total());
+        budget.put("budget", status.budget());
+        budget.put("remaining", status.remaining());
+        budget.put("exceeded", status.exceeded());
+        api.sendJson(200, budget);
+    }
+
+    /**
+     * Streams the export straight from the database cursor into the chunked
+     * response, so neither the rows nor the file are held in memory.
+     */
+    private void export(ApiExchange api, User user) throws IOException {
+        ExportFormat format = exportFormat(api.query("format"));
+        LocalDate from = api.queryDate("from", null);
+        LocalDate to = api.queryDate("to", null);
+        String contentType = switch (format) {
+            case CSV -> "text/csv; charset=utf-8";
+            case CSV_GZIP -> "application/gzip";
+            case PDF -> "application/pdf";
+        };
+        OutputStream out = new BufferedOutputStream(
+                api.startDownload(contentType, ExportJobService.fileName(user, format)), DOWNLOAD_BUFFER_BYTES);
+        try {
+            if (format == ExportFormat.PDF) {
+                expenseService.exportToPdf(user, from, to, out, ExportMonitor.NONE);
+            } else {
+                expenseService.exportToCsv(user, from, to, out, format == ExportFormat.CSV_GZIP,
+                        ExportMonitor.NONE);
+            }
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new UncheckedIOException(new IOException("Export failed: " + e.getMessage(), e));
+        }
+        // Only a complete export ends the chunked body
+        out.close();
+    }
+
+    private void categories(ApiExchange api, User user, List<String> path) throws IOException {
+        if (path.size() == 1) {
+            switch (api.method()) {
+                case "GET":
+                    api.sendJson(200, categoryService.getAllCategories().stream().map(ApiHandler::categoryJson)
+                            .toList());
+                    return;
+                case "POST":
+                    requireAdmin(user);
+                    String name = ApiExchange.stringField(api.body(), "name", true);
+                    if (name.isBlank()) {
+                        throw ApiException.badRequest("name must not be blank");
+                    }
+                    api.sendJson(201, categoryJson(categoryService.saveCategory(name.trim())));
+                    return;
+                default:
+                    throw ApiException.methodNotAllowed();
+            }
+        }
+        requirePath(path, 2);
+        requireMethod(api, "DELETE");
+        requireAdmin(user);
+        Long id = id(path.get(1));
+        Category category = categoryService.getAllCategories().stream()
+                .filter(candidate -> Objects.equals(candidate.getId(), id))
+                .findFirst()
+                .orElseThrow(ApiException::notFound);
+        if (category.isSystem()) {
+            throw new ApiException(409, "System categories cannot be deleted");
+        }
+        categoryService.deleteCategory(id);
+        api.sendNoContent();
+    }
+
+    private void users(ApiExchange api, User user, List<String> path) throws IOException {
+        requireAdmin(user);
+        if (path.size() == 1) {
+            requireMethod(api, "GET");
+            Page<User> page = userService.getUserPage(api.queryLong("after"), pageSize(api));
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("items", page.content().stream().map(ApiHandler::userJson).toList());
+            result.put("next", page.hasNext() ? page.last().map(User::getId).orElse(null) : null);
+            api.sendJson(200, result);
+            return;
+        }
+        if (path.size() != 3 || !path.get(2).equals("status")) {
+            throw ApiException.notFound();
+        }
+        requireMethod(api, "PUT");
+        Long id = id(path.get(1));
+        boolean enabled = ApiExchange.booleanField(api.body(), "enabled", true);
+        userService.setUserStatus(id, enabled);
+        if (!enabled) {
+            sessions.invalidateUser(id);
+        }
+        api.sendNoContent();
+    }
+
+    /**
+     * Anyone may register a regular account, as on the login screen; only
+     * administrators choose another role.
+     */
+    private void register(ApiExchange api, User caller) throws IOException {
+        Map<String, Object> body = api.body();
+        String username = ApiExchange.stringField(body, "username", true);
+        String password = ApiExchange.stringField(body, "password", true);
+        String roleName = ApiExchange.stringField(body, "role", false);
+        Role role = Role.USER;
+        if (roleName != null) {
+            try {
+                role = Role.valueOf(roleName.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw ApiException.badRequest("role must be USER or ADMIN, was: " + roleName);
+            }
+        }
+        if (role != Role.USER && (caller == null || caller.getRole() != Role.ADMIN)) {
+            throw ApiException.forbidden();
+        }
+        if (username.isBlank() || password.isEmpty()) {
+            throw ApiException.badRequest("username and password must not be empty");
+        }
+        api.sendJson(201, userJson(userService.registerUser(username.trim(), password, role)));
+    }
+
+    private Category category(String name) {
+        return name == null || name.isBlank() ? null : categoryService.getOrCreateCategory(name);
+    }
+
+    private static Map<String, Object> userJson(User user) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", user.getId());
+        json.put("username", user.getUsername());
+        json.put("role", user.getRole());
+        json.put("monthlyBudget", user.getMonthlyBudget());
+        json.put("enabled", user.isEnabled());
+        return json;
+    }
+
+    private static Map<String, Object> categoryJson(Category category) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", category.getId());
+        json.put("name", category.getName());
+        json.put("system", category.isSystem());
+        return json;
+    }
+
+    private static int pageSize(ApiExchange api) {
+        int limit = api.queryInt("limit", DEFAULT_PAGE_SIZE);
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw ApiException.badRequest("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+
+    private static Long id(String value) {
+        try {
+            return Long.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw ApiException.notFound();
+        }
+    }
+
+    private static ExpenseQuery.SortColumn sortColumn(String value) {
+        if (value == null) {
+            return ExpenseQuery.SortColumn.DATE;
+        }
+        try {
+            return ExpenseQuery.SortColumn.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw ApiException.badRequest("sort must be date, category, description, amount or id, was: " + value);
+        }
+    }
+
+    private static ReportPeriod reportPeriod(String value) {
+        try {
+            return ReportPeriod.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw ApiException.notFound();
+        }
+    }
+
+    private static ExportFormat exportFormat(String value) {
+        switch (value == null ? "csv" : value.toLowerCase(Locale.ROOT)) {
+            case "csv":
+                return ExportFormat.CSV;
+            case "csv.gz":
+                return ExportFormat.CSV_GZIP;
+            case "pdf":
+                return ExportFormat.PDF;
+            default:
+                throw ApiException.badRequest("format must be csv, csv.gz or pdf, was: " + value);
+        }
+    }
+
+    private static void requireAdmin(User user) {
+        if (user.getRole() != Role.ADMIN) {
+            throw ApiException.forbidden();
+        }
+    }
+
+    private static void requireMethod(ApiExchange api, String method) {
+        if (!api.method().equals(method)) {
+            throw ApiException.methodNotAllowed();
+        }
+    }
+
+    private static void requirePath(List<String> path, int size) {
+        if (path.size() != size) {
+            throw ApiException.notFound();
+        }
+    }
+}
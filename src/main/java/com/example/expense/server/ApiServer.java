@@ -0,0 +1,121 @@
+package com.example.expense.server;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves the {@link ApiHandler} on the JDK's built-in HTTP server. Each
+ * request runs on its own virtual thread when the JVM offers them (Java 21
+ * and later), so hundreds of clients waiting on the database or the network
+ * cost no platform threads; on older JVMs requests share a fixed pool of
+ * platform threads instead. Either way the number of requests touching the
+ * database at once is bounded by the connection pool, see
+ * {@code hibernate.hikari.maximumPoolSize}.
+ */
+public class ApiServer {
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_THREADS = 64;
+
+    // Connections the kernel queues while every worker is busy
+    private static final int BACKLOG = 1024;
+    // Read once, when the first server is created
+    private static final String NO_DELAY_PROPERTY = "sun.net.httpserver.nodelay";
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    private ApiServer(HttpServer server, ExecutorService executor, boolean virtualThreads) {
+        this.server = server;
+        this.executor = executor;
+        this.virtualThreads = virtualThreads;
+    }
+
+    /**
+     * Starts serving on the address; port 0 picks a free port.
+     *
+     * @param threads the size of the platform thread pool used when virtual
+     *        threads are not available
+     */
+    public static ApiServer start(HttpHandler handler, InetSocketAddress address, int threads) throws IOException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Need at least one thread");
+        }
+        // The server writes headers and body separately; with Nagle's
+        // algorithm on, small responses wait for the client's delayed ACK
+        if (System.getProperty(NO_DELAY_PROPERTY) == null) {
+            System.setProperty(NO_DELAY_PROPERTY, "true");
+        }
+        Optional<ExecutorService> virtual = virtualThreadExecutor();
+        ExecutorService executor = virtual.orElseGet(() -> Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "api-worker-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }));
+        try {
+            HttpServer server = HttpServer.create(address, BACKLOG);
+            server.createContext(ApiHandler.PREFIX, handler);
+            server.setExecutor(executor);
+            server.start();
+            return new ApiServer(server, executor, virtual.isPresent());
+        } catch (IOException | RuntimeException e) {
+            executor.shutdownNow();
+            throw e;
+        }
+    }
+
+    /**
+     * {@code Executors.newVirtualThreadPerTaskExecutor()}, looked up at run
+     * time because the code is compiled for Java 17; empty when the running
+     * JVM does not have it or has it only as a disabled preview.
+     */
+    static Optional<ExecutorService> virtualThreadExecutor() {
+        return executor("newVirtualThreadPerTaskExecutor");
+    }
+
+    /**
+     * The executor the named no-argument factory method of
+     * {@link Executors} makes, or empty if it cannot be called.
+     */
+    static Optional<ExecutorService> executor(String factoryMethod) {
+        try {
+            return Optional.of((ExecutorService) Executors.class.getMethod(factoryMethod).invoke(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Stops accepting connections, gives running requests up to
+     * {@code graceSeconds} to finish and stops the workers.
+     */
+    public void stop(int graceSeconds) {
+        server.stop(graceSeconds);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(graceSeconds, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
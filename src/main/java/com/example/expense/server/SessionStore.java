@@ -0,0 +1,110 @@
+package com.example.expense.server;
+
+import com.example.expense.model.User;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bearer tokens handed out after a successful login. A token is 32 random
+ * bytes, stays valid while it is used at least once per idle timeout and
+ * lives only in memory, so restarting the server logs everyone out.
+ */
+public class SessionStore {
+
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final Duration idleTimeout;
+    private final Clock clock;
+
+    public SessionStore() {
+        this(DEFAULT_IDLE_TIMEOUT, Clock.systemUTC());
+    }
+
+    public SessionStore(Duration idleTimeout, Clock clock) {
+        if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Idle timeout must be positive");
+        }
+        this.idleTimeout = idleTimeout;
+        this.clock = clock;
+    }
+
+    /**
+     * Opens a session for the user and returns its token. Expired sessions
+     * are dropped here, so the map never holds more than the sessions used
+     * within the last idle timeout.
+     */
+    public String create(User user) {
+        Objects.requireNonNull(user, "user");
+        Instant now = clock.instant();
+        sessions.values().removeIf(session -> session.isExpired(now, idleTimeout));
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(user, now));
+        return token;
+    }
+
+    /**
+     * The user of a live session, extending it; empty for unknown and
+     * expired tokens.
+     */
+    public Optional<User> find(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return Optional.empty();
+        }
+        Instant now = clock.instant();
+        if (session.isExpired(now, idleTimeout)) {
+            sessions.remove(token, session);
+            return Optional.empty();
+        }
+        session.lastUsed = now;
+        return Optional.of(session.user);
+    }
+
+    public void invalidate(String token) {
+        if (token != null) {
+            sessions.remove(token);
+        }
+    }
+
+    /**
+     * Ends every session of the user, e.g. when an admin disables them.
+     */
+    public void invalidateUser(Long userId) {
+        sessions.values().removeIf(session -> Objects.equals(session.user.getId(), userId));
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    private static final class Session {
+
+        private final User user;
+        private volatile Instant lastUsed;
+
+        Session(User user, Instant lastUsed) {
+            this.user = user;
+            this.lastUsed = lastUsed;
+        }
+
+        boolean isExpired(Instant now, Duration idleTimeout) {
+            return !now.isBefore(lastUsed.plus(idleTimeout));
+        }
+    }
+}
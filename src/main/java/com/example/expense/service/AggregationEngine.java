@@ -0,0 +1,158 @@
+package com.example.expense.service;
+
+import com.example.expense.model.CategoryTotal;
+import com.example.expense.model.ExpenseColumns;
+import com.example.expense.model.ExpenseColumns.Filter;
+import com.example.expense.model.ExpenseColumns.Totals;
+import com.example.expense.model.ExpenseStatistics;
+import com.example.expense.model.Money;
+import com.example.expense.model.PeriodTotal;
+import com.example.expense.model.UserTotal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Computes {@link ExpenseStatistics} from {@link ExpenseColumns} in one pass
+ * over the rows. Below the parallel threshold the pass runs on the calling
+ * thread; above it the rows are split into ranges that are summed on a
+ * fork/join pool into partial totals and merged. Weeks and months are rolled
+ * up from the day totals. Thread-safe.
+ */
+public class AggregationEngine {
+
+    /**
+     * Rows above which the parallel path pays for its task and merge costs;
+     * see {@code AggregationBenchmark} in the {@code benchmark} profile.
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 200_000;
+    // Smallest row range worth a task of its own
+    static final int MIN_CHUNK = 16_384;
+
+    private final int parallelThreshold;
+    private final ForkJoinPool pool;
+
+    public AggregationEngine() {
+        this(DEFAULT_PARALLEL_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    public AggregationEngine(int parallelThreshold, ForkJoinPool pool) {
+        if (parallelThreshold < 0) {
+            throw new IllegalArgumentException("Parallel threshold must not be negative");
+        }
+        this.parallelThreshold = parallelThreshold;
+        this.pool = pool;
+    }
+
+    public ExpenseStatistics aggregate(ExpenseColumns columns, Filter filter) {
+        return toStatistics(columns, totals(columns, filter));
+    }
+
+    /**
+     * The raw totals, summed sequentially or in parallel depending on the
+     * number of rows.
+     */
+    Totals totals(ExpenseColumns columns, Filter filter) {
+        if (columns.size() < parallelThreshold) {
+            return sequentialTotals(columns, filter);
+        }
+        int chunk = Math.max(MIN_CHUNK, columns.size() / (pool.getParallelism() * 4));
+        return pool.invoke(new SumTask(columns, filter, 0, columns.size(), chunk));
+    }
+
+    static Totals sequentialTotals(ExpenseColumns columns, Filter filter) {
+        Totals totals = columns.newTotals(filter);
+        columns.sumAll(filter, 0, columns.size(), totals);
+        return totals;
+    }
+
+    private static final class SumTask extends RecursiveTask<Totals> {
+
+        private final ExpenseColumns columns;
+        private final Filter filter;
+        private final int from;
+        private final int to;
+        private final int chunk;
+
+        SumTask(ExpenseColumns columns, Filter filter, int from, int to, int chunk) {
+            this.columns = columns;
+            this.filter = filter;
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+        }
+
+        @Override
+        protected Totals compute() {
+            if (to - from <= chunk) {
+                // Day slots for this range's days only; merge widens them
+                Totals totals = columns.newTotals(filter, from, to);
+                columns.sumAll(filter, from, to, totals);
+                return totals;
+            }
+            int middle = (from + to) >>> 1;
+            SumTask left = new SumTask(columns, filter, from, middle, chunk);
+            left.fork();
+            Totals right = new SumTask(columns, filter, middle, to, chunk).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    private static ExpenseStatistics toStatistics(ExpenseColumns columns, Totals totals) {
+        List<CategoryTotal> byCategory = new ArrayList<>();
+        for (int category = 0; category < columns.categoryCount(); category++) {
+            if (totals.categoryCount(category) > 0) {
+                byCategory.add(new CategoryTotal(columns.categoryName(category),
+                        ExpenseColumns.fromMinorUnits(totals.categorySum(category)), totals.categoryCount(category)));
+            }
+        }
+        byCategory.sort(Comparator.comparing(CategoryTotal::total).reversed());
+
+        List<UserTotal> byUser = new ArrayList<>();
+        for (int user = 0; user < columns.userCount(); user++) {
+            if (totals.userCount(user) > 0) {
+                byUser.add(new UserTotal(columns.username(user), ExpenseColumns.fromMinorUnits(totals.userSum(user)),
+                        totals.userCount(user)));
+            }
+        }
+        byUser.sort(Comparator.comparing(UserTotal::total).reversed());
+
+        List<PeriodTotal> byDay = new ArrayList<>();
+        Map<Integer, long[]> weeks = new LinkedHashMap<>();
+        Map<LocalDate, long[]> months = new LinkedHashMap<>();
+        for (int slot = 0; slot < totals.dayCount(); slot++) {
+            long count = totals.dayRowCount(slot);
+            if (count == 0) {
+                continue;
+            }
+            int day = totals.firstDay() + slot;
+            long sum = totals.daySum(slot);
+            LocalDate date = LocalDate.ofEpochDay(day);
+            byDay.add(new PeriodTotal(date, ExpenseColumns.fromMinorUnits(sum), count));
+            // Epoch day 0 was a Thursday, three days after a Monday
+            add(weeks.computeIfAbsent(day - Math.floorMod(day + 3, 7), w -> new long[2]), sum, count);
+            add(months.computeIfAbsent(date.withDayOfMonth(1), m -> new long[2]), sum, count);
+        }
+        List<PeriodTotal> byWeek = new ArrayList<>();
+        weeks.forEach((day, sums) -> byWeek.add(period(LocalDate.ofEpochDay(day), sums)));
+        List<PeriodTotal> byMonth = new ArrayList<>();
+        months.forEach((month, sums) -> byMonth.add(period(month, sums)));
+
+        return new ExpenseStatistics(Money.ofMinorUnits(totals.sum()), totals.count(), byCategory, byUser, byDay,
+                byWeek, byMonth);
+    }
+
+    private static void add(long[] sums, long sum, long count) {
+        sums[0] += sum;
+        sums[1] += count;
+    }
+
+    private static PeriodTotal period(LocalDate start, long[] sums) {
+        return new PeriodTotal(start, ExpenseColumns.fromMinorUnits(sums[0]), sums[1]);
+    }
+}
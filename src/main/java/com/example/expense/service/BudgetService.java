@@ -1,33 +1,53 @@
 package com.example.expense.service;
 
 import com.example.expense.model.Expense;
+import com.example.expense.model.Money;
+import com.example.expense.model.MoneyAccumulator;
 import com.example.expense.model.User;
 import java.math.BigDecimal;
 import java.util.List;
 
 public class BudgetService {
 
-    public boolean isBudgetExceeded(User user, List<Expense> expenses) {
+    /**
+     * Sums the expenses in one pass, exactly, and measures the total against
+     * the user's budget.
+     */
+    public BudgetStatus evaluate(User user, Iterable<Expense> expenses) {
+        MoneyAccumulator total = new MoneyAccumulator();
+        for (Expense expense : expenses) {
+            total.add(expense.getAmount());
+        }
+        return evaluate(user, total.total());
+    }
+
+    /**
+     * Measures a total already computed elsewhere, e.g. by
+     * {@link ExpenseService#getTotalByUser(User)}, so callers do not need to
+     * load the expenses themselves.
+     */
+    public BudgetStatus evaluate(User user, Money totalSpending) {
         if (user.getMonthlyBudget() == null) {
-            return false;
+            return new BudgetStatus(totalSpending, null, Money.ZERO, false);
         }
+        Money budget = Money.of(user.getMonthlyBudget());
+        return new BudgetStatus(totalSpending, budget, budget.minus(totalSpending),
+                totalSpending.compareTo(budget) > 0);
+    }
 
-        BigDecimal totalSpending = expenses.stream()
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    public boolean isBudgetExceeded(User user, List<Expense> expenses) {
+        return evaluate(user, expenses).exceeded();
+    }
 
-        return totalSpending.compareTo(user.getMonthlyBudget()) > 0;
+    public boolean isBudgetExceeded(User user, BigDecimal totalSpending) {
+        return evaluate(user, Money.of(totalSpending)).exceeded();
     }
 
     public BigDecimal getRemainingBudget(User user, List<Expense> expenses) {
-        if (user.getMonthlyBudget() == null) {
-            return BigDecimal.ZERO;
-        }
-
-        BigDecimal totalSpending = expenses.stream()
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return evaluate(user, expenses).remaining().toBigDecimal();
+    }
 
-        return user.getMonthlyBudget().subtract(totalSpending);
+    public BigDecimal getRemainingBudget(User user, BigDecimal totalSpending) {
+        return evaluate(user, Money.of(totalSpending)).remaining().toBigDecimal();
     }
 }
@@ -0,0 +1,11 @@
+package com.example.expense.service;
+
+import com.example.expense.model.Money;
+
+/**
+ * A user's spending measured against their monthly budget. Without a budget
+ * {@code budget} is null, {@code remaining} is zero and the budget is never
+ * exceeded.
+ */
+public record BudgetStatus(Money total, Money budget, Money remaining, boolean exceeded) {
+}
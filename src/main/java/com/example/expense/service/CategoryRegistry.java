@@ -0,0 +1,47 @@
+package com.example.expense.service;
+
+import com.example.expense.model.Category;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of categories by case-folded name. Lookups are lock-free;
+ * {@link CategoryService} owns the instance and keeps it in step with every
+ * category it creates or deletes, and reloads it from the database to pick
+ * up what other processes changed.
+ */
+class CategoryRegistry {
+
+    private volatile Map<String, Category> byName = new ConcurrentHashMap<>();
+
+    static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Swaps in a whole new map, so lookups never see a half-loaded registry
+    void load(Collection<Category> categories) {
+        Map<String, Category> loaded = new ConcurrentHashMap<>();
+        categories.forEach(category -> loaded.put(key(category.getName()), category));
+        byName = loaded;
+    }
+
+    Optional<Category> find(String name) {
+        return Optional.ofNullable(byName.get(key(name)));
+    }
+
+    boolean contains(String name) {
+        return byName.containsKey(key(name));
+    }
+
+    void put(Category category) {
+        byName.put(key(category.getName()), category);
+    }
+
+    void remove(Category category) {
+        // Match by id: the caller's instance may have been loaded separately
+        byName.values().removeIf(c -> c == category || c.getId() != null && c.getId().equals(category.getId()));
+    }
+}
@@ -2,42 +2,165 @@ package com.example.expense.service;
 
 import com.example.expense.model.Category;
 import com.example.expense.repository.CategoryRepository;
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
+import java.util.function.LongSupplier;
 import jakarta.inject.Inject;
+import jakarta.persistence.PersistenceException;
 import java.util.Arrays;
 
 public class CategoryService {
 
+    /**
+     * How long the registry trusts itself before it is reloaded, which bounds
+     * how long a category created or deleted by another process goes unseen.
+     */
+    public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofMinutes(1);
+
     private final CategoryRepository categoryRepository;
+    private final CategoryRegistry registry = new CategoryRegistry();
+    private final long refreshNanos;
+    private final LongSupplier clock;
+    private volatile boolean registryLoaded;
+    private volatile long loadedAt;
 
     @Inject
     public CategoryService(CategoryRepository categoryRepository) {
+        this(categoryRepository, DEFAULT_REFRESH_INTERVAL, System::nanoTime);
+    }
+
+    CategoryService(CategoryRepository categoryRepository, Duration refreshInterval, LongSupplier clock) {
         this.categoryRepository = categoryRepository;
+        this.refreshNanos = refreshInterval.toNanos();
+        this.clock = clock;
     }
 
     public List<Category> getAllCategories() {
         return categoryRepository.findAll();
     }
 
+    /**
+     * Looks a category up by name, ignoring case and surrounding blanks,
+     * without touching the database once the registry is loaded.
+     */
+    public Optional<Category> findCategory(String name) {
+        return registry().find(name);
+    }
+
+    /**
+     * Returns the category with this name (ignoring case), creating it if
+     * it does not exist. A known name is answered from the registry alone;
+     * concurrent calls for the same new name create it once. Other processes
+     * may create categories too, so a miss asks the database before
+     * inserting, and if the insert still collides with another process's,
+     * the registry is reloaded and the lookup retried once.
+     */
+    public Category getOrCreateCategory(String name) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Category name must not be empty");
+        }
+        Optional<Category> existing = registry().find(name);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        synchronized (registry) {
+            try {
+                return findOrCreate(name.trim());
+            } catch (PersistenceException e) {
+                reload();
+                return findOrCreate(name.trim());
+            }
+        }
+    }
+
     public Category saveCategory(String name) {
-        if (categoryRepository.findByName(name).isPresent()) {
-            throw new IllegalArgumentException("Category already exists");
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Category name must not be empty");
+        }
+        synchronized (registry) {
+            if (registry().contains(name)) {
+                throw new IllegalArgumentException("Category already exists");
+            }
+            try {
+                return create(name);
+            } catch (PersistenceException e) {
+                // Most likely created by another process since the registry loaded
+                reload();
+                if (registry.contains(name)) {
+                    throw new IllegalArgumentException("Category already exists");
+                }
+                throw e;
+            }
         }
-        Category category = new Category();
-        category.setName(name);
-        return categoryRepository.save(category);
     }
 
     public void deleteCategory(Long id) {
-        categoryRepository.findById(id).ifPresent(categoryRepository::delete);
+        categoryRepository.findById(id).ifPresent(category -> {
+            categoryRepository.delete(category);
+            registry.remove(category);
+        });
     }
 
+    /**
+     * Creates the missing default categories, checking all of them against
+     * the registry, which costs at most the one query that loads it.
+     */
     public void seedDefaultCategories() {
         List<String> defaults = Arrays.asList("Food", "Transport", "Rent", "Entertainment", "Health");
-        for (String name : defaults) {
-            if (categoryRepository.findByName(name).isEmpty()) {
-                saveCategory(name);
+        synchronized (registry) {
+            List<Category> missing = defaults.stream()
+                    .filter(name -> !registry().contains(name))
+                    .map(Category::new)
+                    .toList();
+            if (!missing.isEmpty()) {
+                categoryRepository.saveAll(missing).forEach(registry::put);
             }
         }
     }
+
+    // Caller holds the registry lock
+    private Category findOrCreate(String name) {
+        Optional<Category> existing = registry.find(name);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+        Optional<Category> stored = categoryRepository.findByNameInDatabase(name);
+        stored.ifPresent(registry::put);
+        return stored.orElseGet(() -> create(name));
+    }
+
+    private void reload() {
+        registry.load(categoryRepository.findAllInDatabase());
+        loadedAt = clock.getAsLong();
+        registryLoaded = true;
+    }
+
+    private Category create(String name) {
+        Category category = new Category();
+        category.setName(name);
+        Category saved = categoryRepository.save(category);
+        registry.put(saved);
+        return saved;
+    }
+
+    // Loads the registry on first use and reloads it from the database once it is older than the interval
+    private CategoryRegistry registry() {
+        if (!registryLoaded || isStale()) {
+            synchronized (registry) {
+                if (!registryLoaded) {
+                    registry.load(categoryRepository.findAll());
+                    loadedAt = clock.getAsLong();
+                    registryLoaded = true;
+                } else if (isStale()) {
+                    reload();
+                }
+            }
+        }
+        return registry;
+    }
+
+    private boolean isStale() {
+        return clock.getAsLong() - loadedAt >= refreshNanos;
+    }
 }
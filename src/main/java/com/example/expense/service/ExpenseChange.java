@@ -0,0 +1,23 @@
+package com.example.expense.service;
+
+import com.example.expense.model.ExpenseRow;
+
+/**
+ * One committed write of an expense, as published by {@link ExpenseService}
+ * to its change listeners. {@code before} is null when the expense was added
+ * and {@code after} is null when it was deleted; an update carries both.
+ */
+public record ExpenseChange(Long userId, ExpenseRow before, ExpenseRow after) {
+
+    public static ExpenseChange added(Long userId, ExpenseRow row) {
+        return new ExpenseChange(userId, null, row);
+    }
+
+    public static ExpenseChange updated(Long userId, ExpenseRow before, ExpenseRow after) {
+        return new ExpenseChange(userId, before, after);
+    }
+
+    public static ExpenseChange deleted(Long userId, ExpenseRow row) {
+        return new ExpenseChange(userId, row, null);
+    }
+}
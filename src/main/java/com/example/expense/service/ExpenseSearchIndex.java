@@ -0,0 +1,336 @@
+package com.example.expense.service;
+
+import com.example.expense.model.ExpenseQuery;
+import com.example.expense.model.ExpenseQuery.SortColumn;
+import com.example.expense.model.ExpenseRow;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory inverted index over the description and category name of a set
+ * of expense rows. Text is split into {@link ExpenseQuery#words(String)
+ * words}; a search matches the rows that have, for every word of the search
+ * text, a word containing it, which is the database's match as well. Each
+ * word's postings are the sorted slots of its rows.
+ *
+ * <p>
+ * Because a search word may match anywhere inside an indexed word, a prefix
+ * trie would not find the words to use. Instead every indexed word is listed
+ * under each of its substrings of up to {@value #GRAM} characters. A search
+ * word that short is looked up directly; a longer one takes the smallest list
+ * among its {@value #GRAM}-character substrings and keeps the words that
+ * contain it. A search costs the size of those lists, not of the vocabulary
+ * or the rows. The postings of the words found are set in a bitset, and a
+ * multi-word search ANDs those bitsets.
+ *
+ * <p>
+ * Rows are added and removed one at a time as expenses change; a removed
+ * row's slot is not reused. Each sort column keeps a cached order of all
+ * slots; rows added since the order was built are sorted on their own and
+ * merged in. The last search's match bitset, and its matching slots in the
+ * last sort order asked for, are kept until the next write, so paging
+ * through one search, counting it and placing a row in it find each window
+ * or position without walking the rows again.
+ * All methods are thread-safe.
+ */
+class ExpenseSearchIndex {
+
+    private static final Comparator<String> TEXT_ORDER = Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER);
+    static final int GRAM = 3;
+
+    private final List<ExpenseRow> rows = new ArrayList<>();
+    private final Map<Long, Integer> slotsById = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<String, Set<String>> wordsByGram = new HashMap<>();
+    private final Map<SortColumn, Order> orders = new EnumMap<>(SortColumn.class);
+    // Results of the last search; both are dropped by every write
+    private Matches lastMatches;
+    private Matching lastMatching;
+
+    /**
+     * Growable sorted array of slots. Slots are handed out in increasing
+     * order, so adding is an append.
+     */
+    private static final class Postings {
+
+        private int[] slots = new int[2];
+        private int size;
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+
+        void remove(int slot) {
+            int index = Arrays.binarySearch(slots, 0, size, slot);
+            if (index >= 0) {
+                System.arraycopy(slots, index + 1, slots, index, size - index - 1);
+                size--;
+            }
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void setIn(BitSet bits) {
+            for (int i = 0; i < size; i++) {
+                bits.set(slots[i]);
+            }
+        }
+    }
+
+    /**
+     * Ascending slot order of one sort column, covering the slots below
+     * {@code end}. Removed slots stay in it and are skipped as non-matches.
+     */
+    private record Order(int[] slots, int end) {
+    }
+
+    private record Matches(Set<String> words, BitSet slots, int count) {
+    }
+
+    /**
+     * The matching slots of one search in ascending order of one column.
+     */
+    private record Matching(Set<String> words, SortColumn column, int[] slots) {
+    }
+
+    ExpenseSearchIndex(Collection<ExpenseRow> rows) {
+        rows.forEach(this::add);
+    }
+
+    /**
+     * Adds the row, replacing any row with the same id.
+     */
+    synchronized void add(ExpenseRow row) {
+        remove(row.id());
+        int slot = rows.size();
+        rows.add(row);
+        if (row.id() != null) {
+            slotsById.put(row.id(), slot);
+        }
+        live.set(slot);
+        for (String word : words(row)) {
+            postings.computeIfAbsent(word, w -> {
+                grams(w).forEach(gram -> wordsByGram.computeIfAbsent(gram, g -> new HashSet<>()).add(w));
+                return new Postings();
+            }).add(slot);
+        }
+        forgetResults();
+    }
+
+    synchronized void remove(Long id) {
+        Integer slot = id != null ? slotsById.remove(id) : null;
+        if (slot == null) {
+            return;
+        }
+        live.clear(slot);
+        for (String word : words(rows.get(slot))) {
+            Postings posting = postings.get(word);
+            posting.remove(slot);
+            if (posting.isEmpty()) {
+                postings.remove(word);
+                forgetWord(word);
+            }
+        }
+        rows.set(slot, null);
+        forgetResults();
+    }
+
+    synchronized int size() {
+        return live.cardinality();
+    }
+
+    /**
+     * The number of rows matching the search text; a blank text matches
+     * every row.
+     */
+    synchronized int count(String text) {
+        return matches(ExpenseQuery.words(text)).count();
+    }
+
+    /**
+     * One window of the rows matching the search text, sorted like the
+     * database would sort them: by the column, then by id.
+     */
+    synchronized List<ExpenseRow> rows(String text, SortColumn column, boolean descending, int offset, int limit) {
+        int[] slots = matching(ExpenseQuery.words(text), column);
+        List<ExpenseRow> page = new ArrayList<>();
+        for (int i = Math.max(offset, 0); i < slots.length && page.size() < limit; i++) {
+            page.add(rows.get(slots[descending ? slots.length - 1 - i : i]));
+        }
+        return page;
+    }
+
+    /**
+     * Index of the row among the search's matches in the given order, or -1
+     * if the row is not indexed or does not match.
+     */
+    synchronized long position(String text, SortColumn column, boolean descending, Long id) {
+        Integer slot = id != null ? slotsById.get(id) : null;
+        Set<String> words = ExpenseQuery.words(text);
+        if (slot == null || !matches(words).slots().get(slot)) {
+            return -1;
+        }
+        int[] slots = matching(words, column);
+        int index = 0;
+        while (slots[index] != slot) {
+            index++;
+        }
+        return descending ? slots.length - 1 - index : index;
+    }
+
+    private Matches matches(Set<String> searchWords) {
+        if (lastMatches != null && lastMatches.words().equals(searchWords)) {
+            return lastMatches;
+        }
+        BitSet matches = (BitSet) live.clone();
+        for (String searchWord : searchWords) {
+            BitSet any = new BitSet(rows.size());
+            for (String word : wordsContaining(searchWord)) {
+                postings.get(word).setIn(any);
+            }
+            matches.and(any);
+            if (matches.isEmpty()) {
+                break;
+            }
+        }
+        lastMatches = new Matches(searchWords, matches, matches.cardinality());
+        return lastMatches;
+    }
+
+    private int[] matching(Set<String> searchWords, SortColumn column) {
+        if (lastMatching != null && lastMatching.column() == column && lastMatching.words().equals(searchWords)) {
+            return lastMatching.slots();
+        }
+        Matches matches = matches(searchWords);
+        int[] order = order(column);
+        int[] slots = new int[matches.count()];
+        int size = 0;
+        for (int i = 0; i < order.length && size < slots.length; i++) {
+            if (matches.slots().get(order[i])) {
+                slots[size++] = order[i];
+            }
+        }
+        lastMatching = new Matching(searchWords, column, slots);
+        return slots;
+    }
+
+    private Collection<String> wordsContaining(String searchWord) {
+        if (searchWord.length() <= GRAM) {
+            return wordsByGram.getOrDefault(searchWord, Set.of());
+        }
+        Set<String> candidates = null;
+        for (int i = 0; i + GRAM <= searchWord.length(); i++) {
+            Set<String> words = wordsByGram.get(searchWord.substring(i, i + GRAM));
+            if (words == null) {
+                return Set.of();
+            }
+            if (candidates == null || words.size() < candidates.size()) {
+                candidates = words;
+            }
+        }
+        List<String> found = new ArrayList<>();
+        for (String word : candidates) {
+            if (word.contains(searchWord)) {
+                found.add(word);
+            }
+        }
+        return found;
+    }
+
+    private void forgetWord(String word) {
+        for (String gram : grams(word)) {
+            Set<String> words = wordsByGram.get(gram);
+            words.remove(word);
+            if (words.isEmpty()) {
+                wordsByGram.remove(gram);
+            }
+        }
+    }
+
+    private void forgetResults() {
+        lastMatches = null;
+        lastMatching = null;
+    }
+
+    // Every distinct substring of up to GRAM characters
+    private static Set<String> grams(String word) {
+        Set<String> grams = new HashSet<>();
+        for (int length = 1; length <= GRAM; length++) {
+            for (int i = 0; i + length <= word.length(); i++) {
+                grams.add(word.substring(i, i + length));
+            }
+        }
+        return grams;
+    }
+
+    private int[] order(SortColumn column) {
+        Order order = orders.get(column);
+        int start = order != null ? order.end() : 0;
+        int end = rows.size();
+        if (start < end || order == null) {
+            Comparator<Integer> comparator = comparator(column).thenComparing(slot -> rows.get(slot).id(),
+                    Comparator.nullsFirst(Comparator.naturalOrder()));
+            int[] added = live.get(start, end).stream().map(slot -> slot + start).boxed()
+                    .sorted(comparator).mapToInt(Integer::intValue).toArray();
+            order = new Order(order != null ? merge(order.slots(), added, comparator) : added, end);
+            orders.put(column, order);
+        }
+        return order.slots();
+    }
+
+    // Removed slots have no row left to compare, so they are dropped here
+    private int[] merge(int[] sorted, int[] added, Comparator<Integer> comparator) {
+        int[] merged = new int[sorted.length + added.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < sorted.length || j < added.length) {
+            if (i < sorted.length && !live.get(sorted[i])) {
+                i++;
+            } else if (j == added.length || i < sorted.length && comparator.compare(sorted[i], added[j]) <= 0) {
+                merged[k++] = sorted[i++];
+            } else {
+                merged[k++] = added[j++];
+            }
+        }
+        return Arrays.copyOf(merged, k);
+    }
+
+    private Comparator<Integer> comparator(SortColumn column) {
+        switch (column) {
+            case DATE:
+                return Comparator.comparing(slot -> rows.get(slot).date(),
+                        Comparator.nullsFirst(Comparator.naturalOrder()));
+            case CATEGORY:
+                return Comparator.comparing(slot -> rows.get(slot).category(), TEXT_ORDER);
+            case DESCRIPTION:
+                return Comparator.comparing(slot -> rows.get(slot).description(), TEXT_ORDER);
+            case AMOUNT:
+                return Comparator.comparing(slot -> rows.get(slot).amount(),
+                        Comparator.nullsFirst(Comparator.naturalOrder()));
+            default:
+                return (a, b) -> 0;
+        }
+    }
+
+    private static Set<String> words(ExpenseRow row) {
+        Set<String> words = ExpenseQuery.words(row.description());
+        words.addAll(ExpenseQuery.words(row.category()));
+        return words;
+    }
+}
@@ -1,18 +1,52 @@
 package com.example.expense.service;
 
+import com.example.expense.model.CategoryTotal;
 import com.example.expense.model.Expense;
+import com.example.expense.model.ExpenseColumns;
+import com.example.expense.model.ExpenseRow;
+import com.example.expense.model.ExpenseStatistics;
+import com.example.expense.model.MoneyAccumulator;
+import com.example.expense.model.PeriodTotal;
 import com.example.expense.model.User;
+import com.example.expense.model.UserTotal;
+import com.example.expense.repository.ExpenseKey;
+import com.example.expense.model.ExpenseQuery;
 import com.example.expense.repository.ExpenseRepository;
+import com.example.expense.repository.Page;
+import java.util.Collection;
 import java.util.List;
 import com.lowagie.text.*;
 import com.lowagie.text.pdf.*;
 import java.io.FileOutputStream;
 import java.math.BigDecimal;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 public class ExpenseService {
 
+    static final int PROGRESS_INTERVAL = 1_000;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final String[] CSV_HEADER = { "Date", "Category", "Description", "Amount" };
+    // Rows added to the PDF table between hand-overs to the document
+    static final int PDF_CHUNK_ROWS = 100;
+    private static final Font TITLE_FONT = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18);
+    private static final Font HEADER_FONT = FontFactory.getFont(FontFactory.HELVETICA_BOLD);
+    private static final Font BODY_FONT = FontFactory.getFont(FontFactory.HELVETICA);
+
     private final ExpenseRepository expenseRepository;
+    private final ReportCache reportCache = new ReportCache();
+    private final AggregationEngine aggregationEngine = new AggregationEngine();
+    private final SearchIndexCache searchIndexes = new SearchIndexCache();
+    private final List<Consumer<List<ExpenseChange>>> changeListeners = new CopyOnWriteArrayList<>();
 
     @jakarta.inject.Inject
     public ExpenseService(ExpenseRepository expenseRepository) {
@@ -20,116 +54,542 @@ public class ExpenseService {
     }
 
     public Expense addExpense(Expense expense) {
-        if (expense.getAmount() == null || expense.getAmount().signum() <= 0) {
-            throw new IllegalArgumentException("Expense amount must be positive");
-        }
-        return expenseRepository.save(expense);
+        validateAmount(expense);
+        Expense saved = expenseRepository.save(expense);
+        invalidateReports(saved);
+        updateSearchIndexes(saved);
+        publish(List.of(ExpenseChange.added(userId(saved.getUser()), ExpenseRow.of(saved))));
+        return saved;
+    }
+
+    /**
+     * Saves a whole collection of expenses (e.g. an import) in a single batched
+     * transaction. Every expense is validated before anything is written, so an
+     * invalid entry rejects the whole batch.
+     */
+    public List<Expense> addExpenses(Collection<Expense> expenses) {
+        expenses.forEach(this::validateAmount);
+        List<Expense> saved = expenseRepository.saveAll(expenses);
+        saved.forEach(this::invalidateReports);
+        saved.forEach(this::updateSearchIndexes);
+        publish(saved.stream().map(e -> ExpenseChange.added(userId(e.getUser()), ExpenseRow.of(e))).toList());
+        return saved;
+    }
+
+    /**
+     * The expense with its user and category loaded, e.g. to check who owns
+     * it before changing it.
+     */
+    public Optional<Expense> findExpense(Long id) {
+        return expenseRepository.findByIdWithDetails(id);
     }
 
     public List<Expense> getExpensesByUser(User user) {
-        return expenseRepository.findByUser(user);
+        return expenseRepository.findByUserWithDetails(user);
+    }
+
+    /**
+     * The user's expenses as lightweight rows for display, in date order.
+     */
+    public List<ExpenseRow> getExpenseRowsByUser(User user) {
+        return expenseRepository.findRowsByUser(user);
+    }
+
+    /**
+     * Row count for a paged table; see {@link #getExpenseRows(ExpenseQuery, int, int)}.
+     */
+    public long countExpenseRows(ExpenseQuery query) {
+        if (query.search() != null) {
+            return searchIndex(query.user()).count(query.search());
+        }
+        return expenseRepository.countRows(query);
+    }
+
+    /**
+     * One window of rows for a paged table. Unfiltered queries are sorted and
+     * windowed by the database. Searches are answered from an in-memory word
+     * index of the user's descriptions and category names, with the same
+     * matches as the database (see {@link ExpenseQuery}). The index is loaded
+     * on the user's first search and kept current by this service's writes;
+     * writes from other processes show up once it expires, see
+     * {@link SearchIndexCache}.
+     */
+    public List<ExpenseRow> getExpenseRows(ExpenseQuery query, int offset, int limit) {
+        if (query.search() != null) {
+            return searchIndex(query.user()).rows(query.search(), query.sortColumn(), query.descending(),
+                    offset, limit);
+        }
+        return expenseRepository.findRows(query, offset, limit);
+    }
+
+    /**
+     * Index of the row in the query's order, or -1 if it does not match the
+     * search. The row must belong to the query's user. Lets a paged table
+     * place a new row without reloading.
+     */
+    public long getExpenseRowPosition(ExpenseQuery query, ExpenseRow row) {
+        if (query.search() != null) {
+            return searchIndex(query.user()).position(query.search(), query.sortColumn(), query.descending(),
+                    row.id());
+        }
+        return expenseRepository.countRowsBefore(query, row);
+    }
+
+    /**
+     * The user's expenses, or everyone's when {@code user} is null, as
+     * primitive columns for in-memory analytics.
+     */
+    public ExpenseColumns getExpenseColumns(User user) {
+        return expenseRepository.findColumns(user);
+    }
+
+    /**
+     * Category, user, day, week and month totals of the user's expenses, or
+     * everyone's when {@code user} is null, computed together in memory from
+     * a single scan rather than one database query per grouping.
+     */
+    public ExpenseStatistics getStatistics(User user) {
+        return aggregationEngine.aggregate(getExpenseColumns(user), ExpenseColumns.Filter.ALL);
+    }
+
+    /**
+     * Like {@link #getStatistics(User)} for the expenses dated between the
+     * two days inclusive; only those rows are read from the database.
+     */
+    public ExpenseStatistics getStatistics(User user, LocalDate startDate, LocalDate endDate) {
+        return aggregationEngine.aggregate(expenseRepository.findColumns(user, startDate, endDate),
+                ExpenseColumns.Filter.ALL);
+    }
+
+    /**
+     * Streams the user's whole history in date order with constant memory.
+     * Callers must close the stream.
+     */
+    public Stream<Expense> streamExpensesByUser(User user) {
+        return expenseRepository.streamByUser(user);
+    }
+
+    public Stream<Expense> streamExpensesByUser(User user, LocalDate startDate, LocalDate endDate) {
+        return expenseRepository.streamByUserAndDateBetween(user, startDate, endDate);
+    }
+
+    /**
+     * Returns the page of the user's expenses that follows {@code after}
+     * ({@code null} for the first page), in date order.
+     */
+    public Page<Expense> getExpensePage(User user, ExpenseKey after, int size) {
+        return expenseRepository.findPageByUser(user, after, size);
+    }
+
+    public List<ExpenseRow> getDailyReport(User user, java.time.LocalDate date) {
+        return getReport(user, ReportPeriod.DAILY, date);
+    }
+
+    public List<ExpenseRow> getWeeklyReport(User user, java.time.LocalDate date) {
+        return getReport(user, ReportPeriod.WEEKLY, date);
+    }
+
+    public List<ExpenseRow> getMonthlyReport(User user, java.time.LocalDate date) {
+        return getReport(user, ReportPeriod.MONTHLY, date);
+    }
+
+    public List<ExpenseRow> getYearlyReport(User user, java.time.LocalDate date) {
+        return getReport(user, ReportPeriod.YEARLY, date);
+    }
+
+    /**
+     * Rows of the period containing {@code date}, served from the report
+     * cache when that period, or a wider one containing it, was loaded
+     * before. The returned list is unmodifiable.
+     */
+    public List<ExpenseRow> getReport(User user, ReportPeriod period, LocalDate date) {
+        return reportCache.get(userId(user), period, date, () -> expenseRepository
+                .findRowsByUserAndDateBetween(user, period.start(date), period.end(date)));
+    }
+
+    public ReportCache.Stats getReportCacheStats() {
+        return reportCache.stats();
+    }
+
+    public BigDecimal getTotalByUser(User user) {
+        return expenseRepository.sumByUser(user);
+    }
+
+    public BigDecimal getTotalByUser(User user, LocalDate startDate, LocalDate endDate) {
+        return expenseRepository.sumByUserAndDateBetween(user, startDate, endDate);
+    }
+
+    public List<CategoryTotal> getCategoryTotals(User user) {
+        return expenseRepository.totalsByCategory(user);
+    }
+
+    public List<CategoryTotal> getCategoryTotals() {
+        return expenseRepository.totalsByCategory();
     }
 
-    public List<Expense> getDailyReport(User user, java.time.LocalDate date) {
-        return expenseRepository.findByUserAndDateBetween(user, date, date);
+    public List<UserTotal> getUserTotals() {
+        return expenseRepository.totalsByUser();
     }
 
-    public List<Expense> getWeeklyReport(User user, java.time.LocalDate date) {
-        java.time.LocalDate startOfWeek = date
-                .with(java.time.temporal.TemporalAdjusters.previousOrSame(java.time.DayOfWeek.MONDAY));
-        java.time.LocalDate endOfWeek = date
-                .with(java.time.temporal.TemporalAdjusters.nextOrSame(java.time.DayOfWeek.SUNDAY));
-        return expenseRepository.findByUserAndDateBetween(user, startOfWeek, endOfWeek);
+    public List<PeriodTotal> getDailyTotals(User user, LocalDate startDate, LocalDate endDate) {
+        return expenseRepository.totalsByDay(user, startDate, endDate);
     }
 
-    public List<Expense> getMonthlyReport(User user, java.time.LocalDate date) {
-        java.time.LocalDate startOfMonth = date.with(java.time.temporal.TemporalAdjusters.firstDayOfMonth());
-        java.time.LocalDate endOfMonth = date.with(java.time.temporal.TemporalAdjusters.lastDayOfMonth());
-        return expenseRepository.findByUserAndDateBetween(user, startOfMonth, endOfMonth);
+    /**
+     * Totals per ISO week (starting Monday), rolled up from the daily totals
+     * so the database only ever returns one row per day.
+     */
+    public List<PeriodTotal> getWeeklyTotals(User user, LocalDate startDate, LocalDate endDate) {
+        return rollUp(expenseRepository.totalsByDay(user, startDate, endDate),
+                date -> date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)));
     }
 
-    public List<Expense> getYearlyReport(User user, java.time.LocalDate date) {
-        java.time.LocalDate startOfYear = date.with(java.time.temporal.TemporalAdjusters.firstDayOfYear());
-        java.time.LocalDate endOfYear = date.with(java.time.temporal.TemporalAdjusters.lastDayOfYear());
-        return expenseRepository.findByUserAndDateBetween(user, startOfYear, endOfYear);
+    public List<PeriodTotal> getMonthlyTotals(User user, LocalDate startDate, LocalDate endDate) {
+        return rollUp(expenseRepository.totalsByDay(user, startDate, endDate),
+                date -> date.with(TemporalAdjusters.firstDayOfMonth()));
     }
 
     public Expense updateExpense(Expense expense) {
+        validateAmount(expense);
+        // The stored date may differ from the new one; both periods change
+        Expense stored = expense.getId() != null
+                ? expenseRepository.findByIdWithDetails(expense.getId()).orElse(null)
+                : null;
+        invalidateReports(stored);
+        Expense updated = expenseRepository.update(expense);
+        invalidateReports(updated);
+        // The merged copy may hold a lazy category; the caller's copy has it loaded
+        updateSearchIndexes(expense);
+        ExpenseRow after = ExpenseRow.of(expense);
+        publish(List.of(stored != null
+                ? ExpenseChange.updated(userId(stored.getUser()), ExpenseRow.of(stored), after)
+                : ExpenseChange.added(userId(expense.getUser()), after)));
+        return updated;
+    }
+
+    public void deleteExpense(Long id) {
+        expenseRepository.findByIdWithDetails(id).ifPresent(expense -> {
+            expenseRepository.delete(expense);
+            invalidateReports(expense);
+            removeFromSearchIndexes(expense);
+            publish(List.of(ExpenseChange.deleted(userId(expense.getUser()), ExpenseRow.of(expense))));
+        });
+    }
+
+    /**
+     * Registers a listener for the expenses this service adds, updates and
+     * deletes. Each write is published once it is committed, as one list for
+     * a batch, on the thread that made the write.
+     */
+    public void addChangeListener(Consumer<List<ExpenseChange>> listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(Consumer<List<ExpenseChange>> listener) {
+        changeListeners.remove(listener);
+    }
+
+    public List<Expense> getAllExpenses() {
+        return expenseRepository.findAllWithDetails();
+    }
+
+    public List<ExpenseRow> getAllExpenseRows() {
+        return expenseRepository.findAllRows();
+    }
+
+    public Stream<Expense> streamAllExpenses() {
+        return expenseRepository.streamAll();
+    }
+
+    public Page<Expense> getAllExpensesPage(Long afterId, int size) {
+        return expenseRepository.findPage(afterId, size);
+    }
+
+    private static List<PeriodTotal> rollUp(List<PeriodTotal> days, UnaryOperator<LocalDate> periodStart) {
+        Map<LocalDate, PeriodTotal> periods = new LinkedHashMap<>();
+        for (PeriodTotal day : days) {
+            LocalDate start = periodStart.apply(day.periodStart());
+            periods.merge(start, new PeriodTotal(start, day.total(), day.count()), PeriodTotal::add);
+        }
+        return new ArrayList<>(periods.values());
+    }
+
+    private void invalidateReports(Expense expense) {
+        if (expense != null) {
+            reportCache.invalidate(userId(expense.getUser()), expense.getDate());
+        }
+    }
+
+    private ExpenseSearchIndex searchIndex(User user) {
+        if (user == null) {
+            return searchIndexes.get(SearchIndexCache.ALL_USERS, expenseRepository::findAllRows);
+        }
+        return searchIndexes.get(user.getId(), () -> expenseRepository.findRowsByUser(user));
+    }
+
+    private void updateSearchIndexes(Expense expense) {
+        if (expense != null) {
+            ExpenseRow row = ExpenseRow.of(expense);
+            searchIndexes.apply(userId(expense.getUser()), index -> index.add(row));
+        }
+    }
+
+    private void removeFromSearchIndexes(Expense expense) {
+        Long id = expense.getId();
+        searchIndexes.apply(userId(expense.getUser()), index -> index.remove(id));
+    }
+
+    private void publish(List<ExpenseChange> changes) {
+        if (!changes.isEmpty()) {
+            changeListeners.forEach(listener -> listener.accept(changes));
+        }
+    }
+
+    private static Long userId(User user) {
+        return user != null ? user.getId() : null;
+    }
+
+    private void validateAmount(Expense expense) {
         if (expense.getAmount() == null || expense.getAmount().signum() <= 0) {
             throw new IllegalArgumentException("Expense amount must be positive");
         }
-        return expenseRepository.update(expense);
     }
 
-    public void deleteExpense(Long id) {
-        expenseRepository.findById(id).ifPresent(expenseRepository::delete);
+    public void exportToCsv(List<ExpenseRow> expenses, java.io.File file) throws java.io.IOException {
+        try (com.opencsv.CSVWriter csvWriter = new com.opencsv.CSVWriter(csvWriter(new FileOutputStream(file),
+                false))) {
+            csvWriter.writeNext(CSV_HEADER);
+            for (ExpenseRow e : expenses) {
+                csvWriter.writeNext(csvRow(e));
+            }
+        }
     }
 
-    public List<Expense> getAllExpenses() {
-        return expenseRepository.findAll();
+    /**
+     * Exports the user's expenses, or everyone's when {@code user} is null,
+     * dated between the two days (either may be null for an open end)
+     * straight from a database cursor into a buffered CSV file, optionally
+     * gzip-compressed. Memory use does not depend on the number of rows.
+     * The monitor hears about progress every {@value #PROGRESS_INTERVAL}
+     * rows and can cancel the export, in which case the partial file is
+     * deleted.
+     *
+     * @return the number of rows written
+     * @throws java.util.concurrent.CancellationException if the monitor
+     *         cancelled the export
+     */
+    public long exportToCsv(User user, LocalDate startDate, LocalDate endDate, java.io.File file, boolean gzip,
+            ExportMonitor monitor) throws java.io.IOException {
+        return exportToFile(file, out -> exportToCsv(user, startDate, endDate, out, gzip, monitor));
     }
 
-    public void exportToCsv(List<Expense> expenses, java.io.File file) throws java.io.IOException {
-        try (java.io.FileWriter writer = new java.io.FileWriter(file);
-                com.opencsv.CSVWriter csvWriter = new com.opencsv.CSVWriter(writer)) {
+    /**
+     * Like {@link #exportToCsv(User, LocalDate, LocalDate, java.io.File, boolean, ExportMonitor)}
+     * but writes to the stream, which is flushed and left open. A cancelled
+     * or failed export leaves whatever was written so far.
+     */
+    public long exportToCsv(User user, LocalDate startDate, LocalDate endDate, java.io.OutputStream out,
+            boolean gzip, ExportMonitor monitor) throws java.io.IOException {
+        long total = expenseRepository.countRows(user, startDate, endDate);
+        long written = 0;
+        try (Stream<ExpenseRow> rows = expenseRepository.streamRows(user, startDate, endDate)) {
+            com.opencsv.CSVWriter csvWriter = new com.opencsv.CSVWriter(csvWriter(leaveOpen(out), gzip));
+            csvWriter.writeNext(CSV_HEADER);
+            java.util.Iterator<ExpenseRow> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                if (monitor.isCancelled()) {
+                    throw new java.util.concurrent.CancellationException("Export cancelled");
+                }
+                csvWriter.writeNext(csvRow(iterator.next()));
+                if (++written % PROGRESS_INTERVAL == 0) {
+                    monitor.progress(written, total);
+                }
+            }
+            // Finishes the gzip stream and flushes, but leaves out open
+            csvWriter.close();
+        }
+        monitor.progress(written, Math.max(total, written));
+        return written;
+    }
 
-            String[] header = { "Date", "Category", "Description", "Amount" };
-            csvWriter.writeNext(header);
+    private interface StreamExport {
 
-            for (Expense e : expenses) {
-                String[] data = {
-                        e.getDate().toString(),
-                        e.getCategory() != null ? e.getCategory().getName() : "N/A",
-                        e.getDescription(),
-                        e.getAmount().toString()
-                };
-                csvWriter.writeNext(data);
+        long writeTo(java.io.OutputStream out) throws java.io.IOException;
+    }
+
+    // The file is deleted unless the export completes and the file closes cleanly
+    private static long exportToFile(java.io.File file, StreamExport export) throws java.io.IOException {
+        boolean complete = false;
+        try {
+            long written;
+            try (java.io.OutputStream out = new java.io.BufferedOutputStream(new FileOutputStream(file),
+                    WRITE_BUFFER_SIZE)) {
+                written = export.writeTo(out);
+            }
+            complete = true;
+            return written;
+        } finally {
+            if (!complete) {
+                java.nio.file.Files.deleteIfExists(file.toPath());
             }
         }
     }
 
-    public void exportToPdf(List<Expense> expenses, java.io.File file, String username) throws Exception {
+    private static java.io.Writer csvWriter(java.io.OutputStream out, boolean gzip) throws java.io.IOException {
+        if (gzip) {
+            out = new java.util.zip.GZIPOutputStream(out, WRITE_BUFFER_SIZE);
+        }
+        return new java.io.BufferedWriter(
+                new java.io.OutputStreamWriter(out, java.nio.charset.StandardCharsets.UTF_8), WRITE_BUFFER_SIZE);
+    }
+
+    // Closing the returned stream only flushes the caller's stream
+    private static java.io.OutputStream leaveOpen(java.io.OutputStream out) {
+        return new java.io.FilterOutputStream(out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws java.io.IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws java.io.IOException {
+                flush();
+            }
+        };
+    }
+
+    private static String[] csvRow(ExpenseRow e) {
+        return new String[] {
+                e.date().toString(),
+                e.category() != null ? e.category() : "N/A",
+                e.description(),
+                e.amount().toString()
+        };
+    }
+
+    public void exportToPdf(List<ExpenseRow> expenses, java.io.File file, String username) throws Exception {
+        exportToFile(file, out -> writePdf(expenses.iterator(), expenses.size(), out, username, ExportMonitor.NONE));
+    }
+
+    /**
+     * Exports the user's expenses, or everyone's when {@code user} is null,
+     * dated between the two days (either may be null for an open end)
+     * straight from a database cursor into a PDF report. Memory use does not
+     * depend on the number of rows. Progress and cancellation work as for
+     * {@link #exportToCsv(User, LocalDate, LocalDate, java.io.File, boolean, ExportMonitor)}.
+     *
+     * @return the number of rows written
+     */
+    public long exportToPdf(User user, LocalDate startDate, LocalDate endDate, java.io.File file,
+            ExportMonitor monitor) throws java.io.IOException {
+        return exportToFile(file, out -> exportToPdf(user, startDate, endDate, out, monitor));
+    }
+
+    /**
+     * Like {@link #exportToPdf(User, LocalDate, LocalDate, java.io.File, ExportMonitor)}
+     * but writes to the stream, which is flushed and left open.
+     */
+    public long exportToPdf(User user, LocalDate startDate, LocalDate endDate, java.io.OutputStream out,
+            ExportMonitor monitor) throws java.io.IOException {
+        long total = expenseRepository.countRows(user, startDate, endDate);
+        try (Stream<ExpenseRow> rows = expenseRepository.streamRows(user, startDate, endDate)) {
+            return writePdf(rows.iterator(), total, out, user != null ? user.getUsername() : "All users", monitor);
+        }
+    }
+
+    /**
+     * Writes the report in one pass over the rows. The table is handed to
+     * the document every {@value #PDF_CHUNK_ROWS} rows, which lays out and
+     * writes the finished pages and drops their rows, so only the page being
+     * filled is held in memory. The total and the subtotals per category and
+     * per month are summed along the way and follow the table.
+     */
+    private static long writePdf(java.util.Iterator<ExpenseRow> rows, long total, java.io.OutputStream out,
+            String username, ExportMonitor monitor) throws java.io.IOException {
+        long written = 0;
         Document document = new Document();
-        PdfWriter.getInstance(document, new FileOutputStream(file));
+        PdfWriter.getInstance(document, out).setCloseStream(false);
         document.open();
 
-        // Title
-        Font titleFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18);
-        Paragraph title = new Paragraph("Expense Report - " + username, titleFont);
+        Paragraph title = new Paragraph("Expense Report - " + username, TITLE_FONT);
         title.setAlignment(Element.ALIGN_CENTER);
         title.setSpacingAfter(20);
         document.add(title);
+        document.add(new Paragraph("Generated on: " + LocalDate.now(), BODY_FONT));
+        document.add(new Paragraph(" ", BODY_FONT));
 
-        // Meta info
-        document.add(new Paragraph("Generated on: " + LocalDate.now()));
-        BigDecimal total = expenses.stream()
-                .map(Expense::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        document.add(new Paragraph("Total Spending: " + total.toString()));
-        document.add(new Paragraph(" "));
+        PdfPTable table = pdfTable(1, 1, 2, 1);
+        headerRow(table, CSV_HEADER);
+        table.setComplete(false);
+        MoneyAccumulator sum = new MoneyAccumulator();
+        Map<String, MoneyAccumulator> byCategory = new java.util.TreeMap<>();
+        Map<java.time.YearMonth, MoneyAccumulator> byMonth = new java.util.TreeMap<>();
+        while (rows.hasNext()) {
+            if (monitor.isCancelled()) {
+                throw new java.util.concurrent.CancellationException("Export cancelled");
+            }
+            ExpenseRow e = rows.next();
+            String category = e.category() != null ? e.category() : "N/A";
+            table.addCell(new Phrase(e.date().toString(), BODY_FONT));
+            table.addCell(new Phrase(category, BODY_FONT));
+            table.addCell(new Phrase(e.description(), BODY_FONT));
+            table.addCell(new Phrase(e.amount().toString(), BODY_FONT));
+            sum.add(e.amount());
+            byCategory.computeIfAbsent(category, c -> new MoneyAccumulator()).add(e.amount());
+            byMonth.computeIfAbsent(java.time.YearMonth.from(e.date()), m -> new MoneyAccumulator())
+                    .add(e.amount());
+            if (++written % PDF_CHUNK_ROWS == 0) {
+                document.add(table);
+            }
+            if (written % PROGRESS_INTERVAL == 0) {
+                monitor.progress(written, total);
+            }
+        }
+        table.setComplete(true);
+        document.add(table);
 
-        // Table
-        PdfPTable pdfTable = new PdfPTable(4);
-        pdfTable.setWidthPercentage(100);
+        document.add(new Paragraph(" ", BODY_FONT));
+        document.add(new Paragraph("Total Spending: " + sum.total(), HEADER_FONT));
+        document.add(new Paragraph(" ", BODY_FONT));
+        document.add(subtotalTable("Category", byCategory));
+        document.add(new Paragraph(" ", BODY_FONT));
+        document.add(subtotalTable("Month", byMonth));
+        document.close();
+        out.flush();
+        monitor.progress(written, Math.max(total, written));
+        return written;
+    }
 
-        // Headers
-        String[] headers = { "Date", "Category", "Description", "Amount" };
-        for (String header : headers) {
-            PdfPCell cell = new PdfPCell(new Phrase(header, FontFactory.getFont(FontFactory.HELVETICA_BOLD)));
-            cell.setHorizontalAlignment(Element.ALIGN_CENTER);
-            cell.setBackgroundColor(java.awt.Color.LIGHT_GRAY);
-            pdfTable.addCell(cell);
-        }
+    private static PdfPTable pdfTable(float... relativeWidths) {
+        PdfPTable table = new PdfPTable(relativeWidths);
+        table.setWidthPercentage(100);
+        // Every cell is copied from the default cell, so it is set up once
+        table.getDefaultCell().setPadding(3);
+        return table;
+    }
 
-        // Data
-        for (Expense e : expenses) {
-            pdfTable.addCell(e.getDate().toString());
-            pdfTable.addCell(e.getCategory() != null ? e.getCategory().getName() : "N/A");
-            pdfTable.addCell(e.getDescription());
-            pdfTable.addCell(e.getAmount().toString());
+    // Header rows repeat on every page the table spans
+    private static void headerRow(PdfPTable table, String... headers) {
+        PdfPCell cell = table.getDefaultCell();
+        cell.setHorizontalAlignment(Element.ALIGN_CENTER);
+        // OpenPDF colors are AWT colors; PDF output loads those classes whatever the color
+        cell.setBackgroundColor(java.awt.Color.LIGHT_GRAY);
+        for (String header : headers) {
+            table.addCell(new Phrase(header, HEADER_FONT));
         }
+        cell.setHorizontalAlignment(Element.ALIGN_LEFT);
+        cell.setBackgroundColor(null);
+        table.setHeaderRows(1);
+    }
 
-        document.add(pdfTable);
-        document.close();
+    private static PdfPTable subtotalTable(String label, Map<?, MoneyAccumulator> subtotals) {
+        PdfPTable table = pdfTable(3, 1, 1);
+        headerRow(table, label, "Count", "Amount");
+        subtotals.forEach((key, subtotal) -> {
+            table.addCell(new Phrase(key.toString(), BODY_FONT));
+            table.addCell(new Phrase(Long.toString(subtotal.count()), BODY_FONT));
+            table.addCell(new Phrase(subtotal.total().toString(), BODY_FONT));
+        });
+        return table;
     }
 }
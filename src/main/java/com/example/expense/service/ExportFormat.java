@@ -0,0 +1,28 @@
+package com.example.expense.service;
+
+/**
+ * File formats an {@link ExportJobService} can write.
+ */
+public enum ExportFormat {
+
+    CSV("CSV", ".csv"),
+    CSV_GZIP("CSV (gzip)", ".csv.gz"),
+    PDF("PDF", ".pdf");
+
+    private final String label;
+    private final String extension;
+
+    ExportFormat(String label, String extension) {
+        this.label = label;
+        this.extension = extension;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.expense.service;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * One export queued on an {@link ExportJobService}. Its state is updated by
+ * the worker running it and can be read from any thread. Whoever moves the
+ * job out of {@link Status#QUEUED} first owns it: the worker starting it, or
+ * a cancel that gets there before the worker does. Only the owner sets the
+ * finished status.
+ */
+public final class ExportJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+
+    private final long id;
+    private final ExportRequest request;
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final AtomicReference<Status> status = new AtomicReference<>(Status.QUEUED);
+    private volatile long rowsWritten;
+    private volatile long totalRows;
+    private volatile String error;
+
+    ExportJob(long id, ExportRequest request) {
+        this.id = id;
+        this.request = request;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public ExportRequest getRequest() {
+        return request;
+    }
+
+    public Status getStatus() {
+        return status.get();
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    /**
+     * Rows the export expects to write, or 0 until it has counted them.
+     */
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    /**
+     * Why the job failed, or null.
+     */
+    public String getError() {
+        return error;
+    }
+
+    void requestCancel() {
+        cancelled.set(true);
+    }
+
+    /**
+     * Moves the job from queued to running; false if it was cancelled first.
+     */
+    boolean start() {
+        return status.compareAndSet(Status.QUEUED, Status.RUNNING);
+    }
+
+    /**
+     * Cancels the job if no worker has started it yet; false once a worker
+     * owns it.
+     */
+    boolean cancelIfQueued() {
+        return status.compareAndSet(Status.QUEUED, Status.CANCELLED);
+    }
+
+    boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    void setStatus(Status status) {
+        this.status.set(status);
+    }
+
+    void setProgress(long rowsWritten, long totalRows) {
+        this.rowsWritten = rowsWritten;
+        this.totalRows = totalRows;
+    }
+
+    void fail(String error) {
+        this.error = error;
+        this.status.set(Status.FAILED);
+    }
+
+    @Override
+    public String toString() {
+        return "ExportJob[" + id + ", " + status.get() + ", " + request.destination().getName() + "]";
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.expense.service;
+
+import com.example.expense.model.User;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Queues CSV and PDF exports and runs them on a fixed number of worker
+ * threads, so many exports at once (an admin exporting every user, say)
+ * neither block the caller nor take more than their share of the database
+ * connection pool. Each export streams from a database cursor, see
+ * {@link ExpenseService#exportToCsv(User, LocalDate, LocalDate, File, boolean, ExportMonitor)}.
+ *
+ * <p>
+ * Listeners hear about every job that is queued, starts, makes progress or
+ * finishes, on the thread that changed it; views hand over to the EDT
+ * themselves.
+ */
+public class ExportJobService {
+
+    // Leaves most of the default pool of ten connections to the views
+    public static final int DEFAULT_WORKERS = 3;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final ExpenseService expenseService;
+    private final Executor executor;
+    private final ExecutorService pool;
+    private final AtomicLong jobIds = new AtomicLong();
+    private final List<ExportJob> jobs = new CopyOnWriteArrayList<>();
+    private final List<Consumer<ExportJob>> listeners = new CopyOnWriteArrayList<>();
+
+    @jakarta.inject.Inject
+    public ExportJobService(ExpenseService expenseService) {
+        this(expenseService, DEFAULT_WORKERS);
+    }
+
+    public ExportJobService(ExpenseService expenseService, int workers) {
+        this(expenseService, Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "export-worker-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    /**
+     * Runs jobs on an executor the caller owns; tests pass a same-thread one.
+     */
+    public ExportJobService(ExpenseService expenseService, Executor executor) {
+        this(expenseService, executor, false);
+    }
+
+    private ExportJobService(ExpenseService expenseService, Executor executor, boolean ownsExecutor) {
+        this.expenseService = expenseService;
+        this.executor = executor;
+        this.pool = ownsExecutor ? (ExecutorService) executor : null;
+    }
+
+    public ExportJob submit(ExportRequest request) {
+        ExportJob job = new ExportJob(jobIds.incrementAndGet(), request);
+        jobs.add(job);
+        publish(job);
+        executor.execute(() -> run(job));
+        return job;
+    }
+
+    /**
+     * Queues one export per user into the directory, named after the user.
+     */
+    public List<ExportJob> submitAll(Collection<User> users, ExportFormat format, LocalDate startDate,
+            LocalDate endDate, File directory) {
+        List<ExportJob> submitted = new ArrayList<>();
+        for (User user : users) {
+            submitted.add(submit(new ExportRequest(format, user, startDate, endDate,
+                    new File(directory, fileName(user, format)))));
+        }
+        return submitted;
+    }
+
+    public static String fileName(User user, ExportFormat format) {
+        return "Expense_Report_" + user.getUsername().replaceAll("[^A-Za-z0-9._-]", "_") + format.extension();
+    }
+
+    /**
+     * Stops the job: a queued job is dropped at once, a running one stops
+     * before its next row, deletes its partial file and then reports itself
+     * cancelled from its worker.
+     */
+    public void cancel(ExportJob job) {
+        job.requestCancel();
+        if (job.cancelIfQueued()) {
+            publish(job);
+        }
+    }
+
+    /**
+     * Every job not cleared yet, in submission order.
+     */
+    public List<ExportJob> getJobs() {
+        return List.copyOf(jobs);
+    }
+
+    public void clearFinished() {
+        jobs.removeIf(job -> job.getStatus().isFinished());
+    }
+
+    public void addListener(Consumer<ExportJob> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Consumer<ExportJob> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Cancels every unfinished job and stops the workers.
+     */
+    public void shutdown() {
+        jobs.forEach(this::cancel);
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private void run(ExportJob job) {
+        if (!job.start()) {
+            // Cancelled while queued; cancel has already reported it
+            return;
+        }
+        publish(job);
+        if (job.isCancelled()) {
+            // Cancelled just as this worker picked it up, before any file was opened
+            job.setStatus(ExportJob.Status.CANCELLED);
+            publish(job);
+            return;
+        }
+        ExportMonitor monitor = new ExportMonitor() {
+            @Override
+            public void progress(long rowsWritten, long totalRows) {
+                job.setProgress(rowsWritten, totalRows);
+                publish(job);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return job.isCancelled();
+            }
+        };
+        ExportRequest request = job.getRequest();
+        try {
+            if (request.format() == ExportFormat.PDF) {
+                expenseService.exportToPdf(request.user(), request.startDate(), request.endDate(),
+                        request.destination(), monitor);
+            } else {
+                expenseService.exportToCsv(request.user(), request.startDate(), request.endDate(),
+                        request.destination(), request.format() == ExportFormat.CSV_GZIP, monitor);
+            }
+            job.setStatus(ExportJob.Status.COMPLETED);
+        } catch (CancellationException e) {
+            job.setStatus(ExportJob.Status.CANCELLED);
+        } catch (IOException | RuntimeException e) {
+            job.fail(e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+        publish(job);
+    }
+
+    private void publish(ExportJob job) {
+        for (Consumer<ExportJob> listener : listeners) {
+            listener.accept(job);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.expense.service;
+
+/**
+ * Receives the progress of a long-running export and can cancel it. Both
+ * methods are called on the exporting thread, so implementations that touch
+ * Swing components must hand over to the EDT themselves.
+ */
+public interface ExportMonitor {
+
+    ExportMonitor NONE = (rowsWritten, totalRows) -> {
+    };
+
+    /**
+     * Called periodically and once at the end with the rows written so far
+     * and the number expected.
+     */
+    void progress(long rowsWritten, long totalRows);
+
+    /**
+     * Checked between rows; returning true stops the export with a
+     * {@link java.util.concurrent.CancellationException}.
+     */
+    default boolean isCancelled() {
+        return false;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.expense.service;
+
+import com.example.expense.model.User;
+import java.io.File;
+import java.time.LocalDate;
+
+/**
+ * What an export job writes: the user's expenses, or everyone's when
+ * {@code user} is null, dated between the two days (either may be null for
+ * an open end), in the format, to the destination file.
+ */
+public record ExportRequest(ExportFormat format, User user, LocalDate startDate, LocalDate endDate,
+        File destination) {
+
+    public ExportRequest {
+        if (format == null || destination == null) {
+            throw new IllegalArgumentException("An export needs a format and a destination");
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.expense.service;
+
+import com.example.expense.model.ExpenseRow;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of report rows keyed by user, period and period start.
+ * Entries are evicted least-recently-used once {@code maxEntries} is reached
+ * and expire {@code ttl} after loading. A request for a period that lies
+ * inside a cached wider period (a month of a cached year, say) is answered
+ * by slicing the wider rows instead of querying.
+ *
+ * <p>
+ * Writes must call {@link #invalidate(Long, LocalDate)} for every user and
+ * date they touch. A load that overlaps an invalidation is returned to its
+ * caller but not cached, so the cache never stores rows older than the last
+ * write.
+ */
+public class ReportCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+
+    public record Stats(long hits, long misses, long evictions) {
+    }
+
+    private record Key(Long userId, ReportPeriod period, LocalDate start) {
+    }
+
+    private record Entry(LocalDate start, LocalDate end, List<ExpenseRow> rows, long loadedAt) {
+
+        boolean covers(LocalDate from, LocalDate to) {
+            return !start.isAfter(from) && !end.isBefore(to);
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Map<Key, Entry> entries;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long version;
+
+    public ReportCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL, System::nanoTime);
+    }
+
+    ReportCache(int maxEntries, Duration ttl, LongSupplier clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > ReportCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the rows of the period containing {@code date}, from the cache
+     * when possible and from {@code loader} otherwise. The returned list is
+     * unmodifiable.
+     */
+    public List<ExpenseRow> get(Long userId, ReportPeriod period, LocalDate date,
+            Supplier<List<ExpenseRow>> loader) {
+        LocalDate start = period.start(date);
+        LocalDate end = period.end(date);
+        Key key = new Key(userId, period, start);
+        long loadVersion;
+        synchronized (this) {
+            List<ExpenseRow> cached = lookup(key, start, end);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+            loadVersion = version;
+        }
+        List<ExpenseRow> rows = List.copyOf(loader.get());
+        synchronized (this) {
+            if (version == loadVersion) {
+                entries.put(key, new Entry(start, end, rows, clock.getAsLong()));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Drops every entry of the user whose period contains {@code date}, or
+     * all of the user's entries when the date is unknown.
+     */
+    public synchronized void invalidate(Long userId, LocalDate date) {
+        version++;
+        entries.entrySet().removeIf(e -> Objects.equals(e.getKey().userId(), userId)
+                && (date == null || e.getValue().covers(date, date)));
+    }
+
+    public synchronized void invalidateAll() {
+        version++;
+        entries.clear();
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, misses, evictions);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private List<ExpenseRow> lookup(Key key, LocalDate start, LocalDate end) {
+        Entry exact = fresh(key);
+        if (exact != null) {
+            return exact.rows();
+        }
+        // Periods are declared narrowest first
+        for (ReportPeriod wider : ReportPeriod.values()) {
+            if (wider.compareTo(key.period()) <= 0) {
+                continue;
+            }
+            Entry candidate = fresh(new Key(key.userId(), wider, wider.start(start)));
+            if (candidate != null && candidate.covers(start, end)) {
+                return candidate.rows().stream()
+                        .filter(row -> !row.date().isBefore(start) && !row.date().isAfter(end))
+                        .toList();
+            }
+        }
+        return null;
+    }
+
+    private Entry fresh(Key key) {
+        Entry entry = entries.get(key);
+        if (entry != null && clock.getAsLong() - entry.loadedAt() > ttlNanos) {
+            entries.remove(key);
+            evictions++;
+            return null;
+        }
+        return entry;
+    }
+}
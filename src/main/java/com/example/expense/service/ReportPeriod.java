@@ -0,0 +1,61 @@
+package com.example.expense.service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * The report periods offered by ReportView, each mapping an anchor date to
+ * the first and last day of the period that contains it.
+ */
+public enum ReportPeriod {
+
+    DAILY {
+        @Override
+        public LocalDate start(LocalDate date) {
+            return date;
+        }
+
+        @Override
+        public LocalDate end(LocalDate date) {
+            return date;
+        }
+    },
+    WEEKLY {
+        @Override
+        public LocalDate start(LocalDate date) {
+            return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+
+        @Override
+        public LocalDate end(LocalDate date) {
+            return date.with(TemporalAdjusters.nextOrSame(DayOfWeek.SUNDAY));
+        }
+    },
+    MONTHLY {
+        @Override
+        public LocalDate start(LocalDate date) {
+            return date.with(TemporalAdjusters.firstDayOfMonth());
+        }
+
+        @Override
+        public LocalDate end(LocalDate date) {
+            return date.with(TemporalAdjusters.lastDayOfMonth());
+        }
+    },
+    YEARLY {
+        @Override
+        public LocalDate start(LocalDate date) {
+            return date.with(TemporalAdjusters.firstDayOfYear());
+        }
+
+        @Override
+        public LocalDate end(LocalDate date) {
+            return date.with(TemporalAdjusters.lastDayOfYear());
+        }
+    };
+
+    public abstract LocalDate start(LocalDate date);
+
+    public abstract LocalDate end(LocalDate date);
+}
@@ -0,0 +1,143 @@
+package com.example.expense.service;
+
+import com.example.expense.model.ExpenseRow;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * The {@link ExpenseSearchIndex}es of the users who searched recently, plus
+ * one over every user's rows under {@link #ALL_USERS}. Indexes are evicted
+ * least-recently-used once {@code maxEntries} is reached and rebuilt
+ * {@code ttl} after loading.
+ *
+ * <p>
+ * Writes made through this process must be passed to
+ * {@link #apply(Long, Consumer)}; writes from other processes (another
+ * client, a command line import) are only seen once an index expires. An
+ * index is loaded outside the lock writes take, so a cold search does not
+ * hold them up; writes that arrive while it loads are replayed onto it
+ * before it is handed out. Adding a row replaces the row with the same id
+ * and removing a missing row does nothing, so replaying a write the load
+ * already saw is harmless.
+ */
+class SearchIndexCache {
+
+    static final Long ALL_USERS = -1L;
+    static final int DEFAULT_MAX_ENTRIES = 64;
+    static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+
+    private static final class Entry {
+
+        private final CompletableFuture<ExpenseSearchIndex> index = new CompletableFuture<>();
+        // Writes made while loading; null once the index is ready
+        private List<Consumer<ExpenseSearchIndex>> pendingWrites = new ArrayList<>();
+        private long loadedAt;
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final Map<Long, Entry> entries;
+
+    SearchIndexCache() {
+        this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL, System::nanoTime);
+    }
+
+    SearchIndexCache(int maxEntries, Duration ttl, LongSupplier clock) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > SearchIndexCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * The index under the key, loading its rows with {@code loader} when it
+     * is missing or expired. Concurrent searches for the same key wait for a
+     * single load.
+     */
+    ExpenseSearchIndex get(Long key, Supplier<Collection<ExpenseRow>> loader) {
+        Entry entry;
+        boolean load;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.pendingWrites == null && clock.getAsLong() - entry.loadedAt >= ttlNanos) {
+                entries.remove(key);
+                entry = null;
+            }
+            load = entry == null;
+            if (load) {
+                entry = new Entry();
+                entries.put(key, entry);
+            }
+        }
+        if (load) {
+            load(key, entry, loader);
+        }
+        try {
+            return entry.index.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    private void load(Long key, Entry entry, Supplier<Collection<ExpenseRow>> loader) {
+        ExpenseSearchIndex index;
+        try {
+            index = new ExpenseSearchIndex(loader.get());
+        } catch (RuntimeException e) {
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+            entry.index.completeExceptionally(e);
+            return;
+        }
+        synchronized (entries) {
+            entry.pendingWrites.forEach(write -> write.accept(index));
+            entry.pendingWrites = null;
+            entry.loadedAt = clock.getAsLong();
+        }
+        entry.index.complete(index);
+    }
+
+    /**
+     * Applies a write of the user's expenses to their index and to the
+     * all-users index, whichever are cached.
+     */
+    void apply(Long ownerId, Consumer<ExpenseSearchIndex> write) {
+        synchronized (entries) {
+            // Looked up without get() so writes do not count as use
+            entries.forEach((key, entry) -> {
+                if (key.equals(ALL_USERS) || key.equals(ownerId)) {
+                    if (entry.pendingWrites != null) {
+                        entry.pendingWrites.add(write);
+                    } else {
+                        write.accept(entry.index.join());
+                    }
+                }
+            });
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.example.expense.service;
 
 import com.example.expense.model.Role;
 import com.example.expense.model.User;
+import com.example.expense.repository.Page;
 import com.example.expense.repository.UserRepository;
 import java.util.List;
 import java.util.Optional;
@@ -36,6 +37,18 @@ public class UserService {
         return userRepository.save(newUser);
     }
 
+    /**
+     * Registers many new users with the same password in one batched
+     * transaction, hashing the password once. Meant for imports and test
+     * data; the usernames must not exist yet.
+     */
+    public List<User> registerUsers(List<String> usernames, String password, Role role) {
+        String hashedPassword = org.mindrot.jbcrypt.BCrypt.hashpw(password, org.mindrot.jbcrypt.BCrypt.gensalt());
+        return userRepository.saveAll(usernames.stream()
+                .map(username -> new User(null, username, hashedPassword, role))
+                .toList());
+    }
+
     public User updateUser(User user) {
         return userRepository.update(user);
     }
@@ -44,6 +57,14 @@ public class UserService {
         return userRepository.findAll();
     }
 
+    /**
+     * Up to {@code size} users with an id greater than {@code afterId} (or
+     * from the first when it is null), in id order.
+     */
+    public Page<User> getUserPage(Long afterId, int size) {
+        return userRepository.findPage(afterId, size);
+    }
+
     public void setUserStatus(Long userId, boolean enabled) {
         userRepository.findById(userId).ifPresent(user -> {
             user.setEnabled(enabled);
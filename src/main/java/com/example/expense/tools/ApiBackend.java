@@ -0,0 +1,146 @@
+package com.example.expense.tools;
+
+import com.example.expense.model.Category;
+import com.example.expense.model.User;
+import com.example.expense.server.Json;
+import com.example.expense.service.ReportPeriod;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sends the {@link LoadDriver}'s operations to the JSON API of a running
+ * server (see {@code serve}), so a run measures the whole request path:
+ * HTTP, sessions, JSON and the services behind them. Every user logs in
+ * once, on first use, and keeps the token for the rest of the run; users
+ * are told apart by username only.
+ */
+public class ApiBackend implements LoadDriver.Backend {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final String password;
+    private final Map<String, String> tokens = new ConcurrentHashMap<>();
+
+    /**
+     * @param baseUri the API root, e.g. {@code http://localhost:8080/api}
+     * @param password the password every user logs in with
+     */
+    public ApiBackend(URI baseUri, String password) {
+        this(HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(TIMEOUT).build(), baseUri,
+                password);
+    }
+
+    ApiBackend(HttpClient client, URI baseUri, String password) {
+        if (baseUri.getScheme() == null || baseUri.getHost() == null) {
+            throw new IllegalArgumentException("Not an absolute URL: " + baseUri);
+        }
+        this.client = client;
+        this.baseUrl = baseUri.toString().replaceAll("/+$", "");
+        this.password = password;
+    }
+
+    @Override
+    public void report(User user, ReportPeriod period, LocalDate date) {
+        send(authorized(user, "/reports/" + period.name().toLowerCase(Locale.ROOT) + "?date=" + date).GET(), 200);
+    }
+
+    @Override
+    public Long add(User user, BigDecimal amount, LocalDate date, Category category) {
+        Map<String, Object> expense = new LinkedHashMap<>();
+        expense.put("date", date);
+        expense.put("amount", amount);
+        expense.put("description", "Load test");
+        expense.put("category", category != null ? category.getName() : null);
+        Map<String, Object> created = Json.parseObject(send(authorized(user, "/expenses").POST(body(expense)), 201));
+        return ((BigDecimal) created.get("id")).longValueExact();
+    }
+
+    @Override
+    public void delete(User user, Long expenseId) {
+        send(authorized(user, "/expenses/" + expenseId).DELETE(), 204);
+    }
+
+    /**
+     * Logs the users in ahead of a run, so the run does not start with a
+     * burst of password checks.
+     */
+    public void logIn(List<User> users) {
+        users.forEach(user -> token(user.getUsername()));
+    }
+
+    /**
+     * The server's categories, read as the given user.
+     */
+    public List<Category> categories(User user) {
+        Object list = Json.parse(send(authorized(user, "/categories").GET(), 200));
+        List<Category> categories = new ArrayList<>();
+        for (Object element : (List<?>) list) {
+            Map<?, ?> json = (Map<?, ?>) element;
+            Category category = new Category((String) json.get("name"));
+            category.setId(((BigDecimal) json.get("id")).longValueExact());
+            categories.add(category);
+        }
+        return categories;
+    }
+
+    private HttpRequest.Builder authorized(User user, String path) {
+        return request(path).header("Authorization", "Bearer " + token(user.getUsername()));
+    }
+
+    // Logs in outside the map so slow logins do not hold up other users
+    private String token(String username) {
+        String token = tokens.get(username);
+        if (token != null) {
+            return token;
+        }
+        Map<String, Object> credentials = Map.of("username", username, "password", password);
+        Map<String, Object> session = Json.parseObject(send(request("/sessions").POST(body(credentials)), 201));
+        String created = (String) session.get("token");
+        String existing = tokens.putIfAbsent(username, created);
+        return existing != null ? existing : created;
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(TIMEOUT);
+    }
+
+    private static HttpRequest.BodyPublisher body(Map<String, Object> json) {
+        return HttpRequest.BodyPublishers.ofString(Json.write(json), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sends the request and returns the response body, failing on any
+     * status but the expected one.
+     */
+    private String send(HttpRequest.Builder request, int expectedStatus) {
+        try {
+            HttpResponse<String> response = client.send(request.header("Content-Type", "application/json").build(),
+                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            if (response.statusCode() != expectedStatus) {
+                throw new IllegalStateException(response.request().method() + " " + response.request().uri()
+                        + " answered " + response.statusCode() + ": " + response.body());
+            }
+            return response.body();
+        } catch (IOException e) {
+            throw new IllegalStateException("Request failed: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        }
+    }
+}
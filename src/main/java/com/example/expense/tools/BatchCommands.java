@@ -0,0 +1,588 @@
+package com.example.expense.tools;
+
+import com.example.expense.config.ExpenseModule;
+import com.example.expense.model.Category;
+import com.example.expense.model.CategoryTotal;
+import com.example.expense.model.Expense;
+import com.example.expense.model.ExpenseStatistics;
+import com.example.expense.model.PeriodTotal;
+import com.example.expense.model.Role;
+import com.example.expense.model.User;
+import com.example.expense.server.ApiHandler;
+import com.example.expense.server.ApiServer;
+import com.example.expense.server.SessionStore;
+import com.example.expense.service.BudgetService;
+import com.example.expense.service.CategoryService;
+import com.example.expense.service.ExpenseService;
+import com.example.expense.service.ExportFormat;
+import com.example.expense.service.ExportJob;
+import com.example.expense.service.ExportJobService;
+import com.example.expense.service.ExportMonitor;
+import com.example.expense.service.ExportRequest;
+import com.example.expense.service.ReportPeriod;
+import com.example.expense.service.UserService;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.opencsv.CSVReader;
+import jakarta.persistence.EntityManagerFactory;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The headless subcommands {@link com.example.expense.MainApplication} runs
+ * when it is given arguments. They build the services without any UI and
+ * run with {@code java.awt.headless} set (PDF output loads AWT classes
+ * through OpenPDF), write to files or standard output, and return 0 on
+ * success, 1 when the work failed and 2 for bad usage:
+ *
+ * <pre>
+ * export    [--format=csv|csv.gz|pdf] [--user=NAME,...|--all-users] [--from=DATE] [--to=DATE]
+ *           [--out=FILE|DIR|-] [--threads=N]
+ * import    --user=NAME --file=PATH|-
+ * report    [--period=daily|weekly|monthly|yearly] [--date=DATE] [--user=NAME,...] [--out=DIR] [--threads=N]
+ * serve     [--port=N] [--bind=ADDRESS] [--threads=N] [--session-minutes=N]
+ * seed      options of DataGenerator
+ * benchmark options of LoadDriver
+ * </pre>
+ *
+ * Every command also takes {@code --h2=PATH}. Work for many users runs on
+ * at most {@code --threads} workers. {@code serve} runs the JSON API of
+ * {@link ApiHandler} until the process is stopped.
+ */
+public final class BatchCommands {
+
+    static final int DEFAULT_THREADS = 4;
+    static final int IMPORT_BATCH_SIZE = DataGenerator.BATCH_SIZE;
+    static final int SERVER_STOP_SECONDS = 5;
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: <command> [options]",
+            "  export    [--format=csv|csv.gz|pdf] [--user=NAME,...|--all-users] [--from=DATE] [--to=DATE]"
+                    + " [--out=FILE|DIR|-] [--threads=N]",
+            "  import    --user=NAME --file=PATH|-",
+            "  report    [--period=daily|weekly|monthly|yearly] [--date=DATE] [--user=NAME,...] [--out=DIR]"
+                    + " [--threads=N]",
+            "  serve     [--port=N] [--bind=ADDRESS] [--threads=N] [--session-minutes=N]",
+            "  seed      [DataGenerator options]",
+            "  benchmark [LoadDriver options]",
+            "All commands take --h2=PATH to use an H2 file database instead of MySQL.");
+
+    private static final Map<String, Set<String>> OPTIONS = Map.of(
+            "export", Set.of("format", "user", "all-users", "from", "to", "out", "threads", "h2"),
+            "import", Set.of("user", "file", "h2"),
+            "report", Set.of("period", "date", "user", "out", "threads", "h2"),
+            "serve", Set.of("port", "bind", "threads", "session-minutes", "h2"));
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final UserService userService;
+    private final ExpenseService expenseService;
+    private final CategoryService categoryService;
+    private final ExportJobService exportJobService;
+    private final InputStream in;
+    private final PrintStream out;
+    private final PrintStream err;
+    private final Consumer<Thread> shutdownHooks;
+
+    public BatchCommands(UserService userService, ExpenseService expenseService, CategoryService categoryService,
+            ExportJobService exportJobService, InputStream in, PrintStream out, PrintStream err) {
+        this(userService, expenseService, categoryService, exportJobService, in, out, err,
+                Runtime.getRuntime()::addShutdownHook);
+    }
+
+    /**
+     * Hands {@code serve}'s shutdown hook to the consumer instead of the
+     * runtime; tests run it themselves.
+     */
+    BatchCommands(UserService userService, ExpenseService expenseService, CategoryService categoryService,
+            ExportJobService exportJobService, InputStream in, PrintStream out, PrintStream err,
+            Consumer<Thread> shutdownHooks) {
+        this.userService = userService;
+        this.expenseService = expenseService;
+        this.categoryService = categoryService;
+        this.exportJobService = exportJobService;
+        this.in = in;
+        this.out = out;
+        this.err = err;
+        this.shutdownHooks = shutdownHooks;
+    }
+
+    public static int run(String... args) {
+        String command = args.length > 0 ? args[0] : "";
+        String[] rest = Arrays.copyOfRange(args, Math.min(1, args.length), args.length);
+        if (command.equals("seed")) {
+            return DataGenerator.run(rest);
+        }
+        if (command.equals("benchmark")) {
+            return LoadDriver.run(rest);
+        }
+        if (command.equals("help") || command.equals("--help")) {
+            System.out.println(USAGE);
+            return 0;
+        }
+        CommandLineOptions options;
+        try {
+            if (!OPTIONS.containsKey(command)) {
+                throw new IllegalArgumentException("Unknown command: " + command);
+            }
+            options = CommandLineOptions.parse(rest).requireKnown(OPTIONS.get(command));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        options.applyDatabaseOverrides();
+        Injector injector = Guice.createInjector(new ExpenseModule());
+        try {
+            return new BatchCommands(injector.getInstance(UserService.class),
+                    injector.getInstance(ExpenseService.class), injector.getInstance(CategoryService.class),
+                    injector.getInstance(ExportJobService.class), System.in, System.out, System.err).execute(command, options);
+        } finally {
+            injector.getInstance(EntityManagerFactory.class).close();
+        }
+    }
+
+    /**
+     * Runs {@code export}, {@code import}, {@code report} or {@code serve}.
+     */
+    int execute(String command, CommandLineOptions options) {
+        try {
+            switch (command) {
+                case "export":
+                    return export(options);
+                case "import":
+                    return importCsv(options);
+                case "report":
+                    return report(options);
+                case "serve":
+                    return serve(options);
+                default:
+                    throw new IllegalArgumentException("Unknown command: " + command);
+            }
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return 2;
+        }
+    }
+
+    private int export(CommandLineOptions options) {
+        ExportFormat format = exportFormat(options.getString("format", "csv"));
+        List<String> usernames = usernames(options);
+        boolean allUsers = options.has("all-users");
+        LocalDate from = options.getDate("from", null);
+        LocalDate to = options.getDate("to", null);
+        String target = options.getString("out", "-");
+        int threads = threads(options);
+        if (allUsers && !usernames.isEmpty()) {
+            throw new IllegalArgumentException("Use either --user or --all-users");
+        }
+        File destination = new File(target);
+        boolean perUser = allUsers || usernames.size() > 1 || destination.isDirectory();
+        if (perUser && target.equals("-")) {
+            throw new IllegalArgumentException("Exporting several users needs --out=DIR");
+        }
+
+        return attempt("Export", () -> {
+            List<User> users = allUsers ? regularUsers() : findUsers(usernames);
+            if (perUser) {
+                Files.createDirectories(destination.toPath());
+                return exportPerUser(users, format, from, to, destination, threads);
+            }
+            User user = users.isEmpty() ? null : users.get(0);
+            boolean gzip = format == ExportFormat.CSV_GZIP;
+            long rows;
+            if (target.equals("-")) {
+                OutputStream stdout = new BufferedOutputStream(out, 64 * 1024);
+                rows = format == ExportFormat.PDF
+                        ? expenseService.exportToPdf(user, from, to, stdout, ExportMonitor.NONE)
+                        : expenseService.exportToCsv(user, from, to, stdout, gzip, ExportMonitor.NONE);
+                stdout.flush();
+            } else {
+                rows = format == ExportFormat.PDF
+                        ? expenseService.exportToPdf(user, from, to, destination, ExportMonitor.NONE)
+                        : expenseService.exportToCsv(user, from, to, destination, gzip, ExportMonitor.NONE);
+                out.printf("Exported %,d rows to %s%n", rows, destination.getAbsolutePath());
+            }
+            return 0;
+        });
+    }
+
+    /**
+     * Queues the exports on the shared {@link ExportJobService}, keeping at
+     * most {@code threads} of them queued or running at once.
+     */
+    private int exportPerUser(List<User> users, ExportFormat format, LocalDate from, LocalDate to, File directory,
+            int threads) throws InterruptedException {
+        Semaphore slots = new Semaphore(threads);
+        CountDownLatch finished = new CountDownLatch(users.size());
+        Set<ExportRequest> requests = ConcurrentHashMap.newKeySet();
+        Consumer<ExportJob> listener = job -> {
+            if (job.getStatus().isFinished() && requests.contains(job.getRequest())) {
+                synchronized (out) {
+                    out.printf("%s: %s, %,d rows -> %s%s%n", job.getRequest().user().getUsername(),
+                            job.getStatus(), job.getRowsWritten(), job.getRequest().destination().getPath(),
+                            job.getError() != null ? " (" + job.getError() + ")" : "");
+                }
+                slots.release();
+                finished.countDown();
+            }
+        };
+        List<ExportJob> submitted = new ArrayList<>();
+        exportJobService.addListener(listener);
+        try {
+            for (User user : users) {
+                slots.acquire();
+                ExportRequest request = new ExportRequest(format, user, from, to,
+                        new File(directory, ExportJobService.fileName(user, format)));
+                requests.add(request);
+                submitted.add(exportJobService.submit(request));
+            }
+            finished.await();
+            return submitted.stream().allMatch(job -> job.getStatus() == ExportJob.Status.COMPLETED) ? 0 : 1;
+        } finally {
+            // Only unfinished after an interrupt
+            submitted.stream().filter(job -> !job.getStatus().isFinished()).forEach(exportJobService::cancel);
+            exportJobService.removeListener(listener);
+        }
+    }
+
+    /**
+     * Reads rows in the CSV export's layout (date, category, description,
+     * amount, with an optional header) in two passes over the file: the
+     * first checks every row without writing, so a bad line imports nothing,
+     * and the second saves the rows in batches of {@link #IMPORT_BATCH_SIZE},
+     * so files of any size import in constant memory. Standard input is
+     * spooled to a temporary file to be read twice. Should a batch fail to
+     * save anyway, the error says how many rows were already imported.
+     */
+    private int importCsv(CommandLineOptions options) {
+        List<String> usernames = usernames(options);
+        String file = options.getString("file", null);
+        if (usernames.size() != 1 || file == null) {
+            throw new IllegalArgumentException("import needs one --user and a --file");
+        }
+
+        return attempt("Import", () -> {
+            User user = findUsers(usernames).get(0);
+            File spooled = null;
+            try {
+                if (file.equals("-")) {
+                    spooled = File.createTempFile("expense-import", ".csv");
+                    Files.copy(in, spooled.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                String source = spooled != null ? spooled.getPath() : file;
+                validateImport(source);
+                long imported = saveImportRows(source, user);
+                out.printf("Imported %,d expenses for %s%n", imported, user.getUsername());
+                return 0;
+            } finally {
+                if (spooled != null) {
+                    Files.deleteIfExists(spooled.toPath());
+                }
+            }
+        });
+    }
+
+    /**
+     * Parses every row, throwing at the first bad one.
+     */
+    private void validateImport(String file) throws IOException {
+        forEachImportRow(file, (row, line) -> {
+        });
+    }
+
+    private long saveImportRows(String file, User user) throws IOException {
+        List<Expense> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        long[] imported = new long[1];
+        long[] batchStart = new long[1];
+        try {
+            forEachImportRow(file, (row, line) -> {
+                if (batch.isEmpty()) {
+                    batchStart[0] = line;
+                }
+                Category category = row.category() == null ? null
+                        : categoryService.getOrCreateCategory(row.category());
+                batch.add(new Expense(row.amount(), row.date(), row.description(), user, category));
+                if (batch.size() == IMPORT_BATCH_SIZE) {
+                    imported[0] += expenseService.addExpenses(batch).size();
+                    batch.clear();
+                }
+            });
+            if (!batch.isEmpty()) {
+                imported[0] += expenseService.addExpenses(batch).size();
+            }
+        } catch (RuntimeException e) {
+            throw new IOException(String.format("Saving the batch from line %d failed after %,d expenses were"
+                    + " imported: %s", batchStart[0], imported[0], e.getMessage()), e);
+        }
+        return imported[0];
+    }
+
+    private record ImportRow(LocalDate date, String category, String description, BigDecimal amount) {
+    }
+
+    private interface ImportRowConsumer {
+
+        void accept(ImportRow row, long line) throws IOException;
+    }
+
+    /**
+     * Parses the file row by row, skipping a header line.
+     */
+    private void forEachImportRow(String file, ImportRowConsumer consumer) throws IOException {
+        try (CSVReader reader = new CSVReader(new BufferedReader(new InputStreamReader(open(file),
+                StandardCharsets.UTF_8), 64 * 1024))) {
+            String[] row;
+            // No validators are configured, so the silent read skips nothing
+            while ((row = reader.readNextSilently()) != null) {
+                long line = reader.getLinesRead();
+                if (line == 1 && row.length > 0 && row[0].equalsIgnoreCase("Date")) {
+                    continue;
+                }
+                consumer.accept(parseImportRow(row, line), line);
+            }
+        }
+    }
+
+    private static InputStream open(String file) throws IOException {
+        InputStream stream = new FileInputStream(file);
+        return file.endsWith(".gz") ? new GZIPInputStream(stream, 64 * 1024) : stream;
+    }
+
+    private static ImportRow parseImportRow(String[] row, long line) throws IOException {
+        if (row.length != 4) {
+            throw new IOException("Line " + line + ": expected 4 columns but found " + row.length);
+        }
+        LocalDate date;
+        BigDecimal amount;
+        try {
+            date = LocalDate.parse(row[0].trim());
+            amount = new BigDecimal(row[3].trim());
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IOException("Line " + line + ": " + e.getMessage());
+        }
+        if (amount.signum() <= 0) {
+            throw new IOException("Line " + line + ": amount must be positive");
+        }
+        String name = row[1].trim();
+        return new ImportRow(date, name.isEmpty() || name.equals("N/A") ? null : name, row[2], amount);
+    }
+
+    /**
+     * Writes one text report per user for the period containing the date,
+     * computed on a bounded pool and printed in the order the users were
+     * given.
+     */
+    private int report(CommandLineOptions options) {
+        ReportPeriod period = reportPeriod(options.getString("period", "monthly"));
+        LocalDate date = options.getDate("date", LocalDate.now());
+        List<String> usernames = usernames(options);
+        String directory = options.getString("out", null);
+        int threads = threads(options);
+
+        return attempt("Report", () -> {
+            List<User> users = usernames.isEmpty() ? regularUsers() : findUsers(usernames);
+            if (directory != null) {
+                Files.createDirectories(new File(directory).toPath());
+            }
+            ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "report-worker-" + THREAD_COUNT.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                Map<User, Future<String>> reports = new LinkedHashMap<>();
+                for (User user : users) {
+                    reports.put(user, pool.submit(() -> formatReport(user, period, date)));
+                }
+                int status = 0;
+                for (Map.Entry<User, Future<String>> report : reports.entrySet()) {
+                    String username = report.getKey().getUsername();
+                    try {
+                        String text = report.getValue().get();
+                        if (directory != null) {
+                            File file = new File(directory, "Report_" + username.replaceAll("[^A-Za-z0-9._-]", "_")
+                                    + "_" + period.name().toLowerCase(Locale.ROOT) + "_" + date + ".txt");
+                            Files.writeString(file.toPath(), text);
+                            out.println(username + " -> " + file.getPath());
+                        } else {
+                            out.print(text);
+                            out.println();
+                        }
+                    } catch (ExecutionException e) {
+                        err.println(username + ": " + e.getCause().getMessage());
+                        status = 1;
+                    }
+                }
+                return status;
+            } finally {
+                pool.shutdownNow();
+            }
+        });
+    }
+
+    String formatReport(User user, ReportPeriod period, LocalDate date) {
+        LocalDate start = period.start(date);
+        LocalDate end = period.end(date);
+        ExpenseStatistics statistics = expenseService.getStatistics(user, start, end);
+        StringBuilder text = new StringBuilder();
+        String newline = System.lineSeparator();
+        text.append("Expense report for ").append(user.getUsername()).append(", ").append(start).append(" to ")
+                .append(end).append(newline);
+        text.append("Total: ").append(statistics.total()).append(" (").append(statistics.count())
+                .append(" expenses)").append(newline);
+        if (!statistics.byCategory().isEmpty()) {
+            text.append("By category:").append(newline);
+            for (CategoryTotal total : statistics.byCategory()) {
+                text.append(String.format("  %-24s %12s %8d%n", total.category(), total.total(), total.count()));
+            }
+        }
+        List<PeriodTotal> periods = period == ReportPeriod.YEARLY ? statistics.byMonth() : statistics.byDay();
+        if (period != ReportPeriod.DAILY && !periods.isEmpty()) {
+            text.append(period == ReportPeriod.YEARLY ? "By month:" : "By day:").append(newline);
+            for (PeriodTotal total : periods) {
+                text.append(String.format("  %-24s %12s %8d%n", total.periodStart(), total.total(), total.count()));
+            }
+        }
+        return text.toString();
+    }
+
+    /**
+     * Serves the API until the JVM shuts down, e.g. on Ctrl+C. Binds to
+     * localhost unless {@code --bind} names another address, such as
+     * 0.0.0.0 for every interface.
+     */
+    private int serve(CommandLineOptions options) {
+        int port = options.getInt("port", ApiServer.DEFAULT_PORT);
+        String bind = options.getString("bind", "localhost");
+        int threads = options.getInt("threads", ApiServer.DEFAULT_THREADS);
+        long sessionMinutes = options.getLong("session-minutes", SessionStore.DEFAULT_IDLE_TIMEOUT.toMinutes());
+        if (port < 0 || port > 65_535) {
+            throw new IllegalArgumentException("--port must be between 0 and 65535");
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("--threads must be positive");
+        }
+        if (sessionMinutes <= 0) {
+            throw new IllegalArgumentException("--session-minutes must be positive");
+        }
+
+        return attempt("Server", () -> {
+            ApiHandler handler = new ApiHandler(userService, expenseService, categoryService, new BudgetService(),
+                    new SessionStore(Duration.ofMinutes(sessionMinutes), Clock.systemUTC()));
+            ApiServer server = ApiServer.start(handler, new InetSocketAddress(bind, port), threads);
+            CountDownLatch stopped = new CountDownLatch(1);
+            shutdownHooks.accept(new Thread(() -> {
+                server.stop(SERVER_STOP_SECONDS);
+                stopped.countDown();
+            }, "api-shutdown"));
+            out.println("Serving the API at http://" + bind + ":" + server.getAddress().getPort() + ApiHandler.PREFIX
+                    + (server.usesVirtualThreads() ? " on virtual threads" : " on " + threads + " threads"));
+            stopped.await();
+            return 0;
+        });
+    }
+
+    private int attempt(String what, Callable<Integer> work) {
+        try {
+            return work.call();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            err.println(what + " interrupted");
+            return 1;
+        } catch (Exception e) {
+            err.println(what + " failed: " + (e.getMessage() != null ? e.getMessage() : e));
+            return 1;
+        }
+    }
+
+    private List<User> regularUsers() {
+        return userService.getAllUsers().stream().filter(user -> user.getRole() == Role.USER).toList();
+    }
+
+    private List<User> findUsers(List<String> usernames) {
+        Map<String, User> byName = new HashMap<>();
+        for (User user : userService.getAllUsers()) {
+            byName.put(user.getUsername(), user);
+        }
+        List<User> users = new ArrayList<>();
+        for (String username : usernames) {
+            User user = byName.get(username);
+            if (user == null) {
+                throw new IllegalStateException("Unknown user: " + username);
+            }
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static List<String> usernames(CommandLineOptions options) {
+        String value = options.getString("user", "");
+        return Arrays.stream(value.split(",")).map(String::trim).filter(name -> !name.isEmpty()).toList();
+    }
+
+    private static int threads(CommandLineOptions options) {
+        int threads = options.getInt("threads", DEFAULT_THREADS);
+        if (threads <= 0) {
+            throw new IllegalArgumentException("--threads must be positive");
+        }
+        return threads;
+    }
+
+    private static ExportFormat exportFormat(String value) {
+        switch (value.toLowerCase(Locale.ROOT)) {
+            case "csv":
+                return ExportFormat.CSV;
+            case "csv.gz":
+                return ExportFormat.CSV_GZIP;
+            case "pdf":
+                return ExportFormat.PDF;
+            default:
+                throw new IllegalArgumentException("--format must be csv, csv.gz or pdf, was: " + value);
+        }
+    }
+
+    private static ReportPeriod reportPeriod(String value) {
+        try {
+            return ReportPeriod.valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("--period must be daily, weekly, monthly or yearly, was: " + value);
+        }
+    }
+}
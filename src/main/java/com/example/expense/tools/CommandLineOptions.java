@@ -0,0 +1,112 @@
+package com.example.expense.tools;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code --name=value} and {@code --flag} options of the command-line tools.
+ * Arguments that do not start with {@code --} are kept in order as
+ * positional arguments. Malformed values and unknown options are reported
+ * with an {@link IllegalArgumentException} whose message is fit for the
+ * user.
+ */
+public final class CommandLineOptions {
+
+    private final Map<String, String> values = new LinkedHashMap<>();
+    private final List<String> positional = new ArrayList<>();
+
+    private CommandLineOptions() {
+    }
+
+    public static CommandLineOptions parse(String... args) {
+        CommandLineOptions options = new CommandLineOptions();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.length() > 2) {
+                int equals = arg.indexOf('=');
+                if (equals < 0) {
+                    options.values.put(arg.substring(2), "true");
+                } else {
+                    options.values.put(arg.substring(2, equals), arg.substring(equals + 1));
+                }
+            } else {
+                options.positional.add(arg);
+            }
+        }
+        return options;
+    }
+
+    public List<String> positional() {
+        return Collections.unmodifiableList(positional);
+    }
+
+    public boolean has(String name) {
+        return values.containsKey(name);
+    }
+
+    public String getString(String name, String defaultValue) {
+        return values.getOrDefault(name, defaultValue);
+    }
+
+    public int getInt(String name, int defaultValue) {
+        String value = values.get(name);
+        try {
+            return value != null ? Integer.parseInt(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " must be a whole number, was: " + value);
+        }
+    }
+
+    public long getLong(String name, long defaultValue) {
+        String value = values.get(name);
+        try {
+            return value != null ? Long.parseLong(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " must be a whole number, was: " + value);
+        }
+    }
+
+    public LocalDate getDate(String name, LocalDate defaultValue) {
+        String value = values.get(name);
+        try {
+            return value != null ? LocalDate.parse(value) : defaultValue;
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("--" + name + " must be a date like 2024-01-31, was: " + value);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException naming the first option that is not
+     *         one of {@code known}
+     */
+    public CommandLineOptions requireKnown(Set<String> known) {
+        for (String name : values.keySet()) {
+            if (!known.contains(name)) {
+                throw new IllegalArgumentException("Unknown option --" + name);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Points the persistence unit at the database chosen on the command
+     * line: {@code --h2=PATH} for an H2 file database, otherwise the MySQL
+     * database of persistence.xml, tunable as usual with
+     * {@code -Djakarta.persistence.*} and {@code -Dhibernate.*}.
+     */
+    public void applyDatabaseOverrides() {
+        String h2 = values.get("h2");
+        if (h2 != null) {
+            System.setProperty("jakarta.persistence.jdbc.url", "jdbc:h2:" + h2);
+            System.setProperty("jakarta.persistence.jdbc.driver", "org.h2.Driver");
+            System.setProperty("jakarta.persistence.jdbc.user", "sa");
+            System.setProperty("jakarta.persistence.jdbc.password", "");
+            System.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        }
+    }
+}
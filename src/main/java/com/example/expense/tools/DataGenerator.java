@@ -0,0 +1,262 @@
+package com.example.expense.tools;
+
+import com.example.expense.config.ExpenseModule;
+import com.example.expense.model.Category;
+import com.example.expense.model.Expense;
+import com.example.expense.model.Role;
+import com.example.expense.model.User;
+import com.example.expense.service.CategoryService;
+import com.example.expense.service.ExpenseService;
+import com.example.expense.service.UserService;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import jakarta.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+/**
+ * Creates realistic volumes of test data: users, categories and expenses.
+ * Everything drawn is a function of the seed and the settings alone, so the
+ * same settings always produce the same data.
+ *
+ * <ul>
+ * <li>Users get expenses in Zipf-like proportions: a few users have most of
+ * them, many have a handful.</li>
+ * <li>Categories are also skewed, and each has its own typical amount; amounts
+ * are log-normal around it.</li>
+ * <li>Dates are seasonal: more spending in December and at weekends, less in
+ * early summer.</li>
+ * </ul>
+ *
+ * <p>
+ * All data is written through the batched repository paths
+ * ({@link UserService#registerUsers} and {@link ExpenseService#addExpenses}).
+ * Generated users share one password. Usernames are the prefix followed by
+ * a number, so generating twice into one database needs another prefix.
+ */
+public class DataGenerator {
+
+    static final int BATCH_SIZE = 5_000;
+    private static final String[] CATEGORY_NAMES = {"Food", "Transport", "Rent", "Entertainment", "Health",
+            "Groceries", "Utilities", "Dining Out", "Travel", "Clothing", "Subscriptions", "Education", "Gifts",
+            "Insurance", "Fitness", "Home", "Electronics", "Pets", "Childcare", "Charity"};
+    private static final String[] DESCRIPTIONS = {"weekly", "monthly", "online", "store", "card", "cash",
+            "shared", "family", "work", "weekend", "holiday", "refill", "order", "visit", "renewal"};
+    private static final Set<String> OPTIONS = Set.of("users", "categories", "expenses", "seed", "from", "to",
+            "prefix", "password", "h2");
+
+    /**
+     * What to generate. Expenses are dated between {@code firstDay} and
+     * {@code lastDay}, inclusive.
+     */
+    public record Settings(int users, int categories, int expenses, LocalDate firstDay, LocalDate lastDay,
+            long seed, String usernamePrefix, String password) {
+
+        public Settings {
+            if (users <= 0 || categories <= 0 || expenses < 0) {
+                throw new IllegalArgumentException("Need at least one user and category");
+            }
+            if (lastDay.isBefore(firstDay)) {
+                throw new IllegalArgumentException("The last day is before the first day");
+            }
+        }
+
+        public static Settings of(int users, int categories, int expenses, long seed) {
+            return new Settings(users, categories, expenses, LocalDate.of(2022, 1, 1), LocalDate.of(2024, 12, 31),
+                    seed, "load", "password");
+        }
+
+        public Settings between(LocalDate firstDay, LocalDate lastDay) {
+            return new Settings(users, categories, expenses, firstDay, lastDay, seed, usernamePrefix, password);
+        }
+
+        public Settings withUsers(String usernamePrefix, String password) {
+            return new Settings(users, categories, expenses, firstDay, lastDay, seed, usernamePrefix, password);
+        }
+    }
+
+    public record Result(List<User> users, List<Category> categories, long expenses) {
+
+        public Result {
+            users = List.copyOf(users);
+            categories = List.copyOf(categories);
+        }
+    }
+
+    private final UserService userService;
+    private final CategoryService categoryService;
+    private final ExpenseService expenseService;
+
+    public DataGenerator(UserService userService, CategoryService categoryService, ExpenseService expenseService) {
+        this.userService = userService;
+        this.categoryService = categoryService;
+        this.expenseService = expenseService;
+    }
+
+    public Result generate(Settings settings) {
+        return generate(settings, written -> {
+        });
+    }
+
+    /**
+     * Generates and saves the data, reporting the number of expenses
+     * written after each batch.
+     */
+    public Result generate(Settings settings, LongConsumer progress) {
+        Random random = new Random(settings.seed());
+        List<String> usernames = new ArrayList<>();
+        for (int i = 0; i < settings.users(); i++) {
+            usernames.add(String.format("%s%05d", settings.usernamePrefix(), i + 1));
+        }
+        List<User> users = new ArrayList<>();
+        for (int from = 0; from < usernames.size(); from += BATCH_SIZE) {
+            users.addAll(userService.registerUsers(
+                    usernames.subList(from, Math.min(from + BATCH_SIZE, usernames.size())), settings.password(),
+                    Role.USER));
+        }
+        List<Category> categories = new ArrayList<>();
+        double[] typicalAmounts = new double[settings.categories()];
+        for (int i = 0; i < settings.categories(); i++) {
+            String name = i < CATEGORY_NAMES.length ? CATEGORY_NAMES[i] : "Category " + (i + 1);
+            categories.add(categoryService.getOrCreateCategory(name));
+            // Between 3 and 300 in log space
+            typicalAmounts[i] = Math.exp(Math.log(3) + random.nextDouble() * Math.log(100));
+        }
+
+        double[] userWeights = zipfCumulative(users.size(), 1.1);
+        double[] categoryWeights = zipfCumulative(categories.size(), 0.8);
+        int days = (int) (settings.lastDay().toEpochDay() - settings.firstDay().toEpochDay()) + 1;
+        List<Expense> batch = new ArrayList<>(Math.min(BATCH_SIZE, settings.expenses()));
+        long written = 0;
+        for (int i = 0; i < settings.expenses(); i++) {
+            User user = users.get(pick(userWeights, random));
+            int category = pick(categoryWeights, random);
+            LocalDate date = seasonalDate(settings.firstDay(), days, random);
+            BigDecimal amount = amount(typicalAmounts[category], random);
+            String description = categories.get(category).getName() + " "
+                    + DESCRIPTIONS[random.nextInt(DESCRIPTIONS.length)];
+            batch.add(new Expense(amount, date, description, user, categories.get(category)));
+            if (batch.size() == BATCH_SIZE) {
+                written += save(batch);
+                progress.accept(written);
+            }
+        }
+        if (!batch.isEmpty()) {
+            written += save(batch);
+            progress.accept(written);
+        }
+        return new Result(users, categories, written);
+    }
+
+    private int save(List<Expense> batch) {
+        expenseService.addExpenses(batch);
+        int size = batch.size();
+        batch.clear();
+        return size;
+    }
+
+    /**
+     * Cumulative weights {@code 1 / (rank + 1)^exponent}, normalised to end
+     * at 1.
+     */
+    static double[] zipfCumulative(int size, double exponent) {
+        double[] cumulative = new double[size];
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    static int pick(double[] cumulative, Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+
+    /**
+     * Relative spending on a day: up to 35% more around late December and
+     * as much less in June, and a quarter more at weekends.
+     */
+    static double seasonality(LocalDate date) {
+        double season = 1 + 0.35 * Math.cos(2 * Math.PI * (date.getDayOfYear() - 355) / 365.25);
+        DayOfWeek day = date.getDayOfWeek();
+        return season * (day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY ? 1.25 : 1);
+    }
+
+    private static LocalDate seasonalDate(LocalDate firstDay, int days, Random random) {
+        double maxWeight = 1.35 * 1.25;
+        while (true) {
+            LocalDate date = firstDay.plusDays(random.nextInt(days));
+            if (random.nextDouble() * maxWeight < seasonality(date)) {
+                return date;
+            }
+        }
+    }
+
+    private static BigDecimal amount(double typical, Random random) {
+        double amount = typical * Math.exp(0.75 * random.nextGaussian());
+        return BigDecimal.valueOf(Math.min(Math.max(amount, 0.5), 20_000)).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Generates data into the configured database, e.g.
+     * {@code --users=1000 --categories=20 --expenses=1000000 --seed=7 --h2=./data/load}.
+     * The {@code seed} command of {@link BatchCommands} runs it too.
+     */
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Runs the generator with the command-line options and returns the exit
+     * status: 0 when done, 1 when generating failed, 2 for bad options.
+     */
+    static int run(String... args) {
+        Settings settings;
+        CommandLineOptions options;
+        try {
+            options = CommandLineOptions.parse(args).requireKnown(OPTIONS);
+            Settings defaults = Settings.of(options.getInt("users", 100), options.getInt("categories", 10),
+                    options.getInt("expenses", 100_000), options.getLong("seed", 42));
+            settings = defaults
+                    .between(options.getDate("from", defaults.firstDay()), options.getDate("to", defaults.lastDay()))
+                    .withUsers(options.getString("prefix", defaults.usernamePrefix()),
+                            options.getString("password", defaults.password()));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: seed [--users=N] [--categories=N] [--expenses=N] [--seed=N]"
+                    + " [--from=DATE] [--to=DATE] [--prefix=NAME] [--password=SECRET] [--h2=PATH]");
+            return 2;
+        }
+        options.applyDatabaseOverrides();
+        Injector injector = Guice.createInjector(new ExpenseModule());
+        try {
+            long start = System.nanoTime();
+            Result result = new DataGenerator(injector.getInstance(UserService.class),
+                    injector.getInstance(CategoryService.class), injector.getInstance(ExpenseService.class))
+                    .generate(settings, written -> System.out.printf("%,d of %,d expenses%n", written,
+                            settings.expenses()));
+            System.out.printf("Generated %,d users, %,d categories and %,d expenses in %.1f s%n",
+                    result.users().size(), result.categories().size(), result.expenses(),
+                    (System.nanoTime() - start) / 1e9);
+            return 0;
+        } catch (RuntimeException e) {
+            System.err.println("Generation failed: " + e.getMessage());
+            return 1;
+        } finally {
+            injector.getInstance(EntityManagerFactory.class).close();
+        }
+    }
+}
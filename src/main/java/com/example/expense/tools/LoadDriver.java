@@ -0,0 +1,425 @@
+package com.example.expense.tools;
+
+import com.example.expense.config.ExpenseModule;
+import com.example.expense.model.Category;
+import com.example.expense.model.Expense;
+import com.example.expense.model.Role;
+import com.example.expense.model.User;
+import com.example.expense.service.CategoryService;
+import com.example.expense.service.ExpenseService;
+import com.example.expense.service.ReportPeriod;
+import com.example.expense.service.UserService;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import jakarta.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays a mix of report, add and delete traffic against the services from
+ * many simulated users at once and reports the throughput and latency
+ * percentiles of each kind of operation. Each client runs on its own thread
+ * with its own seeded random source, acting as randomly chosen users, and
+ * only deletes expenses it added itself, so the data a run starts with is
+ * left alone. The traffic goes to the services in this JVM or, with
+ * {@code --url}, to a running API server, see {@link ApiBackend}.
+ */
+public class LoadDriver {
+
+    public enum Operation {
+        REPORT, ADD, DELETE
+    }
+
+    /**
+     * Where the clients send their operations. Implementations are called
+     * from every client thread at once.
+     */
+    public interface Backend {
+
+        void report(User user, ReportPeriod period, LocalDate date);
+
+        /**
+         * Adds an expense for the user and returns its id.
+         */
+        Long add(User user, BigDecimal amount, LocalDate date, Category category);
+
+        void delete(User user, Long expenseId);
+    }
+
+    private static final Set<String> OPTIONS = Set.of("clients", "seconds", "operations", "reports", "adds",
+            "deletes", "seed", "from", "to", "h2", "url", "users", "prefix", "password");
+
+    /**
+     * How to run: {@code clients} concurrent clients, each stopping after
+     * {@code duration} or after {@code operationsPerClient} operations (0 for
+     * no limit), choosing operations in proportion to the weights. Reports
+     * and new expenses are dated between {@code firstDay} and
+     * {@code lastDay}.
+     */
+    public record Settings(int clients, Duration duration, int operationsPerClient, int reportWeight,
+            int addWeight, int deleteWeight, LocalDate firstDay, LocalDate lastDay, long seed) {
+
+        public Settings {
+            if (clients <= 0 || operationsPerClient < 0 || reportWeight < 0 || addWeight < 0 || deleteWeight < 0
+                    || reportWeight + addWeight + deleteWeight == 0) {
+                throw new IllegalArgumentException("Need a client and a positive operation weight");
+            }
+            if (lastDay.isBefore(firstDay)) {
+                throw new IllegalArgumentException("The last day is before the first day");
+            }
+        }
+
+        public static Settings of(int clients, Duration duration) {
+            return new Settings(clients, duration, 0, 80, 15, 5, LocalDate.of(2022, 1, 1), LocalDate.of(2024, 12, 31),
+                    42);
+        }
+
+        public Settings withMix(int reportWeight, int addWeight, int deleteWeight) {
+            return new Settings(clients, duration, operationsPerClient, reportWeight, addWeight, deleteWeight,
+                    firstDay, lastDay, seed);
+        }
+
+        public Settings limitedTo(int operationsPerClient) {
+            return new Settings(clients, duration, operationsPerClient, reportWeight, addWeight, deleteWeight,
+                    firstDay, lastDay, seed);
+        }
+
+        public Settings between(LocalDate firstDay, LocalDate lastDay) {
+            return new Settings(clients, duration, operationsPerClient, reportWeight, addWeight, deleteWeight,
+                    firstDay, lastDay, seed);
+        }
+
+        public Settings withSeed(long seed) {
+            return new Settings(clients, duration, operationsPerClient, reportWeight, addWeight, deleteWeight,
+                    firstDay, lastDay, seed);
+        }
+    }
+
+    /**
+     * Count, failures and latency percentiles in microseconds of one kind of
+     * operation.
+     */
+    public record OperationStats(long count, long errors, long p50Micros, long p90Micros, long p99Micros,
+            long maxMicros) {
+
+        static OperationStats of(long[] latenciesNanos, int size, long errors) {
+            long[] sorted = Arrays.copyOf(latenciesNanos, size);
+            Arrays.sort(sorted);
+            return new OperationStats(size, errors, percentile(sorted, 0.50), percentile(sorted, 0.90),
+                    percentile(sorted, 0.99), size > 0 ? sorted[size - 1] / 1_000 : 0);
+        }
+
+        // Nearest-rank percentile
+        private static long percentile(long[] sorted, double fraction) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(fraction * sorted.length);
+            return sorted[Math.max(rank, 1) - 1] / 1_000;
+        }
+    }
+
+    public record Report(Duration elapsed, Map<Operation, OperationStats> operations) {
+
+        public Report {
+            operations = Map.copyOf(operations);
+        }
+
+        public long totalOperations() {
+            return operations.values().stream().mapToLong(OperationStats::count).sum();
+        }
+
+        public double throughputPerSecond() {
+            double seconds = elapsed.toNanos() / 1e9;
+            return seconds > 0 ? totalOperations() / seconds : 0;
+        }
+
+        public String format() {
+            StringBuilder text = new StringBuilder(String.format("%,d operations in %.1f s, %,.1f ops/s%n",
+                    totalOperations(), elapsed.toNanos() / 1e9, throughputPerSecond()));
+            text.append(String.format("%-8s %10s %8s %10s %10s %10s %10s%n", "op", "count", "errors", "p50 us",
+                    "p90 us", "p99 us", "max us"));
+            for (Operation operation : Operation.values()) {
+                OperationStats stats = operations.get(operation);
+                text.append(String.format("%-8s %,10d %,8d %,10d %,10d %,10d %,10d%n", operation, stats.count(),
+                        stats.errors(), stats.p50Micros(), stats.p90Micros(), stats.p99Micros(),
+                        stats.maxMicros()));
+            }
+            return text.toString();
+        }
+    }
+
+    private final Backend backend;
+    private final List<User> users;
+    private final List<Category> categories;
+
+    /**
+     * Drives the services in this JVM.
+     *
+     * @param users the users clients act as
+     * @param categories the categories of added expenses; may be empty
+     */
+    public LoadDriver(ExpenseService expenseService, List<User> users, List<Category> categories) {
+        this(serviceBackend(expenseService), users, categories);
+    }
+
+    public LoadDriver(Backend backend, List<User> users, List<Category> categories) {
+        if (users.isEmpty()) {
+            throw new IllegalArgumentException("Need at least one user to act as");
+        }
+        this.backend = backend;
+        this.users = List.copyOf(users);
+        this.categories = List.copyOf(categories);
+    }
+
+    static Backend serviceBackend(ExpenseService expenseService) {
+        return new Backend() {
+            @Override
+            public void report(User user, ReportPeriod period, LocalDate date) {
+                expenseService.getReport(user, period, date);
+            }
+
+            @Override
+            public Long add(User user, BigDecimal amount, LocalDate date, Category category) {
+                return expenseService.addExpense(new Expense(amount, date, "Load test", user, category)).getId();
+            }
+
+            @Override
+            public void delete(User user, Long expenseId) {
+                expenseService.deleteExpense(expenseId);
+            }
+        };
+    }
+
+    public Report run(Settings settings) {
+        ExecutorService executor = Executors.newFixedThreadPool(settings.clients());
+        long start = System.nanoTime();
+        long deadline = start + settings.duration().toNanos();
+        try {
+            List<Future<Client>> clients = new ArrayList<>();
+            for (int i = 0; i < settings.clients(); i++) {
+                Client client = new Client(settings, new Random(settings.seed() + i));
+                clients.add(executor.submit(() -> client.run(deadline)));
+            }
+            Map<Operation, Latencies> merged = new EnumMap<>(Operation.class);
+            for (Operation operation : Operation.values()) {
+                merged.put(operation, new Latencies());
+            }
+            for (Future<Client> client : clients) {
+                client.get().latencies.forEach((operation, latencies) -> merged.get(operation).addAll(latencies));
+            }
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+            Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+            merged.forEach((operation, latencies) -> stats.put(operation, latencies.stats()));
+            return new Report(elapsed, stats);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the clients", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A client failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Growable array of latencies in nanoseconds plus an error count.
+     */
+    private static final class Latencies {
+
+        private long[] nanos = new long[1024];
+        private int size;
+        private long errors;
+
+        void add(long latency) {
+            if (size == nanos.length) {
+                nanos = Arrays.copyOf(nanos, size * 2);
+            }
+            nanos[size++] = latency;
+        }
+
+        void addAll(Latencies other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.nanos[i]);
+            }
+            errors += other.errors;
+        }
+
+        OperationStats stats() {
+            return OperationStats.of(nanos, size, errors);
+        }
+    }
+
+    private record Added(User user, Long id) {
+    }
+
+    private final class Client {
+
+        private final Settings settings;
+        private final Random random;
+        private final Map<Operation, Latencies> latencies = new EnumMap<>(Operation.class);
+        private final Deque<Added> added = new ArrayDeque<>();
+        private final int days;
+
+        Client(Settings settings, Random random) {
+            this.settings = settings;
+            this.random = random;
+            this.days = (int) (settings.lastDay().toEpochDay() - settings.firstDay().toEpochDay()) + 1;
+            for (Operation operation : Operation.values()) {
+                latencies.put(operation, new Latencies());
+            }
+        }
+
+        Client run(long deadline) {
+            int limit = settings.operationsPerClient();
+            for (int done = 0; (limit == 0 || done < limit) && System.nanoTime() < deadline; done++) {
+                Operation operation = nextOperation();
+                long start = System.nanoTime();
+                try {
+                    perform(operation);
+                    latencies.get(operation).add(System.nanoTime() - start);
+                } catch (RuntimeException e) {
+                    latencies.get(operation).errors++;
+                }
+            }
+            return this;
+        }
+
+        private Operation nextOperation() {
+            int draw = random.nextInt(settings.reportWeight() + settings.addWeight() + settings.deleteWeight());
+            if (draw < settings.reportWeight()) {
+                return Operation.REPORT;
+            }
+            // Nothing of our own to delete yet
+            return draw < settings.reportWeight() + settings.addWeight() || added.isEmpty() ? Operation.ADD
+                    : Operation.DELETE;
+        }
+
+        private void perform(Operation operation) {
+            User user = users.get(random.nextInt(users.size()));
+            switch (operation) {
+                case REPORT:
+                    ReportPeriod period = ReportPeriod.values()[random.nextInt(ReportPeriod.values().length)];
+                    backend.report(user, period, randomDay());
+                    break;
+                case ADD:
+                    Category category = categories.isEmpty() ? null
+                            : categories.get(random.nextInt(categories.size()));
+                    Long id = backend.add(user, BigDecimal.valueOf(50 + random.nextInt(10_000), 2), randomDay(),
+                            category);
+                    added.push(new Added(user, id));
+                    break;
+                default:
+                    // Deleted as the user who added it, which the API insists on
+                    Added expense = added.pop();
+                    backend.delete(expense.user(), expense.id());
+                    break;
+            }
+        }
+
+        private LocalDate randomDay() {
+            return settings.firstDay().plusDays(random.nextInt(days));
+        }
+    }
+
+    /**
+     * Runs the load against the configured database as every regular user
+     * in it, e.g. {@code --clients=32 --seconds=60 --h2=./data/load}, or with
+     * {@code --url=http://localhost:8080/api} against a running server as
+     * the {@code --users} users DataGenerator made with {@code --prefix} and
+     * {@code --password}. The {@code benchmark} command of
+     * {@link BatchCommands} runs it too.
+     */
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Runs the load with the command-line options, printing the report, and
+     * returns the exit status: 0 when done, 1 when the run failed, 2 for bad
+     * options.
+     */
+    static int run(String... args) {
+        Settings settings;
+        CommandLineOptions options;
+        try {
+            options = CommandLineOptions.parse(args).requireKnown(OPTIONS);
+            Settings defaults = Settings.of(options.getInt("clients", 16),
+                    Duration.ofSeconds(options.getLong("seconds", 30)));
+            settings = defaults
+                    .withMix(options.getInt("reports", defaults.reportWeight()),
+                            options.getInt("adds", defaults.addWeight()),
+                            options.getInt("deletes", defaults.deleteWeight()))
+                    .limitedTo(options.getInt("operations", 0))
+                    .between(options.getDate("from", defaults.firstDay()), options.getDate("to", defaults.lastDay()))
+                    .withSeed(options.getLong("seed", defaults.seed()));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: benchmark [--clients=N] [--seconds=N] [--operations=N] [--reports=W]"
+                    + " [--adds=W] [--deletes=W] [--from=DATE] [--to=DATE] [--seed=N]"
+                    + " [--h2=PATH | --url=URL [--users=N] [--prefix=NAME] [--password=PASSWORD]]");
+            return 2;
+        }
+        if (options.has("url")) {
+            return runAgainstServer(options, settings);
+        }
+        options.applyDatabaseOverrides();
+        Injector injector = Guice.createInjector(new ExpenseModule());
+        try {
+            List<User> users = injector.getInstance(UserService.class).getAllUsers().stream()
+                    .filter(user -> user.getRole() == Role.USER)
+                    .toList();
+            if (users.isEmpty()) {
+                throw new IllegalStateException("No users to act as; generate data with the seed command first");
+            }
+            Report report = new LoadDriver(injector.getInstance(ExpenseService.class), users,
+                    injector.getInstance(CategoryService.class).getAllCategories()).run(settings);
+            System.out.print(report.format());
+            return 0;
+        } catch (RuntimeException e) {
+            System.err.println("Load run failed: " + e.getMessage());
+            return 1;
+        } finally {
+            injector.getInstance(EntityManagerFactory.class).close();
+        }
+    }
+
+    private static int runAgainstServer(CommandLineOptions options, Settings settings) {
+        int userCount = options.getInt("users", 100);
+        String prefix = options.getString("prefix", "load");
+        if (userCount <= 0) {
+            System.err.println("--users must be positive");
+            return 2;
+        }
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= userCount; i++) {
+            users.add(new User(null, String.format("%s%05d", prefix, i), null, Role.USER));
+        }
+        try {
+            ApiBackend backend = new ApiBackend(URI.create(options.getString("url", "")),
+                    options.getString("password", "password"));
+            backend.logIn(users);
+            Report report = new LoadDriver(backend, users, backend.categories(users.get(0))).run(settings);
+            System.out.print(report.format());
+            return 0;
+        } catch (RuntimeException e) {
+            System.err.println("Load run failed: " + e.getMessage());
+            return 1;
+        }
+    }
+}
@@ -95,10 +95,7 @@ public class AddExpenseView extends JDialog {
             String description = descriptionField.getText();
             String categoryName = (String) categoryComboBox.getSelectedItem();
 
-            Category category = categoryService.getAllCategories().stream()
-                    .filter(c -> c.getName().equalsIgnoreCase(categoryName))
-                    .findFirst()
-                    .orElseGet(() -> categoryService.saveCategory(categoryName));
+            Category category = categoryService.getOrCreateCategory(categoryName);
 
             Expense expense = new Expense(amount, date, description, currentUser, category);
             expenseService.addExpense(expense);
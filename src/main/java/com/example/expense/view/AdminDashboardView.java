@@ -1,32 +1,67 @@
 package com.example.expense.view;
 
+import com.example.expense.model.ExpenseQuery;
+import com.example.expense.model.ExpenseStatistics;
 import com.example.expense.model.Role;
 import com.example.expense.model.User;
-import com.example.expense.model.Expense;
 import com.example.expense.service.UserService;
+import com.example.expense.service.ExpenseChange;
 import com.example.expense.service.ExpenseService;
 import com.example.expense.service.CategoryService;
+import com.example.expense.service.ExportFormat;
+import com.example.expense.service.ExportJobService;
 import javax.swing.*;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 public class AdminDashboardView extends JFrame {
     private final UserService userService;
     private final ExpenseService expenseService;
     private final CategoryService categoryService;
+    private final ExportJobService exportJobService;
     private final User currentUser;
     private JTable userTable;
     private DefaultTableModel userTableModel;
     private JTable expenseTable;
-    private ExpenseTableModel expenseTableModel;
+    private PagedExpenseTableModel expenseTableModel;
+    private final DefaultListModel<User> exportUsersModel = new DefaultListModel<>();
+    private ExportJobsPanel exportJobsPanel;
+    private final Executor loaderExecutor;
+    private final BackgroundLoader userLoader;
+    private final BackgroundLoader insightLoader;
+    private final Consumer<List<ExpenseChange>> changeListener =
+            changes -> SwingUtilities.invokeLater(() -> expenseTableModel.apply(changes));
+
+    private record Insights(ExpenseStatistics statistics, List<User> users) {
+    }
 
     public AdminDashboardView(UserService userService, ExpenseService expenseService, CategoryService categoryService,
-            User currentUser) {
+            ExportJobService exportJobService, User currentUser) {
+        this(userService, expenseService, categoryService, exportJobService, currentUser,
+                BackgroundLoader.SHARED_EXECUTOR);
+    }
+
+    /**
+     * Runs the view's background loads, and those of its expense table, on
+     * {@code loaderExecutor}.
+     */
+    AdminDashboardView(UserService userService, ExpenseService expenseService, CategoryService categoryService,
+            ExportJobService exportJobService, User currentUser, Executor loaderExecutor) {
         this.userService = userService;
         this.expenseService = expenseService;
         this.categoryService = categoryService;
+        this.exportJobService = exportJobService;
         this.currentUser = currentUser;
+        this.loaderExecutor = loaderExecutor;
+        this.userLoader = new BackgroundLoader(loading -> showBusy(userTable, loading), loaderExecutor);
+        this.insightLoader = new BackgroundLoader(loading -> showBusy(getRootPane(), loading), loaderExecutor);
 
         setTitle("Admin Dashboard - Personal Expense Tracker");
         setSize(1000, 700);
@@ -41,11 +76,13 @@ public class AdminDashboardView extends JFrame {
         JTabbedPane tabbedPane = new JTabbedPane();
         tabbedPane.addTab("User Management", createUserManagementPanel());
         tabbedPane.addTab("All Expenses", createAllExpensesPanel());
+        tabbedPane.addTab("Exports", createExportsPanel());
 
         mainPanel.add(tabbedPane, BorderLayout.CENTER);
         add(mainPanel);
 
         createMenuBar();
+        expenseService.addChangeListener(changeListener);
     }
 
     private JPanel createUserManagementPanel() {
@@ -134,8 +171,16 @@ public class AdminDashboardView extends JFrame {
 
     private JPanel createAllExpensesPanel() {
         JPanel panel = new JPanel(new BorderLayout());
-        expenseTableModel = new ExpenseTableModel();
+        expenseTableModel = new PagedExpenseTableModel(expenseService, ExpenseQuery.all(), loaderExecutor);
+        expenseTableModel.setErrorHandler(this::showLoadError);
         expenseTable = new JTable(expenseTableModel);
+        expenseTable.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                expenseTableModel.sortBy(
+                        expenseTable.convertColumnIndexToModel(expenseTable.columnAtPoint(e.getPoint())));
+            }
+        });
         loadExpenses();
         panel.add(new JScrollPane(expenseTable), BorderLayout.CENTER);
 
@@ -147,20 +192,128 @@ public class AdminDashboardView extends JFrame {
         return panel;
     }
 
-    private void loadUsers() {
-        userTableModel.setRowCount(0);
-        for (User user : userService.getAllUsers()) {
-            userTableModel.addRow(new Object[] {
-                    user.getId(),
-                    user.getUsername(),
-                    user.getRole(),
-                    user.isEnabled() ? "Enabled" : "Disabled"
-            });
+    /**
+     * Queues one export per selected user on the shared export workers, so
+     * exporting many users runs a few at a time while the dashboard stays
+     * responsive.
+     */
+    private JPanel createExportsPanel() {
+        JPanel panel = new JPanel(new BorderLayout());
+
+        JList<User> usersList = new JList<>(exportUsersModel);
+        usersList.setName("exportUsersList");
+        usersList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                    boolean isSelected, boolean cellHasFocus) {
+                return super.getListCellRendererComponent(list, ((User) value).getUsername(), index, isSelected,
+                        cellHasFocus);
+            }
+        });
+        JScrollPane usersScroll = new JScrollPane(usersList);
+        usersScroll.setPreferredSize(new Dimension(180, 0));
+        panel.add(usersScroll, BorderLayout.WEST);
+
+        JPanel controlPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JComboBox<ExportFormat> formatCombo = new JComboBox<>(ExportFormat.values());
+        formatCombo.setName("exportFormatCombo");
+        JTextField fromField = new JTextField(10);
+        fromField.setName("exportFromField");
+        JTextField toField = new JTextField(10);
+        toField.setName("exportToField");
+        JButton selectAllButton = new JButton("Select All");
+        selectAllButton.setName("selectAllUsersButton");
+        selectAllButton.addActionListener(e -> usersList.setSelectionInterval(0, exportUsersModel.size() - 1));
+        JButton queueButton = new JButton("Queue Exports");
+        queueButton.setName("queueExportsButton");
+        queueButton.addActionListener(e -> queueExports(usersList.getSelectedValuesList(),
+                (ExportFormat) formatCombo.getSelectedItem(), fromField.getText(), toField.getText()));
+
+        controlPanel.add(new JLabel("Format:"));
+        controlPanel.add(formatCombo);
+        controlPanel.add(new JLabel("From:"));
+        controlPanel.add(fromField);
+        controlPanel.add(new JLabel("To (yyyy-MM-dd, blank for all):"));
+        controlPanel.add(toField);
+        controlPanel.add(selectAllButton);
+        controlPanel.add(queueButton);
+        panel.add(controlPanel, BorderLayout.NORTH);
+
+        exportJobsPanel = new ExportJobsPanel(exportJobService);
+        panel.add(exportJobsPanel, BorderLayout.CENTER);
+        return panel;
+    }
+
+    private void queueExports(List<User> users, ExportFormat format, String from, String to) {
+        if (users.isEmpty()) {
+            JOptionPane.showMessageDialog(this, "Select at least one user to export.");
+            return;
+        }
+        LocalDate startDate;
+        LocalDate endDate;
+        try {
+            startDate = from.isBlank() ? null : LocalDate.parse(from.trim());
+            endDate = to.isBlank() ? null : LocalDate.parse(to.trim());
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(this, "Invalid Date Format (yyyy-MM-dd): " + e.getParsedString(), "Error",
+                    JOptionPane.ERROR_MESSAGE);
+            return;
         }
+        JFileChooser chooser = createDirectoryChooser();
+        if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+            exportJobService.submitAll(users, format, startDate, endDate, chooser.getSelectedFile());
+        }
+    }
+
+    protected JFileChooser createDirectoryChooser() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        chooser.setDialogTitle("Export Directory");
+        return chooser;
+    }
+
+    private void loadUsers() {
+        userLoader.load(userService::getAllUsers, users -> {
+            exportUsersModel.clear();
+            exportUsersModel.addAll(users);
+            userTableModel.setRowCount(0);
+            for (User user : users) {
+                userTableModel.addRow(new Object[] {
+                        user.getId(),
+                        user.getUsername(),
+                        user.getRole(),
+                        user.isEnabled() ? "Enabled" : "Disabled"
+                });
+            }
+        }, this::showLoadError);
     }
 
     private void loadExpenses() {
-        expenseTableModel.setExpenses(expenseService.getAllExpenses());
+        expenseTableModel.refresh();
+    }
+
+    private void showInsights() {
+        insightLoader.load(() -> new Insights(expenseService.getStatistics(null), userService.getAllUsers()),
+                insights -> new AdminStatisticsView(this, insights.statistics(), insights.users()).setVisible(true),
+                this::showLoadError);
+    }
+
+    private void showLoadError(Exception e) {
+        JOptionPane.showMessageDialog(this, "Error loading data: " + e.getMessage(), "Error",
+                JOptionPane.ERROR_MESSAGE);
+    }
+
+    private static void showBusy(Component component, boolean busy) {
+        component.setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+    }
+
+    @Override
+    public void dispose() {
+        expenseService.removeChangeListener(changeListener);
+        exportJobsPanel.detach();
+        userLoader.cancel();
+        insightLoader.cancel();
+        super.dispose();
     }
 
     private void createMenuBar() {
@@ -171,7 +324,8 @@ public class AdminDashboardView extends JFrame {
         logoutItem.setName("logoutItem");
         logoutItem.addActionListener(e -> {
             dispose();
-            new LoginView(userService, expenseService, categoryService).setVisible(true);
+            new LoginView(userService, expenseService, categoryService, exportJobService, loaderExecutor)
+                    .setVisible(true);
         });
         fileMenu.add(logoutItem);
 
@@ -186,9 +340,7 @@ public class AdminDashboardView extends JFrame {
         analyticsMenu.setName("analyticsMenu");
         JMenuItem insightItem = new JMenuItem("Platform Insights");
         insightItem.setName("insightItem");
-        insightItem.addActionListener(
-                e -> new AdminStatisticsView(this, expenseService.getAllExpenses(), userService.getAllUsers())
-                        .setVisible(true));
+        insightItem.addActionListener(e -> showInsights());
         analyticsMenu.add(insightItem);
 
         menuBar.add(fileMenu);
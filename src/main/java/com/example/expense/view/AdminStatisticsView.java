@@ -1,8 +1,9 @@
 package com.example.expense.view;
 
-import com.example.expense.model.Expense;
+import com.example.expense.model.CategoryTotal;
+import com.example.expense.model.ExpenseStatistics;
 import com.example.expense.model.User;
-import com.example.expense.model.Category;
+import com.example.expense.model.UserTotal;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
@@ -14,39 +15,35 @@ import java.awt.*;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
-import java.math.BigDecimal;
 
 public class AdminStatisticsView extends JDialog {
 
-    public AdminStatisticsView(Frame owner, List<Expense> allExpenses, List<User> allUsers) {
+    /**
+     * Draws the category and user charts from the same statistics, so they
+     * always agree on the expenses they cover.
+     */
+    public AdminStatisticsView(Frame owner, ExpenseStatistics statistics, List<User> allUsers) {
         super(owner, "Platform Global Insights", true);
         setSize(1200, 600);
         setLocationRelativeTo(owner);
         setLayout(new GridLayout(1, 3));
 
-        add(createCategoryPieChart(allExpenses));
-        add(createUserSpendingBarChart(allExpenses));
+        add(createCategoryPieChart(statistics.byCategory()));
+        add(createUserSpendingBarChart(statistics.byUser()));
         add(createUserRolePieChart(allUsers));
     }
 
-    private JPanel createCategoryPieChart(List<Expense> expenses) {
+    private JPanel createCategoryPieChart(List<CategoryTotal> totals) {
         DefaultPieDataset<String> dataset = new DefaultPieDataset<>();
-        Map<String, Double> totals = expenses.stream()
-                .filter(e -> e.getCategory() != null)
-                .collect(Collectors.groupingBy(e -> e.getCategory().getName(),
-                        Collectors.summingDouble(e -> e.getAmount().doubleValue())));
-        totals.forEach(dataset::setValue);
+        totals.forEach(t -> dataset.setValue(t.category(), t.total()));
 
         JFreeChart chart = ChartFactory.createPieChart("Global Spending by Category", dataset, true, true, false);
         return new ChartPanel(chart);
     }
 
-    private JPanel createUserSpendingBarChart(List<Expense> expenses) {
+    private JPanel createUserSpendingBarChart(List<UserTotal> totals) {
         DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-        Map<String, Double> totals = expenses.stream()
-                .collect(Collectors.groupingBy(e -> e.getUser().getUsername(),
-                        Collectors.summingDouble(e -> e.getAmount().doubleValue())));
-        totals.forEach((user, total) -> dataset.addValue(total, "Spending", user));
+        totals.forEach(t -> dataset.addValue(t.total(), "Spending", t.username()));
 
         JFreeChart chart = ChartFactory.createBarChart("Spending per User", "User", "Amount (€)", dataset);
         return new ChartPanel(chart);
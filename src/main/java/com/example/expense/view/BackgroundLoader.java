@@ -0,0 +1,87 @@
+package com.example.expense.view;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs a view's data loading off the Event Dispatch Thread and hands the
+ * result back on it. Only the latest load counts: starting a new one cancels
+ * the previous load if it has not started yet and drops its result if it has.
+ * {@link #load} and {@link #cancel} must be called on the EDT.
+ */
+class BackgroundLoader {
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+    static final ExecutorService SHARED_EXECUTOR = Executors.newFixedThreadPool(4, runnable -> {
+        Thread thread = new Thread(runnable, "view-loader-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Consumer<Boolean> busyIndicator;
+    private final Executor executor;
+    private Future<?> current;
+    private long generation;
+
+    BackgroundLoader(Consumer<Boolean> busyIndicator) {
+        this(busyIndicator, SHARED_EXECUTOR);
+    }
+
+    /**
+     * Runs the loads on {@code executor}; tests pass a same-thread one so
+     * loads finish before their assertions.
+     */
+    BackgroundLoader(Consumer<Boolean> busyIndicator, Executor executor) {
+        this.busyIndicator = busyIndicator;
+        this.executor = executor;
+    }
+
+    <T> void load(Supplier<T> query, Consumer<T> onSuccess, Consumer<RuntimeException> onFailure) {
+        cancelCurrent();
+        long loadGeneration = ++generation;
+        busyIndicator.accept(true);
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            try {
+                T result = query.get();
+                publish(loadGeneration, () -> onSuccess.accept(result));
+            } catch (RuntimeException e) {
+                publish(loadGeneration, () -> onFailure.accept(e));
+            }
+        }, null);
+        current = task;
+        executor.execute(task);
+    }
+
+    void cancel() {
+        if (current != null) {
+            cancelCurrent();
+            generation++;
+            busyIndicator.accept(false);
+        }
+    }
+
+    private void cancelCurrent() {
+        if (current != null) {
+            // No interrupt: it would abort the JDBC call and poison the pooled connection
+            current.cancel(false);
+            current = null;
+        }
+    }
+
+    private void publish(long loadGeneration, Runnable delivery) {
+        SwingUtilities.invokeLater(() -> {
+            if (loadGeneration == generation) {
+                current = null;
+                busyIndicator.accept(false);
+                delivery.run();
+            }
+        });
+    }
+}
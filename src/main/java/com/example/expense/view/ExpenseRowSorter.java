@@ -0,0 +1,156 @@
+package com.example.expense.view;
+
+import java.util.Arrays;
+import java.util.List;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+
+/**
+ * Sorts an {@link ExpenseTableModel} by its primary sort key without
+ * comparing cell values. Each row's rank in the sorted column is packed with
+ * its model index into a {@code long}, and one primitive array sort yields
+ * the view order, so ties keep their model order. Later sort keys and
+ * filtering are not supported.
+ */
+class ExpenseRowSorter extends RowSorter<ExpenseTableModel> {
+
+    private final ExpenseTableModel model;
+    private List<SortKey> sortKeys = List.of();
+    // Both null while unsorted, meaning view and model order agree
+    private int[] viewToModel;
+    private int[] modelToView;
+
+    ExpenseRowSorter(ExpenseTableModel model) {
+        this.model = model;
+    }
+
+    @Override
+    public ExpenseTableModel getModel() {
+        return model;
+    }
+
+    /**
+     * Sorts ascending by the column, or flips the direction when it is
+     * already the primary sort column.
+     */
+    @Override
+    public void toggleSortOrder(int column) {
+        checkColumn(column);
+        SortOrder order = SortOrder.ASCENDING;
+        if (!sortKeys.isEmpty() && sortKeys.get(0).getColumn() == column
+                && sortKeys.get(0).getSortOrder() == SortOrder.ASCENDING) {
+            order = SortOrder.DESCENDING;
+        }
+        setSortKeys(List.of(new SortKey(column, order)));
+    }
+
+    @Override
+    public void setSortKeys(List<? extends SortKey> keys) {
+        List<SortKey> newKeys = keys == null ? List.of() : List.copyOf(keys);
+        newKeys.forEach(key -> checkColumn(key.getColumn()));
+        if (!newKeys.equals(sortKeys)) {
+            sortKeys = newKeys;
+            fireSortOrderChanged();
+            sort();
+        }
+    }
+
+    @Override
+    public List<? extends SortKey> getSortKeys() {
+        return sortKeys;
+    }
+
+    @Override
+    public int convertRowIndexToModel(int index) {
+        if (index < 0 || index >= getViewRowCount()) {
+            throw new IndexOutOfBoundsException("Invalid view index " + index);
+        }
+        return viewToModel == null ? index : viewToModel[index];
+    }
+
+    @Override
+    public int convertRowIndexToView(int index) {
+        if (index < 0 || index >= getModelRowCount()) {
+            throw new IndexOutOfBoundsException("Invalid model index " + index);
+        }
+        return modelToView == null ? index : modelToView[index];
+    }
+
+    @Override
+    public int getViewRowCount() {
+        return viewToModel == null ? model.getRowCount() : viewToModel.length;
+    }
+
+    @Override
+    public int getModelRowCount() {
+        return model.getRowCount();
+    }
+
+    @Override
+    public void modelStructureChanged() {
+        sort();
+    }
+
+    @Override
+    public void allRowsChanged() {
+        sort();
+    }
+
+    @Override
+    public void rowsInserted(int firstRow, int endRow) {
+        sort();
+    }
+
+    @Override
+    public void rowsDeleted(int firstRow, int endRow) {
+        sort();
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow) {
+        sort();
+    }
+
+    @Override
+    public void rowsUpdated(int firstRow, int endRow, int column) {
+        sort();
+    }
+
+    private void sort() {
+        int[] previous = viewToModel;
+        SortKey primary = sortKeys.stream()
+                .filter(key -> key.getSortOrder() != SortOrder.UNSORTED)
+                .findFirst().orElse(null);
+        if (primary == null) {
+            viewToModel = null;
+            modelToView = null;
+        } else {
+            order(model.sortRanks(primary.getColumn()), primary.getSortOrder() == SortOrder.DESCENDING);
+        }
+        fireRowSorterChanged(previous);
+    }
+
+    private void order(int[] ranks, boolean descending) {
+        int rows = ranks.length;
+        long[] packed = new long[rows];
+        for (int row = 0; row < rows; row++) {
+            // Ranks are non-negative, so ~rank reverses the order and stays below zero
+            long rank = descending ? ~ranks[row] : ranks[row];
+            packed[row] = rank << 32 | row;
+        }
+        Arrays.sort(packed);
+        viewToModel = new int[rows];
+        modelToView = new int[rows];
+        for (int view = 0; view < rows; view++) {
+            int row = (int) packed[view];
+            viewToModel[view] = row;
+            modelToView[row] = view;
+        }
+    }
+
+    private void checkColumn(int column) {
+        if (column < 0 || column >= model.getColumnCount()) {
+            throw new IndexOutOfBoundsException("Invalid column " + column);
+        }
+    }
+}
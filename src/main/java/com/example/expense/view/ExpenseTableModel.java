@@ -1,29 +1,57 @@
 package com.example.expense.view;
 
-import com.example.expense.model.Expense;
+import com.example.expense.model.ExpenseRow;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.Collator;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.IntFunction;
+import javax.swing.RowSorter;
 import javax.swing.table.AbstractTableModel;
 
 public class ExpenseTableModel extends AbstractTableModel {
 
+    static final Class<?>[] COLUMN_CLASSES = {LocalDate.class, String.class, String.class, BigDecimal.class};
+    static final String NO_CATEGORY = "N/A";
+
     private final String[] columnNames = {"Date", "Category", "Description", "Amount"};
-    private final List<Expense> expenses = new ArrayList<>();
+    private final List<ExpenseRow> expenses = new ArrayList<>();
+
+    // Per-column sort ranks, computed on first sort and dropped with the rows
+    private final int[][] sortRanks = new int[COLUMN_CLASSES.length][];
 
-    public List<Expense> getExpenses() {
+    public List<ExpenseRow> getExpenses() {
         return new ArrayList<>(expenses);
     }
     
-    public void setExpenses(List<Expense> expenses) {
+    public void setExpenses(List<ExpenseRow> expenses) {
         this.expenses.clear();
         this.expenses.addAll(expenses);
+        Arrays.fill(sortRanks, null);
         fireTableDataChanged();
     }
     
-    public Expense getExpenseAt(int rowIndex) {
+    public ExpenseRow getExpenseAt(int rowIndex) {
         return expenses.get(rowIndex);
     }
 
+    /**
+     * A row sorter that orders rows by precomputed integer ranks instead of
+     * comparing cell values: dates by epoch day, amounts by cents, categories
+     * by collated name and descriptions ignoring case. See
+     * {@link ExpenseRowSorter}.
+     */
+    public RowSorter<ExpenseTableModel> createRowSorter() {
+        return new ExpenseRowSorter(this);
+    }
+
     @Override
     public int getRowCount() {
         return expenses.size();
@@ -39,20 +67,99 @@ public class ExpenseTableModel extends AbstractTableModel {
         return columnNames[column];
     }
 
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        return COLUMN_CLASSES[columnIndex];
+    }
+
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        Expense expense = expenses.get(rowIndex);
+        ExpenseRow expense = expenses.get(rowIndex);
         switch (columnIndex) {
             case 0:
-                return expense.getDate();
+                return expense.date();
             case 1:
-                return expense.getCategory() != null ? expense.getCategory().getName() : "N/A";
+                return categoryOf(expense);
             case 2:
-                return expense.getDescription();
+                return expense.description();
             case 3:
-                return expense.getAmount();
+                return expense.amount();
             default:
                 return null;
         }
     }
+
+    static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+
+    /**
+     * Dense ranks of the column's values, one per row: equal values share a
+     * rank and a larger rank sorts later.
+     */
+    int[] sortRanks(int column) {
+        if (sortRanks[column] == null) {
+            sortRanks[column] = computeRanks(column);
+        }
+        return sortRanks[column];
+    }
+
+    private int[] computeRanks(int column) {
+        int size = expenses.size();
+        switch (column) {
+            case 0: {
+                long[] days = new long[size];
+                for (int i = 0; i < size; i++) {
+                    LocalDate date = expenses.get(i).date();
+                    days[i] = date != null ? date.toEpochDay() : Long.MIN_VALUE;
+                }
+                return rank(days);
+            }
+            case 3: {
+                long[] cents = new long[size];
+                for (int i = 0; i < size; i++) {
+                    BigDecimal amount = expenses.get(i).amount();
+                    cents[i] = amount != null ? toCents(amount) : Long.MIN_VALUE;
+                }
+                return rank(cents);
+            }
+            case 1:
+                return rank(row -> categoryOf(expenses.get(row)), Collator.getInstance());
+            default:
+                return rank(row -> Objects.toString(expenses.get(row).description(), ""),
+                        String.CASE_INSENSITIVE_ORDER);
+        }
+    }
+
+    private static int[] rank(long[] keys) {
+        long[] distinct = Arrays.stream(keys).sorted().distinct().toArray();
+        int[] ranks = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            ranks[i] = Arrays.binarySearch(distinct, keys[i]);
+        }
+        return ranks;
+    }
+
+    // Each distinct string is compared only while ranking the distinct set
+    private int[] rank(IntFunction<String> keyOfRow, Comparator<? super String> order) {
+        int size = expenses.size();
+        Map<String, Integer> ranksByKey = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            ranksByKey.putIfAbsent(keyOfRow.apply(i), 0);
+        }
+        List<String> distinct = new ArrayList<>(ranksByKey.keySet());
+        distinct.sort(order);
+        for (int i = 0; i < distinct.size(); i++) {
+            ranksByKey.put(distinct.get(i), i);
+        }
+        int[] ranks = new int[size];
+        for (int i = 0; i < size; i++) {
+            ranks[i] = ranksByKey.get(keyOfRow.apply(i));
+        }
+        return ranks;
+    }
+
+    private static String categoryOf(ExpenseRow expense) {
+        return expense.category() != null ? expense.category() : NO_CATEGORY;
+    }
 }
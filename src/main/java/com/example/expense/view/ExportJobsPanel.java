@@ -0,0 +1,136 @@
+package com.example.expense.view;
+
+import com.example.expense.service.ExportJob;
+import com.example.expense.service.ExportJobService;
+import com.example.expense.service.ExportRequest;
+import java.awt.BorderLayout;
+import java.awt.FlowLayout;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import javax.swing.JButton;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Lists the jobs of an {@link ExportJobService} with their status and
+ * progress, updated as the workers report them, and lets the user cancel
+ * jobs and clear finished ones. Call {@link #detach()} when the panel's
+ * window closes.
+ */
+public class ExportJobsPanel extends JPanel {
+
+    private final ExportJobService exportJobService;
+    private final JobTableModel tableModel = new JobTableModel();
+    private final JTable jobTable = new JTable(tableModel);
+    private final Consumer<ExportJob> listener = job -> SwingUtilities.invokeLater(() -> tableModel.update(job));
+
+    public ExportJobsPanel(ExportJobService exportJobService) {
+        super(new BorderLayout());
+        this.exportJobService = exportJobService;
+
+        jobTable.setName("exportJobsTable");
+        add(new JScrollPane(jobTable), BorderLayout.CENTER);
+
+        JPanel controlPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        JButton cancelButton = new JButton("Cancel Selected");
+        cancelButton.setName("cancelJobsButton");
+        cancelButton.addActionListener(e -> {
+            for (int row : jobTable.getSelectedRows()) {
+                exportJobService.cancel(tableModel.jobAt(jobTable.convertRowIndexToModel(row)));
+            }
+        });
+        JButton clearButton = new JButton("Clear Finished");
+        clearButton.setName("clearJobsButton");
+        clearButton.addActionListener(e -> {
+            exportJobService.clearFinished();
+            tableModel.setJobs(exportJobService.getJobs());
+        });
+        controlPanel.add(cancelButton);
+        controlPanel.add(clearButton);
+        add(controlPanel, BorderLayout.SOUTH);
+
+        tableModel.setJobs(exportJobService.getJobs());
+        exportJobService.addListener(listener);
+    }
+
+    public void detach() {
+        exportJobService.removeListener(listener);
+    }
+
+    static String describeProgress(ExportJob job) {
+        long total = job.getTotalRows();
+        if (total <= 0) {
+            return job.getStatus().isFinished() ? job.getRowsWritten() + " rows" : "";
+        }
+        return (100 * job.getRowsWritten() / total) + "% (" + job.getRowsWritten() + " / " + total + ")";
+    }
+
+    private static final class JobTableModel extends AbstractTableModel {
+
+        private static final String[] COLUMN_NAMES = {"Job", "User", "Format", "File", "Status", "Progress"};
+
+        private final List<ExportJob> jobs = new ArrayList<>();
+
+        void setJobs(List<ExportJob> jobs) {
+            this.jobs.clear();
+            this.jobs.addAll(jobs);
+            fireTableDataChanged();
+        }
+
+        // Events arrive per job; a job not listed yet was just queued
+        void update(ExportJob job) {
+            int row = jobs.indexOf(job);
+            if (row >= 0) {
+                fireTableRowsUpdated(row, row);
+            } else {
+                jobs.add(job);
+                fireTableRowsInserted(jobs.size() - 1, jobs.size() - 1);
+            }
+        }
+
+        ExportJob jobAt(int row) {
+            return jobs.get(row);
+        }
+
+        @Override
+        public int getRowCount() {
+            return jobs.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            ExportJob job = jobs.get(rowIndex);
+            ExportRequest request = job.getRequest();
+            switch (columnIndex) {
+                case 0:
+                    return job.getId();
+                case 1:
+                    return request.user() != null ? request.user().getUsername() : "All users";
+                case 2:
+                    return request.format();
+                case 3:
+                    return request.destination().getAbsolutePath();
+                case 4:
+                    return job.getError() != null ? job.getStatus() + ": " + job.getError() : job.getStatus();
+                case 5:
+                    return describeProgress(job);
+                default:
+                    return null;
+            }
+        }
+    }
+}
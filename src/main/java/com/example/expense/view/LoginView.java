@@ -3,28 +3,42 @@ package com.example.expense.view;
 import com.example.expense.model.Role;
 import com.example.expense.model.User;
 import com.example.expense.service.ExpenseService;
+import com.example.expense.service.ExportJobService;
 import com.example.expense.service.UserService;
 import com.example.expense.service.CategoryService;
 import jakarta.inject.Inject;
 import javax.swing.*;
 import java.awt.*;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 
 public class LoginView extends JFrame {
 
     private final UserService userService;
     private final ExpenseService expenseService;
     private final CategoryService categoryService;
+    private final ExportJobService exportJobService;
+    private final Executor loaderExecutor;
     private JTextField usernameField;
     private JPasswordField passwordField;
     private JComboBox<Role> roleComboBox;
 
     @Inject
     public LoginView(UserService userService, ExpenseService expenseService,
-            CategoryService categoryService) {
+            CategoryService categoryService, ExportJobService exportJobService) {
+        this(userService, expenseService, categoryService, exportJobService, BackgroundLoader.SHARED_EXECUTOR);
+    }
+
+    /**
+     * Hands {@code loaderExecutor} on to the dashboard that opens after login.
+     */
+    LoginView(UserService userService, ExpenseService expenseService, CategoryService categoryService,
+            ExportJobService exportJobService, Executor loaderExecutor) {
         this.userService = userService;
         this.expenseService = expenseService;
         this.categoryService = categoryService;
+        this.exportJobService = exportJobService;
+        this.loaderExecutor = loaderExecutor;
 
         setTitle("Login - Expense Tracker");
         setSize(500, 600);
@@ -124,9 +138,11 @@ public class LoginView extends JFrame {
             }
 
             if (user.getRole() == Role.ADMIN) {
-                new AdminDashboardView(userService, expenseService, categoryService, user).setVisible(true);
+                new AdminDashboardView(userService, expenseService, categoryService, exportJobService, user,
+                        loaderExecutor).setVisible(true);
             } else {
-                new MainView(userService, expenseService, categoryService, user).setVisible(true);
+                new MainView(userService, expenseService, categoryService, exportJobService, user, loaderExecutor)
+                        .setVisible(true);
             }
             dispose();
         } else {
@@ -1,51 +1,96 @@
 package com.example.expense.view;
 
-import com.example.expense.model.Expense;
+import com.example.expense.model.CategoryTotal;
+import com.example.expense.model.ExpenseQuery;
+import com.example.expense.model.ExpenseRow;
+import com.example.expense.model.Money;
 import com.example.expense.model.User;
-import com.example.expense.model.Category;
+import com.example.expense.service.BudgetService;
+import com.example.expense.service.BudgetStatus;
+import com.example.expense.service.ExpenseChange;
 import com.example.expense.service.ExpenseService;
+import com.example.expense.service.ExportJobService;
 import com.example.expense.service.UserService;
 import com.example.expense.service.CategoryService;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.text.DecimalFormat;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.TableRowSorter;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import java.math.BigDecimal;
 
 public class MainView extends JFrame {
 
+    static final int SEARCH_DELAY_MS = 250;
+
     private final UserService userService;
     private final ExpenseService expenseService;
     private final CategoryService categoryService;
+    private final ExportJobService exportJobService;
+    private final BudgetService budgetService = new BudgetService();
     private final User currentUser;
-    private final ExpenseTableModel tableModel;
-    private TableRowSorter<ExpenseTableModel> sorter;
+    private final PagedExpenseTableModel tableModel;
 
     private JLabel totalSpendingLabel;
     private JLabel topCategoryLabel;
     private JLabel budgetValueLabel;
     private JPanel budgetCard;
     private JLabel statusLabel;
+    private JProgressBar loadingBar;
     private final DecimalFormat df = new DecimalFormat("#,##0.00");
+    private final Executor loaderExecutor;
+    private final BackgroundLoader loader;
+    private final BackgroundLoader deleteLoader;
+    private JButton deleteButton;
+    private Timer searchTimer;
+    private boolean dashboardLoading;
+    private Money totalSpending = Money.ZERO;
+    // Expense count per category name, adjusted as expenses change
+    private final Map<String, Long> categoryCounts = new HashMap<>();
+    private final Consumer<List<ExpenseChange>> changeListener =
+            changes -> SwingUtilities.invokeLater(() -> applyChanges(changes));
+
+    private record Dashboard(BigDecimal total, List<CategoryTotal> categoryTotals) {
+    }
 
     public MainView(UserService userService, ExpenseService expenseService,
-            CategoryService categoryService, User currentUser) {
+            CategoryService categoryService, ExportJobService exportJobService, User currentUser) {
+        this(userService, expenseService, categoryService, exportJobService, currentUser,
+                BackgroundLoader.SHARED_EXECUTOR);
+    }
+
+    /**
+     * Runs the view's background work, and that of the table and the dialogs
+     * it opens, on {@code loaderExecutor}.
+     */
+    MainView(UserService userService, ExpenseService expenseService, CategoryService categoryService,
+            ExportJobService exportJobService, User currentUser, Executor loaderExecutor) {
         this.userService = userService;
         this.expenseService = expenseService;
         this.categoryService = categoryService;
+        this.exportJobService = exportJobService;
         this.currentUser = currentUser;
-        this.tableModel = new ExpenseTableModel();
+        this.loaderExecutor = loaderExecutor;
+        this.loader = new BackgroundLoader(this::setLoading, loaderExecutor);
+        // Disabling the button keeps a second delete from superseding a running one
+        this.deleteLoader = new BackgroundLoader(deleting -> deleteButton.setEnabled(!deleting), loaderExecutor);
+        this.tableModel = new PagedExpenseTableModel(expenseService, ExpenseQuery.forUser(currentUser),
+                loaderExecutor);
+        tableModel.setErrorHandler(this::showLoadError);
 
         initializeUI();
         createMenuBar();
         refreshExpenses();
+        expenseService.addChangeListener(changeListener);
     }
 
     private void initializeUI() {
@@ -74,6 +119,9 @@ public class MainView extends JFrame {
         filterPanel.add(new JLabel("Search: "));
         JTextField searchField = new JTextField(20);
         searchField.setName("searchField");
+        // Search once typing pauses rather than on every keystroke
+        searchTimer = new Timer(SEARCH_DELAY_MS, e -> tableModel.setSearch(searchField.getText()));
+        searchTimer.setRepeats(false);
         searchField.getDocument().addDocumentListener(new DocumentListener() {
             public void insertUpdate(DocumentEvent e) {
                 filter();
@@ -88,12 +136,7 @@ public class MainView extends JFrame {
             }
 
             private void filter() {
-                String text = searchField.getText();
-                if (text.trim().length() == 0) {
-                    sorter.setRowFilter(null);
-                } else {
-                    sorter.setRowFilter(RowFilter.regexFilter("(?i)" + text));
-                }
+                searchTimer.restart();
             }
         });
         filterPanel.add(searchField);
@@ -102,8 +145,12 @@ public class MainView extends JFrame {
         add(northPanel, BorderLayout.NORTH);
 
         JTable table = new JTable(tableModel);
-        sorter = new TableRowSorter<>(tableModel);
-        table.setRowSorter(sorter);
+        table.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                tableModel.sortBy(table.convertColumnIndexToModel(table.columnAtPoint(e.getPoint())));
+            }
+        });
         add(new JScrollPane(table), BorderLayout.CENTER);
 
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
@@ -112,7 +159,7 @@ public class MainView extends JFrame {
         addButton.addActionListener(e -> showAddExpenseDialog());
         buttonPanel.add(addButton);
 
-        JButton deleteButton = new JButton("Delete");
+        deleteButton = new JButton("Delete");
         deleteButton.setName("mainDeleteButton");
         deleteButton.addActionListener(e -> {
             int selectedRow = table.getSelectedRow();
@@ -123,10 +170,10 @@ public class MainView extends JFrame {
                         JOptionPane.YES_NO_OPTION);
 
                 if (response == JOptionPane.YES_OPTION) {
-                    Expense expense = tableModel
-                            .getExpenseAt(table.convertRowIndexToModel(selectedRow));
-                    expenseService.deleteExpense(expense.getId());
-                    refreshExpenses();
+                    ExpenseRow expense = tableModel.getExpenseAt(selectedRow);
+                    if (expense != null) {
+                        deleteExpense(expense);
+                    }
                 }
             } else {
                 JOptionPane.showMessageDialog(this, "Select an expense to delete");
@@ -141,7 +188,8 @@ public class MainView extends JFrame {
 
         JButton reportButton = new JButton("Reports");
         reportButton.setName("mainReportButton");
-        reportButton.addActionListener(e -> new ReportView(this, expenseService, currentUser).setVisible(true));
+        reportButton.addActionListener(e -> new ReportView(this, expenseService, exportJobService, currentUser,
+                loaderExecutor).setVisible(true));
         buttonPanel.add(reportButton);
 
         JButton logoutButton = new JButton("Logout");
@@ -153,6 +201,11 @@ public class MainView extends JFrame {
         statusPanel.setBorder(BorderFactory.createEtchedBorder());
         statusLabel = new JLabel(" Logged in as: " + currentUser.getUsername() + " (" + currentUser.getRole() + ")");
         statusPanel.add(statusLabel, BorderLayout.WEST);
+        loadingBar = new JProgressBar();
+        loadingBar.setName("loadingBar");
+        loadingBar.setIndeterminate(true);
+        loadingBar.setVisible(false);
+        statusPanel.add(loadingBar, BorderLayout.CENTER);
         JLabel dbStatus = new JLabel("Database: MySQL Connected ");
         dbStatus.setForeground(new Color(0, 150, 0));
         statusPanel.add(dbStatus, BorderLayout.EAST);
@@ -184,25 +237,48 @@ public class MainView extends JFrame {
         return card;
     }
 
-    private void updateDashboard() {
-        List<Expense> expenses = tableModel.getExpenses();
-        double total = expenses.stream().mapToDouble(e -> e.getAmount().doubleValue()).sum();
-        totalSpendingLabel.setText("€" + df.format(total));
+    private void updateDashboard(Dashboard dashboard) {
+        totalSpending = Money.of(dashboard.total());
+        categoryCounts.clear();
+        dashboard.categoryTotals().forEach(t -> categoryCounts.put(t.category(), t.count()));
+        showDashboard();
+    }
 
-        double budget = currentUser.getMonthlyBudget().doubleValue();
-        budgetValueLabel.setText("€" + df.format(budget));
+    /**
+     * Applies expense writes to the table in place and to the dashboard by
+     * delta. A dashboard load still running may or may not include them, so
+     * it is restarted instead.
+     */
+    private void applyChanges(List<ExpenseChange> changes) {
+        tableModel.apply(changes);
+        if (dashboardLoading) {
+            loadDashboard();
+            return;
+        }
+        for (ExpenseChange change : changes) {
+            if (Objects.equals(change.userId(), currentUser.getId())) {
+                if (change.before() != null) {
+                    count(change.before(), -1);
+                }
+                if (change.after() != null) {
+                    count(change.after(), 1);
+                }
+            }
+        }
+        showDashboard();
+    }
 
-        if (total > budget) {
-            budgetCard.setBackground(new Color(255, 230, 230));
-            budgetValueLabel.setForeground(Color.RED);
-        } else {
-            budgetCard.setBackground(new Color(235, 255, 235));
-            budgetValueLabel.setForeground(new Color(0, 100, 0));
+    private void count(ExpenseRow expense, int sign) {
+        Money amount = Money.of(expense.amount());
+        totalSpending = sign > 0 ? totalSpending.plus(amount) : totalSpending.minus(amount);
+        if (expense.category() != null) {
+            categoryCounts.merge(expense.category(), (long) sign, (a, b) -> a + b == 0 ? null : a + b);
         }
+    }
 
-        Map<String, Long> categoryCounts = expenses.stream()
-                .filter(e -> e.getCategory() != null)
-                .collect(Collectors.groupingBy(e -> e.getCategory().getName(), Collectors.counting()));
+    private void showDashboard() {
+        totalSpendingLabel.setText("€" + df.format(totalSpending.toBigDecimal()));
+        updateBudget();
 
         String topCategory = categoryCounts.entrySet().stream()
                 .max(Map.Entry.comparingByValue())
@@ -212,6 +288,27 @@ public class MainView extends JFrame {
         topCategoryLabel.setText(topCategory);
     }
 
+    private void updateBudget() {
+        budgetValueLabel.setText("€" + df.format(currentUser.getMonthlyBudget()));
+
+        BudgetStatus status = budgetService.evaluate(currentUser, totalSpending);
+        budgetCard.setToolTipText(status.budget() != null
+                ? "Remaining: €" + df.format(status.remaining().toBigDecimal()) : null);
+        if (status.exceeded()) {
+            budgetCard.setBackground(new Color(255, 230, 230));
+            budgetValueLabel.setForeground(Color.RED);
+        } else {
+            budgetCard.setBackground(new Color(235, 255, 235));
+            budgetValueLabel.setForeground(new Color(0, 100, 0));
+        }
+    }
+
+    private void setLoading(boolean loading) {
+        dashboardLoading = loading;
+        loadingBar.setVisible(loading);
+        setCursor(loading ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+    }
+
     private void showSetBudgetDialog() {
         String input = JOptionPane.showInputDialog(this, "Enter your monthly budget (€):",
                 currentUser.getMonthlyBudget());
@@ -220,7 +317,7 @@ public class MainView extends JFrame {
                 BigDecimal newBudget = new BigDecimal(input);
                 currentUser.setMonthlyBudget(newBudget);
                 userService.updateUser(currentUser);
-                updateDashboard();
+                updateBudget();
                 JOptionPane.showMessageDialog(this, "Monthly budget updated!");
             } catch (NumberFormatException e) {
                 JOptionPane.showMessageDialog(this, "Invalid amount format.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -229,17 +326,43 @@ public class MainView extends JFrame {
     }
 
     private void showAddExpenseDialog() {
-        AddExpenseView dialog = new AddExpenseView(this, expenseService, categoryService, currentUser,
-                this::refreshExpenses);
+        // The saved expense reaches the table and dashboard as a change event
+        AddExpenseView dialog = new AddExpenseView(this, expenseService, categoryService, currentUser, () -> {
+        });
         dialog.setVisible(true);
     }
 
+    /**
+     * Reloads the table and dashboard in the background. A refresh started
+     * while another is running supersedes it.
+     */
     private void refreshExpenses() {
-        SwingUtilities.invokeLater(() -> {
-            List<Expense> expenses = expenseService.getExpensesByUser(currentUser);
-            tableModel.setExpenses(expenses);
-            updateDashboard();
-        });
+        tableModel.refresh();
+        loadDashboard();
+    }
+
+    private void loadDashboard() {
+        loader.load(() -> new Dashboard(expenseService.getTotalByUser(currentUser),
+                expenseService.getCategoryTotals(currentUser)),
+                this::updateDashboard, this::showLoadError);
+    }
+
+    /**
+     * Deletes in the background; the table and dashboard follow through the
+     * change listener.
+     */
+    private void deleteExpense(ExpenseRow expense) {
+        deleteLoader.load(() -> {
+            expenseService.deleteExpense(expense.id());
+            return expense;
+        }, deleted -> {
+        }, e -> JOptionPane.showMessageDialog(this, "Error deleting expense: " + e.getMessage(), "Error",
+                JOptionPane.ERROR_MESSAGE));
+    }
+
+    private void showLoadError(Exception e) {
+        JOptionPane.showMessageDialog(this, "Error loading expenses: " + e.getMessage(), "Error",
+                JOptionPane.ERROR_MESSAGE);
     }
 
     private void createMenuBar() {
@@ -255,7 +378,9 @@ public class MainView extends JFrame {
 
         JMenuItem analyticsItem = new JMenuItem("View Statistics");
         analyticsItem.setName("analyticsItem");
-        analyticsItem.addActionListener(e -> new StatisticsView(this, tableModel.getExpenses()).setVisible(true));
+        analyticsItem.addActionListener(
+                e -> new StatisticsView(this, () -> expenseService.getStatistics(currentUser), loaderExecutor)
+                        .setVisible(true));
 
         fileMenu.add(logoutItem);
         fileMenu.addSeparator();
@@ -276,8 +401,17 @@ public class MainView extends JFrame {
         setJMenuBar(menuBar);
     }
 
+    @Override
+    public void dispose() {
+        expenseService.removeChangeListener(changeListener);
+        searchTimer.stop();
+        loader.cancel();
+        super.dispose();
+    }
+
     private void logout() {
         dispose();
-        new LoginView(userService, expenseService, categoryService).setVisible(true);
+        new LoginView(userService, expenseService, categoryService, exportJobService, loaderExecutor)
+                .setVisible(true);
     }
 }
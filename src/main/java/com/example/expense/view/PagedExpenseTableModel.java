@@ -0,0 +1,418 @@
+package com.example.expense.view;
+
+import com.example.expense.model.ExpenseQuery;
+import com.example.expense.model.ExpenseQuery.SortColumn;
+import com.example.expense.model.ExpenseRow;
+import com.example.expense.service.ExpenseChange;
+import com.example.expense.service.ExpenseService;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Table model over an expense query of any size. Only the row count is
+ * loaded up front; rows are fetched a page at a time in the background when
+ * the table first asks for them, the page after the one being read is
+ * prefetched, and only the most recently used pages are kept. Rows that are
+ * not loaded yet read as {@code null} and are repainted when their page
+ * arrives. Sorting and searching re-run the query through the service.
+ * Single added, updated and deleted expenses are applied in place with
+ * row-level events, shifting the loaded pages instead of reloading them.
+ *
+ * <p>
+ * Like every Swing model this class is confined to the EDT.
+ */
+public class PagedExpenseTableModel extends AbstractTableModel {
+
+    public static final int DEFAULT_PAGE_SIZE = 200;
+    public static final int DEFAULT_MAX_PAGES = 20;
+    // Beyond this many changes at once (an import, say) a reload is cheaper
+    static final int MAX_INCREMENTAL_CHANGES = 50;
+    static final String LOADING = "Loading...";
+
+    /**
+     * Where the model reads its rows from, normally an {@link ExpenseService}.
+     */
+    public interface RowSource {
+
+        long count(ExpenseQuery query);
+
+        List<ExpenseRow> rows(ExpenseQuery query, int offset, int limit);
+
+        /**
+         * Index of the row in the query's order, or -1 if it does not match.
+         */
+        long position(ExpenseQuery query, ExpenseRow row);
+    }
+
+    private record Snapshot(int rowCount, List<ExpenseRow> firstPage) {
+    }
+
+    private static final String[] COLUMN_NAMES = {"Date", "Category", "Description", "Amount"};
+    private static final SortColumn[] SORT_COLUMNS = {SortColumn.DATE, SortColumn.CATEGORY,
+            SortColumn.DESCRIPTION, SortColumn.AMOUNT};
+
+    private final RowSource source;
+    private final int pageSize;
+    private final Map<Integer, List<ExpenseRow>> pages;
+    private final Set<Integer> pendingPages = new HashSet<>();
+    private final Executor executor;
+    private final BackgroundLoader snapshotLoader;
+    private Consumer<RuntimeException> errorHandler = e -> {
+    };
+    private ExpenseQuery query;
+    private int rowCount;
+    private long generation;
+    private boolean refreshing;
+
+    public PagedExpenseTableModel(ExpenseService expenseService, ExpenseQuery query) {
+        this(expenseService, query, BackgroundLoader.SHARED_EXECUTOR);
+    }
+
+    /**
+     * Loads the snapshots, pages and positions on {@code executor}.
+     */
+    PagedExpenseTableModel(ExpenseService expenseService, ExpenseQuery query, Executor executor) {
+        this(new RowSource() {
+            @Override
+            public long count(ExpenseQuery q) {
+                return expenseService.countExpenseRows(q);
+            }
+
+            @Override
+            public List<ExpenseRow> rows(ExpenseQuery q, int offset, int limit) {
+                return expenseService.getExpenseRows(q, offset, limit);
+            }
+
+            @Override
+            public long position(ExpenseQuery q, ExpenseRow row) {
+                return expenseService.getExpenseRowPosition(q, row);
+            }
+        }, query, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES, executor);
+    }
+
+    PagedExpenseTableModel(RowSource source, ExpenseQuery query, int pageSize, int maxPages, Executor executor) {
+        if (pageSize <= 0 || maxPages < 2) {
+            throw new IllegalArgumentException("Need a positive page size and room for two pages");
+        }
+        this.source = source;
+        this.query = query;
+        this.pageSize = pageSize;
+        this.executor = executor;
+        this.snapshotLoader = new BackgroundLoader(loading -> refreshing = loading, executor);
+        this.pages = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<ExpenseRow>> eldest) {
+                return size() > maxPages;
+            }
+        };
+    }
+
+    public void setErrorHandler(Consumer<RuntimeException> errorHandler) {
+        this.errorHandler = errorHandler;
+    }
+
+    public ExpenseQuery getQuery() {
+        return query;
+    }
+
+    /**
+     * Reloads the row count and first page. Rows already shown stay visible
+     * until the new snapshot arrives.
+     */
+    public void refresh() {
+        setQuery(query);
+    }
+
+    public void setQuery(ExpenseQuery query) {
+        this.query = query;
+        generation++;
+        pendingPages.clear();
+        snapshotLoader.load(
+                () -> new Snapshot((int) Math.min(source.count(query), Integer.MAX_VALUE),
+                        source.rows(query, 0, pageSize)),
+                this::applySnapshot, errorHandler);
+    }
+
+    public void setSearch(String search) {
+        setQuery(query.withSearch(search));
+    }
+
+    /**
+     * Sorts by the column, ascending on the first click and toggling the
+     * direction on repeated clicks of the same column.
+     */
+    public void sortBy(int column) {
+        if (column < 0 || column >= SORT_COLUMNS.length) {
+            return;
+        }
+        SortColumn sortColumn = SORT_COLUMNS[column];
+        boolean descending = sortColumn == query.sortColumn() && !query.descending();
+        setQuery(query.sortedBy(sortColumn, descending));
+    }
+
+    /**
+     * Applies committed changes of expenses in place: deleted rows are
+     * removed from the loaded pages and added rows are inserted at the
+     * positions the source reports, all looked up in one background task.
+     * Falls back to {@link #refresh()} for large batches and for rows that
+     * are not loaded. Must be called on the EDT.
+     */
+    public void apply(List<ExpenseChange> changes) {
+        if (refreshing) {
+            // The snapshot being loaded already contains the changes
+            return;
+        }
+        if (changes.size() > MAX_INCREMENTAL_CHANGES) {
+            refresh();
+            return;
+        }
+        List<ExpenseRow> added = new ArrayList<>();
+        for (ExpenseChange change : changes) {
+            if (!belongsToQuery(change)) {
+                continue;
+            }
+            if (change.before() != null && !remove(change.before().id())) {
+                refresh();
+                return;
+            }
+            if (change.after() != null) {
+                added.add(change.after());
+            }
+        }
+        if (!added.isEmpty()) {
+            insertInBackground(added);
+        }
+    }
+
+    /**
+     * The row at the index, or {@code null} while its page is loading.
+     */
+    public ExpenseRow getExpenseAt(int rowIndex) {
+        int page = rowIndex / pageSize;
+        List<ExpenseRow> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page);
+            return null;
+        }
+        requestPage(page + 1);
+        int index = rowIndex % pageSize;
+        if (index >= rows.size()) {
+            // A delete pulled rows forward past what this page holds
+            requestPage(page, true);
+            return null;
+        }
+        return rows.get(index);
+    }
+
+    int loadedPageCount() {
+        return pages.size();
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int columnIndex) {
+        return ExpenseTableModel.COLUMN_CLASSES[columnIndex];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        ExpenseRow expense = getExpenseAt(rowIndex);
+        if (expense == null) {
+            return columnIndex == 2 ? LOADING : null;
+        }
+        switch (columnIndex) {
+            case 0:
+                return expense.date();
+            case 1:
+                return expense.category() != null ? expense.category() : ExpenseTableModel.NO_CATEGORY;
+            case 2:
+                return expense.description();
+            case 3:
+                return expense.amount();
+            default:
+                return null;
+        }
+    }
+
+    private boolean belongsToQuery(ExpenseChange change) {
+        return query.user() == null || Objects.equals(query.user().getId(), change.userId());
+    }
+
+    private boolean remove(Long id) {
+        for (Map.Entry<Integer, List<ExpenseRow>> entry : pages.entrySet()) {
+            List<ExpenseRow> rows = entry.getValue();
+            for (int i = 0; i < rows.size(); i++) {
+                if (rows.get(i) != null && Objects.equals(rows.get(i).id(), id)) {
+                    removeAt(entry.getKey(), i);
+                    return true;
+                }
+            }
+        }
+        // Not loaded, but a search may simply not match it
+        return query.search() != null;
+    }
+
+    private void removeAt(int page, int index) {
+        generation++;
+        pendingPages.clear();
+        List<ExpenseRow> rows = new ArrayList<>(pages.get(page));
+        rows.remove(index);
+        pages.put(page, rows);
+        // Each following loaded page hands its first row to the page before it
+        int next = page + 1;
+        while (pages.containsKey(next) && !pages.get(next).isEmpty()) {
+            List<ExpenseRow> following = new ArrayList<>(pages.get(next));
+            rows.add(following.remove(0));
+            pages.put(next, following);
+            rows = following;
+            next++;
+        }
+        dropPagesFrom(next);
+        rowCount--;
+        int rowIndex = page * pageSize + index;
+        fireTableRowsDeleted(rowIndex, rowIndex);
+    }
+
+    /**
+     * Looks up where each row goes in the committed order, which already
+     * holds the whole batch, and inserts the rows in ascending order, so the
+     * rows of the batch before a position are in place when it is applied.
+     */
+    private void insertInBackground(List<ExpenseRow> rows) {
+        ExpenseQuery requestQuery = query;
+        executor.execute(() -> {
+            try {
+                TreeMap<Long, ExpenseRow> byPosition = new TreeMap<>();
+                for (ExpenseRow row : rows) {
+                    long position = source.position(requestQuery, row);
+                    if (position >= 0) {
+                        byPosition.put(position, row);
+                    }
+                }
+                SwingUtilities.invokeLater(() -> {
+                    if (requestQuery != query || refreshing) {
+                        return;
+                    }
+                    byPosition.forEach((position, row) -> {
+                        if (position <= rowCount) {
+                            insertAt(position.intValue(), row);
+                        }
+                    });
+                });
+            } catch (RuntimeException e) {
+                SwingUtilities.invokeLater(() -> {
+                    if (requestQuery == query) {
+                        errorHandler.accept(e);
+                    }
+                });
+            }
+        });
+    }
+
+    private void insertAt(int rowIndex, ExpenseRow row) {
+        generation++;
+        pendingPages.clear();
+        int page = rowIndex / pageSize;
+        int index = rowIndex % pageSize;
+        List<ExpenseRow> loaded = pages.get(page);
+        if (loaded != null && index <= loaded.size()) {
+            List<ExpenseRow> rows = new ArrayList<>(loaded);
+            rows.add(index, row);
+            pages.put(page, rows);
+            // Each full page pushes its last row onto the next loaded page
+            int next = page + 1;
+            while (rows.size() > pageSize && pages.containsKey(next)) {
+                ExpenseRow carried = rows.remove(pageSize);
+                List<ExpenseRow> following = new ArrayList<>(pages.get(next));
+                following.add(0, carried);
+                pages.put(next, following);
+                rows = following;
+                next++;
+            }
+            if (rows.size() > pageSize) {
+                rows.remove(pageSize);
+            }
+            dropPagesFrom(next);
+        } else {
+            dropPagesFrom(page);
+        }
+        rowCount++;
+        fireTableRowsInserted(rowIndex, rowIndex);
+    }
+
+    private void dropPagesFrom(int page) {
+        pages.keySet().removeIf(p -> p >= page);
+    }
+
+    private void applySnapshot(Snapshot snapshot) {
+        pages.clear();
+        pendingPages.clear();
+        rowCount = snapshot.rowCount();
+        pages.put(0, snapshot.firstPage());
+        fireTableDataChanged();
+    }
+
+    private void requestPage(int page) {
+        requestPage(page, false);
+    }
+
+    private void requestPage(int page, boolean reload) {
+        // While a new query's snapshot loads, the old count no longer applies
+        if (refreshing || page < 0 || (long) page * pageSize >= rowCount
+                || (!reload && pages.containsKey(page)) || !pendingPages.add(page)) {
+            return;
+        }
+        long requestGeneration = generation;
+        ExpenseQuery requestQuery = query;
+        executor.execute(() -> {
+            try {
+                List<ExpenseRow> rows = source.rows(requestQuery, page * pageSize, pageSize);
+                SwingUtilities.invokeLater(() -> applyPage(requestGeneration, page, rows));
+            } catch (RuntimeException e) {
+                SwingUtilities.invokeLater(() -> {
+                    if (requestGeneration == generation) {
+                        pendingPages.remove(page);
+                        errorHandler.accept(e);
+                    }
+                });
+            }
+        });
+    }
+
+    private void applyPage(long pageGeneration, int page, List<ExpenseRow> rows) {
+        if (pageGeneration != generation) {
+            return;
+        }
+        pendingPages.remove(page);
+        pages.put(page, rows);
+        int first = page * pageSize;
+        int last = Math.min(first + pageSize, rowCount) - 1;
+        if (last >= first) {
+            fireTableRowsUpdated(first, last);
+        }
+    }
+}
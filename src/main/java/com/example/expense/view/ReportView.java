@@ -1,13 +1,23 @@
 package com.example.expense.view;
 
-import com.example.expense.model.Expense;
+import com.example.expense.model.ExpenseRow;
+import com.example.expense.model.MoneyAccumulator;
 import com.example.expense.model.User;
 import com.example.expense.service.ExpenseService;
+import com.example.expense.service.ExportFormat;
+import com.example.expense.service.ExportJob;
+import com.example.expense.service.ExportJobService;
+import com.example.expense.service.ExportRequest;
+import com.example.expense.service.ReportPeriod;
 import javax.swing.*;
 import java.awt.*;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.io.FileOutputStream;
 import com.lowagie.text.*;
 import com.lowagie.text.pdf.*;
@@ -15,14 +25,31 @@ import com.lowagie.text.pdf.*;
 public class ReportView extends JDialog {
 
     private final ExpenseService expenseService;
+    private final ExportJobService exportJobService;
     private final User currentUser;
     private final ExpenseTableModel tableModel;
+    private final BackgroundLoader loader;
+    private final JComboBox<String> typeCombo;
+    private final JTextField dateField;
+    private final JPanel exportPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+    private final JProgressBar exportProgress = new JProgressBar();
+    private final JLabel exportStatus = new JLabel();
+    private final Consumer<ExportJob> exportListener = job -> SwingUtilities.invokeLater(() -> exportChanged(job));
+    private ExportJob currentExport;
     private JLabel totalLabel;
 
-    public ReportView(Frame owner, ExpenseService expenseService, User currentUser) {
+    public ReportView(Frame owner, ExpenseService expenseService, ExportJobService exportJobService,
+            User currentUser) {
+        this(owner, expenseService, exportJobService, currentUser, BackgroundLoader.SHARED_EXECUTOR);
+    }
+
+    ReportView(Frame owner, ExpenseService expenseService, ExportJobService exportJobService, User currentUser,
+            Executor loaderExecutor) {
         super(owner, "Generate Report", true);
         this.expenseService = expenseService;
+        this.exportJobService = exportJobService;
         this.currentUser = currentUser;
+        this.loader = new BackgroundLoader(this::setLoading, loaderExecutor);
         this.tableModel = new ExpenseTableModel();
 
         setLayout(new BorderLayout());
@@ -32,9 +59,9 @@ public class ReportView extends JDialog {
         // Control Panel
         JPanel controlPanel = new JPanel();
         String[] reportTypes = { "Daily", "Weekly", "Monthly", "Yearly" };
-        JComboBox<String> typeCombo = new JComboBox<>(reportTypes);
+        typeCombo = new JComboBox<>(reportTypes);
         typeCombo.setName("typeCombo");
-        JTextField dateField = new JTextField(LocalDate.now().toString(), 10);
+        dateField = new JTextField(LocalDate.now().toString(), 10);
         dateField.setName("dateField");
         JButton generateButton = new JButton("Generate");
         generateButton.setName("generateButton");
@@ -59,90 +86,195 @@ public class ReportView extends JDialog {
 
         // Table
         JTable table = new JTable(tableModel);
+        table.setRowSorter(tableModel.createRowSorter());
         add(new JScrollPane(table), BorderLayout.CENTER);
 
-        // Footer Total
-        JPanel footerPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        // Footer: export progress on the left, total on the right
+        JPanel footerPanel = new JPanel(new BorderLayout());
+        exportProgress.setName("exportProgress");
+        exportProgress.setStringPainted(true);
+        JButton cancelExportButton = new JButton("Cancel");
+        cancelExportButton.setName("cancelExportButton");
+        cancelExportButton.addActionListener(e -> {
+            if (currentExport != null) {
+                exportJobService.cancel(currentExport);
+            }
+        });
+        exportPanel.add(exportProgress);
+        exportPanel.add(cancelExportButton);
+        exportPanel.setVisible(false);
+        exportStatus.setName("exportStatus");
+        JPanel statusPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        statusPanel.add(exportPanel);
+        statusPanel.add(exportStatus);
+        footerPanel.add(statusPanel, BorderLayout.WEST);
+        JPanel totalPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         totalLabel = new JLabel("Total: 0.00");
-        footerPanel.add(totalLabel);
+        totalPanel.add(totalLabel);
+        footerPanel.add(totalPanel, BorderLayout.EAST);
         add(footerPanel, BorderLayout.SOUTH);
 
         generateButton
                 .addActionListener(e -> generateReport((String) typeCombo.getSelectedItem(), dateField.getText()));
+        exportJobService.addListener(exportListener);
     }
 
     private void generateReport(String type, String dateStr) {
+        LocalDate date;
         try {
-            LocalDate date = LocalDate.parse(dateStr, DateTimeFormatter.ISO_LOCAL_DATE);
-            List<Expense> expenses;
-
-            switch (type) {
-                case "Daily":
-                    expenses = expenseService.getDailyReport(currentUser, date);
-                    break;
-                case "Weekly":
-                    expenses = expenseService.getWeeklyReport(currentUser, date);
-                    break;
-                case "Monthly":
-                    expenses = expenseService.getMonthlyReport(currentUser, date);
-                    break;
-                case "Yearly":
-                    expenses = expenseService.getYearlyReport(currentUser, date);
-                    break;
-                default:
-                    expenses = java.util.Collections.emptyList();
-            }
-
+            date = LocalDate.parse(dateStr, DateTimeFormatter.ISO_LOCAL_DATE);
+        } catch (Exception e) {
+            showReportError(e);
+            return;
+        }
+        // Generating again before the previous report arrives replaces it
+        loader.load(() -> loadReport(type, date), expenses -> {
             tableModel.setExpenses(expenses);
             updateTotal(expenses);
+        }, e -> {
+            updateTotal(tableModel.getExpenses());
+            showReportError(e);
+        });
+    }
 
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this, "Invalid Date Format (yyyy-MM-dd) or error: " + e.getMessage());
+    private List<ExpenseRow> loadReport(String type, LocalDate date) {
+        switch (type) {
+            case "Daily":
+                return expenseService.getDailyReport(currentUser, date);
+            case "Weekly":
+                return expenseService.getWeeklyReport(currentUser, date);
+            case "Monthly":
+                return expenseService.getMonthlyReport(currentUser, date);
+            case "Yearly":
+                return expenseService.getYearlyReport(currentUser, date);
+            default:
+                return java.util.Collections.emptyList();
         }
     }
 
-    private void updateTotal(List<Expense> expenses) {
-        java.math.BigDecimal total = expenses.stream()
-                .map(Expense::getAmount)
-                .reduce(java.math.BigDecimal.ZERO, java.math.BigDecimal::add);
-        totalLabel.setText("Total: " + total.toString());
+    private void showReportError(Exception e) {
+        JOptionPane.showMessageDialog(this, "Invalid Date Format (yyyy-MM-dd) or error: " + e.getMessage());
     }
 
-    private void exportToPdf() {
-        if (tableModel.getRowCount() == 0) {
-            JOptionPane.showMessageDialog(this, "No data to export. Generate a report first.");
-            return;
+    private void setLoading(boolean loading) {
+        if (loading) {
+            totalLabel.setText("Loading...");
         }
+        setCursor(loading ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
+    }
 
-        JFileChooser fileChooser = createFileChooser("Expense_Report.pdf");
-        if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
-            java.io.File file = fileChooser.getSelectedFile();
-            try {
-                expenseService.exportToPdf(tableModel.getExpenses(), file, currentUser.getUsername());
-                JOptionPane.showMessageDialog(this, "PDF Exported successfully to " + file.getAbsolutePath());
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(this, "Error exporting PDF: " + e.getMessage(), "Error",
-                        JOptionPane.ERROR_MESSAGE);
-            }
+    private void setExporting(boolean exporting) {
+        exportPanel.setVisible(exporting);
+        if (exporting) {
+            exportProgress.setIndeterminate(true);
+            exportStatus.setText(" ");
         }
+        revalidate();
+    }
+
+    @Override
+    public void dispose() {
+        loader.cancel();
+        exportJobService.removeListener(exportListener);
+        if (currentExport != null) {
+            exportJobService.cancel(currentExport);
+            currentExport = null;
+        }
+        super.dispose();
+    }
+
+    private void updateTotal(List<ExpenseRow> expenses) {
+        MoneyAccumulator total = new MoneyAccumulator();
+        expenses.forEach(expense -> total.add(expense.amount()));
+        totalLabel.setText("Total: " + total.total());
     }
 
+    private void exportToPdf() {
+        exportPeriod(file -> ExportFormat.PDF, "Expense_Report.pdf");
+    }
+
+    /**
+     * A file name ending in ".gz" gets a gzip-compressed file.
+     */
     private void exportToCsv() {
-        if (tableModel.getRowCount() == 0) {
-            JOptionPane.showMessageDialog(this, "No data to export. Generate a report first.");
+        exportPeriod(file -> file.getName().endsWith(".gz") ? ExportFormat.CSV_GZIP : ExportFormat.CSV,
+                "Expense_Report.csv");
+    }
+
+    /**
+     * Queues an export of the selected period, read straight from the
+     * database rather than from the table, and follows its progress in the
+     * footer.
+     */
+    private void exportPeriod(Function<java.io.File, ExportFormat> formatOf, String defaultName) {
+        ReportPeriod period = selectedPeriod();
+        LocalDate date;
+        try {
+            date = LocalDate.parse(dateField.getText(), DateTimeFormatter.ISO_LOCAL_DATE);
+        } catch (DateTimeParseException e) {
+            showReportError(e);
+            return;
+        }
+        if (period == null || currentExport != null) {
             return;
         }
 
-        JFileChooser fileChooser = createFileChooser("Expense_Report.csv");
+        JFileChooser fileChooser = createFileChooser(defaultName);
         if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
             java.io.File file = fileChooser.getSelectedFile();
-            try {
-                expenseService.exportToCsv(tableModel.getExpenses(), file);
-                JOptionPane.showMessageDialog(this, "CSV Exported successfully to " + file.getAbsolutePath());
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(this, "Error exporting CSV: " + e.getMessage(), "Error",
+            setExporting(true);
+            currentExport = exportJobService.submit(
+                    new ExportRequest(formatOf.apply(file), currentUser, period.start(date), period.end(date), file));
+        }
+    }
+
+    private void exportChanged(ExportJob job) {
+        if (job != currentExport) {
+            return;
+        }
+        showExportProgress(job.getRowsWritten(), job.getTotalRows());
+        if (!job.getStatus().isFinished()) {
+            return;
+        }
+        currentExport = null;
+        setExporting(false);
+        ExportRequest request = job.getRequest();
+        String format = request.format() == ExportFormat.PDF ? "PDF" : "CSV";
+        switch (job.getStatus()) {
+            case COMPLETED:
+                JOptionPane.showMessageDialog(this, format + " Exported successfully to "
+                        + request.destination().getAbsolutePath() + " (" + job.getRowsWritten() + " rows)");
+                break;
+            case CANCELLED:
+                exportStatus.setText("Export cancelled.");
+                break;
+            default:
+                JOptionPane.showMessageDialog(this, "Error exporting " + format + ": " + job.getError(), "Error",
                         JOptionPane.ERROR_MESSAGE);
-            }
+        }
+    }
+
+    private void showExportProgress(long rowsWritten, long totalRows) {
+        if (totalRows > 0) {
+            exportProgress.setIndeterminate(false);
+            exportProgress.setMaximum(100);
+            exportProgress.setValue((int) (100 * rowsWritten / totalRows));
+        }
+        exportProgress.setString(rowsWritten + " / " + totalRows + " rows");
+    }
+
+    private ReportPeriod selectedPeriod() {
+        switch ((String) typeCombo.getSelectedItem()) {
+            case "Daily":
+                return ReportPeriod.DAILY;
+            case "Weekly":
+                return ReportPeriod.WEEKLY;
+            case "Monthly":
+                return ReportPeriod.MONTHLY;
+            case "Yearly":
+                return ReportPeriod.YEARLY;
+            default:
+                return null;
         }
     }
 
@@ -1,7 +1,7 @@
 package com.example.expense.view;
 
-import com.example.expense.model.Expense;
-import com.example.expense.model.Category;
+import com.example.expense.model.CategoryTotal;
+import com.example.expense.model.ExpenseStatistics;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.ChartPanel;
 import org.jfree.chart.JFreeChart;
@@ -11,32 +11,66 @@ import org.jfree.data.category.DefaultCategoryDataset;
 import javax.swing.*;
 import java.awt.*;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
-import java.math.BigDecimal;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 public class StatisticsView extends JDialog {
 
-    public StatisticsView(Frame owner, List<Expense> expenses) {
+    private final BackgroundLoader loader;
+
+    public StatisticsView(Frame owner, ExpenseStatistics statistics) {
+        this(owner, BackgroundLoader.SHARED_EXECUTOR);
+        showCharts(statistics);
+    }
+
+    /**
+     * Opens straight away with a loading message and draws the charts once
+     * the statistics have been computed in the background. Both charts are
+     * drawn from the same immutable result.
+     */
+    public StatisticsView(Frame owner, Supplier<ExpenseStatistics> statistics) {
+        this(owner, statistics, BackgroundLoader.SHARED_EXECUTOR);
+    }
+
+    StatisticsView(Frame owner, Supplier<ExpenseStatistics> statistics, Executor loaderExecutor) {
+        this(owner, loaderExecutor);
+        JLabel loadingLabel = new JLabel("Loading statistics...", SwingConstants.CENTER);
+        loadingLabel.setName("loadingLabel");
+        add(loadingLabel);
+        loader.load(statistics, this::showCharts,
+                e -> loadingLabel.setText("Could not load statistics: " + e.getMessage()));
+    }
+
+    private StatisticsView(Frame owner, Executor loaderExecutor) {
         super(owner, "Spending Statistics", true);
+        loader = new BackgroundLoader(this::setLoading, loaderExecutor);
         setSize(1000, 600);
         setLocationRelativeTo(owner);
+    }
+
+    @Override
+    public void dispose() {
+        loader.cancel();
+        super.dispose();
+    }
+
+    private void showCharts(ExpenseStatistics statistics) {
+        getContentPane().removeAll();
         setLayout(new GridLayout(1, 2));
+        add(createPieChartPanel(statistics.byCategory()));
+        add(createBarChartPanel(statistics.byCategory()));
+        revalidate();
+        repaint();
+    }
 
-        add(createPieChartPanel(expenses));
-        add(createBarChartPanel(expenses));
+    private void setLoading(boolean loading) {
+        setCursor(loading ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : Cursor.getDefaultCursor());
     }
 
-    private JPanel createPieChartPanel(List<Expense> expenses) {
+    private JPanel createPieChartPanel(List<CategoryTotal> categoryTotals) {
         DefaultPieDataset<String> dataset = new DefaultPieDataset<>();
 
-        Map<String, Double> categoryTotals = expenses.stream()
-                .filter(e -> e.getCategory() != null)
-                .collect(Collectors.groupingBy(
-                        e -> e.getCategory().getName(),
-                        Collectors.summingDouble(e -> e.getAmount().doubleValue())));
-
-        categoryTotals.forEach(dataset::setValue);
+        categoryTotals.forEach(t -> dataset.setValue(t.category(), t.total()));
 
         JFreeChart chart = ChartFactory.createPieChart(
                 "Expenses by Category",
@@ -46,16 +80,10 @@ public class StatisticsView extends JDialog {
         return new ChartPanel(chart);
     }
 
-    private JPanel createBarChartPanel(List<Expense> expenses) {
+    private JPanel createBarChartPanel(List<CategoryTotal> categoryTotals) {
         DefaultCategoryDataset dataset = new DefaultCategoryDataset();
 
-        Map<String, Double> categoryTotals = expenses.stream()
-                .filter(e -> e.getCategory() != null)
-                .collect(Collectors.groupingBy(
-                        e -> e.getCategory().getName(),
-                        Collectors.summingDouble(e -> e.getAmount().doubleValue())));
-
-        categoryTotals.forEach((cat, total) -> dataset.addValue(total, "Amount", cat));
+        categoryTotals.forEach(t -> dataset.addValue(t.total(), "Amount", t.category()));
 
         JFreeChart chart = ChartFactory.createBarChart(
                 "Category Comparison",
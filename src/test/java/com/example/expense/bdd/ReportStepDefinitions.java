@@ -2,6 +2,7 @@ package com.example.expense.bdd;
 
 import com.example.expense.model.Category;
 import com.example.expense.model.Expense;
+import com.example.expense.model.ExpenseRow;
 import com.example.expense.model.Role;
 import com.example.expense.model.User;
 import com.example.expense.repository.ExpenseRepository;
@@ -21,15 +22,15 @@ public class ReportStepDefinitions {
 
     private static ExpenseService expenseService = mock(ExpenseService.class);
     private static User currentUser = new User(1L, "testuser", "pass", Role.USER);
-    private static List<Expense> mockExpenses = new ArrayList<>();
+    private static List<ExpenseRow> mockExpenses = new ArrayList<>();
     private static File exportedFile;
 
     @Given("I have {int} expenses in my account")
     public void i_have_expenses_in_my_account(Integer count) {
         mockExpenses.clear();
         for (int i = 0; i < count; i++) {
-            mockExpenses.add(new Expense(new BigDecimal("10.00"), LocalDate.now(), "Test " + i, currentUser,
-                    new Category("Food")));
+            mockExpenses.add(ExpenseRow.of(new Expense(new BigDecimal("10.00"), LocalDate.now(), "Test " + i,
+                    currentUser, new Category("Food"))));
         }
         when(expenseService.getMonthlyReport(eq(currentUser), any(LocalDate.class))).thenReturn(mockExpenses);
     }
@@ -0,0 +1,127 @@
+package com.example.expense.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ExpenseColumnsTest {
+
+    private static final LocalDate JUNE_1 = LocalDate.of(2023, 6, 1);
+
+    private ExpenseColumns columns;
+
+    @BeforeEach
+    void setUp() {
+        columns = ExpenseColumns.builder(2)
+                .add(JUNE_1, new BigDecimal("10.10"), "Food", 1L, "bob")
+                .add(JUNE_1.plusDays(1), new BigDecimal("0.20"), "Transport", 2L, "ann")
+                .add(JUNE_1.plusDays(2), new BigDecimal("5"), "Food", 1L, "bob")
+                .add(JUNE_1.plusDays(30), new BigDecimal("3.33"), null, null, null)
+                .build();
+    }
+
+    @Test
+    void testStoresMinorUnitsEpochDaysAndDictionaryIds() {
+        assertThat(columns.size()).isEqualTo(4);
+        assertThat(columns.amountAt(0)).isEqualTo(1010L);
+        assertThat(columns.dayAt(1)).isEqualTo((int) JUNE_1.toEpochDay() + 1);
+        assertThat(columns.categoryAt(2)).isEqualTo(columns.categoryAt(0));
+        assertThat(columns.categoryName(columns.categoryAt(1))).isEqualTo("Transport");
+        assertThat(columns.categoryAt(3)).isEqualTo(ExpenseColumns.NONE);
+        assertThat(columns.username(columns.userAt(1))).isEqualTo("ann");
+        assertThat(columns.userAt(3)).isEqualTo(ExpenseColumns.NONE);
+        assertThat(columns.categoryId("Rent")).isEqualTo(ExpenseColumns.NONE);
+    }
+
+    @Test
+    void testSumAndCountHonourFilter() {
+        ExpenseColumns.Filter june = ExpenseColumns.Filter.ALL.between(JUNE_1, JUNE_1.plusDays(29));
+
+        assertThat(columns.sum(ExpenseColumns.Filter.ALL)).isEqualTo(1863L);
+        assertThat(columns.sum(june)).isEqualTo(1530L);
+        assertThat(columns.count(june.forUser(columns.userId("bob")))).isEqualTo(2L);
+        assertThat(columns.sum(june.forCategory(columns.categoryId("Transport")))).isEqualTo(20L);
+        assertThat(columns.sum(ExpenseColumns.Filter.ALL, 1, 3)).isEqualTo(520L);
+    }
+
+    @Test
+    void testGroupByKernelsFillCallerArrays() {
+        long[] sums = new long[columns.categoryCount()];
+        long[] counts = new long[columns.categoryCount()];
+        long[] days = new long[3];
+
+        columns.sumByCategory(ExpenseColumns.Filter.ALL, sums, counts);
+        columns.sumByDay(ExpenseColumns.Filter.ALL, (int) JUNE_1.toEpochDay(), days);
+
+        assertThat(sums[columns.categoryId("Food")]).isEqualTo(1510L);
+        assertThat(counts[columns.categoryId("Food")]).isEqualTo(2L);
+        assertThat(days).containsExactly(1010L, 20L, 500L);
+    }
+
+    @Test
+    void testTotalsMatchTheDatabaseShapes() {
+        assertThat(columns.categoryTotals(ExpenseColumns.Filter.ALL)).containsExactly(
+                new CategoryTotal("Food", new BigDecimal("15.10"), 2),
+                new CategoryTotal("Transport", new BigDecimal("0.20"), 1));
+        assertThat(columns.userTotals(ExpenseColumns.Filter.ALL)).containsExactly(
+                new UserTotal("bob", new BigDecimal("15.10"), 2),
+                new UserTotal("ann", new BigDecimal("0.20"), 1));
+    }
+
+    @Test
+    void testTracksTheDayRange() {
+        ExpenseColumns empty = ExpenseColumns.builder().build();
+
+        assertThat(columns.firstDay()).isEqualTo((int) JUNE_1.toEpochDay());
+        assertThat(columns.lastDay()).isEqualTo((int) JUNE_1.plusDays(30).toEpochDay());
+        assertThat(empty.firstDay()).isEqualTo(Integer.MAX_VALUE);
+        assertThat(empty.lastDay()).isEqualTo(Integer.MIN_VALUE);
+    }
+
+    @Test
+    void testSlicedTotalsCoverOnlyTheirDaysAndMergeIntoTheWhole() {
+        ExpenseColumns.Totals last = columns.newTotals(ExpenseColumns.Filter.ALL, 3, 4);
+        ExpenseColumns.Totals first = columns.newTotals(ExpenseColumns.Filter.ALL, 0, 2);
+        ExpenseColumns.Totals none = columns.newTotals(ExpenseColumns.Filter.ALL, 2, 2);
+        ExpenseColumns.Totals middle = columns.newTotals(ExpenseColumns.Filter.ALL, 2, 3);
+        columns.sumAll(ExpenseColumns.Filter.ALL, 3, 4, last);
+        columns.sumAll(ExpenseColumns.Filter.ALL, 0, 2, first);
+        columns.sumAll(ExpenseColumns.Filter.ALL, 2, 3, middle);
+
+        assertThat(last.firstDay()).isEqualTo((int) JUNE_1.plusDays(30).toEpochDay());
+        assertThat(last.dayCount()).isEqualTo(1);
+        assertThat(first.dayCount()).isEqualTo(2);
+        assertThat(none.dayCount()).isZero();
+
+        ExpenseColumns.Totals merged = none.merge(last).merge(first).merge(middle);
+
+        assertThat(merged.firstDay()).isEqualTo((int) JUNE_1.toEpochDay());
+        assertThat(merged.dayCount()).isEqualTo(31);
+        assertThat(merged.daySum(0)).isEqualTo(1010L);
+        assertThat(merged.daySum(2)).isEqualTo(500L);
+        assertThat(merged.dayRowCount(30)).isEqualTo(1L);
+        assertThat(merged.sum()).isEqualTo(1863L);
+        assertThat(merged.categorySum(columns.categoryId("Food"))).isEqualTo(1510L);
+    }
+
+    @Test
+    void testAddsRowProjectionsWithoutUser() {
+        ExpenseColumns rows = ExpenseColumns.builder()
+                .add(new ExpenseRow(1L, JUNE_1, "Food", "Lunch", new BigDecimal("4.50")))
+                .build();
+
+        assertThat(rows.amountAt(0)).isEqualTo(450L);
+        assertThat(rows.categoryName(rows.categoryAt(0))).isEqualTo("Food");
+        assertThat(rows.userAt(0)).isEqualTo(ExpenseColumns.NONE);
+    }
+
+    @Test
+    void testRejectsAmountsFinerThanCents() {
+        assertThatThrownBy(() -> ExpenseColumns.builder().add(JUNE_1, new BigDecimal("0.001"), null, null, null))
+                .isInstanceOf(ArithmeticException.class);
+    }
+}
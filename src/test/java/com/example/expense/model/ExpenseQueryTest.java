@@ -0,0 +1,42 @@
+package com.example.expense.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class ExpenseQueryTest {
+
+    @Test
+    void testBlankSearchMatchesEverything() {
+        assertThat(ExpenseQuery.all().withSearch("   ").search()).isNull();
+        assertThat(ExpenseQuery.all().withSearch(" pizza ").search()).isEqualTo("pizza");
+    }
+
+    @Test
+    void testSearchWithoutWordsMatchesEverything() {
+        assertThat(ExpenseQuery.all().withSearch(" % - ").search()).isNull();
+        assertThat(ExpenseQuery.all().withSearch("100%").searchWords()).containsExactly("100");
+    }
+
+    @Test
+    void testWordsSplitOnNonAlphanumericsAndIgnoreCase() {
+        assertThat(ExpenseQuery.words("Café & CAFÉ, 2x-lunch")).containsExactly("café", "2x", "lunch");
+        assertThat(ExpenseQuery.words(null)).isEmpty();
+    }
+
+    @Test
+    void testSortColumnDefaultsToId() {
+        assertThat(new ExpenseQuery(null, null, null, false).sortColumn()).isEqualTo(ExpenseQuery.SortColumn.ID);
+    }
+
+    @Test
+    void testWithersKeepOtherSettings() {
+        User user = new User(1L, "bob", "pass", Role.USER);
+
+        ExpenseQuery query = ExpenseQuery.forUser(user).withSearch("bus")
+                .sortedBy(ExpenseQuery.SortColumn.AMOUNT, true);
+
+        assertThat(query).isEqualTo(new ExpenseQuery(user, "bus", ExpenseQuery.SortColumn.AMOUNT, true));
+        assertThat(ExpenseQuery.forUser(user).sortColumn()).isEqualTo(ExpenseQuery.SortColumn.DATE);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.expense.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import org.junit.jupiter.api.Test;
+
+class ExpenseRowTest {
+
+    @Test
+    void testOfCopiesDisplayedColumns() {
+        Expense expense = new Expense(new BigDecimal("12.50"), LocalDate.of(2023, 6, 15), "Lunch",
+                new User(), new Category("Food"));
+        expense.setId(7L);
+
+        ExpenseRow row = ExpenseRow.of(expense);
+
+        assertThat(row).isEqualTo(new ExpenseRow(7L, LocalDate.of(2023, 6, 15), "Food", "Lunch",
+                new BigDecimal("12.50")));
+    }
+
+    @Test
+    void testOfWithoutCategory() {
+        Expense expense = new Expense(BigDecimal.ONE, LocalDate.now(), "Taxi", new User(), null);
+
+        assertThat(ExpenseRow.of(expense).category()).isNull();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.expense.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+
+class MoneyAccumulatorTest {
+
+    @Test
+    void testSumsExactly() {
+        MoneyAccumulator total = new MoneyAccumulator();
+        for (int i = 0; i < 10; i++) {
+            total.add(new BigDecimal("0.10"));
+        }
+
+        assertThat(total.total()).isEqualTo(Money.ofMinorUnits(100));
+        assertThat(total.count()).isEqualTo(10);
+    }
+
+    @Test
+    void testEmptyTotalIsZero() {
+        assertThat(new MoneyAccumulator().total()).isSameAs(Money.ZERO);
+    }
+
+    @Test
+    void testMixesMinorUnitsAndMoney() {
+        MoneyAccumulator total = new MoneyAccumulator()
+                .add(250)
+                .add(Money.of(new BigDecimal("1.25")))
+                .add(new BigDecimal("-0.50"));
+
+        assertThat(total.total().toBigDecimal()).isEqualByComparingTo("3.25");
+    }
+
+    @Test
+    void testSwitchesToBigDecimalOnOverflow() {
+        MoneyAccumulator total = new MoneyAccumulator().add(Long.MAX_VALUE).add(Long.MAX_VALUE).add(-Long.MAX_VALUE);
+
+        assertThat(total.total()).isEqualTo(Money.ofMinorUnits(Long.MAX_VALUE));
+        assertThat(total.count()).isEqualTo(3);
+    }
+
+    @Test
+    void testKeepsFractionsOfCents() {
+        MoneyAccumulator total = new MoneyAccumulator()
+                .add(new BigDecimal("1.00"))
+                .add(new BigDecimal("0.005"))
+                .add(new BigDecimal("0.005"));
+
+        assertThat(total.total()).isEqualTo(Money.ofMinorUnits(101));
+        assertThat(total.count()).isEqualTo(3);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.expense.model;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+
+class MoneyTest {
+
+    @Test
+    void testHoldsCentAmountsAsMinorUnits() {
+        Money money = Money.of(new BigDecimal("12.5"));
+
+        assertThat(money.hasMinorUnits()).isTrue();
+        assertThat(money.minorUnits()).isEqualTo(1250L);
+        assertThat(money.toBigDecimal()).isEqualTo(new BigDecimal("12.50"));
+        assertThat(money).hasToString("12.50");
+    }
+
+    @Test
+    void testKeepsFinerAmountsExact() {
+        Money money = Money.of(new BigDecimal("0.001"));
+
+        assertThat(money.hasMinorUnits()).isFalse();
+        assertThat(money.toBigDecimal()).isEqualByComparingTo("0.001");
+        assertThatThrownBy(money::minorUnits).isInstanceOf(ArithmeticException.class);
+        assertThat(money.plus(Money.of(new BigDecimal("0.009")))).isEqualTo(Money.ofMinorUnits(1));
+    }
+
+    @Test
+    void testPlusAndMinus() {
+        Money a = Money.of(new BigDecimal("10.10"));
+        Money b = Money.of(new BigDecimal("0.20"));
+
+        assertThat(a.plus(b)).isEqualTo(Money.ofMinorUnits(1030));
+        assertThat(b.minus(a)).isEqualTo(Money.ofMinorUnits(-990));
+        assertThat(a.minus(a)).isSameAs(Money.ZERO);
+    }
+
+    @Test
+    void testOverflowFallsBackToBigDecimal() {
+        Money max = Money.ofMinorUnits(Long.MAX_VALUE);
+        Money sum = max.plus(Money.ofMinorUnits(1));
+
+        assertThat(sum.hasMinorUnits()).isFalse();
+        assertThat(sum.toBigDecimal())
+                .isEqualByComparingTo(BigDecimal.valueOf(Long.MAX_VALUE, 2).add(new BigDecimal("0.01")));
+        assertThat(sum.minus(Money.ofMinorUnits(1))).isEqualTo(max);
+        assertThat(Money.ofMinorUnits(Long.MIN_VALUE).minus(Money.ofMinorUnits(1)).signum()).isNegative();
+    }
+
+    @Test
+    void testCompareToAndEquals() {
+        Money small = Money.of(new BigDecimal("1.00"));
+        Money large = Money.of(new BigDecimal("1e30"));
+
+        assertThat(small.compareTo(large)).isNegative();
+        assertThat(large.compareTo(small)).isPositive();
+        assertThat(small).isEqualTo(Money.of(BigDecimal.ONE)).hasSameHashCodeAs(Money.of(BigDecimal.ONE));
+        assertThat(large).isEqualTo(Money.of(new BigDecimal("1000000000000000000000000000000.00")))
+                .hasSameHashCodeAs(Money.of(new BigDecimal("1000000000000000000000000000000.00")));
+    }
+}
@@ -25,16 +25,21 @@ public abstract class AbstractRepositoryIT {
 
     protected static EntityManagerFactory emf;
     protected EntityManager entityManager;
+    protected UnitOfWork unitOfWork;
+    protected final SqlStatementCounter sqlCounter = SqlStatementCounter.INSTANCE;
 
     @BeforeAll
     static void setUpAll() {
-        Map<String, String> properties = new HashMap<>();
+        Map<String, Object> properties = new HashMap<>();
         properties.put("jakarta.persistence.jdbc.url", mysql.getJdbcUrl());
         properties.put("jakarta.persistence.jdbc.user", mysql.getUsername());
         properties.put("jakarta.persistence.jdbc.password", mysql.getPassword());
         properties.put("jakarta.persistence.jdbc.driver", mysql.getDriverClassName());
         properties.put("hibernate.hbm2ddl.auto", "create-drop");
         properties.put("hibernate.dialect", "org.hibernate.dialect.MySQLDialect");
+        properties.put("hibernate.session_factory.statement_inspector", SqlStatementCounter.INSTANCE);
+        // Off by default; UnitOfWork.getCacheStats() reads them
+        properties.put("hibernate.generate_statistics", "true");
 
         emf = Persistence.createEntityManagerFactory("expense-tracker-unit", properties);
     }
@@ -49,6 +54,7 @@ public abstract class AbstractRepositoryIT {
     @BeforeEach
     void setUp() {
         entityManager = emf.createEntityManager();
+        unitOfWork = new UnitOfWork(emf);
     }
 
     @AfterEach
@@ -15,7 +15,7 @@ class CategoryRepositoryIT extends AbstractRepositoryIT {
     @Override
     void setUp() {
         super.setUp();
-        categoryRepository = new CategoryRepository(entityManager);
+        categoryRepository = new CategoryRepository(unitOfWork);
     }
 
     @Test
@@ -0,0 +1,128 @@
+package com.example.expense.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.expense.model.Category;
+import com.example.expense.model.Expense;
+import com.example.expense.model.Role;
+import com.example.expense.model.User;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Guards the report queries against losing the (user_id, date) index: each
+ * test runs EXPLAIN on the SQL shape the repository issues and checks the
+ * key MySQL picks.
+ */
+class ExpenseIndexIT extends AbstractRepositoryIT {
+
+    private static final String USER_DATE_INDEX = "idx_expenses_user_date";
+    private static final LocalDate YEAR_START = LocalDate.of(2023, 1, 1);
+
+    private ExpenseRepository expenseRepository;
+    private User user;
+
+    @BeforeEach
+    @Override
+    void setUp() {
+        super.setUp();
+        expenseRepository = new ExpenseRepository(unitOfWork);
+        UserRepository userRepository = new UserRepository(unitOfWork);
+        CategoryRepository categoryRepository = new CategoryRepository(unitOfWork);
+
+        Category category = categoryRepository.findByName("Food")
+                .orElseGet(() -> categoryRepository.save(new Category("Food")));
+        List<Expense> expenses = new ArrayList<>();
+        for (int u = 0; u < 5; u++) {
+            User owner = userRepository.save(new User(null, "indexed" + System.nanoTime(), "pass", Role.USER));
+            for (int i = 0; i < 200; i++) {
+                expenses.add(new Expense(new BigDecimal("1.00"), YEAR_START.plusDays(i % 365), "Row " + i, owner,
+                        category));
+            }
+            user = owner;
+        }
+        expenseRepository.saveAll(expenses);
+        execute("ANALYZE TABLE expenses");
+    }
+
+    @Test
+    void dailyReportShouldUseUserDateIndex() {
+        assertThat(explainRange(YEAR_START, YEAR_START)).isEqualTo(USER_DATE_INDEX);
+    }
+
+    @Test
+    void weeklyReportShouldUseUserDateIndex() {
+        assertThat(explainRange(YEAR_START, YEAR_START.plusDays(6))).isEqualTo(USER_DATE_INDEX);
+    }
+
+    @Test
+    void monthlyReportShouldUseUserDateIndex() {
+        assertThat(explainRange(YEAR_START, YEAR_START.plusMonths(1).minusDays(1))).isEqualTo(USER_DATE_INDEX);
+    }
+
+    @Test
+    void yearlyReportShouldUseUserDateIndex() {
+        assertThat(explainRange(YEAR_START, YEAR_START.plusYears(1).minusDays(1))).isEqualTo(USER_DATE_INDEX);
+    }
+
+    @Test
+    void userHistoryShouldUseUserDateIndex() {
+        String key = explain("SELECT * FROM expenses WHERE user_id = ? ORDER BY date, id", user.getId());
+        assertThat(key).isEqualTo(USER_DATE_INDEX);
+    }
+
+    @Test
+    void migrateShouldBeIdempotentAndMoveSequencePastExistingIds() {
+        execute("UPDATE expenses_seq SET next_val = 1");
+
+        SchemaMigrator migrator = new SchemaMigrator(emf);
+        migrator.migrate();
+        migrator.migrate();
+
+        Expense expense = expenseRepository.save(new Expense(new BigDecimal("5.00"), YEAR_START, "After migrate",
+                user, null));
+        assertThat(expense.getId()).isNotNull();
+    }
+
+    private String explainRange(LocalDate start, LocalDate end) {
+        return explain("SELECT * FROM expenses WHERE user_id = ? AND date BETWEEN ? AND ?",
+                user.getId(), Date.valueOf(start), Date.valueOf(end));
+    }
+
+    private String explain(String sql, Object... parameters) {
+        List<String> keys = new ArrayList<>();
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 0; i < parameters.length; i++) {
+                    statement.setObject(i + 1, parameters[i]);
+                }
+                try (ResultSet rs = statement.executeQuery()) {
+                    while (rs.next()) {
+                        keys.add(rs.getString("key"));
+                    }
+                }
+            }
+        });
+        assertThat(keys).hasSize(1);
+        return keys.get(0);
+    }
+
+    private void execute(String sql) {
+        entityManager.getTransaction().begin();
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(sql);
+            }
+        });
+        entityManager.getTransaction().commit();
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.expense.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.expense.model.Category;
+import com.example.expense.model.Expense;
+import com.example.expense.model.Role;
+import com.example.expense.model.User;
+import com.example.expense.service.ExpenseService;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Pins the number of SQL statements per service call. The fixture spreads
+ * expenses over several categories, so any per-row select of a user or
+ * category shows up as a count above one.
+ */
+class ExpenseQueryCountIT extends AbstractRepositoryIT {
+
+    private static final LocalDate START = LocalDate.of(2023, 1, 1);
+
+    private ExpenseRepository expenseRepository;
+    private ExpenseService expenseService;
+    private User user;
+
+    @BeforeEach
+    @Override
+    void setUp() {
+        super.setUp();
+        expenseRepository = new ExpenseRepository(unitOfWork);
+        expenseService = new ExpenseService(expenseRepository);
+        UserRepository userRepository = new UserRepository(unitOfWork);
+        CategoryRepository categoryRepository = new CategoryRepository(unitOfWork);
+
+        user = userRepository.save(new User(null, "counted" + System.nanoTime(), "pass", Role.USER));
+        List<Category> categories = new ArrayList<>();
+        for (String name : List.of("Food", "Transport", "Housing", "Health")) {
+            categories.add(categoryRepository.findByName(name)
+                    .orElseGet(() -> categoryRepository.save(new Category(name))));
+        }
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            expenses.add(new Expense(new BigDecimal("1.00"), START.plusDays(i), "Row " + i, user,
+                    categories.get(i % categories.size())));
+        }
+        expenseRepository.saveAll(expenses);
+    }
+
+    @Test
+    void getExpensesByUserShouldLoadAssociationsInOneStatement() {
+        List<Expense> expenses = new ArrayList<>();
+
+        int statements = sqlCounter.countDuring(() -> expenses.addAll(expenseService.getExpensesByUser(user)));
+
+        assertThat(statements).isEqualTo(1);
+        assertThat(expenses).hasSize(20).allSatisfy(expense -> {
+            assertThat(Hibernate.isInitialized(expense.getCategory())).isTrue();
+            assertThat(Hibernate.isInitialized(expense.getUser())).isTrue();
+        });
+    }
+
+    @Test
+    void plainFinderShouldLeaveAssociationsLazy() {
+        List<Expense> expenses = new ArrayList<>();
+
+        int statements = sqlCounter.countDuring(() -> expenses.addAll(expenseRepository.findByUser(user)));
+
+        assertThat(statements).isEqualTo(1);
+        assertThat(expenses).noneMatch(expense -> Hibernate.isInitialized(expense.getCategory()));
+    }
+
+    @Test
+    void getAllExpensesShouldUseOneStatement() {
+        assertThat(sqlCounter.countDuring(expenseService::getAllExpenses)).isEqualTo(1);
+    }
+
+    @Test
+    void reportsAndRowsShouldUseOneStatement() {
+        assertThat(sqlCounter.countDuring(() -> expenseService.getExpenseRowsByUser(user))).isEqualTo(1);
+        assertThat(sqlCounter.countDuring(() -> expenseService.getMonthlyReport(user, START))).isEqualTo(1);
+        assertThat(sqlCounter.countDuring(expenseService::getAllExpenseRows)).isEqualTo(1);
+    }
+
+    @Test
+    void aggregatesShouldUseOneStatement() {
+        assertThat(sqlCounter.countDuring(() -> expenseService.getTotalByUser(user))).isEqualTo(1);
+        assertThat(sqlCounter.countDuring(() -> expenseService.getCategoryTotals(user))).isEqualTo(1);
+        assertThat(sqlCounter.countDuring(expenseService::getUserTotals)).isEqualTo(1);
+    }
+
+    @Test
+    void pagesAndStreamsShouldJoinTheCategory() {
+        assertThat(sqlCounter.countDuring(() -> expenseService.getExpensePage(user, null, 10).content().stream()
+                .map(expense -> expense.getCategory().getName())
+                .toList())).isEqualTo(1);
+
+        sqlCounter.reset();
+        try (Stream<Expense> stream = expenseService.streamExpensesByUser(user)) {
+            stream.forEach(expense -> expense.getCategory().getName());
+        }
+        assertThat(sqlCounter.count()).isEqualTo(1);
+    }
+
+    @Test
+    void findByIdWithDetailsShouldLoadTheCategory() {
+        Long id = expenseRepository.findByUser(user).get(0).getId();
+
+        sqlCounter.reset();
+        Expense expense = expenseRepository.findByIdWithDetails(id).orElseThrow();
+
+        assertThat(sqlCounter.count()).isEqualTo(1);
+        assertThat(Hibernate.isInitialized(expense.getCategory())).isTrue();
+    }
+}
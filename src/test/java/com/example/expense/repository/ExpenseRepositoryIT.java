@@ -3,12 +3,20 @@ package com.example.expense.repository;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import com.example.expense.model.Category;
+import com.example.expense.model.CategoryTotal;
 import com.example.expense.model.Expense;
+import com.example.expense.model.ExpenseColumns;
+import com.example.expense.model.ExpenseQuery;
+import com.example.expense.model.ExpenseRow;
+import com.example.expense.model.PeriodTotal;
 import com.example.expense.model.Role;
 import com.example.expense.model.User;
+import com.example.expense.service.ExpenseService;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -24,15 +32,16 @@ class ExpenseRepositoryIT extends AbstractRepositoryIT {
     @Override
     void setUp() {
         super.setUp();
-        expenseRepository = new ExpenseRepository(entityManager);
-        userRepository = new UserRepository(entityManager);
-        categoryRepository = new CategoryRepository(entityManager);
+        expenseRepository = new ExpenseRepository(unitOfWork);
+        userRepository = new UserRepository(unitOfWork);
+        categoryRepository = new CategoryRepository(unitOfWork);
 
-        user = new User(null, "testuser", "password", Role.USER);
+        // Usernames and category names are unique; give each test its own user
+        user = new User(null, "testuser" + System.nanoTime(), "password", Role.USER);
         userRepository.save(user);
 
-        category = new Category("Food");
-        categoryRepository.save(category);
+        category = categoryRepository.findByName("Food")
+                .orElseGet(() -> categoryRepository.save(new Category("Food")));
     }
 
     @Test
@@ -60,4 +69,349 @@ class ExpenseRepositoryIT extends AbstractRepositoryIT {
         assertThat(found).hasSize(1);
         assertThat(found.get(0).getDescription()).isEqualTo("Today");
     }
+
+    @Test
+    void saveAll_shouldPersistEveryEntityAcrossBatches() {
+        expenseRepository.setBatchSize(10);
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            expenses.add(new Expense(new BigDecimal("1.00"), LocalDate.now(), "Bulk " + i, user, category));
+        }
+
+        List<Expense> saved = expenseRepository.saveAll(expenses);
+
+        assertThat(saved).hasSize(25).allMatch(e -> e.getId() != null);
+        assertThat(expenseRepository.findByUser(user)).hasSize(25);
+    }
+
+    @Test
+    void updateAll_shouldMergeEveryEntity() {
+        List<Expense> saved = expenseRepository.saveAll(List.of(
+                new Expense(new BigDecimal("1.00"), LocalDate.now(), "A", user, category),
+                new Expense(new BigDecimal("2.00"), LocalDate.now(), "B", user, category)));
+        saved.forEach(e -> e.setDescription(e.getDescription() + " updated"));
+
+        expenseRepository.updateAll(saved);
+
+        assertThat(expenseRepository.findByUser(user))
+                .extracting(Expense::getDescription)
+                .containsExactlyInAnyOrder("A updated", "B updated");
+    }
+
+    @Test
+    void deleteAll_shouldRemoveDetachedEntities() {
+        List<Expense> saved = expenseRepository.saveAll(List.of(
+                new Expense(new BigDecimal("1.00"), LocalDate.now(), "A", user, category),
+                new Expense(new BigDecimal("2.00"), LocalDate.now(), "B", user, category)));
+
+        expenseRepository.deleteAll(saved);
+
+        assertThat(expenseRepository.findByUser(user)).isEmpty();
+    }
+
+    @Test
+    void findPageByUser_shouldWalkAllRowsInDateOrder() {
+        LocalDate start = LocalDate.of(2023, 1, 1);
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            // Two rows per day exercise the id tie-breaker of the keyset
+            expenses.add(new Expense(new BigDecimal("1.00"), start.plusDays(i / 2), "Row " + i, user, category));
+        }
+        expenseRepository.saveAll(expenses);
+
+        List<String> visited = new ArrayList<>();
+        ExpenseKey after = null;
+        Page<Expense> page;
+        do {
+            page = expenseRepository.findPageByUser(user, after, 3);
+            page.content().forEach(e -> visited.add(e.getDescription()));
+            after = page.last().map(ExpenseKey::of).orElse(null);
+        } while (page.hasNext());
+
+        assertThat(visited).containsExactly("Row 0", "Row 1", "Row 2", "Row 3", "Row 4", "Row 5", "Row 6");
+    }
+
+    @Test
+    void findPageByUserAndDateBetween_shouldOnlyReturnRowsInRange() {
+        LocalDate today = LocalDate.now();
+        expenseRepository.saveAll(List.of(
+                new Expense(new BigDecimal("1.00"), today.minusDays(10), "Old", user, category),
+                new Expense(new BigDecimal("2.00"), today, "Today", user, category)));
+
+        Page<Expense> page = expenseRepository.findPageByUserAndDateBetween(user, today.minusDays(1), today,
+                null, 10);
+
+        assertThat(page.hasNext()).isFalse();
+        assertThat(page.content()).extracting(Expense::getDescription).containsExactly("Today");
+    }
+
+    @Test
+    void streamByUser_shouldReturnDetachedRowsInDateOrder() {
+        LocalDate today = LocalDate.now();
+        expenseRepository.saveAll(List.of(
+                new Expense(new BigDecimal("2.00"), today, "Second", user, category),
+                new Expense(new BigDecimal("1.00"), today.minusDays(1), "First", user, category)));
+
+        unitOfWork.call(entityManager -> {
+            try (Stream<Expense> stream = expenseRepository.streamByUser(user)) {
+                List<Expense> streamed = stream.toList();
+                assertThat(streamed).extracting(Expense::getDescription).containsExactly("First", "Second");
+                assertThat(streamed).noneMatch(entityManager::contains);
+            }
+            return null;
+        });
+    }
+
+    @Test
+    void streamByUserAndDateBetween_shouldOnlyReturnRowsInRange() {
+        LocalDate today = LocalDate.now();
+        expenseRepository.saveAll(List.of(
+                new Expense(new BigDecimal("1.00"), today.minusDays(10), "Old", user, category),
+                new Expense(new BigDecimal("2.00"), today, "Today", user, category)));
+
+        try (Stream<Expense> stream = expenseRepository.streamByUserAndDateBetween(user, today, today)) {
+            assertThat(stream).extracting(Expense::getDescription).containsExactly("Today");
+        }
+    }
+
+    @Test
+    void findPageAndStreamAll_shouldCoverWholeTable() {
+        expenseRepository.saveAll(List.of(
+                new Expense(new BigDecimal("1.00"), LocalDate.now(), "A", user, category),
+                new Expense(new BigDecimal("2.00"), LocalDate.now(), "B", user, category)));
+        long total = expenseRepository.findAll().size();
+
+        Page<Expense> first = expenseRepository.findPage(null, 1);
+        assertThat(first.content()).hasSize(1);
+        assertThat(first.hasNext()).isTrue();
+        Page<Expense> rest = expenseRepository.findPage(first.last().get().getId(), (int) total);
+        assertThat(rest.content()).hasSize((int) total - 1);
+        assertThat(rest.hasNext()).isFalse();
+
+        try (Stream<Expense> stream = expenseRepository.streamAll()) {
+            assertThat(stream.count()).isEqualTo(total);
+        }
+    }
+
+    @Test
+    void sumByUser_shouldAddAmountsInTheDatabase() {
+        LocalDate today = LocalDate.now();
+        expenseRepository.saveAll(List.of(
+                new Expense(new BigDecimal("1.25"), today.minusDays(10), "Old", user, category),
+                new Expense(new BigDecimal("2.50"), today, "Today", user, null)));
+
+        assertThat(expenseRepository.sumByUser(user)).isEqualByComparingTo("3.75");
+        assertThat(expenseRepository.sumByUserAndDateBetween(user, today.minusDays(1), today))
+                .isEqualByComparingTo("2.50");
+    }
+
+    @Test
+    void sumByUser_shouldReturnZero_whenUserHasNoExpenses() {
+        assertThat(expenseRepository.sumByUser(user)).isEqualByComparingTo(BigDecimal.ZERO);
+    }
+
+    @Test
+    void totalsByCategory_shouldGroupAndSkipUncategorized() {
+        Category transport = categoryRepository.findByName("Transport")
+                .orElseGet(() -> categoryRepository.save(new Category("Transport")));
+        expenseRepository.saveAll(List.of(
+                new Expense(new BigDecimal("1.00"), LocalDate.now(), "A", user, category),
+                new Expense(new BigDecimal("2.00"), LocalDate.now(), "B", user, category),
+                new Expense(new BigDecimal("9.00"), LocalDate.now(), "C", user, transport),
+                new Expense(new BigDecimal("5.00"), LocalDate.now(), "D", user, null)));
+
+        List<CategoryTotal> totals = expenseRepository.totalsByCategory(user);
+
+        assertThat(totals).extracting(CategoryTotal::category).containsExactly("Transport", "Food");
+        assertThat(totals.get(1).total()).isEqualByComparingTo("3.00");
+        assertThat(totals.get(1).count()).isEqualTo(2);
+        assertThat(expenseRepository.totalsByCategory()).extracting(CategoryTotal::category)
+                .contains("Transport", "Food");
+    }
+
+    @Test
+    void totalsByUser_shouldIncludeEveryUserWithExpenses() {
+        expenseRepository.saveAll(List.of(
+                new Expense(new BigDecimal("1.00"), LocalDate.now(), "A", user, category),
+                new Expense(new BigDecimal("2.00"), LocalDate.now(), "B", user, null)));
+
+        assertThat(expenseRepository.totalsByUser())
+                .filteredOn(total -> total.username().equals(user.getUsername()))
+                .singleElement()
+                .satisfies(total -> {
+                    assertThat(total.total()).isEqualByComparingTo("3.00");
+                    assertThat(total.count()).isEqualTo(2);
+                });
+    }
+
+    @Test
+    void totalsByDay_shouldReturnOneRowPerDayInOrder() {
+        LocalDate start = LocalDate.of(2023, 3, 1);
+        expenseRepository.saveAll(List.of(
+                new Expense(new BigDecimal("1.00"), start.plusDays(2), "A", user, category),
+                new Expense(new BigDecimal("2.00"), start, "B", user, category),
+                new Expense(new BigDecimal("3.00"), start, "C", user, category),
+                new Expense(new BigDecimal("4.00"), start.plusDays(40), "Outside", user, category)));
+
+        List<PeriodTotal> days = expenseRepository.totalsByDay(user, start, start.plusDays(30));
+
+        assertThat(days).extracting(PeriodTotal::periodStart).containsExactly(start, start.plusDays(2));
+        assertThat(days.get(0).total()).isEqualByComparingTo("5.00");
+        assertThat(days.get(0).count()).isEqualTo(2);
+    }
+
+    @Test
+    void findRowsByUser_shouldProjectCategoryNameInDateOrder() {
+        LocalDate today = LocalDate.now();
+        expenseRepository.saveAll(List.of(
+                new Expense(new BigDecimal("2.00"), today, "Second", user, null),
+                new Expense(new BigDecimal("1.00"), today.minusDays(1), "First", user, category)));
+
+        List<ExpenseRow> rows = expenseRepository.findRowsByUser(user);
+
+        assertThat(rows).extracting(ExpenseRow::description).containsExactly("First", "Second");
+        assertThat(rows).extracting(ExpenseRow::category).containsExactly("Food", null);
+        assertThat(rows).allMatch(row -> row.id() != null);
+    }
+
+    @Test
+    void findRowsByUserAndDateBetween_shouldOnlyReturnRowsInRange() {
+        LocalDate today = LocalDate.now();
+        expenseRepository.saveAll(List.of(
+                new Expense(new BigDecimal("1.00"), today.minusDays(10), "Old", user, category),
+                new Expense(new BigDecimal("2.00"), today, "Today", user, category)));
+
+        assertThat(expenseRepository.findRowsByUserAndDateBetween(user, today.minusDays(1), today))
+                .extracting(ExpenseRow::description)
+                .containsExactly("Today");
+        assertThat(expenseRepository.findAllRows()).extracting(ExpenseRow::description)
+                .contains("Old", "Today");
+    }
+
+    @Test
+    void findRows_shouldReturnNonOverlappingWindowsInQueryOrder() {
+        LocalDate today = LocalDate.now();
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            expenses.add(new Expense(new BigDecimal(i % 5 + ".00"), today, "Row " + i, user, category));
+        }
+        expenseRepository.saveAll(expenses);
+        ExpenseQuery query = ExpenseQuery.forUser(user).sortedBy(ExpenseQuery.SortColumn.AMOUNT, true);
+
+        List<ExpenseRow> rows = new ArrayList<>();
+        for (int offset = 0; offset < 25; offset += 10) {
+            rows.addAll(expenseRepository.findRows(query, offset, 10));
+        }
+
+        assertThat(expenseRepository.countRows(query)).isEqualTo(25);
+        assertThat(rows).extracting(ExpenseRow::id).doesNotHaveDuplicates().hasSize(25);
+        assertThat(rows).extracting(ExpenseRow::amount).isSortedAccordingTo((a, b) -> b.compareTo(a));
+    }
+
+    @Test
+    void findRows_shouldSearchDescriptionAndCategoryIgnoringCase() {
+        LocalDate today = LocalDate.now();
+        expenseRepository.saveAll(List.of(
+                new Expense(new BigDecimal("1.00"), today, "Pizza night", user, null),
+                new Expense(new BigDecimal("2.00"), today, "Groceries", user, category),
+                new Expense(new BigDecimal("3.00"), today, "100% refund", user, null),
+                new Expense(new BigDecimal("4.00"), today, "Bus", user, null)));
+
+        assertThat(expenseRepository.findRows(ExpenseQuery.forUser(user).withSearch("PIZZA"), 0, 10))
+                .extracting(ExpenseRow::description).containsExactly("Pizza night");
+        assertThat(expenseRepository.findRows(ExpenseQuery.forUser(user).withSearch("food"), 0, 10))
+                .extracting(ExpenseRow::description).containsExactly("Groceries");
+        assertThat(expenseRepository.countRows(ExpenseQuery.forUser(user).withSearch("100% ref"))).isEqualTo(1);
+        assertThat(expenseRepository.countRows(ExpenseQuery.forUser(user).withSearch("ight piz"))).isEqualTo(1);
+        assertThat(expenseRepository.countRows(ExpenseQuery.forUser(user))).isEqualTo(4);
+    }
+
+    @Test
+    void findRows_shouldMatchTheSameRowsAsTheServicesSearchIndex() {
+        LocalDate today = LocalDate.now();
+        expenseRepository.saveAll(List.of(
+                new Expense(new BigDecimal("1.00"), today, "Pizza night", user, null),
+                new Expense(new BigDecimal("2.00"), today, "Groceries", user, category),
+                new Expense(new BigDecimal("3.00"), today, "100% refund", user, null),
+                new Expense(new BigDecimal("4.00"), today, "Airport taxi_ride", user, category),
+                new Expense(new BigDecimal("5.00"), today, "Night bus", user, null)));
+        ExpenseService service = new ExpenseService(expenseRepository);
+
+        for (String search : List.of("pizza", "IGHT", "night piz", "food", "oo", "100%", "%", "_ride", "rport tax",
+                "bus groceries", "x")) {
+            ExpenseQuery query = ExpenseQuery.forUser(user).withSearch(search);
+            assertThat(service.getExpenseRows(query, 0, 10)).as(search)
+                    .isEqualTo(expenseRepository.findRows(query, 0, 10));
+            assertThat(service.countExpenseRows(query)).as(search).isEqualTo(expenseRepository.countRows(query));
+        }
+    }
+
+    @Test
+    void countRowsBefore_shouldGiveEachRowsIndexInQueryOrder() {
+        LocalDate today = LocalDate.now();
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            expenses.add(new Expense(new BigDecimal(i % 3 + 1 + ".00"), today.minusDays(i % 4), "Row " + i % 5,
+                    user, i % 2 == 0 ? category : null));
+        }
+        expenseRepository.saveAll(expenses);
+
+        for (ExpenseQuery.SortColumn column : ExpenseQuery.SortColumn.values()) {
+            for (boolean descending : new boolean[] {false, true}) {
+                ExpenseQuery query = ExpenseQuery.forUser(user).sortedBy(column, descending);
+                List<ExpenseRow> rows = expenseRepository.findRows(query, 0, 20);
+                for (int i = 0; i < rows.size(); i++) {
+                    assertThat(expenseRepository.countRowsBefore(query, rows.get(i)))
+                            .as("%s %s row %d", column, descending ? "desc" : "asc", i).isEqualTo(i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void streamRows_shouldReturnRowsInRangeInKeysetOrder() {
+        LocalDate today = LocalDate.now();
+        expenseRepository.saveAll(List.of(
+                new Expense(new BigDecimal("1.00"), today.minusDays(10), "Old", user, category),
+                new Expense(new BigDecimal("2.00"), today, "Second", user, null),
+                new Expense(new BigDecimal("3.00"), today.minusDays(1), "First", user, category)));
+
+        try (Stream<ExpenseRow> rows = expenseRepository.streamRows(user, today.minusDays(1), today)) {
+            assertThat(rows).extracting(ExpenseRow::description).containsExactly("First", "Second");
+        }
+        assertThat(expenseRepository.countRows(user, today.minusDays(1), today)).isEqualTo(2);
+        assertThat(expenseRepository.countRows(user, null, today.minusDays(1))).isEqualTo(2);
+        assertThat(expenseRepository.countRows(null, null, null)).isGreaterThanOrEqualTo(3);
+    }
+
+    @Test
+    void findColumns_shouldProjectUserOrEveryoneIntoColumns() {
+        LocalDate today = LocalDate.now();
+        expenseRepository.saveAll(List.of(
+                new Expense(new BigDecimal("1.50"), today, "Lunch", user, category),
+                new Expense(new BigDecimal("2.25"), today, "Bus", user, null)));
+
+        ExpenseColumns columns = expenseRepository.findColumns(user);
+
+        assertThat(columns.size()).isEqualTo(2);
+        assertThat(columns.sum(ExpenseColumns.Filter.ALL)).isEqualTo(375L);
+        assertThat(columns.categoryTotals(ExpenseColumns.Filter.ALL))
+                .containsExactly(new CategoryTotal("Food", new BigDecimal("1.50"), 1));
+        assertThat(columns.username(columns.userAt(0))).isEqualTo(user.getUsername());
+        assertThat(expenseRepository.findColumns(null).size()).isGreaterThanOrEqualTo(2);
+    }
+
+    @Test
+    void findColumns_shouldOnlyLoadTheExpensesOfTheRange() {
+        LocalDate today = LocalDate.now();
+        expenseRepository.saveAll(List.of(
+                new Expense(new BigDecimal("1.50"), today, "Lunch", user, category),
+                new Expense(new BigDecimal("2.25"), today.minusYears(1), "Bus", user, null)));
+
+        ExpenseColumns columns = expenseRepository.findColumns(user, today.minusDays(7), today);
+
+        assertThat(columns.size()).isEqualTo(1);
+        assertThat(columns.sum(ExpenseColumns.Filter.ALL)).isEqualTo(150L);
+        assertThat(expenseRepository.findColumns(user, null, today.minusDays(7)).size()).isEqualTo(1);
+    }
 }
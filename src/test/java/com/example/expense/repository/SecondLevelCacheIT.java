@@ -0,0 +1,112 @@
+package com.example.expense.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.expense.model.Category;
+import com.example.expense.model.Role;
+import com.example.expense.model.User;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SecondLevelCacheIT extends AbstractRepositoryIT {
+
+    private CategoryRepository categoryRepository;
+    private UserRepository userRepository;
+
+    @BeforeEach
+    @Override
+    void setUp() {
+        super.setUp();
+        categoryRepository = new CategoryRepository(unitOfWork);
+        userRepository = new UserRepository(unitOfWork);
+    }
+
+    @Test
+    void findByNameShouldBeServedFromQueryCache() {
+        String name = "Cached" + System.nanoTime();
+        categoryRepository.save(new Category(name));
+        categoryRepository.findByName(name);
+
+        assertThat(sqlCounter.countDuring(() -> categoryRepository.findByName(name))).isZero();
+        assertThat(unitOfWork.getCacheStats().queryHits()).isPositive();
+    }
+
+    @Test
+    void findAllCategoriesShouldBeRequeriedAfterSave() {
+        categoryRepository.findAll();
+        assertThat(sqlCounter.countDuring(categoryRepository::findAll)).isZero();
+
+        String name = "New" + System.nanoTime();
+        categoryRepository.save(new Category(name));
+
+        assertThat(sqlCounter.countDuring(categoryRepository::findAll)).isPositive();
+        assertThat(categoryRepository.findAll()).extracting(Category::getName).contains(name);
+    }
+
+    @Test
+    void deletedCategoryShouldDisappearFromCachedLookups() {
+        String name = "Doomed" + System.nanoTime();
+        Category category = categoryRepository.save(new Category(name));
+        categoryRepository.findByName(name);
+        categoryRepository.findById(category.getId());
+
+        categoryRepository.delete(category);
+
+        assertThat(categoryRepository.findByName(name)).isEmpty();
+        assertThat(categoryRepository.findById(category.getId())).isEmpty();
+    }
+
+    @Test
+    void categoryCreatedByAnotherProcessShouldBeFoundInDatabase() throws SQLException {
+        String name = "Elsewhere" + System.nanoTime();
+        categoryRepository.findByName(name);
+        executeInAnotherProcess("INSERT INTO categories (id, name, isSystem) VALUES (?, ?, false)",
+                System.nanoTime() % 1_000_000_000L + 1_000_000L, name);
+
+        assertThat(categoryRepository.findByName(name)).isEmpty();
+        assertThat(categoryRepository.findByNameInDatabase(name.toUpperCase())).isPresent();
+        assertThat(categoryRepository.findAllInDatabase()).extracting(Category::getName).contains(name);
+    }
+
+    @Test
+    void categoryDeletedByAnotherProcessShouldBeMissingFromDatabaseReads() throws SQLException {
+        Category category = categoryRepository.save(new Category("Gone" + System.nanoTime()));
+        assertThat(categoryRepository.findAllInDatabase()).extracting(Category::getId).contains(category.getId());
+
+        executeInAnotherProcess("DELETE FROM categories WHERE id = ?", category.getId());
+
+        assertThat(categoryRepository.findAllInDatabase()).extracting(Category::getId)
+                .doesNotContain(category.getId());
+        assertThat(categoryRepository.findByNameInDatabase(category.getName())).isEmpty();
+    }
+
+    @Test
+    void updatedUserShouldBeVisibleThroughCachedLookups() {
+        String username = "cached" + System.nanoTime();
+        User user = userRepository.save(new User(null, username, "pass", Role.USER));
+        userRepository.findById(user.getId());
+        assertThat(sqlCounter.countDuring(() -> userRepository.findById(user.getId()))).isZero();
+
+        user.setEnabled(false);
+        userRepository.update(user);
+
+        assertThat(userRepository.findByUsername(username).orElseThrow().isEnabled()).isFalse();
+        assertThat(userRepository.findById(user.getId()).orElseThrow().isEnabled()).isFalse();
+    }
+
+    // A plain JDBC connection, which this factory's caches never hear about
+    private static void executeInAnotherProcess(String sql, Object... parameters) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(
+                mysql.getJdbcUrl(), mysql.getUsername(), mysql.getPassword());
+             PreparedStatement statement = connection.prepareStatement(sql)) {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            statement.executeUpdate();
+        }
+    }
+}
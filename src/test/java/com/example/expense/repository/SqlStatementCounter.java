@@ -0,0 +1,40 @@
+package com.example.expense.repository;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares, so tests can pin the number
+ * of round trips a repository or service call makes and catch N+1 selects.
+ * Registered on the test EntityManagerFactory by {@link AbstractRepositoryIT}.
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    static final SqlStatementCounter INSTANCE = new SqlStatementCounter();
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public String inspect(String sql) {
+        count.incrementAndGet();
+        return sql;
+    }
+
+    public void reset() {
+        count.set(0);
+    }
+
+    public int count() {
+        return count.get();
+    }
+
+    /**
+     * Runs the call and returns how many statements it issued.
+     */
+    public int countDuring(Supplier<?> call) {
+        reset();
+        call.get();
+        return count();
+    }
+}
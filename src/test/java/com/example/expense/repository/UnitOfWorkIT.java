@@ -0,0 +1,79 @@
+package com.example.expense.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.expense.model.Role;
+import com.example.expense.model.User;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class UnitOfWorkIT extends AbstractRepositoryIT {
+
+    private UserRepository userRepository;
+
+    @BeforeEach
+    @Override
+    void setUp() {
+        super.setUp();
+        userRepository = new UserRepository(unitOfWork);
+    }
+
+    @Test
+    void nestedCallsShouldShareTheOuterEntityManager() {
+        unitOfWork.call(outer -> {
+            unitOfWork.call(inner -> {
+                assertThat(inner).isSameAs(outer);
+                return null;
+            });
+            return null;
+        });
+    }
+
+    @Test
+    void separateCallsShouldNotShareAPersistenceContext() {
+        User saved = userRepository.save(new User(null, "uow" + System.nanoTime(), "pass", Role.USER));
+
+        User first = userRepository.findById(saved.getId()).orElseThrow();
+        User second = userRepository.findById(saved.getId()).orElseThrow();
+
+        assertThat(first).isNotSameAs(second);
+    }
+
+    @Test
+    void inTransactionShouldRollBackEveryNestedSaveOnFailure() {
+        String username = "rollback" + System.nanoTime();
+
+        assertThatThrownBy(() -> unitOfWork.runInTransaction(entityManager -> {
+            userRepository.save(new User(null, username, "pass", Role.USER));
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(userRepository.findByUsername(username)).isEmpty();
+    }
+
+    @Test
+    void repositoriesShouldBeUsableFromSeveralThreads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<User>> futures = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                String username = "parallel" + i + "_" + System.nanoTime();
+                futures.add(executor.submit(() -> {
+                    userRepository.save(new User(null, username, "pass", Role.USER));
+                    return userRepository.findByUsername(username).orElseThrow();
+                }));
+            }
+            for (Future<User> future : futures) {
+                assertThat(future.get().getId()).isNotNull();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -16,7 +16,7 @@ class UserRepositoryIT extends AbstractRepositoryIT {
     @Override
     void setUp() {
         super.setUp();
-        userRepository = new UserRepository(entityManager);
+        userRepository = new UserRepository(unitOfWork);
     }
 
     @Test
@@ -0,0 +1,658 @@
+package com.example.expense.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.expense.model.Category;
+import com.example.expense.model.Expense;
+import com.example.expense.model.ExpenseQuery;
+import com.example.expense.model.ExpenseRow;
+import com.example.expense.model.ExpenseStatistics;
+import com.example.expense.model.Money;
+import com.example.expense.model.Role;
+import com.example.expense.model.User;
+import com.example.expense.repository.Page;
+import com.example.expense.service.BudgetService;
+import com.example.expense.service.BudgetStatus;
+import com.example.expense.service.CategoryService;
+import com.example.expense.service.ExpenseService;
+import com.example.expense.service.ReportPeriod;
+import com.example.expense.service.UserService;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.assertj.core.api.InstanceOfAssertFactories;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ApiServerTest {
+
+    @Mock
+    private UserService userService;
+    @Mock
+    private ExpenseService expenseService;
+    @Mock
+    private CategoryService categoryService;
+    @Mock
+    private BudgetService budgetService;
+
+    private final User ann = new User(1L, "ann", "x", Role.USER);
+    private final User admin = new User(2L, "root", "x", Role.ADMIN);
+    private final SessionStore sessions = new SessionStore();
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private ApiServer server;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(userService.authenticate("ann", "secret")).thenReturn(Optional.of(ann));
+        server = ApiServer.start(new ApiHandler(userService, expenseService, categoryService, budgetService, sessions),
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4);
+        baseUrl = "http://localhost:" + server.getAddress().getPort() + ApiHandler.PREFIX;
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void login_shouldReturnATokenForValidCredentials() throws Exception {
+        HttpResponse<String> response = send("POST", "/sessions", null, "{\"username\":\"ann\",\"password\":\"secret\"}");
+
+        assertThat(response.statusCode()).isEqualTo(201);
+        Map<String, Object> session = Json.parseObject(response.body());
+        assertThat(sessions.find((String) session.get("token"))).contains(ann);
+        assertThat(send("POST", "/sessions", null, "{\"username\":\"ann\",\"password\":\"wrong\"}").statusCode())
+                .isEqualTo(401);
+    }
+
+    @Test
+    void requests_shouldNeedALiveSession() throws Exception {
+        String token = sessions.create(ann);
+
+        assertThat(send("GET", "/me", null, null).statusCode()).isEqualTo(401);
+        assertThat(send("GET", "/me", token, null).statusCode()).isEqualTo(200);
+        assertThat(send("DELETE", "/sessions", token, null).statusCode()).isEqualTo(204);
+        assertThat(send("GET", "/me", token, null).statusCode()).isEqualTo(401);
+    }
+
+    @Test
+    void addExpense_shouldCreateItForTheCaller() throws Exception {
+        Category food = new Category("Food");
+        when(categoryService.getOrCreateCategory("Food")).thenReturn(food);
+        when(expenseService.addExpense(any())).thenAnswer(invocation -> {
+            Expense expense = invocation.getArgument(0);
+            expense.setId(42L);
+            return expense;
+        });
+
+        HttpResponse<String> response = send("POST", "/expenses", sessions.create(ann),
+                "{\"date\":\"2024-03-01\",\"amount\":\"12.50\",\"description\":\"Lunch\",\"category\":\"Food\"}");
+
+        assertThat(response.statusCode()).isEqualTo(201);
+        assertThat(Json.parseObject(response.body())).containsEntry("id", new BigDecimal("42"))
+                .containsEntry("amount", new BigDecimal("12.50")).containsEntry("category", "Food");
+        ArgumentCaptor<Expense> added = ArgumentCaptor.forClass(Expense.class);
+        verify(expenseService).addExpense(added.capture());
+        assertThat(added.getValue().getUser()).isSameAs(ann);
+        assertThat(added.getValue().getDate()).isEqualTo(LocalDate.of(2024, 3, 1));
+    }
+
+    @Test
+    void addExpense_shouldRejectInvalidBodies() throws Exception {
+        String token = sessions.create(ann);
+
+        assertThat(send("POST", "/expenses", token, "{\"date\":\"2024-03-01\"}").statusCode()).isEqualTo(400);
+        assertThat(send("POST", "/expenses", token, "{\"amount\":1,").statusCode()).isEqualTo(400);
+        verify(expenseService, never()).addExpense(any());
+    }
+
+    @Test
+    void expense_shouldAnswerNotFoundForOtherUsersExpenses() throws Exception {
+        Expense theirs = new Expense(BigDecimal.TEN, LocalDate.of(2024, 3, 1), "Taxi", admin, null);
+        theirs.setId(7L);
+        when(expenseService.findExpense(7L)).thenReturn(Optional.of(theirs));
+        String token = sessions.create(ann);
+
+        assertThat(send("GET", "/expenses/7", token, null).statusCode()).isEqualTo(404);
+        assertThat(send("DELETE", "/expenses/7", token, null).statusCode()).isEqualTo(404);
+        verify(expenseService, never()).deleteExpense(anyLong());
+    }
+
+    @Test
+    void deleteExpense_shouldKeepTheConnectionUsable() throws Exception {
+        AtomicLong ids = new AtomicLong();
+        when(expenseService.findExpense(anyLong())).thenAnswer(invocation -> {
+            Expense expense = new Expense(BigDecimal.ONE, LocalDate.of(2024, 3, 1), "", ann, null);
+            expense.setId(invocation.getArgument(0));
+            return Optional.of(expense);
+        });
+        when(expenseService.addExpense(any())).thenAnswer(invocation -> {
+            Expense expense = invocation.getArgument(0);
+            expense.setId(ids.incrementAndGet());
+            return expense;
+        });
+        String token = sessions.create(ann);
+
+        // A 204 sent before the request was read used to drop the kept-alive
+        // connection, failing whichever request went out on it next
+        for (int i = 1; i <= 50; i++) {
+            assertThat(send("DELETE", "/expenses/" + i, token, null).statusCode()).isEqualTo(204);
+            assertThat(send("POST", "/expenses", token, "{\"date\":\"2024-03-01\",\"amount\":1}").statusCode())
+                    .isEqualTo(201);
+        }
+    }
+
+    @Test
+    void listExpenses_shouldReturnOnePageWithTheTotal() throws Exception {
+        ExpenseRow row = new ExpenseRow(3L, LocalDate.of(2024, 3, 1), "Food", "Lunch", new BigDecimal("9.99"));
+        when(expenseService.getExpenseRows(any(ExpenseQuery.class), eq(20), eq(10))).thenReturn(List.of(row));
+        when(expenseService.countExpenseRows(any(ExpenseQuery.class))).thenReturn(21L);
+        String token = sessions.create(ann);
+
+        HttpResponse<String> response = send("GET", "/expenses?offset=20&limit=10&sort=amount&desc", token, null);
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        Map<String, Object> page = Json.parseObject(response.body());
+        assertThat(page).containsEntry("total", new BigDecimal("21"));
+        assertThat((List<?>) page.get("items")).hasSize(1);
+        assertThat(send("GET", "/expenses?limit=0", token, null).statusCode()).isEqualTo(400);
+        assertThat(send("GET", "/expenses?sort=colour", token, null).statusCode()).isEqualTo(400);
+    }
+
+    @Test
+    void export_shouldStreamTheFileAsADownload() throws Exception {
+        doAnswer(invocation -> {
+            OutputStream out = invocation.getArgument(3);
+            out.write("Date,Category\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(expenseService).exportToCsv(eq(ann), any(), any(), any(OutputStream.class), anyBoolean(), any());
+
+        HttpResponse<String> response = send("GET", "/exports?format=csv", sessions.create(ann), null);
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Disposition")).hasValueSatisfying(
+                value -> assertThat(value).startsWith("attachment"));
+        assertThat(response.body()).isEqualTo("Date,Category\n");
+    }
+
+    @Test
+    void users_shouldBeForAdministratorsOnly() throws Exception {
+        when(userService.getUserPage(any(), anyInt())).thenReturn(new Page<>(List.of(ann, admin), false));
+
+        assertThat(send("GET", "/users", sessions.create(ann), null).statusCode()).isEqualTo(403);
+        HttpResponse<String> response = send("GET", "/users", sessions.create(admin), null);
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat((List<?>) Json.parseObject(response.body()).get("items")).hasSize(2);
+    }
+
+    @Test
+    void register_shouldLetOnlyAdministratorsChooseTheRole() throws Exception {
+        when(userService.registerUser("eve", "pw", Role.USER)).thenReturn(new User(5L, "eve", "x", Role.USER));
+
+        assertThat(send("POST", "/users", null, "{\"username\":\"eve\",\"password\":\"pw\",\"role\":\"admin\"}")
+                .statusCode()).isEqualTo(403);
+        assertThat(send("POST", "/users", null, "{\"username\":\"eve\",\"password\":\"pw\"}").statusCode())
+                .isEqualTo(201);
+        verify(userService, never()).registerUser(any(), any(), eq(Role.ADMIN));
+    }
+
+    @Test
+    void disablingAUser_shouldEndTheirSessions() throws Exception {
+        String annToken = sessions.create(ann);
+
+        HttpResponse<String> response = send("PUT", "/users/1/status", sessions.create(admin), "{\"enabled\":false}");
+
+        assertThat(response.statusCode()).isEqualTo(204);
+        verify(userService).setUserStatus(1L, false);
+        assertThat(sessions.find(annToken)).isEmpty();
+    }
+
+    @Test
+    void unknownRoutes_shouldAnswerWithJsonErrors() throws Exception {
+        String token = sessions.create(ann);
+
+        HttpResponse<String> missing = send("GET", "/nothing", token, null);
+        assertThat(missing.statusCode()).isEqualTo(404);
+        assertThat(Json.parseObject(missing.body())).containsKey("error");
+        assertThat(send("PUT", "/me", token, "{}").statusCode()).isEqualTo(405);
+        assertThat(send("GET", "/reports/hourly", token, null).statusCode()).isEqualTo(404);
+    }
+
+    @Test
+    void login_shouldRefuseDisabledAccountsAndIncompleteCredentials() throws Exception {
+        User off = new User(9L, "off", "x", Role.USER);
+        off.setEnabled(false);
+        when(userService.authenticate("off", "pw")).thenReturn(Optional.of(off));
+
+        assertThat(send("POST", "/sessions", null, "{\"username\":\"off\",\"password\":\"pw\"}").statusCode())
+                .isEqualTo(403);
+        HttpResponse<String> incomplete = send("POST", "/sessions", null, "{\"username\":\"ann\"}");
+        assertThat(incomplete.statusCode()).isEqualTo(400);
+        assertThat(Json.parseObject(incomplete.body())).containsEntry("error", "password is required");
+        assertThat(send("PUT", "/sessions", null, "{}").statusCode()).isEqualTo(405);
+    }
+
+    @Test
+    void expense_shouldBeReadAndUpdatedByItsOwner() throws Exception {
+        Category food = new Category("Food");
+        Expense mine = new Expense(BigDecimal.TEN, LocalDate.of(2024, 3, 1), "Lunch", ann, food);
+        mine.setId(3L);
+        when(expenseService.findExpense(3L)).thenReturn(Optional.of(mine));
+        when(categoryService.getOrCreateCategory("Travel")).thenReturn(new Category("Travel"));
+        String token = sessions.create(ann);
+
+        HttpResponse<String> read = send("GET", "/expenses/3", token, null);
+        assertThat(read.statusCode()).isEqualTo(200);
+        assertThat(Json.parseObject(read.body())).containsEntry("description", "Lunch");
+
+        HttpResponse<String> updated = send("PUT", "/expenses/3", token,
+                "{\"amount\":\"20.00\",\"date\":\"2024-03-02\",\"description\":\"Train\",\"category\":\"Travel\"}");
+        assertThat(updated.statusCode()).isEqualTo(200);
+        assertThat(Json.parseObject(updated.body())).containsEntry("amount", new BigDecimal("20.00"))
+                .containsEntry("date", "2024-03-02").containsEntry("description", "Train")
+                .containsEntry("category", "Travel");
+        verify(expenseService).updateExpense(mine);
+
+        // Fields left out keep their values; a null category clears it
+        assertThat(send("PUT", "/expenses/3", token, "{\"category\":null}").statusCode()).isEqualTo(200);
+        assertThat(mine.getCategory()).isNull();
+        assertThat(mine.getAmount()).isEqualByComparingTo("20.00");
+    }
+
+    @Test
+    void expenses_shouldRejectBadPathsMethodsAndParameters() throws Exception {
+        Expense mine = new Expense(BigDecimal.TEN, LocalDate.of(2024, 3, 1), "Lunch", ann, null);
+        mine.setId(3L);
+        when(expenseService.findExpense(3L)).thenReturn(Optional.of(mine));
+        String token = sessions.create(ann);
+
+        assertThat(send("PUT", "/expenses", token, "{}").statusCode()).isEqualTo(405);
+        assertThat(send("PATCH", "/expenses/3", token, "{}").statusCode()).isEqualTo(405);
+        assertThat(send("GET", "/expenses/abc", token, null).statusCode()).isEqualTo(404);
+        assertThat(send("GET", "/expenses/3/receipt", token, null).statusCode()).isEqualTo(404);
+        assertThat(send("GET", "/expenses?offset=-1", token, null).statusCode()).isEqualTo(400);
+        assertThat(send("GET", "/expenses?offset=first", token, null).statusCode()).isEqualTo(400);
+        assertThat(send("GET", "/me/again", token, null).statusCode()).isEqualTo(404);
+    }
+
+    @Test
+    void listExpenses_shouldDefaultToTheFirstPageByDate() throws Exception {
+        when(expenseService.getExpenseRows(any(ExpenseQuery.class), eq(0), eq(ApiHandler.DEFAULT_PAGE_SIZE)))
+                .thenReturn(List.of());
+
+        HttpResponse<String> response = send("GET", "/expenses?&&search=x", sessions.create(ann), null);
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        ArgumentCaptor<ExpenseQuery> query = ArgumentCaptor.forClass(ExpenseQuery.class);
+        verify(expenseService).getExpenseRows(query.capture(), eq(0), eq(ApiHandler.DEFAULT_PAGE_SIZE));
+        assertThat(query.getValue().sortColumn()).isEqualTo(ExpenseQuery.SortColumn.DATE);
+    }
+
+    @Test
+    void addExpense_shouldRejectMalformedFields() throws Exception {
+        String token = sessions.create(ann);
+
+        assertThat(send("POST", "/expenses", token, "{\"date\":\"2024-03-01\",\"amount\":\"ten\"}").statusCode())
+                .isEqualTo(400);
+        assertThat(send("POST", "/expenses", token, "{\"date\":\"March\",\"amount\":1}").statusCode())
+                .isEqualTo(400);
+        assertThat(send("POST", "/expenses", token, "{\"date\":20240301,\"amount\":1}").statusCode())
+                .isEqualTo(400);
+        assertThat(send("POST", "/expenses", token, "").statusCode()).isEqualTo(400);
+        verify(expenseService, never()).addExpense(any());
+    }
+
+    @Test
+    void requests_shouldRefuseBodiesOverTheLimit() throws Exception {
+        String description = "x".repeat(ApiExchange.MAX_BODY_BYTES);
+
+        HttpResponse<String> response = send("POST", "/expenses", sessions.create(ann),
+                "{\"date\":\"2024-03-01\",\"amount\":1,\"description\":\"" + description + "\"}");
+
+        assertThat(response.statusCode()).isEqualTo(413);
+        verify(expenseService, never()).addExpense(any());
+    }
+
+    @Test
+    void report_shouldTotalTheRowsOfThePeriod() throws Exception {
+        when(expenseService.getReport(ann, ReportPeriod.MONTHLY, LocalDate.of(2024, 2, 15))).thenReturn(List.of(
+                new ExpenseRow(1L, LocalDate.of(2024, 2, 1), "Food", "Lunch", new BigDecimal("1.25")),
+                new ExpenseRow(2L, LocalDate.of(2024, 2, 9), null, "Bus", new BigDecimal("2.25"))));
+        String token = sessions.create(ann);
+
+        HttpResponse<String> response = send("GET", "/reports/monthly?date=2024-02-15", token, null);
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(Json.parseObject(response.body())).containsEntry("period", "MONTHLY")
+                .containsEntry("start", "2024-02-01").containsEntry("end", "2024-02-29")
+                .containsEntry("total", new BigDecimal("3.50"));
+        assertThat(send("GET", "/reports/monthly?date=yesterday", token, null).statusCode()).isEqualTo(400);
+    }
+
+    @Test
+    void statistics_shouldCoverTheCallerOrEveryUserForAdministrators() throws Exception {
+        ExpenseStatistics statistics = new ExpenseStatistics(Money.of(new BigDecimal("4.00")), 2, List.of(),
+                List.of(), List.of(), List.of(), List.of());
+        LocalDate from = LocalDate.of(2024, 1, 1);
+        LocalDate to = LocalDate.of(2024, 1, 31);
+        when(expenseService.getStatistics(ann)).thenReturn(statistics);
+        when(expenseService.getStatistics(ann, from, to)).thenReturn(statistics);
+        when(expenseService.getStatistics(null)).thenReturn(statistics);
+        String token = sessions.create(ann);
+
+        HttpResponse<String> mine = send("GET", "/statistics", token, null);
+        assertThat(mine.statusCode()).isEqualTo(200);
+        assertThat(Json.parseObject(mine.body())).containsEntry("total", new BigDecimal("4.00"))
+                .containsEntry("count", new BigDecimal("2"));
+        assertThat(send("GET", "/statistics?from=2024-01-01&to=2024-01-31", token, null).statusCode())
+                .isEqualTo(200);
+        assertThat(send("GET", "/statistics?from=2024-01-01", token, null).statusCode()).isEqualTo(400);
+        assertThat(send("GET", "/statistics?all", token, null).statusCode()).isEqualTo(403);
+        assertThat(send("GET", "/statistics?all=true", sessions.create(admin), null).statusCode()).isEqualTo(200);
+        verify(expenseService).getStatistics(ann, from, to);
+        verify(expenseService).getStatistics(null);
+    }
+
+    @Test
+    void budget_shouldEvaluateTheMonthContainingTheDate() throws Exception {
+        when(expenseService.getTotalByUser(ann, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29)))
+                .thenReturn(new BigDecimal("80.00"));
+        when(budgetService.evaluate(eq(ann), any(Money.class))).thenAnswer(invocation -> {
+            Money spent = invocation.getArgument(1);
+            Money budget = Money.of(new BigDecimal("100.00"));
+            return new BudgetStatus(spent, budget, budget.minus(spent), false);
+        });
+        String token = sessions.create(ann);
+
+        HttpResponse<String> february = send("GET", "/budget?date=2024-02-10", token, null);
+        assertThat(february.statusCode()).isEqualTo(200);
+        assertThat(Json.parseObject(february.body())).containsEntry("month", "2024-02")
+                .containsEntry("total", new BigDecimal("80.00")).containsEntry("remaining", new BigDecimal("20.00"))
+                .containsEntry("exceeded", false);
+
+        // No expenses in March: the sum is null
+        HttpResponse<String> march = send("GET", "/budget?date=2024-03-10", token, null);
+        assertThat(Json.parseObject(march.body())).containsEntry("remaining", new BigDecimal("100.00"));
+    }
+
+    @Test
+    void export_shouldPickTheContentTypeByFormat() throws Exception {
+        String token = sessions.create(ann);
+
+        HttpResponse<String> gzip = send("GET", "/exports?format=csv.gz&from=2024-01-01", token, null);
+        HttpResponse<String> pdf = send("GET", "/exports?format=PDF", token, null);
+
+        assertThat(gzip.headers().firstValue("Content-Type")).contains("application/gzip");
+        assertThat(pdf.headers().firstValue("Content-Type")).contains("application/pdf");
+        assertThat(pdf.headers().firstValue("Content-Disposition")).hasValueSatisfying(
+                value -> assertThat(value).contains("Expense_Report_ann.pdf"));
+        verify(expenseService).exportToCsv(eq(ann), eq(LocalDate.of(2024, 1, 1)), isNull(), any(OutputStream.class),
+                eq(true), any());
+        verify(expenseService).exportToPdf(eq(ann), isNull(), isNull(), any(OutputStream.class), any());
+        assertThat(send("GET", "/exports?format=xls", token, null).statusCode()).isEqualTo(400);
+    }
+
+    @Test
+    void export_shouldDropTheConnection_whenItFailsPartWay() throws Exception {
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(3).write(new byte[100_000]);
+            throw new IOException("Connection to the database lost");
+        }).when(expenseService).exportToCsv(eq(ann), any(), any(), any(OutputStream.class), eq(false), any());
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(3).write(new byte[100_000]);
+            throw new IllegalStateException("Cursor closed");
+        }).when(expenseService).exportToPdf(eq(ann), any(), any(), any(OutputStream.class), any());
+        String token = sessions.create(ann);
+
+        // A truncated chunked body, never a short file that looks complete
+        assertThatThrownBy(() -> send("GET", "/exports", token, null)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> send("GET", "/exports?format=pdf", token, null)).isInstanceOf(IOException.class);
+        assertThat(send("GET", "/me", token, null).statusCode()).isEqualTo(200);
+    }
+
+    @Test
+    void export_shouldReportACheckedFailureAsAnExportFailure() throws Exception {
+        doAnswer(invocation -> {
+            // Mockito lets an answer throw a checked exception the method does not declare
+            throw new Exception("Font missing");
+        }).when(expenseService).exportToPdf(eq(ann), any(), any(), any(OutputStream.class), any());
+        HttpExchange exchange = exchange("GET", "/exports?format=pdf", sessions.create(ann));
+
+        assertThatThrownBy(() -> handler().handle(exchange))
+                .isInstanceOf(UncheckedIOException.class)
+                .hasRootCauseMessage("Font missing")
+                .cause().hasMessage("Export failed: Font missing");
+        verify(exchange).sendResponseHeaders(200, 0);
+        // Left open, so the server drops the connection instead of ending the body
+        verify(exchange, never()).close();
+    }
+
+    @Test
+    void respondWithError_shouldRethrowOnceTheResponseHasStarted() throws Exception {
+        ApiExchange api = new ApiExchange(exchange("GET", "/exports", null), ApiHandler.PREFIX);
+        api.startDownload("text/csv", "expenses.csv");
+        IOException io = new IOException("Broken pipe");
+        IllegalStateException runtime = new IllegalStateException("Cursor closed");
+        Exception checked = new Exception("Font missing");
+
+        assertThatThrownBy(() -> ApiHandler.respondWithError(api, io, 500, "Internal server error")).isSameAs(io);
+        assertThatThrownBy(() -> ApiHandler.respondWithError(api, runtime, 500, "Internal server error"))
+                .isSameAs(runtime);
+        assertThatThrownBy(() -> ApiHandler.respondWithError(api, checked, 500, "Internal server error"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasCause(checked);
+    }
+
+    @Test
+    void booleanField_shouldBeNull_whenAnOptionalFieldIsMissing() {
+        assertThat(ApiExchange.booleanField(Map.of(), "enabled", false)).isNull();
+        assertThat(ApiExchange.booleanField(Map.of("enabled", false), "enabled", false)).isFalse();
+        assertThatThrownBy(() -> ApiExchange.booleanField(Map.of(), "enabled", true))
+                .isInstanceOf(ApiException.class)
+                .hasMessage("enabled must be true or false");
+        assertThatThrownBy(() -> ApiExchange.booleanField(Map.of("enabled", "yes"), "enabled", false))
+                .isInstanceOf(ApiException.class)
+                .hasMessage("enabled must be true or false");
+    }
+
+    @Test
+    void failures_shouldAnswer400ForValidationAnd500ForTheRest() throws Exception {
+        when(categoryService.saveCategory("Food")).thenThrow(new IllegalArgumentException("Category already exists"));
+        when(categoryService.getAllCategories()).thenThrow(new IllegalStateException("Database down"));
+        String token = sessions.create(admin);
+
+        HttpResponse<String> duplicate = send("POST", "/categories", token, "{\"name\":\"Food\"}");
+        HttpResponse<String> broken = send("GET", "/categories", token, null);
+
+        assertThat(duplicate.statusCode()).isEqualTo(400);
+        assertThat(Json.parseObject(duplicate.body())).containsEntry("error", "Category already exists");
+        assertThat(broken.statusCode()).isEqualTo(500);
+        assertThat(Json.parseObject(broken.body())).containsEntry("error", "Internal server error");
+    }
+
+    @Test
+    void categories_shouldBeListedForEveryoneAndChangedByAdministrators() throws Exception {
+        Category food = new Category("Food");
+        food.setId(5L);
+        Category other = new Category("Other");
+        other.setId(6L);
+        other.setSystem(true);
+        when(categoryService.getAllCategories()).thenReturn(List.of(food, other));
+        when(categoryService.saveCategory("Travel")).thenAnswer(invocation -> new Category("Travel"));
+        String user = sessions.create(ann);
+        String root = sessions.create(admin);
+
+        HttpResponse<String> list = send("GET", "/categories", user, null);
+        assertThat(list.statusCode()).isEqualTo(200);
+        assertThat(Json.parse(list.body())).asInstanceOf(InstanceOfAssertFactories.LIST).containsExactly(
+                Map.of("id", new BigDecimal("5"), "name", "Food", "system", false),
+                Map.of("id", new BigDecimal("6"), "name", "Other", "system", true));
+        assertThat(send("POST", "/categories", user, "{\"name\":\"Travel\"}").statusCode()).isEqualTo(403);
+        assertThat(send("DELETE", "/categories/5", user, null).statusCode()).isEqualTo(403);
+
+        assertThat(send("POST", "/categories", root, "{\"name\":\" Travel \"}").statusCode()).isEqualTo(201);
+        assertThat(send("POST", "/categories", root, "{\"name\":\" \"}").statusCode()).isEqualTo(400);
+        assertThat(send("PUT", "/categories", root, "{}").statusCode()).isEqualTo(405);
+        assertThat(send("GET", "/categories/5", root, null).statusCode()).isEqualTo(405);
+        assertThat(send("DELETE", "/categories/6", root, null).statusCode()).isEqualTo(409);
+        assertThat(send("DELETE", "/categories/7", root, null).statusCode()).isEqualTo(404);
+        assertThat(send("DELETE", "/categories/5", root, null).statusCode()).isEqualTo(204);
+        verify(categoryService).saveCategory("Travel");
+        verify(categoryService).deleteCategory(5L);
+    }
+
+    @Test
+    void users_shouldPageByIdAndRejectBadRequests() throws Exception {
+        when(userService.getUserPage(null, 1)).thenReturn(new Page<>(List.of(ann), true));
+        String root = sessions.create(admin);
+
+        HttpResponse<String> first = send("GET", "/users?limit=1", root, null);
+        assertThat(Json.parseObject(first.body())).containsEntry("next", new BigDecimal("1"));
+        assertThat(send("GET", "/users?after=ann", root, null).statusCode()).isEqualTo(400);
+        assertThat(send("GET", "/users/1/roles", root, null).statusCode()).isEqualTo(404);
+        assertThat(send("PUT", "/users/1/status", root, "{\"enabled\":\"yes\"}").statusCode()).isEqualTo(400);
+        assertThat(send("PUT", "/users/1/status", root, "{\"enabled\":true}").statusCode()).isEqualTo(204);
+        verify(userService).setUserStatus(1L, true);
+    }
+
+    @Test
+    void register_shouldValidateTheRoleAndCredentials() throws Exception {
+        when(userService.registerUser("boss", "pw", Role.ADMIN)).thenReturn(new User(6L, "boss", "x", Role.ADMIN));
+
+        assertThat(send("POST", "/users", null, "{\"username\":\"eve\",\"password\":\"pw\",\"role\":\"owner\"}")
+                .statusCode()).isEqualTo(400);
+        assertThat(send("POST", "/users", null, "{\"username\":\" \",\"password\":\"pw\"}").statusCode())
+                .isEqualTo(400);
+        HttpResponse<String> created = send("POST", "/users", sessions.create(admin),
+                "{\"username\":\"boss\",\"password\":\"pw\",\"role\":\"admin\"}");
+        assertThat(created.statusCode()).isEqualTo(201);
+        assertThat(Json.parseObject(created.body())).containsEntry("role", "ADMIN");
+    }
+
+    @Test
+    void start_shouldRejectBadSettingsAndTakenPorts() {
+        InetSocketAddress taken = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getAddress().getPort());
+
+        assertThatThrownBy(() -> ApiServer.start(exchange -> { }, taken, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> ApiServer.start(exchange -> { }, taken, 1)).isInstanceOf(IOException.class);
+        assertThat(server.usesVirtualThreads()).isEqualTo(Runtime.version().feature() >= 21);
+    }
+
+    @Test
+    void executor_shouldBeEmpty_whenTheFactoryCannotBeCalled() {
+        Optional<ExecutorService> cached = ApiServer.executor("newCachedThreadPool");
+
+        assertThat(cached).isPresent();
+        cached.get().shutdown();
+        assertThat(ApiServer.executor("newImaginaryExecutor")).isEmpty();
+    }
+
+    @Test
+    void stop_shouldStopTheWorkers_whenWaitingForThemIsInterrupted() throws Exception {
+        CountDownLatch handling = new CountDownLatch(1);
+        CountDownLatch released = new CountDownLatch(1);
+        CountDownLatch handled = new CountDownLatch(1);
+        AtomicBoolean handlerInterrupted = new AtomicBoolean();
+        ApiServer slow = ApiServer.start(exchange -> {
+            handling.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                handlerInterrupted.set(true);
+            }
+            exchange.close();
+            handled.countDown();
+        }, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1);
+        client.sendAsync(HttpRequest.newBuilder(URI.create("http://localhost:" + slow.getAddress().getPort()
+                + ApiHandler.PREFIX)).build(), HttpResponse.BodyHandlers.discarding());
+        assertThat(handling.await(10, TimeUnit.SECONDS)).isTrue();
+
+        AtomicBoolean stopperInterrupted = new AtomicBoolean();
+        Thread stopper = new Thread(() -> {
+            slow.stop(1);
+            stopperInterrupted.set(Thread.currentThread().isInterrupted());
+        });
+        stopper.start();
+        // The server's own wait swallows interrupts, so keep sending them
+        while (stopper.isAlive()) {
+            stopper.interrupt();
+            stopper.join(20);
+        }
+        released.countDown();
+
+        assertThat(handled.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(stopperInterrupted).isTrue();
+        assertThat(handlerInterrupted).isTrue();
+    }
+
+    private ApiHandler handler() {
+        return new ApiHandler(userService, expenseService, categoryService, budgetService, sessions);
+    }
+
+    /** An exchange that is handled in the test's thread rather than by a server. */
+    private static HttpExchange exchange(String method, String path, String token) {
+        HttpExchange exchange = mock(HttpExchange.class);
+        Headers requestHeaders = new Headers();
+        if (token != null) {
+            requestHeaders.set("Authorization", "Bearer " + token);
+        }
+        when(exchange.getRequestMethod()).thenReturn(method);
+        when(exchange.getRequestURI()).thenReturn(URI.create(ApiHandler.PREFIX + path));
+        when(exchange.getRequestHeaders()).thenReturn(requestHeaders);
+        when(exchange.getResponseHeaders()).thenReturn(new Headers());
+        when(exchange.getResponseBody()).thenReturn(new ByteArrayOutputStream());
+        return exchange;
+    }
+
+    private HttpResponse<String> send(String method, String path, String token, String body) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path)).method(method,
+                body != null ? HttpRequest.BodyPublishers.ofString(body) : HttpRequest.BodyPublishers.noBody());
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.expense.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.expense.model.Money;
+import com.example.expense.model.Role;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class JsonTest {
+
+    record Row(Long id, String name, LocalDate date, BigDecimal amount) {
+    }
+
+    record Broken(String name) {
+
+        @Override
+        public String name() {
+            throw new IllegalStateException("No name");
+        }
+    }
+
+    @Test
+    void write_shouldWriteMapsListsAndScalars() {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("name", "Café \"bar\"\n");
+        value.put("amount", new BigDecimal("1E+2"));
+        value.put("count", 3);
+        value.put("ok", true);
+        value.put("none", null);
+        value.put("list", List.of(1, "two"));
+
+        assertThat(Json.write(value)).isEqualTo(
+                "{\"name\":\"Café \\\"bar\\\"\\n\",\"amount\":100,\"count\":3,\"ok\":true,\"none\":null,"
+                        + "\"list\":[1,\"two\"]}");
+    }
+
+    @Test
+    void write_shouldWriteRecordsDatesEnumsAndMoney() {
+        Row row = new Row(7L, "Lunch", LocalDate.of(2024, 3, 1), new BigDecimal("12.50"));
+
+        assertThat(Json.write(row))
+                .isEqualTo("{\"id\":7,\"name\":\"Lunch\",\"date\":\"2024-03-01\",\"amount\":12.50}");
+        assertThat(Json.write(Role.ADMIN)).isEqualTo("\"ADMIN\"");
+        assertThat(Json.write(Money.of(new BigDecimal("3.10")))).isEqualTo("3.10");
+    }
+
+    @Test
+    void write_shouldWriteNotANumberAsNull() {
+        assertThat(Json.write(Double.NaN)).isEqualTo("null");
+        assertThat(Json.write(new Object[] {1.5, 2.5f})).isEqualTo("[1.5,2.5]");
+    }
+
+    @Test
+    void write_shouldEscapeControlCharacters() {
+        assertThat(Json.write("a\\b\rc\td\u0001\u2028")).isEqualTo("\"a\\\\b\\rc\\td\\u0001\\u2028\"");
+    }
+
+    @Test
+    void write_shouldRefuseOtherObjects() {
+        assertThatThrownBy(() -> Json.write(new Object())).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Json.write(new Broken("x"))).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Cannot read");
+    }
+
+    @Test
+    void parse_shouldReadNestedValues() {
+        Object value = Json.parse(" {\"a\": [1, -2.5e1, \"x\\u00e9\"], \"b\": {\"c\": false}, \"d\": null} ");
+
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("a", List.of(new BigDecimal("1"), new BigDecimal("-2.5e1"), "xé"));
+        expected.put("b", Map.of("c", false));
+        expected.put("d", null);
+        assertThat(value).isEqualTo(expected);
+    }
+
+    @Test
+    void parse_shouldRoundTripWrittenValues() {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("text", "tab\there \\ \u0001");
+        value.put("amount", new BigDecimal("0.10"));
+
+        assertThat(Json.parseObject(Json.write(value))).isEqualTo(value);
+    }
+
+    @Test
+    void parse_shouldReportMalformedInput() {
+        assertThatThrownBy(() -> Json.parse("{\"a\":1,}")).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("offset");
+        assertThatThrownBy(() -> Json.parse("[1] 2")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Json.parse("\"open")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Json.parseObject("[]")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void parse_shouldReadEmptyContainersAndEscapes() {
+        assertThat(Json.parse("{ }")).isEqualTo(Map.of());
+        assertThat(Json.parse("[ ]")).isEqualTo(List.of());
+        assertThat(Json.parse("\"\\\"\\\\\\/\\b\\f\\n\\r\\t\"")).isEqualTo("\"\\/\b\f\n\r\t");
+        assertThat(Json.parse("true")).isEqualTo(true);
+    }
+
+    @Test
+    void parse_shouldReportEachKindOfMalformedInput() {
+        for (String text : List.of("", "  ", "@", "{1:2}", "{\"a\" 1}", "[1 2]", "tru", "-", "1.2.3", "\"\\",
+                "\"\\u12\"", "\"\\uzzzz\"", "\"\\x\"", "\"a\u0001\"")) {
+            assertThatThrownBy(() -> Json.parse(text)).as(text).isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageStartingWith("Invalid JSON at offset");
+        }
+    }
+
+    @Test
+    void parse_shouldRejectDeepNesting() {
+        char[] open = new char[100];
+        Arrays.fill(open, '[');
+
+        assertThatThrownBy(() -> Json.parse(new String(open))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
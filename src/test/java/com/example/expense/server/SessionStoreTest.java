@@ -0,0 +1,110 @@
+package com.example.expense.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.expense.model.Role;
+import com.example.expense.model.User;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.Test;
+
+class SessionStoreTest {
+
+    private final MutableClock clock = new MutableClock();
+    private final SessionStore store = new SessionStore(Duration.ofMinutes(30), clock);
+    private final User ann = new User(1L, "ann", "x", Role.USER);
+    private final User bob = new User(2L, "bob", "x", Role.USER);
+
+    @Test
+    void create_shouldHandOutDistinctTokensForTheUser() {
+        String first = store.create(ann);
+        String second = store.create(ann);
+
+        assertThat(first).isNotEqualTo(second).hasSize(43);
+        assertThat(store.find(first)).contains(ann);
+        assertThat(store.find("unknown")).isEmpty();
+        assertThat(store.find(null)).isEmpty();
+    }
+
+    @Test
+    void find_shouldExpireIdleSessionsAndExtendUsedOnes() {
+        String used = store.create(ann);
+        String idle = store.create(bob);
+
+        clock.advance(Duration.ofMinutes(20));
+        assertThat(store.find(used)).contains(ann);
+        clock.advance(Duration.ofMinutes(20));
+
+        assertThat(store.find(used)).contains(ann);
+        assertThat(store.find(idle)).isEmpty();
+    }
+
+    @Test
+    void create_shouldDropExpiredSessions() {
+        store.create(ann);
+        clock.advance(Duration.ofHours(1));
+
+        store.create(bob);
+
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidate_shouldEndOneSession() {
+        String token = store.create(ann);
+        String other = store.create(ann);
+
+        store.invalidate(token);
+
+        assertThat(store.find(token)).isEmpty();
+        assertThat(store.find(other)).contains(ann);
+    }
+
+    @Test
+    void invalidateUser_shouldEndEverySessionOfTheUser() {
+        String first = store.create(ann);
+        String second = store.create(ann);
+        String other = store.create(bob);
+
+        store.invalidateUser(ann.getId());
+
+        assertThat(store.find(first)).isEmpty();
+        assertThat(store.find(second)).isEmpty();
+        assertThat(store.find(other)).contains(bob);
+    }
+
+    @Test
+    void constructor_shouldRequireAPositiveIdleTimeout() {
+        assertThatThrownBy(() -> new SessionStore(Duration.ZERO, clock)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new SessionStore(Duration.ofMinutes(-1), clock))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.expense.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.expense.model.CategoryTotal;
+import com.example.expense.model.ExpenseColumns;
+import com.example.expense.model.ExpenseColumns.Filter;
+import com.example.expense.model.ExpenseStatistics;
+import com.example.expense.model.Money;
+import com.example.expense.model.PeriodTotal;
+import com.example.expense.model.UserTotal;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class AggregationEngineTest {
+
+    // A Thursday, so its ISO week starts on May 29
+    private static final LocalDate JUNE_1 = LocalDate.of(2023, 6, 1);
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdown();
+    }
+
+    private static ExpenseColumns sample() {
+        return ExpenseColumns.builder()
+                .add(JUNE_1, new BigDecimal("10.10"), "Food", 1L, "bob")
+                .add(JUNE_1, new BigDecimal("0.20"), "Transport", 2L, "ann")
+                .add(JUNE_1.plusDays(4), new BigDecimal("5"), "Food", 1L, "bob")
+                .add(JUNE_1.plusDays(30), new BigDecimal("3.33"), null, null, null)
+                .build();
+    }
+
+    @Test
+    void aggregate_shouldComputeEveryGroupingInOnePass() {
+        ExpenseStatistics statistics = new AggregationEngine().aggregate(sample(), Filter.ALL);
+
+        assertThat(statistics.total()).isEqualTo(Money.of(new BigDecimal("18.63")));
+        assertThat(statistics.count()).isEqualTo(4);
+        assertThat(statistics.byCategory()).containsExactly(
+                new CategoryTotal("Food", new BigDecimal("15.10"), 2),
+                new CategoryTotal("Transport", new BigDecimal("0.20"), 1));
+        assertThat(statistics.byUser()).containsExactly(
+                new UserTotal("bob", new BigDecimal("15.10"), 2),
+                new UserTotal("ann", new BigDecimal("0.20"), 1));
+        assertThat(statistics.byDay()).containsExactly(
+                new PeriodTotal(JUNE_1, new BigDecimal("10.30"), 2),
+                new PeriodTotal(JUNE_1.plusDays(4), new BigDecimal("5.00"), 1),
+                new PeriodTotal(JUNE_1.plusDays(30), new BigDecimal("3.33"), 1));
+        assertThat(statistics.byWeek()).containsExactly(
+                new PeriodTotal(LocalDate.of(2023, 5, 29), new BigDecimal("10.30"), 2),
+                new PeriodTotal(LocalDate.of(2023, 6, 5), new BigDecimal("5.00"), 1),
+                new PeriodTotal(LocalDate.of(2023, 6, 26), new BigDecimal("3.33"), 1));
+        assertThat(statistics.byMonth()).containsExactly(
+                new PeriodTotal(LocalDate.of(2023, 6, 1), new BigDecimal("15.30"), 3),
+                new PeriodTotal(LocalDate.of(2023, 7, 1), new BigDecimal("3.33"), 1));
+    }
+
+    @Test
+    void aggregate_shouldApplyFilter() {
+        ExpenseColumns columns = sample();
+        Filter filter = Filter.ALL.between(JUNE_1.plusDays(1), JUNE_1.plusDays(40)).forUser(columns.userId("bob"));
+
+        ExpenseStatistics statistics = new AggregationEngine().aggregate(columns, filter);
+
+        assertThat(statistics.count()).isEqualTo(1);
+        assertThat(statistics.byDay()).containsExactly(new PeriodTotal(JUNE_1.plusDays(4), new BigDecimal("5.00"), 1));
+    }
+
+    @Test
+    void aggregate_shouldHandleNoRows() {
+        ExpenseStatistics statistics = new AggregationEngine().aggregate(ExpenseColumns.builder().build(), Filter.ALL);
+
+        assertThat(statistics.total()).isEqualTo(Money.ZERO);
+        assertThat(statistics.byCategory()).isEmpty();
+        assertThat(statistics.byDay()).isEmpty();
+    }
+
+    @Test
+    void aggregate_shouldMatchSequentialResultOnParallelPath() {
+        Random random = new Random(42);
+        ExpenseColumns.Builder builder = ExpenseColumns.builder();
+        for (int i = 0; i < 100_000; i++) {
+            long user = random.nextInt(20);
+            builder.add(JUNE_1.plusDays(random.nextInt(400)), BigDecimal.valueOf(random.nextInt(100_000), 2),
+                    "Category " + random.nextInt(8), user, "user" + user);
+        }
+        ExpenseColumns columns = builder.build();
+        Filter filter = Filter.ALL.between(JUNE_1.plusDays(10), JUNE_1.plusDays(300));
+
+        ExpenseStatistics sequential = new AggregationEngine(Integer.MAX_VALUE, pool).aggregate(columns, filter);
+        ExpenseStatistics parallel = new AggregationEngine(0, pool).aggregate(columns, filter);
+
+        assertThat(parallel).isEqualTo(sequential);
+        assertThat(parallel.total().minorUnits()).isEqualTo(columns.sum(filter));
+    }
+
+    @Test
+    void aggregate_shouldReturnImmutableLists() {
+        ExpenseStatistics statistics = new AggregationEngine().aggregate(sample(), Filter.ALL);
+
+        assertThatThrownBy(() -> statistics.byCategory().clear()).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void constructor_shouldRejectNegativeThreshold() {
+        assertThatThrownBy(() -> new AggregationEngine(-1, pool)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
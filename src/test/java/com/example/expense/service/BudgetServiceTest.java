@@ -4,6 +4,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import com.example.expense.model.Category;
 import com.example.expense.model.Expense;
+import com.example.expense.model.Money;
 import com.example.expense.model.Role;
 import com.example.expense.model.User;
 import java.math.BigDecimal;
@@ -81,4 +82,46 @@ class BudgetServiceTest {
 
         assertThat(budgetService.getRemainingBudget(user, expenses)).isEqualByComparingTo(BigDecimal.ZERO);
     }
+
+    @Test
+    void isBudgetExceeded_withTotal_shouldCompareAgainstBudget() {
+        user.setMonthlyBudget(new BigDecimal("500.00"));
+
+        assertThat(budgetService.isBudgetExceeded(user, new BigDecimal("500.01"))).isTrue();
+        assertThat(budgetService.isBudgetExceeded(user, new BigDecimal("500.00"))).isFalse();
+    }
+
+    @Test
+    void getRemainingBudget_withTotal_shouldSubtractFromBudget() {
+        user.setMonthlyBudget(new BigDecimal("1000.00"));
+
+        assertThat(budgetService.getRemainingBudget(user, new BigDecimal("250.00"))).isEqualByComparingTo("750.00");
+    }
+
+    @Test
+    void evaluate_shouldSumOnceAndReportTotalRemainingAndExceeded() {
+        user.setMonthlyBudget(new BigDecimal("500.00"));
+
+        List<Expense> expenses = Arrays.asList(
+                new Expense(new BigDecimal("200.10"), LocalDate.now(), "Grocery", user, new Category("Food")),
+                new Expense(new BigDecimal("400.00"), LocalDate.now(), "Rent", user, new Category("Housing")));
+
+        BudgetStatus status = budgetService.evaluate(user, expenses);
+
+        assertThat(status.total()).isEqualTo(Money.ofMinorUnits(60010));
+        assertThat(status.budget()).isEqualTo(Money.ofMinorUnits(50000));
+        assertThat(status.remaining()).isEqualTo(Money.ofMinorUnits(-10010));
+        assertThat(status.exceeded()).isTrue();
+    }
+
+    @Test
+    void evaluate_withoutBudget_shouldNeverBeExceeded() {
+        user.setMonthlyBudget(null);
+
+        BudgetStatus status = budgetService.evaluate(user, Money.ofMinorUnits(100));
+
+        assertThat(status.budget()).isNull();
+        assertThat(status.remaining()).isEqualTo(Money.ZERO);
+        assertThat(status.exceeded()).isFalse();
+    }
 }
@@ -12,12 +12,18 @@ import org.mockito.Captor;
 
 import com.example.expense.model.Category;
 import com.example.expense.repository.CategoryRepository;
+import jakarta.persistence.PersistenceException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -27,12 +33,21 @@ class CategoryServiceTest {
     @Mock
     private CategoryRepository categoryRepository;
 
-    @InjectMocks
     private CategoryService categoryService;
 
     @Captor
     private ArgumentCaptor<Category> categoryCaptor;
 
+    @Captor
+    private ArgumentCaptor<List<Category>> categoriesCaptor;
+
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        categoryService = new CategoryService(categoryRepository, Duration.ofMinutes(1), () -> now);
+    }
+
     @Test
     void getAllCategories_shouldReturnList() {
         List<Category> categories = Arrays.asList(new Category("Food"), new Category("Transport"));
@@ -47,7 +62,6 @@ class CategoryServiceTest {
     @Test
     void saveCategory_shouldSave_whenNameIsUnique() {
         String name = "New Category";
-        when(categoryRepository.findByName(name)).thenReturn(Optional.empty());
         Category saved = new Category(name);
         when(categoryRepository.save(any(Category.class))).thenReturn(saved);
 
@@ -58,12 +72,13 @@ class CategoryServiceTest {
 
         verify(categoryRepository).save(categoryCaptor.capture());
         assertThat(categoryCaptor.getValue().getName()).isEqualTo(name);
+        verify(categoryRepository, never()).findByName(any());
     }
 
     @Test
     void saveCategory_shouldThrow_whenNameAlreadyExists() {
         String name = "Existing";
-        when(categoryRepository.findByName(name)).thenReturn(Optional.of(new Category(name)));
+        when(categoryRepository.findAll()).thenReturn(List.of(new Category(name)));
 
         assertThatThrownBy(() -> categoryService.saveCategory(name))
                 .isInstanceOf(IllegalArgumentException.class)
@@ -72,6 +87,19 @@ class CategoryServiceTest {
         verify(categoryRepository, never()).save(any(Category.class));
     }
 
+    @Test
+    void saveCategory_shouldRejectMissingName() {
+        for (String name : Arrays.asList(null, " ")) {
+            assertThatThrownBy(() -> categoryService.saveCategory(name))
+                    .as(String.valueOf(name))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessage("Category name must not be empty");
+        }
+
+        verify(categoryRepository, never()).findByName(any());
+        verify(categoryRepository, never()).save(any(Category.class));
+    }
+
     @Test
     void deleteCategory_shouldCallRepository_whenExists() {
         Long id = 1L;
@@ -94,18 +122,187 @@ class CategoryServiceTest {
     }
 
     @Test
-    void seedDefaultCategories_shouldSaveOnlyMissing() {
-        when(categoryRepository.findByName("Food")).thenReturn(Optional.of(new Category("Food")));
-        when(categoryRepository.findByName("Transport")).thenReturn(Optional.empty());
-        when(categoryRepository.findByName("Rent")).thenReturn(Optional.empty());
-        when(categoryRepository.findByName("Entertainment")).thenReturn(Optional.empty());
-        when(categoryRepository.findByName("Health")).thenReturn(Optional.empty());
+    void saveCategory_shouldThrow_whenNameDiffersOnlyInCase() {
+        when(categoryRepository.findAll()).thenReturn(List.of(new Category("Food")));
+
+        assertThatThrownBy(() -> categoryService.saveCategory("FOOD"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Category already exists");
+    }
+
+    @Test
+    void deleteCategory_shouldDropItFromLookups() {
+        Category food = category(1L, "Food");
+        when(categoryRepository.findAll()).thenReturn(List.of(food));
+        when(categoryRepository.findById(1L)).thenReturn(Optional.of(category(1L, "Food")));
+
+        assertThat(categoryService.findCategory("food")).containsSame(food);
+        categoryService.deleteCategory(1L);
+
+        assertThat(categoryService.findCategory("food")).isEmpty();
+    }
+
+    @Test
+    void findCategory_shouldIgnoreCaseAndLoadOnce() {
+        Category food = new Category("Food");
+        when(categoryRepository.findAll()).thenReturn(List.of(food, new Category("Rent")));
+
+        assertThat(categoryService.findCategory(" food ")).containsSame(food);
+        assertThat(categoryService.findCategory("FOOD")).containsSame(food);
+        assertThat(categoryService.findCategory("Travel")).isEmpty();
+
+        verify(categoryRepository, times(1)).findAll();
+        verify(categoryRepository, never()).findByName(any());
+    }
+
+    @Test
+    void getOrCreateCategory_shouldReturnExistingWithoutSaving() {
+        Category food = category(1L, "Food");
+        when(categoryRepository.findAll()).thenReturn(List.of(food));
+
+        assertThat(categoryService.getOrCreateCategory("fOOd")).isSameAs(food);
+        assertThat(categoryService.getOrCreateCategory("Food")).isSameAs(food);
+
+        // Hits are answered from memory: one load, then no more queries
+        verify(categoryRepository, times(1)).findAll();
+        verify(categoryRepository, never()).findByNameInDatabase(any());
+        verify(categoryRepository, never()).findAllInDatabase();
+        verify(categoryRepository, never()).save(any(Category.class));
+    }
+
+    @Test
+    void getOrCreateCategory_shouldCreateOnceAndRemember() {
+        when(categoryRepository.save(any(Category.class))).thenAnswer(i -> withId(i.getArgument(0), 7L));
+
+        Category travel = categoryService.getOrCreateCategory(" Travel ");
+
+        assertThat(travel.getName()).isEqualTo("Travel");
+        assertThat(categoryService.getOrCreateCategory("travel")).isSameAs(travel);
+        verify(categoryRepository, times(1)).save(any(Category.class));
+    }
+
+    @Test
+    void getOrCreateCategory_shouldCreateOnceUnderConcurrency() throws Exception {
+        when(categoryRepository.save(any(Category.class))).thenAnswer(i -> withId(i.getArgument(0), 7L));
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Category>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                String name = i % 2 == 0 ? "Travel" : "TRAVEL";
+                futures.add(executor.submit(() -> categoryService.getOrCreateCategory(name)));
+            }
+            Category first = futures.get(0).get();
+            for (Future<Category> future : futures) {
+                assertThat(future.get()).isSameAs(first);
+            }
+        } finally {
+            executor.shutdown();
+        }
 
-        when(categoryRepository.save(any(Category.class))).thenAnswer(i -> i.getArgument(0));
+        verify(categoryRepository, times(1)).save(any(Category.class));
+    }
+
+    @Test
+    void getOrCreateCategory_shouldFindCategoryCreatedByAnotherProcess() {
+        Category travel = category(3L, "Travel");
+        when(categoryRepository.findByNameInDatabase("Travel")).thenReturn(Optional.of(travel));
+
+        assertThat(categoryService.getOrCreateCategory("Travel")).isSameAs(travel);
+        assertThat(categoryService.getOrCreateCategory("travel")).isSameAs(travel);
+
+        verify(categoryRepository, never()).save(any(Category.class));
+    }
+
+    @Test
+    void getOrCreateCategory_shouldSeeOtherProcessesChanges_afterTheRefreshInterval() {
+        Category food = category(1L, "Food");
+        Category travel = category(3L, "Travel");
+        when(categoryRepository.findAll()).thenReturn(List.of(food));
+        when(categoryRepository.findAllInDatabase()).thenReturn(List.of(travel));
+        when(categoryRepository.save(any(Category.class))).thenAnswer(i -> withId(i.getArgument(0), 2L));
+
+        assertThat(categoryService.getOrCreateCategory("Food")).isSameAs(food);
+        now += Duration.ofSeconds(59).toNanos();
+        assertThat(categoryService.getOrCreateCategory("Food")).isSameAs(food);
+        verify(categoryRepository, never()).findAllInDatabase();
+
+        // Another process deleted Food and created Travel
+        now += Duration.ofSeconds(1).toNanos();
+        assertThat(categoryService.findCategory("travel")).containsSame(travel);
+        Category recreated = categoryService.getOrCreateCategory("Food");
+
+        assertThat(recreated.getId()).isEqualTo(2L);
+        assertThat(categoryService.findCategory("food")).containsSame(recreated);
+        verify(categoryRepository, times(1)).findAllInDatabase();
+        verify(categoryRepository, times(1)).save(any(Category.class));
+    }
+
+    @Test
+    void getOrCreateCategory_shouldReloadAndRetryOnceAfterConstraintViolation() {
+        Category travel = category(5L, "Travel");
+        when(categoryRepository.save(any(Category.class))).thenThrow(new PersistenceException("duplicate"));
+        when(categoryRepository.findAllInDatabase()).thenReturn(List.of(travel));
+
+        assertThat(categoryService.getOrCreateCategory("Travel")).isSameAs(travel);
+
+        verify(categoryRepository, times(1)).save(any(Category.class));
+    }
+
+    @Test
+    void getOrCreateCategory_shouldFailWhenRetryFailsToo() {
+        when(categoryRepository.save(any(Category.class))).thenThrow(new PersistenceException("down"));
+
+        assertThatThrownBy(() -> categoryService.getOrCreateCategory("Travel"))
+                .isInstanceOf(PersistenceException.class);
+
+        verify(categoryRepository, times(2)).save(any(Category.class));
+    }
+
+    @Test
+    void saveCategory_shouldReportCategoryCreatedByAnotherProcess() {
+        when(categoryRepository.save(any(Category.class))).thenThrow(new PersistenceException("duplicate"));
+        when(categoryRepository.findAllInDatabase()).thenReturn(List.of(category(5L, "Travel")));
+
+        assertThatThrownBy(() -> categoryService.saveCategory("Travel"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Category already exists");
+    }
+
+    @Test
+    void saveCategory_shouldRethrowOtherPersistenceFailures() {
+        PersistenceException failure = new PersistenceException("down");
+        when(categoryRepository.save(any(Category.class))).thenThrow(failure);
+
+        assertThatThrownBy(() -> categoryService.saveCategory("Travel")).isSameAs(failure);
+    }
+
+    @Test
+    void getOrCreateCategory_shouldRejectBlankName() {
+        assertThatThrownBy(() -> categoryService.getOrCreateCategory("  "))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void seedDefaultCategories_shouldSaveOnlyMissingWithOneLookup() {
+        when(categoryRepository.findAll()).thenReturn(List.of(new Category("food")));
+        when(categoryRepository.saveAll(any())).thenAnswer(i -> new ArrayList<>(i.<List<Category>>getArgument(0)));
 
         categoryService.seedDefaultCategories();
 
-        verify(categoryRepository, times(4)).save(any(Category.class));
-        verify(categoryRepository).findByName("Food");
+        verify(categoryRepository).saveAll(categoriesCaptor.capture());
+        assertThat(categoriesCaptor.getValue()).extracting(Category::getName)
+                .containsExactly("Transport", "Rent", "Entertainment", "Health");
+        verify(categoryRepository, times(1)).findAll();
+        verify(categoryRepository, never()).findByName(any());
+        assertThat(categoryService.findCategory("Health")).isPresent();
+    }
+
+    private static Category category(Long id, String name) {
+        return withId(new Category(name), id);
+    }
+
+    private static Category withId(Category category, Long id) {
+        category.setId(id);
+        return category;
     }
 }
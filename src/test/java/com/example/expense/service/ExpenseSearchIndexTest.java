@@ -0,0 +1,150 @@
+package com.example.expense.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.expense.model.ExpenseQuery.SortColumn;
+import com.example.expense.model.ExpenseRow;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ExpenseSearchIndexTest {
+
+    private ExpenseSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new ExpenseSearchIndex(List.of(
+                row(1L, "2023-06-03", "Food", "Pizza with friends", "12.00"),
+                row(2L, "2023-06-01", "Transport", "Taxi to airport", "40.00"),
+                row(3L, "2023-06-02", "Food", "Pastry", "3.50"),
+                row(4L, "2023-06-02", null, "Airport parking (2 days)", "18.00")));
+    }
+
+    @Test
+    void search_shouldMatchWordsContainingTheSearchWordsInDescriptionAndCategory() {
+        assertThat(ids("pizza")).containsExactly(1L);
+        assertThat(ids("p")).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(ids("FOOD")).containsExactly(1L, 3L);
+        assertThat(ids("irport")).containsExactly(2L, 4L);
+        assertThat(ids("ranspo")).containsExactly(2L);
+    }
+
+    @Test
+    void search_shouldRequireEveryWord() {
+        assertThat(ids("airport taxi")).containsExactly(2L);
+        assertThat(ids("airport pizza")).isEmpty();
+    }
+
+    @Test
+    void search_shouldTreatRegexCharactersAsSeparators() {
+        assertThat(ids("(2")).containsExactly(4L);
+        assertThat(ids("[")).containsExactly(1L, 2L, 3L, 4L);
+    }
+
+    @Test
+    void rows_shouldSortLikeTheDatabaseAndWindow() {
+        assertThat(index.rows("air", SortColumn.DATE, false, 0, 10)).extracting(ExpenseRow::id)
+                .containsExactly(2L, 4L);
+        assertThat(index.rows("", SortColumn.AMOUNT, true, 1, 2)).extracting(ExpenseRow::id)
+                .containsExactly(4L, 1L);
+        assertThat(index.rows("", SortColumn.CATEGORY, false, 0, 10)).extracting(ExpenseRow::id)
+                .containsExactly(4L, 1L, 3L, 2L);
+    }
+
+    @Test
+    void add_shouldMergeIntoCachedOrder() {
+        index.rows("", SortColumn.DATE, false, 0, 10);
+
+        index.add(row(5L, "2023-05-31", "Food", "Pizza slice", "2.00"));
+
+        assertThat(index.rows("pizza", SortColumn.DATE, false, 0, 10)).extracting(ExpenseRow::id)
+                .containsExactly(5L, 1L);
+        assertThat(index.size()).isEqualTo(5);
+    }
+
+    @Test
+    void add_shouldReplaceRowWithSameId() {
+        index.rows("", SortColumn.DESCRIPTION, false, 0, 10);
+
+        index.add(row(1L, "2023-06-03", "Food", "Burger", "12.00"));
+
+        assertThat(ids("pizza")).isEmpty();
+        assertThat(ids("burger")).containsExactly(1L);
+        assertThat(index.rows("", SortColumn.DESCRIPTION, false, 0, 10)).extracting(ExpenseRow::id)
+                .containsExactly(4L, 1L, 3L, 2L);
+    }
+
+    @Test
+    void position_shouldCountMatchesBeforeTheRow() {
+        assertThat(index.position("airport", SortColumn.DATE, false, 4L)).isEqualTo(1);
+        assertThat(index.position("airport", SortColumn.DATE, true, 4L)).isZero();
+        assertThat(index.position("pizza", SortColumn.DATE, false, 4L)).isEqualTo(-1);
+        assertThat(index.position("", SortColumn.AMOUNT, false, 99L)).isEqualTo(-1);
+    }
+
+    @Test
+    void search_shouldFindLongWordsThroughTheirGrams() {
+        index.add(row(5L, "2023-06-04", "Groceries", "Supermarket", "30.00"));
+
+        assertThat(ids("ermark")).containsExactly(5L);
+        assertThat(ids("permarket")).containsExactly(5L);
+        assertThat(ids("marketx")).isEmpty();
+        assertThat(ids("rketsu")).isEmpty();
+        assertThat(ids("zzzz")).isEmpty();
+    }
+
+    @Test
+    void rows_shouldPageThroughTheLastSearchInBothDirections() {
+        for (long id = 5; id < 25; id++) {
+            index.add(row(id, "2023-07-01", "Food", "Lunch " + id, id + ".00"));
+        }
+
+        assertThat(index.count("lunch")).isEqualTo(20);
+        assertThat(index.rows("lunch", SortColumn.AMOUNT, false, 0, 3)).extracting(ExpenseRow::id)
+                .containsExactly(5L, 6L, 7L);
+        assertThat(index.rows("lunch", SortColumn.AMOUNT, false, 18, 5)).extracting(ExpenseRow::id)
+                .containsExactly(23L, 24L);
+        assertThat(index.rows("lunch", SortColumn.AMOUNT, true, 0, 2)).extracting(ExpenseRow::id)
+                .containsExactly(24L, 23L);
+        assertThat(index.position("lunch", SortColumn.AMOUNT, true, 20L)).isEqualTo(4);
+        assertThat(index.rows("lunch", SortColumn.AMOUNT, false, 25, 5)).isEmpty();
+    }
+
+    @Test
+    void writes_shouldRefreshTheLastSearch() {
+        assertThat(index.count("pizza")).isEqualTo(1);
+        assertThat(index.rows("pizza", SortColumn.DATE, false, 0, 10)).hasSize(1);
+
+        index.add(row(5L, "2023-05-31", "Food", "Pizza slice", "2.00"));
+        assertThat(index.count("pizza")).isEqualTo(2);
+        assertThat(index.rows("pizza", SortColumn.DATE, false, 0, 10)).extracting(ExpenseRow::id)
+                .containsExactly(5L, 1L);
+
+        index.remove(5L);
+        assertThat(index.count("pizza")).isEqualTo(1);
+        assertThat(ids("slice")).isEmpty();
+    }
+
+    @Test
+    void remove_shouldDropRowFromResults() {
+        index.remove(3L);
+        index.remove(99L);
+
+        assertThat(ids("food")).containsExactly(1L);
+        assertThat(index.count("")).isEqualTo(3);
+    }
+
+    private List<Long> ids(String text) {
+        List<Long> ids = new ArrayList<>();
+        index.rows(text, SortColumn.ID, false, 0, Integer.MAX_VALUE).forEach(row -> ids.add(row.id()));
+        return ids;
+    }
+
+    private static ExpenseRow row(Long id, String date, String category, String description, String amount) {
+        return new ExpenseRow(id, LocalDate.parse(date), category, description, new BigDecimal(amount));
+    }
+}
@@ -3,22 +3,34 @@ package com.example.expense.service;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.example.expense.model.Category;
+import com.example.expense.model.CategoryTotal;
 import com.example.expense.model.Expense;
+import com.example.expense.model.ExpenseColumns;
+import com.example.expense.model.ExpenseQuery;
+import com.example.expense.model.ExpenseRow;
+import com.example.expense.model.PeriodTotal;
 import com.example.expense.model.User;
+import com.example.expense.model.UserTotal;
+import com.example.expense.repository.ExpenseKey;
 import com.example.expense.repository.ExpenseRepository;
+import com.example.expense.repository.Page;
 import java.io.File;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
@@ -74,30 +86,109 @@ class ExpenseServiceTest {
                 .hasMessage("Expense amount must be positive");
     }
 
+    @Test
+    void addExpenses_shouldSaveAllInOneBatch() {
+        Expense first = new Expense(new BigDecimal("10.00"), LocalDate.now(), "First", null, null);
+        Expense second = new Expense(new BigDecimal("20.00"), LocalDate.now(), "Second", null, null);
+        List<Expense> expenses = Arrays.asList(first, second);
+        when(expenseRepository.saveAll(expenses)).thenReturn(expenses);
+
+        List<Expense> saved = expenseService.addExpenses(expenses);
+
+        assertThat(saved).containsExactly(first, second);
+        verify(expenseRepository).saveAll(expenses);
+        verify(expenseRepository, never()).save(any(Expense.class));
+    }
+
+    @Test
+    void addExpenses_shouldRejectWholeBatch_whenAnyAmountInvalid() {
+        Expense valid = new Expense(new BigDecimal("10.00"), LocalDate.now(), "Valid", null, null);
+        Expense invalid = new Expense(BigDecimal.ZERO, LocalDate.now(), "Invalid", null, null);
+        List<Expense> expenses = Arrays.asList(valid, invalid);
+
+        assertThatThrownBy(() -> expenseService.addExpenses(expenses))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Expense amount must be positive");
+
+        verify(expenseRepository, never()).saveAll(any());
+    }
+
     @Test
     void getExpensesByUser_shouldReturnList() {
         User user = new User();
         user.setId(1L);
         List<Expense> expected = List.of(new Expense());
-        when(expenseRepository.findByUser(user)).thenReturn(expected);
+        when(expenseRepository.findByUserWithDetails(user)).thenReturn(expected);
 
         List<Expense> expenses = expenseService.getExpensesByUser(user);
 
         assertThat(expenses).isEqualTo(expected);
-        verify(expenseRepository).findByUser(user);
+        verify(expenseRepository).findByUserWithDetails(user);
+    }
+
+    @Test
+    void streamExpensesByUser_shouldDelegateToRepositoryStream() {
+        User user = new User();
+        Expense expense = new Expense();
+        when(expenseRepository.streamByUser(user)).thenReturn(Stream.of(expense));
+
+        try (Stream<Expense> stream = expenseService.streamExpensesByUser(user)) {
+            assertThat(stream).containsExactly(expense);
+        }
+    }
+
+    @Test
+    void streamExpensesByUser_withRange_shouldDelegateToRepositoryStream() {
+        User user = new User();
+        LocalDate start = LocalDate.of(2023, 1, 1);
+        LocalDate end = LocalDate.of(2023, 12, 31);
+        Expense expense = new Expense();
+        when(expenseRepository.streamByUserAndDateBetween(user, start, end)).thenReturn(Stream.of(expense));
+
+        try (Stream<Expense> stream = expenseService.streamExpensesByUser(user, start, end)) {
+            assertThat(stream).containsExactly(expense);
+        }
+    }
+
+    @Test
+    void getExpensePage_shouldReturnPageFromRepository() {
+        User user = new User();
+        ExpenseKey after = new ExpenseKey(LocalDate.of(2023, 1, 15), 7L);
+        Page<Expense> page = new Page<>(List.of(new Expense()), true);
+        when(expenseRepository.findPageByUser(user, after, 1)).thenReturn(page);
+
+        assertThat(expenseService.getExpensePage(user, after, 1)).isEqualTo(page);
+    }
+
+    @Test
+    void streamAllExpenses_shouldDelegateToRepositoryStream() {
+        Expense expense = new Expense();
+        when(expenseRepository.streamAll()).thenReturn(Stream.of(expense));
+
+        try (Stream<Expense> stream = expenseService.streamAllExpenses()) {
+            assertThat(stream).containsExactly(expense);
+        }
+    }
+
+    @Test
+    void getAllExpensesPage_shouldReturnPageFromRepository() {
+        Page<Expense> page = new Page<>(List.of(new Expense()), false);
+        when(expenseRepository.findPage(10L, 50)).thenReturn(page);
+
+        assertThat(expenseService.getAllExpensesPage(10L, 50)).isEqualTo(page);
     }
 
     @Test
     void getDailyReport_shouldReturnListFromRepository() {
         User user = new User();
         LocalDate date = LocalDate.of(2023, 1, 15);
-        List<Expense> expected = List.of(new Expense());
-        when(expenseRepository.findByUserAndDateBetween(user, date, date)).thenReturn(expected);
+        List<ExpenseRow> expected = List.of(new ExpenseRow(1L, date, "Food", "Lunch", BigDecimal.ONE));
+        when(expenseRepository.findRowsByUserAndDateBetween(user, date, date)).thenReturn(expected);
 
-        List<Expense> result = expenseService.getDailyReport(user, date);
+        List<ExpenseRow> result = expenseService.getDailyReport(user, date);
 
         assertThat(result).isEqualTo(expected);
-        verify(expenseRepository).findByUserAndDateBetween(user, date, date);
+        verify(expenseRepository).findRowsByUserAndDateBetween(user, date, date);
     }
 
     @Test
@@ -106,13 +197,13 @@ class ExpenseServiceTest {
         LocalDate date = LocalDate.of(2023, 1, 18); // Wednesday
         LocalDate start = LocalDate.of(2023, 1, 16); // Monday
         LocalDate end = LocalDate.of(2023, 1, 22); // Sunday
-        List<Expense> expected = List.of(new Expense());
-        when(expenseRepository.findByUserAndDateBetween(user, start, end)).thenReturn(expected);
+        List<ExpenseRow> expected = List.of(new ExpenseRow(1L, date, "Food", "Lunch", BigDecimal.ONE));
+        when(expenseRepository.findRowsByUserAndDateBetween(user, start, end)).thenReturn(expected);
 
-        List<Expense> result = expenseService.getWeeklyReport(user, date);
+        List<ExpenseRow> result = expenseService.getWeeklyReport(user, date);
 
         assertThat(result).isEqualTo(expected);
-        verify(expenseRepository).findByUserAndDateBetween(user, start, end);
+        verify(expenseRepository).findRowsByUserAndDateBetween(user, start, end);
     }
 
     @Test
@@ -121,13 +212,13 @@ class ExpenseServiceTest {
         LocalDate date = LocalDate.of(2023, 1, 15);
         LocalDate start = LocalDate.of(2023, 1, 1);
         LocalDate end = LocalDate.of(2023, 1, 31);
-        List<Expense> expected = List.of(new Expense());
-        when(expenseRepository.findByUserAndDateBetween(user, start, end)).thenReturn(expected);
+        List<ExpenseRow> expected = List.of(new ExpenseRow(1L, date, "Food", "Lunch", BigDecimal.ONE));
+        when(expenseRepository.findRowsByUserAndDateBetween(user, start, end)).thenReturn(expected);
 
-        List<Expense> result = expenseService.getMonthlyReport(user, date);
+        List<ExpenseRow> result = expenseService.getMonthlyReport(user, date);
 
         assertThat(result).isEqualTo(expected);
-        verify(expenseRepository).findByUserAndDateBetween(user, start, end);
+        verify(expenseRepository).findRowsByUserAndDateBetween(user, start, end);
     }
 
     @Test
@@ -136,13 +227,13 @@ class ExpenseServiceTest {
         LocalDate date = LocalDate.of(2023, 6, 15);
         LocalDate start = LocalDate.of(2023, 1, 1);
         LocalDate end = LocalDate.of(2023, 12, 31);
-        List<Expense> expected = List.of(new Expense());
-        when(expenseRepository.findByUserAndDateBetween(user, start, end)).thenReturn(expected);
+        List<ExpenseRow> expected = List.of(new ExpenseRow(1L, date, "Food", "Lunch", BigDecimal.ONE));
+        when(expenseRepository.findRowsByUserAndDateBetween(user, start, end)).thenReturn(expected);
 
-        List<Expense> result = expenseService.getYearlyReport(user, date);
+        List<ExpenseRow> result = expenseService.getYearlyReport(user, date);
 
         assertThat(result).isEqualTo(expected);
-        verify(expenseRepository).findByUserAndDateBetween(user, start, end);
+        verify(expenseRepository).findRowsByUserAndDateBetween(user, start, end);
     }
 
     @Test
@@ -180,7 +271,7 @@ class ExpenseServiceTest {
     void deleteExpense_shouldDelete_whenExists() {
         Long id = 1L;
         Expense expense = new Expense();
-        when(expenseRepository.findById(id)).thenReturn(Optional.of(expense));
+        when(expenseRepository.findByIdWithDetails(id)).thenReturn(Optional.of(expense));
 
         expenseService.deleteExpense(id);
 
@@ -190,24 +281,197 @@ class ExpenseServiceTest {
     @Test
     void deleteExpense_shouldNotDelete_whenNotExists() {
         Long id = 1L;
-        when(expenseRepository.findById(id)).thenReturn(Optional.empty());
+        when(expenseRepository.findByIdWithDetails(id)).thenReturn(Optional.empty());
 
         expenseService.deleteExpense(id);
 
         verify(expenseRepository, never()).delete(any());
     }
 
+    @Test
+    void writes_shouldPublishChangesToListeners() {
+        User user = new User(5L, "bob", "pass", null);
+        Expense stored = new Expense(BigDecimal.ONE, LocalDate.of(2023, 6, 15), "Lunch", user, new Category("Food"));
+        stored.setId(9L);
+        Expense changed = new Expense(BigDecimal.TEN, LocalDate.of(2023, 6, 15), "Lunch", user, null);
+        changed.setId(9L);
+        when(expenseRepository.save(stored)).thenReturn(stored);
+        when(expenseRepository.findByIdWithDetails(9L)).thenReturn(Optional.of(stored));
+        when(expenseRepository.update(changed)).thenReturn(changed);
+        List<ExpenseChange> published = new ArrayList<>();
+        Consumer<List<ExpenseChange>> listener = published::addAll;
+        expenseService.addChangeListener(listener);
+
+        expenseService.addExpense(stored);
+        expenseService.updateExpense(changed);
+        expenseService.deleteExpense(9L);
+        expenseService.removeChangeListener(listener);
+        expenseService.deleteExpense(9L);
+
+        ExpenseRow food = ExpenseRow.of(stored);
+        assertThat(published).containsExactly(ExpenseChange.added(5L, food),
+                ExpenseChange.updated(5L, food, ExpenseRow.of(changed)),
+                ExpenseChange.deleted(5L, food));
+    }
+
+    @Test
+    void addExpenses_shouldPublishOneListForTheBatch() {
+        List<Expense> expenses = List.of(new Expense(BigDecimal.ONE, LocalDate.now(), "A", null, null),
+                new Expense(BigDecimal.TEN, LocalDate.now(), "B", null, null));
+        when(expenseRepository.saveAll(expenses)).thenReturn(expenses);
+        List<List<ExpenseChange>> published = new ArrayList<>();
+        expenseService.addChangeListener(published::add);
+
+        expenseService.addExpenses(expenses);
+
+        assertThat(published).singleElement().satisfies(changes -> assertThat(changes).hasSize(2));
+    }
+
     @Test
     void getAllExpenses_shouldReturnList() {
-        when(expenseRepository.findAll()).thenReturn(List.of(new Expense()));
+        when(expenseRepository.findAllWithDetails()).thenReturn(List.of(new Expense()));
         assertThat(expenseService.getAllExpenses()).hasSize(1);
     }
 
+    @Test
+    void getExpenseRowsByUser_shouldUseProjectionQuery() {
+        User user = new User();
+        List<ExpenseRow> rows = List.of(new ExpenseRow(1L, LocalDate.now(), null, "Taxi", BigDecimal.TEN));
+        when(expenseRepository.findRowsByUser(user)).thenReturn(rows);
+
+        assertThat(expenseService.getExpenseRowsByUser(user)).isEqualTo(rows);
+        verify(expenseRepository, never()).findByUser(any());
+    }
+
+    @Test
+    void getExpenseRows_shouldDelegateWindowToRepository() {
+        ExpenseQuery query = ExpenseQuery.all();
+        List<ExpenseRow> rows = List.of(new ExpenseRow(1L, LocalDate.now(), null, "Pizza", BigDecimal.ONE));
+        when(expenseRepository.countRows(query)).thenReturn(1000L);
+        when(expenseRepository.findRows(query, 200, 100)).thenReturn(rows);
+
+        assertThat(expenseService.countExpenseRows(query)).isEqualTo(1000L);
+        assertThat(expenseService.getExpenseRows(query, 200, 100)).isEqualTo(rows);
+    }
+
+    @Test
+    void getExpenseRows_withSearch_shouldLoadIndexOnceAndAnswerFromIt() {
+        User user = new User(5L, "bob", "pass", null);
+        ExpenseQuery query = ExpenseQuery.forUser(user).withSearch("piz");
+        when(expenseRepository.findRowsByUser(user)).thenReturn(List.of(
+                new ExpenseRow(1L, LocalDate.of(2023, 6, 2), "Food", "Pizza night", BigDecimal.TEN),
+                new ExpenseRow(2L, LocalDate.of(2023, 6, 1), "Transport", "Taxi", BigDecimal.ONE),
+                new ExpenseRow(3L, LocalDate.of(2023, 6, 1), "Food", "Cold pizza", BigDecimal.ONE)));
+
+        assertThat(expenseService.countExpenseRows(query)).isEqualTo(2L);
+        assertThat(expenseService.getExpenseRows(query, 0, 10)).extracting(ExpenseRow::id).containsExactly(3L, 1L);
+        verify(expenseRepository, times(1)).findRowsByUser(user);
+        verify(expenseRepository, never()).countRows(any());
+        verify(expenseRepository, never()).findRows(any(), anyInt(), anyInt());
+    }
+
+    @Test
+    void getExpenseColumns_shouldLoadProjectionFromRepository() {
+        User user = new User();
+        ExpenseColumns columns = ExpenseColumns.builder().build();
+        when(expenseRepository.findColumns(user)).thenReturn(columns);
+
+        assertThat(expenseService.getExpenseColumns(user)).isSameAs(columns);
+    }
+
+    @Test
+    void getStatistics_shouldAggregateTheUsersColumns() {
+        User user = new User();
+        ExpenseColumns columns = ExpenseColumns.builder()
+                .add(LocalDate.of(2023, 6, 1), new BigDecimal("2.50"), "Food", 1L, "bob")
+                .add(LocalDate.of(2023, 7, 1), new BigDecimal("1.00"), "Food", 1L, "bob")
+                .build();
+        when(expenseRepository.findColumns(user)).thenReturn(columns);
+
+        assertThat(expenseService.getStatistics(user).byCategory())
+                .containsExactly(new CategoryTotal("Food", new BigDecimal("3.50"), 2));
+    }
+
+    @Test
+    void getStatistics_shouldOnlyLoadTheColumnsOfTheRange() {
+        User user = new User();
+        LocalDate start = LocalDate.of(2023, 7, 1);
+        LocalDate end = LocalDate.of(2023, 7, 31);
+        when(expenseRepository.findColumns(user, start, end)).thenReturn(ExpenseColumns.builder()
+                .add(LocalDate.of(2023, 7, 1), new BigDecimal("1.00"), "Food", 1L, "bob")
+                .build());
+
+        assertThat(expenseService.getStatistics(user, start, end).count()).isEqualTo(1);
+        verify(expenseRepository, never()).findColumns(user);
+    }
+
+    @Test
+    void getExpenseRowPosition_shouldCountRowsBeforeInTheDatabase() {
+        ExpenseQuery query = ExpenseQuery.all();
+        ExpenseRow row = new ExpenseRow(1L, LocalDate.now(), null, "Pizza", BigDecimal.ONE);
+        when(expenseRepository.countRowsBefore(query, row)).thenReturn(42L);
+
+        assertThat(expenseService.getExpenseRowPosition(query, row)).isEqualTo(42L);
+    }
+
+    @Test
+    void getExpenseRowPosition_shouldAskTheSearchIndex_whenSearching() {
+        ExpenseRow lunch = new ExpenseRow(1L, LocalDate.of(2023, 6, 1), "Food", "Pizza lunch", BigDecimal.ONE);
+        ExpenseRow dinner = new ExpenseRow(2L, LocalDate.of(2023, 6, 2), "Food", "Pizza dinner", BigDecimal.TEN);
+        ExpenseRow bus = new ExpenseRow(3L, LocalDate.of(2023, 6, 3), "Transport", "Bus", BigDecimal.ONE);
+        when(expenseRepository.findAllRows()).thenReturn(List.of(lunch, dinner, bus));
+        ExpenseQuery pizza = ExpenseQuery.all().withSearch("pizza").sortedBy(ExpenseQuery.SortColumn.AMOUNT, true);
+
+        assertThat(expenseService.getExpenseRowPosition(pizza, lunch)).isEqualTo(1L);
+        assertThat(expenseService.getExpenseRowPosition(pizza, bus)).isEqualTo(-1L);
+        verify(expenseRepository, never()).countRowsBefore(any(), any());
+    }
+
+    @Test
+    void findExpense_shouldLoadItWithDetails() {
+        Expense expense = new Expense(BigDecimal.ONE, LocalDate.now(), "Lunch", new User(), new Category("Food"));
+        when(expenseRepository.findByIdWithDetails(7L)).thenReturn(Optional.of(expense));
+
+        assertThat(expenseService.findExpense(7L)).containsSame(expense);
+    }
+
+    @Test
+    void addAndDeleteExpense_shouldUpdateLoadedSearchIndexes() {
+        User user = new User(5L, "bob", "pass", null);
+        Expense expense = new Expense(BigDecimal.ONE, LocalDate.of(2023, 6, 15), "Pizza", user,
+                new Category("Food"));
+        expense.setId(7L);
+        when(expenseRepository.findRowsByUser(user)).thenReturn(List.of());
+        when(expenseRepository.findAllRows()).thenReturn(List.of());
+        when(expenseRepository.save(expense)).thenReturn(expense);
+        when(expenseRepository.findByIdWithDetails(7L)).thenReturn(Optional.of(expense));
+        ExpenseQuery mine = ExpenseQuery.forUser(user).withSearch("food");
+        ExpenseQuery everyone = ExpenseQuery.all().withSearch("pizza");
+        expenseService.countExpenseRows(mine);
+        expenseService.countExpenseRows(everyone);
+
+        expenseService.addExpense(expense);
+        assertThat(expenseService.countExpenseRows(mine)).isEqualTo(1L);
+        assertThat(expenseService.countExpenseRows(everyone)).isEqualTo(1L);
+
+        expenseService.deleteExpense(7L);
+        assertThat(expenseService.countExpenseRows(mine)).isZero();
+        assertThat(expenseService.countExpenseRows(everyone)).isZero();
+    }
+
+    @Test
+    void getAllExpenseRows_shouldUseProjectionQuery() {
+        List<ExpenseRow> rows = List.of(new ExpenseRow(1L, LocalDate.now(), "Food", "Lunch", BigDecimal.ONE));
+        when(expenseRepository.findAllRows()).thenReturn(rows);
+
+        assertThat(expenseService.getAllExpenseRows()).isEqualTo(rows);
+    }
+
     @Test
     void exportToCsv_shouldCreateFile() throws Exception {
         File file = new File(tempDir, "test.csv");
-        List<Expense> expenses = Arrays.asList(
-                new Expense(new BigDecimal("10.00"), LocalDate.now(), "Desc", new User(), new Category("Cat")));
+        List<ExpenseRow> expenses = Arrays.asList(ExpenseRow.of(
+                new Expense(new BigDecimal("10.00"), LocalDate.now(), "Desc", new User(), new Category("Cat"))));
 
         expenseService.exportToCsv(expenses, file);
 
@@ -222,12 +486,100 @@ class ExpenseServiceTest {
         assertThat(lines.get(1)).contains("10.00", "Desc", "Cat");
     }
 
+    @Test
+    void exportToCsv_shouldStreamRowsFromRepository() throws Exception {
+        File file = new File(tempDir, "stream.csv");
+        User user = new User();
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        LocalDate end = LocalDate.of(2024, 1, 31);
+        when(expenseRepository.countRows(user, start, end)).thenReturn(2L);
+        when(expenseRepository.streamRows(user, start, end)).thenReturn(Stream.of(
+                new ExpenseRow(1L, start, "Food", "Lunch", new BigDecimal("10.00")),
+                new ExpenseRow(2L, end, null, "Misc", new BigDecimal("2.50"))));
+
+        long written = expenseService.exportToCsv(user, start, end, file, false, ExportMonitor.NONE);
+
+        assertThat(written).isEqualTo(2);
+        List<String> lines = java.nio.file.Files.readAllLines(file.toPath());
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(1)).contains("2024-01-01", "Food", "Lunch", "10.00");
+        assertThat(lines.get(2)).contains("2024-01-31", "N/A", "Misc", "2.50");
+    }
+
+    @Test
+    void exportToCsv_shouldWriteReadableGzip() throws Exception {
+        File file = new File(tempDir, "stream.csv.gz");
+        when(expenseRepository.streamRows(null, null, null)).thenReturn(Stream.of(
+                new ExpenseRow(1L, LocalDate.of(2024, 1, 1), "Food", "Lunch", new BigDecimal("10.00"))));
+
+        expenseService.exportToCsv(null, null, null, file, true, ExportMonitor.NONE);
+
+        try (java.io.BufferedReader reader = new java.io.BufferedReader(new java.io.InputStreamReader(
+                new java.util.zip.GZIPInputStream(new java.io.FileInputStream(file)),
+                java.nio.charset.StandardCharsets.UTF_8))) {
+            assertThat(reader.lines()).hasSize(2).last().asString().contains("Lunch", "10.00");
+        }
+    }
+
+    @Test
+    void exportToCsv_shouldLeaveCallersStreamOpen() throws Exception {
+        when(expenseRepository.streamRows(null, null, null)).thenReturn(Stream.of(
+                new ExpenseRow(1L, LocalDate.of(2024, 1, 1), "Food", "Lunch", new BigDecimal("10.00"))));
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                throw new AssertionError("stream closed");
+            }
+        };
+
+        expenseService.exportToCsv(null, null, null, out, false, ExportMonitor.NONE);
+        out.write('#');
+
+        assertThat(out.toString(java.nio.charset.StandardCharsets.UTF_8)).contains("Lunch", "10.00").endsWith("#");
+    }
+
+    @Test
+    void exportToCsv_shouldReportProgress() throws Exception {
+        File file = new File(tempDir, "progress.csv");
+        int rows = ExpenseService.PROGRESS_INTERVAL * 2 + 1;
+        when(expenseRepository.countRows(null, null, null)).thenReturn((long) rows);
+        when(expenseRepository.streamRows(null, null, null)).thenReturn(java.util.stream.IntStream.range(0, rows)
+                .mapToObj(i -> new ExpenseRow((long) i, LocalDate.of(2024, 1, 1), "Food", "Row " + i, BigDecimal.ONE)));
+        List<Long> progress = new ArrayList<>();
+
+        expenseService.exportToCsv(null, null, null, file, false, (written, total) -> progress.add(written));
+
+        assertThat(progress).containsExactly((long) ExpenseService.PROGRESS_INTERVAL,
+                2L * ExpenseService.PROGRESS_INTERVAL, (long) rows);
+    }
+
+    @Test
+    void exportToCsv_shouldDeletePartialFile_whenCancelled() throws Exception {
+        File file = new File(tempDir, "cancelled.csv");
+        when(expenseRepository.streamRows(null, null, null)).thenReturn(Stream.of(
+                new ExpenseRow(1L, LocalDate.of(2024, 1, 1), "Food", "Lunch", BigDecimal.ONE)));
+        ExportMonitor cancelled = new ExportMonitor() {
+            @Override
+            public void progress(long rowsWritten, long totalRows) {
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return true;
+            }
+        };
+
+        assertThatThrownBy(() -> expenseService.exportToCsv(null, null, null, file, false, cancelled))
+                .isInstanceOf(java.util.concurrent.CancellationException.class);
+        assertThat(file).doesNotExist();
+    }
+
     @Test
     void exportToPdf_shouldCreateFile() throws Exception {
         File file = new File(tempDir, "test.pdf");
         LocalDate now = LocalDate.now();
-        List<Expense> expenses = Arrays.asList(
-                new Expense(new BigDecimal("10.00"), now, "Desc1", new User(), new Category("Cat1")));
+        List<ExpenseRow> expenses = Arrays.asList(ExpenseRow.of(
+                new Expense(new BigDecimal("10.00"), now, "Desc1", new User(), new Category("Cat1"))));
 
         expenseService.exportToPdf(expenses, file, "testuser");
 
@@ -253,6 +605,218 @@ class ExpenseServiceTest {
         }
     }
 
+    @Test
+    void exportToPdf_shouldStreamRowsAcrossPagesWithSubtotals() throws Exception {
+        File file = new File(tempDir, "stream.pdf");
+        int rows = ExpenseService.PDF_CHUNK_ROWS * 3 + 7;
+        when(expenseRepository.countRows(null, null, null)).thenReturn((long) rows);
+        when(expenseRepository.streamRows(null, null, null)).thenReturn(java.util.stream.IntStream.range(0, rows)
+                .mapToObj(i -> new ExpenseRow((long) i, LocalDate.of(2024, 1 + i % 2, 1), i % 2 == 0 ? "Food" : null,
+                        "Row " + i, new BigDecimal("1.25"))));
+
+        long written = expenseService.exportToPdf(null, null, null, file, ExportMonitor.NONE);
+
+        assertThat(written).isEqualTo(rows);
+        try (com.lowagie.text.pdf.PdfReader reader = new com.lowagie.text.pdf.PdfReader(file.getAbsolutePath())) {
+            com.lowagie.text.pdf.parser.PdfTextExtractor extractor = new com.lowagie.text.pdf.parser.PdfTextExtractor(
+                    reader);
+            assertThat(reader.getNumberOfPages()).isGreaterThan(1);
+            // The header row repeats on every page
+            assertThat(extractor.getTextFromPage(2)).contains("Description");
+            String lastPage = extractor.getTextFromPage(reader.getNumberOfPages());
+            assertThat(lastPage).contains("Row " + (rows - 1));
+            assertThat(lastPage).contains("Total Spending: 383.75");
+            assertThat(lastPage).contains("Food 154 192.50", "N/A 153 191.25");
+            assertThat(lastPage).contains("2024-01 154 192.50", "2024-02 153 191.25");
+        }
+    }
+
+    @Test
+    void exportToPdf_shouldReportProgress() throws Exception {
+        File file = new File(tempDir, "progress.pdf");
+        int rows = ExpenseService.PROGRESS_INTERVAL + 1;
+        when(expenseRepository.countRows(null, null, null)).thenReturn((long) rows);
+        when(expenseRepository.streamRows(null, null, null)).thenReturn(java.util.stream.IntStream.range(0, rows)
+                .mapToObj(i -> new ExpenseRow((long) i, LocalDate.of(2024, 1, 1), "Food", "Row " + i, BigDecimal.ONE)));
+        List<Long> progress = new ArrayList<>();
+
+        expenseService.exportToPdf(null, null, null, file, (written, total) -> progress.add(written));
+
+        assertThat(progress).containsExactly((long) ExpenseService.PROGRESS_INTERVAL, (long) rows);
+    }
+
+    @Test
+    void exportToPdf_shouldDeletePartialFile_whenCancelled() throws Exception {
+        File file = new File(tempDir, "cancelled.pdf");
+        when(expenseRepository.streamRows(null, null, null)).thenReturn(Stream.of(
+                new ExpenseRow(1L, LocalDate.of(2024, 1, 1), "Food", "Lunch", BigDecimal.ONE)));
+        ExportMonitor cancelled = new ExportMonitor() {
+            @Override
+            public void progress(long rowsWritten, long totalRows) {
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return true;
+            }
+        };
+
+        assertThatThrownBy(() -> expenseService.exportToPdf(null, null, null, file, cancelled))
+                .isInstanceOf(java.util.concurrent.CancellationException.class);
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void getReport_shouldServeRepeatedAndNarrowerPeriodsFromCache() {
+        User user = new User(5L, "bob", "pass", null);
+        LocalDate date = LocalDate.of(2023, 6, 15);
+        LocalDate yearStart = LocalDate.of(2023, 1, 1);
+        LocalDate yearEnd = LocalDate.of(2023, 12, 31);
+        when(expenseRepository.findRowsByUserAndDateBetween(user, yearStart, yearEnd)).thenReturn(List.of(
+                new ExpenseRow(1L, date, "Food", "Lunch", BigDecimal.ONE),
+                new ExpenseRow(2L, LocalDate.of(2023, 8, 1), "Food", "Dinner", BigDecimal.TEN)));
+
+        expenseService.getYearlyReport(user, date);
+        expenseService.getYearlyReport(user, date);
+        List<ExpenseRow> june = expenseService.getMonthlyReport(user, date);
+
+        assertThat(june).extracting(ExpenseRow::description).containsExactly("Lunch");
+        verify(expenseRepository, times(1)).findRowsByUserAndDateBetween(any(), any(), any());
+        assertThat(expenseService.getReportCacheStats().hits()).isEqualTo(2);
+        assertThat(expenseService.getReportCacheStats().misses()).isEqualTo(1);
+    }
+
+    @Test
+    void addExpense_shouldInvalidateCachedReportsOfThatDate() {
+        User user = new User(5L, "bob", "pass", null);
+        LocalDate date = LocalDate.of(2023, 6, 15);
+        Expense expense = new Expense(BigDecimal.ONE, date, "Lunch", user, null);
+        when(expenseRepository.save(expense)).thenReturn(expense);
+
+        expenseService.getDailyReport(user, date);
+        expenseService.getDailyReport(user, date.plusDays(1));
+        expenseService.addExpense(expense);
+        expenseService.getDailyReport(user, date);
+        expenseService.getDailyReport(user, date.plusDays(1));
+
+        verify(expenseRepository, times(2)).findRowsByUserAndDateBetween(user, date, date);
+        verify(expenseRepository, times(1)).findRowsByUserAndDateBetween(user, date.plusDays(1), date.plusDays(1));
+    }
+
+    @Test
+    void updateExpense_shouldInvalidateOldAndNewDates() {
+        User user = new User(5L, "bob", "pass", null);
+        LocalDate oldDate = LocalDate.of(2023, 6, 15);
+        LocalDate newDate = LocalDate.of(2023, 7, 15);
+        Expense stored = new Expense(BigDecimal.ONE, oldDate, "Lunch", user, null);
+        Expense changed = new Expense(BigDecimal.ONE, newDate, "Lunch", user, null);
+        changed.setId(9L);
+        when(expenseRepository.findByIdWithDetails(9L)).thenReturn(Optional.of(stored));
+        when(expenseRepository.update(changed)).thenReturn(changed);
+
+        expenseService.getMonthlyReport(user, oldDate);
+        expenseService.getMonthlyReport(user, newDate);
+        expenseService.updateExpense(changed);
+        expenseService.getMonthlyReport(user, oldDate);
+        expenseService.getMonthlyReport(user, newDate);
+
+        verify(expenseRepository, times(4)).findRowsByUserAndDateBetween(any(), any(), any());
+    }
+
+    @Test
+    void deleteExpense_shouldInvalidateCachedReports() {
+        User user = new User(5L, "bob", "pass", null);
+        LocalDate date = LocalDate.of(2023, 6, 15);
+        Expense expense = new Expense(BigDecimal.ONE, date, "Lunch", user, null);
+        when(expenseRepository.findByIdWithDetails(3L)).thenReturn(Optional.of(expense));
+
+        expenseService.getYearlyReport(user, date);
+        expenseService.deleteExpense(3L);
+        expenseService.getYearlyReport(user, date);
+
+        verify(expenseRepository, times(2)).findRowsByUserAndDateBetween(any(), any(), any());
+    }
+
+    @Test
+    void getTotalByUser_shouldUseAggregateQuery() {
+        User user = new User();
+        when(expenseRepository.sumByUser(user)).thenReturn(new BigDecimal("42.50"));
+
+        assertThat(expenseService.getTotalByUser(user)).isEqualByComparingTo("42.50");
+        verify(expenseRepository, never()).findByUser(any());
+    }
+
+    @Test
+    void getTotalByUser_withRange_shouldUseAggregateQuery() {
+        User user = new User();
+        LocalDate start = LocalDate.of(2023, 1, 1);
+        LocalDate end = LocalDate.of(2023, 1, 31);
+        when(expenseRepository.sumByUserAndDateBetween(user, start, end)).thenReturn(BigDecimal.TEN);
+
+        assertThat(expenseService.getTotalByUser(user, start, end)).isEqualByComparingTo(BigDecimal.TEN);
+    }
+
+    @Test
+    void getCategoryAndUserTotals_shouldDelegateToRepository() {
+        User user = new User();
+        List<CategoryTotal> mine = List.of(new CategoryTotal("Food", BigDecimal.ONE, 1));
+        List<CategoryTotal> all = List.of(new CategoryTotal("Food", BigDecimal.TEN, 3));
+        List<UserTotal> users = List.of(new UserTotal("bob", BigDecimal.TEN, 3));
+        when(expenseRepository.totalsByCategory(user)).thenReturn(mine);
+        when(expenseRepository.totalsByCategory()).thenReturn(all);
+        when(expenseRepository.totalsByUser()).thenReturn(users);
+
+        assertThat(expenseService.getCategoryTotals(user)).isEqualTo(mine);
+        assertThat(expenseService.getCategoryTotals()).isEqualTo(all);
+        assertThat(expenseService.getUserTotals()).isEqualTo(users);
+    }
+
+    @Test
+    void getDailyTotals_shouldDelegateToRepository() {
+        User user = new User();
+        LocalDate day = LocalDate.of(2023, 1, 2);
+        List<PeriodTotal> days = List.of(new PeriodTotal(day, BigDecimal.ONE, 1));
+        when(expenseRepository.totalsByDay(user, day, day)).thenReturn(days);
+
+        assertThat(expenseService.getDailyTotals(user, day, day)).isEqualTo(days);
+    }
+
+    @Test
+    void getWeeklyTotals_shouldRollUpDaysFromMonday() {
+        User user = new User();
+        LocalDate start = LocalDate.of(2023, 1, 1);
+        LocalDate end = LocalDate.of(2023, 1, 31);
+        // 2023-01-02 and 2023-01-08 are Monday and Sunday of the same week
+        when(expenseRepository.totalsByDay(user, start, end)).thenReturn(List.of(
+                new PeriodTotal(LocalDate.of(2023, 1, 1), new BigDecimal("1.00"), 1),
+                new PeriodTotal(LocalDate.of(2023, 1, 2), new BigDecimal("2.00"), 2),
+                new PeriodTotal(LocalDate.of(2023, 1, 8), new BigDecimal("3.00"), 1)));
+
+        List<PeriodTotal> weeks = expenseService.getWeeklyTotals(user, start, end);
+
+        assertThat(weeks).extracting(PeriodTotal::periodStart)
+                .containsExactly(LocalDate.of(2022, 12, 26), LocalDate.of(2023, 1, 2));
+        assertThat(weeks.get(1).total()).isEqualByComparingTo("5.00");
+        assertThat(weeks.get(1).count()).isEqualTo(3);
+    }
+
+    @Test
+    void getMonthlyTotals_shouldRollUpDaysByMonth() {
+        User user = new User();
+        LocalDate start = LocalDate.of(2023, 1, 1);
+        LocalDate end = LocalDate.of(2023, 2, 28);
+        when(expenseRepository.totalsByDay(user, start, end)).thenReturn(List.of(
+                new PeriodTotal(LocalDate.of(2023, 1, 5), new BigDecimal("1.00"), 1),
+                new PeriodTotal(LocalDate.of(2023, 1, 20), new BigDecimal("2.00"), 1),
+                new PeriodTotal(LocalDate.of(2023, 2, 3), new BigDecimal("4.00"), 1)));
+
+        List<PeriodTotal> months = expenseService.getMonthlyTotals(user, start, end);
+
+        assertThat(months).containsExactly(
+                new PeriodTotal(LocalDate.of(2023, 1, 1), new BigDecimal("3.00"), 2),
+                new PeriodTotal(LocalDate.of(2023, 2, 1), new BigDecimal("4.00"), 1));
+    }
+
     @Test
     void addExpense_shouldThrowException_whenAmountIsNull() {
         Expense expense = new Expense();
@@ -0,0 +1,342 @@
+package com.example.expense.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.expense.model.ExpenseRow;
+import com.example.expense.model.Role;
+import com.example.expense.model.User;
+import com.example.expense.repository.ExpenseRepository;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ExportJobServiceTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final LocalDate END = LocalDate.of(2024, 12, 31);
+
+    @Mock
+    private ExpenseService expenseService;
+
+    @Mock
+    private ExpenseRepository expenseRepository;
+
+    @TempDir
+    File tempDir;
+
+    private final User user = new User(1L, "alice", "secret", Role.USER);
+
+    @Test
+    void submit_shouldRunExportAndPublishEachStatus() throws Exception {
+        ExportJobService service = new ExportJobService(expenseService, Runnable::run);
+        List<ExportJob.Status> statuses = new ArrayList<>();
+        service.addListener(job -> statuses.add(job.getStatus()));
+        File file = new File(tempDir, "alice.csv");
+
+        ExportJob job = service.submit(new ExportRequest(ExportFormat.CSV, user, START, END, file));
+
+        assertThat(job.getStatus()).isEqualTo(ExportJob.Status.COMPLETED);
+        assertThat(statuses).containsExactly(ExportJob.Status.QUEUED, ExportJob.Status.RUNNING,
+                ExportJob.Status.COMPLETED);
+        verify(expenseService).exportToCsv(eq(user), eq(START), eq(END), eq(file), eq(false), any());
+    }
+
+    @Test
+    void submit_shouldPickExporterByFormat() throws Exception {
+        ExportJobService service = new ExportJobService(expenseService, Runnable::run);
+        File gzip = new File(tempDir, "alice.csv.gz");
+        File pdf = new File(tempDir, "alice.pdf");
+
+        service.submit(new ExportRequest(ExportFormat.CSV_GZIP, user, null, null, gzip));
+        service.submit(new ExportRequest(ExportFormat.PDF, user, null, null, pdf));
+
+        verify(expenseService).exportToCsv(eq(user), eq(null), eq(null), eq(gzip), eq(true), any());
+        verify(expenseService).exportToPdf(eq(user), eq(null), eq(null), eq(pdf), any());
+    }
+
+    @Test
+    void submit_shouldRecordProgress() throws Exception {
+        ExportJobService service = new ExportJobService(expenseService, Runnable::run);
+        when(expenseService.exportToCsv(any(), any(), any(), any(File.class), anyBoolean(), any())).thenAnswer(invocation -> {
+            ExportMonitor monitor = invocation.getArgument(5);
+            monitor.progress(1_000, 4_000);
+            return 1_000L;
+        });
+        List<Long> progress = new ArrayList<>();
+        service.addListener(job -> progress.add(job.getRowsWritten()));
+
+        ExportJob job = service.submit(new ExportRequest(ExportFormat.CSV, user, START, END,
+                new File(tempDir, "alice.csv")));
+
+        assertThat(job.getRowsWritten()).isEqualTo(1_000);
+        assertThat(job.getTotalRows()).isEqualTo(4_000);
+        assertThat(progress).contains(1_000L);
+    }
+
+    @Test
+    void submit_shouldMarkJobFailed_whenExportThrows() throws Exception {
+        ExportJobService service = new ExportJobService(expenseService, Runnable::run);
+        when(expenseService.exportToCsv(any(), any(), any(), any(File.class), anyBoolean(), any()))
+                .thenThrow(new IOException("Disk full"));
+
+        ExportJob job = service.submit(new ExportRequest(ExportFormat.CSV, user, START, END,
+                new File(tempDir, "alice.csv")));
+
+        assertThat(job.getStatus()).isEqualTo(ExportJob.Status.FAILED);
+        assertThat(job.getError()).isEqualTo("Disk full");
+    }
+
+    @Test
+    void cancel_shouldDropQueuedJob() throws Exception {
+        List<Runnable> queue = new ArrayList<>();
+        ExportJobService service = new ExportJobService(expenseService, queue::add);
+        ExportJob job = service.submit(new ExportRequest(ExportFormat.CSV, user, START, END,
+                new File(tempDir, "alice.csv")));
+
+        List<ExportJob.Status> heard = new ArrayList<>();
+        service.addListener(changed -> heard.add(changed.getStatus()));
+
+        service.cancel(job);
+        queue.forEach(Runnable::run);
+
+        assertThat(job.getStatus()).isEqualTo(ExportJob.Status.CANCELLED);
+        assertThat(heard).containsExactly(ExportJob.Status.CANCELLED);
+        verify(expenseService, never()).exportToCsv(any(), any(), any(), any(File.class), anyBoolean(), any());
+    }
+
+    @Test
+    void cancel_shouldStopRunningJob() throws Exception {
+        ExportJobService service = new ExportJobService(expenseService, Runnable::run);
+        when(expenseService.exportToCsv(any(), any(), any(), any(File.class), anyBoolean(), any())).thenAnswer(invocation -> {
+            service.getJobs().forEach(service::cancel);
+            ExportMonitor monitor = invocation.getArgument(5);
+            if (monitor.isCancelled()) {
+                throw new CancellationException("Export cancelled");
+            }
+            return 0L;
+        });
+
+        ExportJob job = service.submit(new ExportRequest(ExportFormat.CSV, user, START, END,
+                new File(tempDir, "alice.csv")));
+
+        assertThat(job.getStatus()).isEqualTo(ExportJob.Status.CANCELLED);
+    }
+
+    @Test
+    void submitAll_shouldQueueOneJobPerUserNamedAfterThem() throws Exception {
+        ExportJobService service = new ExportJobService(expenseService, Runnable::run);
+        User bob = new User(2L, "bob/../x", "secret", Role.USER);
+
+        List<ExportJob> jobs = service.submitAll(List.of(user, bob), ExportFormat.PDF, START, END, tempDir);
+
+        assertThat(jobs).extracting(job -> job.getRequest().destination())
+                .containsExactly(new File(tempDir, "Expense_Report_alice.pdf"),
+                        new File(tempDir, "Expense_Report_bob_.._x.pdf"));
+        assertThat(service.getJobs()).containsExactlyElementsOf(jobs);
+    }
+
+    @Test
+    void clearFinished_shouldKeepUnfinishedJobs() {
+        List<Runnable> queue = new ArrayList<>();
+        ExportJobService service = new ExportJobService(expenseService, queue::add);
+        ExportJob finished = service.submit(new ExportRequest(ExportFormat.CSV, user, START, END,
+                new File(tempDir, "a.csv")));
+        ExportJob queued = service.submit(new ExportRequest(ExportFormat.CSV, user, START, END,
+                new File(tempDir, "b.csv")));
+        queue.get(0).run();
+
+        service.clearFinished();
+
+        assertThat(finished.getStatus()).isEqualTo(ExportJob.Status.COMPLETED);
+        assertThat(service.getJobs()).containsExactly(queued);
+    }
+
+    @Test
+    void submit_shouldRunNoMoreJobsAtOnceThanWorkers() throws Exception {
+        ExportJobService service = new ExportJobService(expenseService, 2);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(6);
+        when(expenseService.exportToCsv(any(), any(), any(), any(File.class), anyBoolean(), any())).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            running.decrementAndGet();
+            return 0L;
+        });
+        service.addListener(job -> {
+            if (job.getStatus().isFinished()) {
+                done.countDown();
+            }
+        });
+
+        for (int i = 0; i < 6; i++) {
+            service.submit(new ExportRequest(ExportFormat.CSV, user, START, END, new File(tempDir, i + ".csv")));
+        }
+
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(maxRunning.get()).isEqualTo(2);
+        service.shutdown();
+    }
+
+    @Test
+    void submit_shouldDeletePartialFile_whenExportFails() throws Exception {
+        File file = new File(tempDir, "alice.csv");
+        when(expenseRepository.streamRows(user, START, END)).thenReturn(Stream.of(1L, 2L).map(id -> {
+            if (id == 2L) {
+                throw new IllegalStateException("Connection lost");
+            }
+            return row(id);
+        }));
+        ExportJobService service = new ExportJobService(new ExpenseService(expenseRepository), Runnable::run);
+
+        ExportJob job = service.submit(new ExportRequest(ExportFormat.CSV, user, START, END, file));
+
+        assertThat(job.getStatus()).isEqualTo(ExportJob.Status.FAILED);
+        assertThat(job.getError()).isEqualTo("Connection lost");
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void cancel_shouldStopJobRunningOnAWorker_andDeleteItsFile() throws Exception {
+        File file = new File(tempDir, "alice.csv");
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        when(expenseRepository.streamRows(user, START, END)).thenReturn(Stream.of(1L, 2L).map(id -> {
+            if (id == 2L) {
+                writing.countDown();
+                await(cancelled);
+            }
+            return row(id);
+        }));
+        ExportJobService service = new ExportJobService(new ExpenseService(expenseRepository));
+        CountDownLatch finished = new CountDownLatch(1);
+        List<ExportJob.Status> finishes = new CopyOnWriteArrayList<>();
+        service.addListener(job -> {
+            if (job.getStatus().isFinished()) {
+                finishes.add(job.getStatus());
+                finished.countDown();
+            }
+        });
+
+        ExportJob job = service.submit(new ExportRequest(ExportFormat.CSV, user, START, END, file));
+        assertThat(writing.await(10, TimeUnit.SECONDS)).isTrue();
+        service.cancel(job);
+        service.clearFinished();
+
+        // The worker still owns the job until it has stopped and deleted the file
+        assertThat(job.getStatus()).isEqualTo(ExportJob.Status.RUNNING);
+        assertThat(service.getJobs()).containsExactly(job);
+        assertThat(finishes).isEmpty();
+        cancelled.countDown();
+
+        assertThat(finished.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(job.getStatus()).isEqualTo(ExportJob.Status.CANCELLED);
+        assertThat(file).doesNotExist();
+        service.shutdown();
+        assertThat(finishes).containsExactly(ExportJob.Status.CANCELLED);
+    }
+
+    @Test
+    void cancel_shouldStopJobBeforeItsExport_whenCancelledAsItsWorkerStartsIt() throws Exception {
+        ExportJobService service = new ExportJobService(expenseService, Runnable::run);
+        List<ExportJob.Status> heard = new ArrayList<>();
+        service.addListener(job -> {
+            heard.add(job.getStatus());
+            if (job.getStatus() == ExportJob.Status.RUNNING) {
+                service.cancel(job);
+            }
+        });
+
+        ExportJob job = service.submit(new ExportRequest(ExportFormat.CSV, user, START, END,
+                new File(tempDir, "alice.csv")));
+
+        assertThat(job.getStatus()).isEqualTo(ExportJob.Status.CANCELLED);
+        assertThat(heard).containsExactly(ExportJob.Status.QUEUED, ExportJob.Status.RUNNING,
+                ExportJob.Status.CANCELLED);
+        verify(expenseService, never()).exportToCsv(any(), any(), any(), any(File.class), anyBoolean(), any());
+    }
+
+    @Test
+    void cancel_shouldLeaveFinishedJobAlone() throws Exception {
+        ExportJobService service = new ExportJobService(expenseService, Runnable::run);
+        List<ExportJob.Status> heard = new ArrayList<>();
+        ExportJob job = service.submit(new ExportRequest(ExportFormat.CSV, user, START, END,
+                new File(tempDir, "alice.csv")));
+        service.addListener(changed -> heard.add(changed.getStatus()));
+
+        service.cancel(job);
+
+        assertThat(job.getStatus()).isEqualTo(ExportJob.Status.COMPLETED);
+        assertThat(heard).isEmpty();
+    }
+
+    @Test
+    void removeListener_shouldStopPublishingToIt() {
+        ExportJobService service = new ExportJobService(expenseService, Runnable::run);
+        List<ExportJob> heard = new ArrayList<>();
+        Consumer<ExportJob> listener = heard::add;
+        service.addListener(listener);
+        service.removeListener(listener);
+
+        service.submit(new ExportRequest(ExportFormat.CSV, user, START, END, new File(tempDir, "alice.csv")));
+
+        assertThat(heard).isEmpty();
+    }
+
+    @Test
+    void submit_shouldNumberJobsInOrder() {
+        ExportJobService service = new ExportJobService(expenseService, Runnable::run);
+
+        ExportJob first = service.submit(new ExportRequest(ExportFormat.CSV, user, START, END,
+                new File(tempDir, "a.csv")));
+        ExportJob second = service.submit(new ExportRequest(ExportFormat.PDF, user, START, END,
+                new File(tempDir, "b.pdf")));
+
+        assertThat(second.getId()).isEqualTo(first.getId() + 1);
+        assertThat(second).hasToString("ExportJob[" + second.getId() + ", COMPLETED, b.pdf]");
+        assertThat(second.getRequest().format()).hasToString("PDF");
+    }
+
+    @Test
+    void exportRequest_shouldRequireFormatAndDestination() {
+        assertThatThrownBy(() -> new ExportRequest(null, user, START, END, new File(tempDir, "a.csv")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new ExportRequest(ExportFormat.CSV, user, START, END, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ExpenseRow row(long id) {
+        return new ExpenseRow(id, START, "Food", "Lunch", BigDecimal.TEN);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
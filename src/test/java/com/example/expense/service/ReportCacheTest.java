@@ -0,0 +1,165 @@
+package com.example.expense.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.expense.model.ExpenseRow;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ReportCacheTest {
+
+    private static final LocalDate JUNE_15 = LocalDate.of(2023, 6, 15);
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    private ReportCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new ReportCache(3, Duration.ofMinutes(5), clock::get);
+    }
+
+    @Test
+    void get_shouldLoadOnceAndThenHit() {
+        List<ExpenseRow> first = cache.get(1L, ReportPeriod.MONTHLY, JUNE_15, loader(row(JUNE_15)));
+        List<ExpenseRow> second = cache.get(1L, ReportPeriod.MONTHLY, JUNE_15.plusDays(3), loader());
+
+        assertThat(second).isEqualTo(first).hasSize(1);
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats()).isEqualTo(new ReportCache.Stats(1, 1, 0));
+    }
+
+    @Test
+    void get_shouldSliceNarrowerPeriodFromCachedYear() {
+        cache.get(1L, ReportPeriod.YEARLY, JUNE_15, loader(row(LocalDate.of(2023, 1, 3)), row(JUNE_15),
+                row(LocalDate.of(2023, 6, 30)), row(LocalDate.of(2023, 7, 1))));
+
+        List<ExpenseRow> june = cache.get(1L, ReportPeriod.MONTHLY, JUNE_15, loader());
+        List<ExpenseRow> day = cache.get(1L, ReportPeriod.DAILY, JUNE_15, loader());
+
+        assertThat(june).extracting(ExpenseRow::date).containsExactly(JUNE_15, LocalDate.of(2023, 6, 30));
+        assertThat(day).extracting(ExpenseRow::date).containsExactly(JUNE_15);
+        assertThat(loads).hasValue(1);
+        assertThat(cache.stats().hits()).isEqualTo(2);
+    }
+
+    @Test
+    void get_shouldNotSliceWeekCrossingTheCachedMonth() {
+        cache.get(1L, ReportPeriod.MONTHLY, JUNE_15, loader());
+
+        // Week of 2023-06-26 runs into July
+        cache.get(1L, ReportPeriod.WEEKLY, LocalDate.of(2023, 6, 28), loader());
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void get_shouldKeepUsersApart() {
+        cache.get(1L, ReportPeriod.DAILY, JUNE_15, loader(row(JUNE_15)));
+
+        assertThat(cache.get(2L, ReportPeriod.DAILY, JUNE_15, loader())).isEmpty();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void get_shouldReloadAfterTtl() {
+        cache.get(1L, ReportPeriod.DAILY, JUNE_15, loader());
+        clock.addAndGet(Duration.ofMinutes(6).toNanos());
+
+        cache.get(1L, ReportPeriod.DAILY, JUNE_15, loader());
+
+        assertThat(loads).hasValue(2);
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+    }
+
+    @Test
+    void get_shouldEvictLeastRecentlyUsedBeyondMaxEntries() {
+        cache.get(1L, ReportPeriod.DAILY, JUNE_15, loader());
+        cache.get(1L, ReportPeriod.DAILY, JUNE_15.plusDays(1), loader());
+        cache.get(1L, ReportPeriod.DAILY, JUNE_15.plusDays(2), loader());
+        cache.get(1L, ReportPeriod.DAILY, JUNE_15, loader());
+        cache.get(1L, ReportPeriod.DAILY, JUNE_15.plusDays(3), loader());
+
+        assertThat(cache.size()).isEqualTo(3);
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+        cache.get(1L, ReportPeriod.DAILY, JUNE_15, loader());
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void invalidate_shouldOnlyDropPeriodsContainingTheDate() {
+        cache.get(1L, ReportPeriod.MONTHLY, JUNE_15, loader());
+        cache.get(1L, ReportPeriod.MONTHLY, LocalDate.of(2023, 7, 1), loader());
+        cache.get(2L, ReportPeriod.MONTHLY, JUNE_15, loader());
+
+        cache.invalidate(1L, JUNE_15);
+
+        assertThat(cache.size()).isEqualTo(2);
+        cache.get(1L, ReportPeriod.MONTHLY, JUNE_15, loader());
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void invalidate_withoutDate_shouldDropAllEntriesOfTheUser() {
+        cache.get(1L, ReportPeriod.MONTHLY, JUNE_15, loader());
+        cache.get(1L, ReportPeriod.YEARLY, JUNE_15, loader());
+        cache.get(2L, ReportPeriod.YEARLY, JUNE_15, loader());
+
+        cache.invalidate(1L, null);
+
+        assertThat(cache.size()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidateAll_shouldClearTheCache() {
+        cache.get(1L, ReportPeriod.MONTHLY, JUNE_15, loader());
+
+        cache.invalidateAll();
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void get_shouldNotCacheRowsLoadedAcrossAnInvalidation() {
+        cache.get(1L, ReportPeriod.DAILY, JUNE_15, () -> {
+            cache.invalidate(1L, JUNE_15);
+            return List.of(row(JUNE_15));
+        });
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void get_shouldReturnUnmodifiableRows() {
+        List<ExpenseRow> rows = cache.get(1L, ReportPeriod.DAILY, JUNE_15,
+                () -> new ArrayList<>(List.of(row(JUNE_15))));
+
+        assertThatThrownBy(rows::clear).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void constructor_shouldRejectNonPositiveSize() {
+        assertThatThrownBy(() -> new ReportCache(0, Duration.ofMinutes(1), clock::get))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Supplier<List<ExpenseRow>> loader(ExpenseRow... rows) {
+        return () -> {
+            loads.incrementAndGet();
+            return List.of(rows);
+        };
+    }
+
+    private static ExpenseRow row(LocalDate date) {
+        return new ExpenseRow(null, date, "Food", "Row", BigDecimal.ONE);
+    }
+}
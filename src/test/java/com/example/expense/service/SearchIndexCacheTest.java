@@ -0,0 +1,136 @@
+package com.example.expense.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.expense.model.ExpenseRow;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SearchIndexCacheTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    private SearchIndexCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SearchIndexCache(2, Duration.ofMinutes(5), clock::get);
+    }
+
+    @Test
+    void get_shouldLoadOnceAndThenHit() {
+        ExpenseSearchIndex first = cache.get(1L, loader(row(1L, "Pizza")));
+        ExpenseSearchIndex second = cache.get(1L, loader());
+
+        assertThat(second).isSameAs(first);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void get_shouldEvictTheLeastRecentlyUsedIndex() {
+        cache.get(1L, loader());
+        cache.get(2L, loader());
+        cache.get(1L, loader());
+
+        cache.get(3L, loader());
+        cache.get(1L, loader());
+        cache.get(2L, loader());
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(loads).hasValue(4);
+    }
+
+    @Test
+    void get_shouldReloadAfterTheTtl() {
+        cache.get(1L, loader());
+        clock.addAndGet(Duration.ofMinutes(5).toNanos());
+
+        ExpenseSearchIndex reloaded = cache.get(1L, loader(row(1L, "Written elsewhere")));
+
+        assertThat(loads).hasValue(2);
+        assertThat(reloaded.count("elsewhere")).isEqualTo(1);
+    }
+
+    @Test
+    void apply_shouldUpdateTheOwnersAndTheAllUsersIndexes() {
+        ExpenseSearchIndex own = cache.get(1L, loader());
+        ExpenseSearchIndex other = cache.get(2L, loader());
+
+        cache.apply(1L, index -> index.add(row(5L, "Taxi")));
+
+        assertThat(own.count("taxi")).isEqualTo(1);
+        assertThat(other.count("taxi")).isZero();
+        cache.apply(2L, index -> index.add(row(6L, "Taxi")));
+        assertThat(cache.get(SearchIndexCache.ALL_USERS, loader()).count("taxi")).isZero();
+    }
+
+    @Test
+    void get_shouldReplayWritesMadeWhileLoading() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<ExpenseSearchIndex> search = CompletableFuture.supplyAsync(() -> cache.get(1L, () -> {
+            loading.countDown();
+            await(release);
+            return List.of(row(1L, "Pizza"), row(2L, "Taxi"));
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Neither write waits for the load
+        cache.apply(1L, index -> index.add(row(3L, "Bus")));
+        cache.apply(1L, index -> index.remove(2L));
+        release.countDown();
+
+        ExpenseSearchIndex index = search.get(5, TimeUnit.SECONDS);
+        assertThat(index.count("")).isEqualTo(2);
+        assertThat(index.count("bus")).isEqualTo(1);
+        assertThat(index.count("taxi")).isZero();
+    }
+
+    @Test
+    void get_shouldNotCacheFailedLoads() {
+        assertThatThrownBy(() -> cache.get(1L, () -> {
+            throw new IllegalStateException("Database down");
+        })).isInstanceOf(IllegalStateException.class).hasMessage("Database down");
+
+        cache.get(1L, loader());
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void constructor_shouldRejectNonPositiveSize() {
+        assertThatThrownBy(() -> new SearchIndexCache(0, Duration.ofMinutes(5), clock::get))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private Supplier<Collection<ExpenseRow>> loader(ExpenseRow... rows) {
+        return () -> {
+            loads.incrementAndGet();
+            return List.of(rows);
+        };
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ExpenseRow row(Long id, String description) {
+        return new ExpenseRow(id, LocalDate.of(2023, 6, 1), null, description, BigDecimal.ONE);
+    }
+}
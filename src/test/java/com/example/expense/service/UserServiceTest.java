@@ -8,6 +8,7 @@ import static org.mockito.Mockito.when;
 
 import com.example.expense.model.Role;
 import com.example.expense.model.User;
+import com.example.expense.repository.Page;
 import com.example.expense.repository.UserRepository;
 import java.util.List;
 import java.util.Optional;
@@ -49,6 +50,25 @@ class UserServiceTest {
         assertThat(result).isEmpty();
     }
 
+    @Test
+    void registerUsers_shouldSaveAllWithOneHashedPassword() {
+        when(userRepository.saveAll(any())).thenAnswer(invocation -> List.copyOf(invocation.getArgument(0)));
+
+        List<User> users = userService.registerUsers(List.of("ann", "bob"), "pass", Role.USER);
+
+        assertThat(users).extracting(User::getUsername).containsExactly("ann", "bob");
+        assertThat(users.get(0).getPassword()).isEqualTo(users.get(1).getPassword());
+        assertThat(org.mindrot.jbcrypt.BCrypt.checkpw("pass", users.get(0).getPassword())).isTrue();
+    }
+
+    @Test
+    void getUserPage_shouldReadOneKeysetPage() {
+        Page<User> page = new Page<>(List.of(new User(3L, "ann", "pass", Role.USER)), true);
+        when(userRepository.findPage(2L, 1)).thenReturn(page);
+
+        assertThat(userService.getUserPage(2L, 1)).isSameAs(page);
+    }
+
     @Test
     void authenticate_shouldReturnEmpty_whenUserNotFound() {
         when(userRepository.findByUsername("unknown")).thenReturn(Optional.empty());
@@ -0,0 +1,160 @@
+package com.example.expense.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.expense.model.Category;
+import com.example.expense.model.Expense;
+import com.example.expense.model.Role;
+import com.example.expense.model.User;
+import com.example.expense.server.ApiHandler;
+import com.example.expense.server.ApiServer;
+import com.example.expense.server.SessionStore;
+import com.example.expense.service.BudgetService;
+import com.example.expense.service.CategoryService;
+import com.example.expense.service.ExpenseService;
+import com.example.expense.service.ReportPeriod;
+import com.example.expense.service.UserService;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ApiBackendTest {
+
+    @Mock
+    private UserService userService;
+    @Mock
+    private ExpenseService expenseService;
+    @Mock
+    private CategoryService categoryService;
+
+    private final User first = new User(1L, "load00001", "x", Role.USER);
+    private final User second = new User(2L, "load00002", "x", Role.USER);
+    private final Map<Long, Expense> expenses = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final Category food = new Category("Food");
+    private ApiServer server;
+    private URI baseUri;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        food.setId(4L);
+        when(userService.authenticate("load00001", "password")).thenReturn(Optional.of(first));
+        when(userService.authenticate("load00002", "password")).thenReturn(Optional.of(second));
+        when(categoryService.getAllCategories()).thenReturn(List.of(food));
+        when(categoryService.getOrCreateCategory("Food")).thenReturn(food);
+        when(expenseService.addExpense(any())).thenAnswer(invocation -> {
+            Expense expense = invocation.getArgument(0);
+            expense.setId(ids.incrementAndGet());
+            expenses.put(expense.getId(), expense);
+            return expense;
+        });
+        when(expenseService.findExpense(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(expenses.get(invocation.<Long>getArgument(0))));
+        server = ApiServer.start(new ApiHandler(userService, expenseService, categoryService, new BudgetService(),
+                new SessionStore()), new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4);
+        baseUri = URI.create("http://localhost:" + server.getAddress().getPort() + ApiHandler.PREFIX + "/");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void constructor_shouldRequireAnAbsoluteUrl() {
+        assertThatThrownBy(() -> new ApiBackend(URI.create("/api"), "password"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Not an absolute URL: /api");
+    }
+
+    @Test
+    void operations_shouldGoThroughTheApiAsEachUser() {
+        ApiBackend backend = new ApiBackend(baseUri, "password");
+        LocalDate date = LocalDate.of(2024, 3, 1);
+
+        backend.logIn(List.of(first, second));
+        List<Category> categories = backend.categories(first);
+        backend.report(first, ReportPeriod.WEEKLY, date);
+        Long id = backend.add(second, new BigDecimal("12.50"), date, categories.get(0));
+        Long uncategorised = backend.add(second, BigDecimal.ONE, date, null);
+        backend.delete(second, id);
+
+        assertThat(categories).singleElement().satisfies(category -> {
+            assertThat(category.getId()).isEqualTo(4L);
+            assertThat(category.getName()).isEqualTo("Food");
+        });
+        verify(expenseService).getReport(first, ReportPeriod.WEEKLY, date);
+        assertThat(expenses.get(id).getUser()).isSameAs(second);
+        assertThat(expenses.get(id).getCategory()).isSameAs(food);
+        assertThat(expenses.get(uncategorised).getCategory()).isNull();
+        verify(expenseService).deleteExpense(id);
+        // Each user logs in once and keeps the token
+        verify(userService, times(1)).authenticate("load00001", "password");
+        verify(userService, times(1)).authenticate("load00002", "password");
+    }
+
+    @Test
+    void operations_shouldFail_onAnUnexpectedStatus() {
+        ApiBackend backend = new ApiBackend(baseUri, "wrong");
+
+        assertThatThrownBy(() -> backend.report(first, ReportPeriod.DAILY, LocalDate.of(2024, 3, 1)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("/sessions answered 401");
+    }
+
+    @Test
+    void operations_shouldFail_whenTheServerIsGone() {
+        ApiBackend backend = new ApiBackend(baseUri, "password");
+        server.stop(0);
+
+        assertThatThrownBy(() -> backend.categories(first))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageStartingWith("Request failed");
+    }
+
+    @Test
+    void operations_shouldStop_whenInterrupted() {
+        ApiBackend backend = new ApiBackend(baseUri, "password");
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThatThrownBy(() -> backend.logIn(List.of(first)))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessage("Interrupted");
+        } finally {
+            assertThat(Thread.interrupted()).isTrue();
+        }
+    }
+
+    @Test
+    void loadDriver_shouldRunAgainstTheServer() {
+        int status = LoadDriver.run("--url=" + baseUri, "--users=2", "--clients=2", "--operations=40");
+
+        assertThat(status).isZero();
+        verify(userService, times(1)).authenticate("load00001", "password");
+        verify(userService, times(1)).authenticate("load00002", "password");
+    }
+}
@@ -0,0 +1,449 @@
+package com.example.expense.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.example.expense.model.Category;
+import com.example.expense.model.CategoryTotal;
+import com.example.expense.model.Expense;
+import com.example.expense.model.ExpenseStatistics;
+import com.example.expense.model.Money;
+import com.example.expense.model.PeriodTotal;
+import com.example.expense.model.Role;
+import com.example.expense.model.User;
+import com.example.expense.server.ApiHandler;
+import com.example.expense.service.CategoryService;
+import com.example.expense.service.ExpenseService;
+import com.example.expense.service.ExportJob;
+import com.example.expense.service.ExportJobService;
+import com.example.expense.service.ExportMonitor;
+import com.example.expense.service.UserService;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class BatchCommandsTest {
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private ExpenseService expenseService;
+
+    @Mock
+    private CategoryService categoryService;
+
+    @TempDir
+    File tempDir;
+
+    private final User alice = new User(1L, "alice", "hash", Role.USER);
+    private final User bob = new User(2L, "bob", "hash", Role.USER);
+    private final User admin = new User(3L, "admin", "hash", Role.ADMIN);
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+    private final List<List<Expense>> batches = new ArrayList<>();
+    private String input = "";
+    private final List<Thread> shutdownHooks = new java.util.concurrent.CopyOnWriteArrayList<>();
+    private ExportJobService exportJobService;
+
+    @BeforeEach
+    void setUp() {
+        exportJobService = new ExportJobService(expenseService, 2);
+        when(userService.getAllUsers()).thenReturn(List.of(alice, bob, admin));
+        when(categoryService.getOrCreateCategory(any()))
+                .thenAnswer(invocation -> new Category(invocation.<String>getArgument(0)));
+        when(expenseService.addExpenses(any())).thenAnswer(invocation -> {
+            List<Expense> batch = List.copyOf(invocation.getArgument(0));
+            batches.add(batch);
+            return batch;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        exportJobService.shutdown();
+    }
+
+    private int execute(String... args) {
+        BatchCommands commands = new BatchCommands(userService, expenseService, categoryService, exportJobService,
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), new PrintStream(out, true),
+                new PrintStream(err, true), shutdownHooks::add);
+        return commands.execute(args[0], CommandLineOptions.parse(List.of(args).subList(1, args.length)
+                .toArray(String[]::new)));
+    }
+
+    @Test
+    void export_shouldStreamOneUsersCsvToStdout() throws Exception {
+        when(expenseService.exportToCsv(eq(alice), eq(LocalDate.of(2024, 1, 1)), isNull(), any(OutputStream.class),
+                eq(false), any())).thenAnswer(invocation -> {
+                    invocation.<OutputStream>getArgument(3).write("Date,Amount\n".getBytes(StandardCharsets.UTF_8));
+                    return 1L;
+                });
+
+        int status = execute("export", "--user=alice", "--from=2024-01-01");
+
+        assertThat(status).isZero();
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("Date,Amount\n");
+    }
+
+    @Test
+    void export_shouldWriteOneFilePerRegularUser() throws Exception {
+        File directory = new File(tempDir, "exports");
+
+        int status = execute("export", "--all-users", "--format=pdf", "--out=" + directory, "--threads=2");
+
+        assertThat(status).isZero();
+        verify(expenseService).exportToPdf(eq(alice), isNull(), isNull(),
+                eq(new File(directory, "Expense_Report_alice.pdf")), any());
+        verify(expenseService).exportToPdf(eq(bob), isNull(), isNull(),
+                eq(new File(directory, "Expense_Report_bob.pdf")), any());
+        verify(expenseService, never()).exportToPdf(eq(admin), any(), any(), any(File.class), any());
+        assertThat(out.toString(StandardCharsets.UTF_8)).contains("alice: COMPLETED", "bob: COMPLETED");
+    }
+
+    @Test
+    void export_shouldKeepNoMoreExportsRunningThanThreads() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(expenseService.exportToCsv(any(), any(), any(), any(File.class), anyBoolean(), any())).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            return 0L;
+        });
+
+        int status = execute("export", "--user=alice,bob,admin", "--out=" + tempDir, "--threads=1");
+
+        assertThat(status).isZero();
+        assertThat(maxRunning.get()).isEqualTo(1);
+        assertThat(exportJobService.getJobs()).hasSize(3);
+    }
+
+    @Test
+    void export_shouldCancelItsJobs_whenInterrupted() throws Exception {
+        CountDownLatch exporting = new CountDownLatch(1);
+        when(expenseService.exportToCsv(any(), any(), any(), any(File.class), anyBoolean(), any())).thenAnswer(invocation -> {
+            exporting.countDown();
+            ExportMonitor monitor = invocation.getArgument(5);
+            while (!monitor.isCancelled()) {
+                Thread.sleep(10);
+            }
+            throw new CancellationException("Export cancelled");
+        });
+        AtomicInteger status = new AtomicInteger(-1);
+        Thread exporter = new Thread(() -> status.set(execute("export", "--all-users", "--out=" + tempDir)));
+        exporter.start();
+
+        assertThat(exporting.await(10, TimeUnit.SECONDS)).isTrue();
+        exporter.interrupt();
+        exporter.join(10_000);
+
+        assertThat(status.get()).isEqualTo(1);
+        assertThat(err.toString(StandardCharsets.UTF_8)).contains("Export interrupted");
+        for (int i = 0; i < 200 && !exportJobService.getJobs().stream().allMatch(job -> job.getStatus().isFinished());
+                i++) {
+            Thread.sleep(50);
+        }
+        assertThat(exportJobService.getJobs()).extracting(ExportJob::getStatus)
+                .containsOnly(ExportJob.Status.CANCELLED);
+    }
+
+    @Test
+    void export_shouldFail_whenAnyUsersExportFails() throws Exception {
+        when(expenseService.exportToCsv(eq(bob), any(), any(), any(File.class), anyBoolean(), any()))
+                .thenThrow(new java.io.IOException("Disk full"));
+
+        int status = execute("export", "--user=alice,bob", "--out=" + tempDir);
+
+        assertThat(status).isEqualTo(1);
+        assertThat(out.toString(StandardCharsets.UTF_8)).contains("bob: FAILED", "Disk full");
+    }
+
+    @Test
+    void export_shouldRejectBadUsage() {
+        assertThat(execute("export", "--user=alice,bob")).isEqualTo(2);
+        assertThat(execute("export", "--format=xls")).isEqualTo(2);
+        assertThat(execute("export", "--user=alice", "--all-users")).isEqualTo(2);
+        assertThat(err.toString(StandardCharsets.UTF_8)).contains("--format must be csv", "Usage:");
+    }
+
+    @Test
+    void export_shouldFail_whenUserIsUnknown() {
+        assertThat(execute("export", "--user=carol")).isEqualTo(1);
+        assertThat(err.toString(StandardCharsets.UTF_8)).contains("Unknown user: carol");
+    }
+
+    @Test
+    void import_shouldSaveRowsFromStdinInBatches() {
+        input = "Date,Category,Description,Amount\n"
+                + "2024-01-02,Food,Lunch,12.50\n"
+                + "2024-01-03,N/A,\"Bus, return\",3.00\n"
+                + "2024-01-04,Food,Dinner,20.00\n";
+
+        int status = execute("import", "--user=alice", "--file=-");
+
+        assertThat(status).isZero();
+        assertThat(batches).hasSize(1);
+        List<Expense> saved = batches.get(0);
+        assertThat(saved).extracting(Expense::getDescription).containsExactly("Lunch", "Bus, return", "Dinner");
+        assertThat(saved).allMatch(expense -> expense.getUser() == alice);
+        assertThat(saved.get(1).getCategory()).isNull();
+        assertThat(saved.get(2).getAmount()).isEqualByComparingTo("20.00");
+        verify(categoryService, times(2)).getOrCreateCategory("Food");
+        assertThat(out.toString(StandardCharsets.UTF_8)).contains("Imported 3 expenses for alice");
+    }
+
+    @Test
+    void import_shouldStopAtTheFirstBadLine() {
+        input = "2024-01-02,Food,Lunch,12.50\n2024-01-03,Food,Dinner,-1\n";
+
+        int status = execute("import", "--user=alice", "--file=-");
+
+        assertThat(status).isEqualTo(1);
+        assertThat(err.toString(StandardCharsets.UTF_8)).contains("Line 2: amount must be positive");
+        assertThat(batches).isEmpty();
+    }
+
+    @Test
+    void import_shouldSaveNothing_whenABadLineFollowsFullBatches() {
+        input = "2024-01-02,Food,Lunch,12.50\n".repeat(BatchCommands.IMPORT_BATCH_SIZE * 2) + "2024-01-03,Food,x\n";
+
+        int status = execute("import", "--user=alice", "--file=-");
+
+        assertThat(status).isEqualTo(1);
+        assertThat(err.toString(StandardCharsets.UTF_8))
+                .contains("Line " + (BatchCommands.IMPORT_BATCH_SIZE * 2 + 1) + ": expected 4 columns");
+        assertThat(batches).isEmpty();
+        verify(categoryService, never()).getOrCreateCategory(any());
+    }
+
+    @Test
+    void import_shouldReportImportedRows_whenABatchFailsToSave() {
+        input = "2024-01-02,Food,Lunch,12.50\n".repeat(BatchCommands.IMPORT_BATCH_SIZE + 1);
+        doAnswer(invocation -> {
+            if (!batches.isEmpty()) {
+                throw new IllegalStateException("Connection lost");
+            }
+            List<Expense> batch = List.copyOf(invocation.getArgument(0));
+            batches.add(batch);
+            return batch;
+        }).when(expenseService).addExpenses(any());
+
+        int status = execute("import", "--user=alice", "--file=-");
+
+        assertThat(status).isEqualTo(1);
+        assertThat(err.toString(StandardCharsets.UTF_8)).contains(String.format(
+                "batch from line %d failed after %,d expenses were imported: Connection lost",
+                BatchCommands.IMPORT_BATCH_SIZE + 1, BatchCommands.IMPORT_BATCH_SIZE));
+    }
+
+    @Test
+    void import_shouldRequireUserAndFile() {
+        assertThat(execute("import", "--file=-")).isEqualTo(2);
+        assertThat(execute("import", "--user=alice")).isEqualTo(2);
+    }
+
+    @Test
+    void report_shouldPrintEachUsersReportInOrder() {
+        LocalDate date = LocalDate.of(2024, 2, 15);
+        when(expenseService.getStatistics(alice, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29)))
+                .thenReturn(statistics("42.00", 3));
+        when(expenseService.getStatistics(bob, LocalDate.of(2024, 2, 1), LocalDate.of(2024, 2, 29)))
+                .thenReturn(statistics("7.00", 1));
+
+        int status = execute("report", "--date=" + date, "--threads=2");
+
+        String text = out.toString(StandardCharsets.UTF_8);
+        assertThat(status).isZero();
+        assertThat(text).contains("Expense report for alice, 2024-02-01 to 2024-02-29", "Total: 42.00 (3 expenses)",
+                "Food");
+        assertThat(text.indexOf("alice")).isLessThan(text.indexOf("bob"));
+        assertThat(text).doesNotContain("admin");
+    }
+
+    @Test
+    void report_shouldWriteFilesIntoDirectory() throws Exception {
+        when(expenseService.getStatistics(any(), any(), any())).thenReturn(statistics("5.00", 1));
+        File directory = new File(tempDir, "reports");
+
+        int status = execute("report", "--user=bob", "--period=yearly", "--date=2024-03-01", "--out=" + directory);
+
+        assertThat(status).isZero();
+        File report = new File(directory, "Report_bob_yearly_2024-03-01.txt");
+        assertThat(report).exists();
+        assertThat(java.nio.file.Files.readString(report.toPath())).contains("2024-01-01 to 2024-12-31");
+    }
+
+    @Test
+    void run_shouldReturnUsageStatusForUnknownCommandsAndOptions() {
+        assertThat(BatchCommands.run()).isEqualTo(2);
+        assertThat(BatchCommands.run("frobnicate")).isEqualTo(2);
+        assertThat(BatchCommands.run("report", "--bogus")).isEqualTo(2);
+        assertThat(BatchCommands.run("help")).isZero();
+    }
+
+    @Test
+    void run_shouldHandSeedAndBenchmarkToTheLoadTools() {
+        assertThat(BatchCommands.run("seed", "--users=0")).isEqualTo(2);
+        assertThat(BatchCommands.run("benchmark", "--clients=0")).isEqualTo(2);
+    }
+
+    @Test
+    void run_shouldExportFromAnH2Database() throws Exception {
+        File file = new File(tempDir, "all.csv");
+        try {
+            int status = BatchCommands.run("export", DatabaseOverrides.h2Option(tempDir), "--out=" + file);
+
+            assertThat(status).isZero();
+            assertThat(java.nio.file.Files.readString(file.toPath())).startsWith("\"Date\"");
+        } finally {
+            DatabaseOverrides.clear();
+        }
+    }
+
+    @Test
+    void execute_shouldRejectCommandsThatNeedNoDatabase() {
+        assertThat(execute("seed")).isEqualTo(2);
+        assertThat(err.toString(StandardCharsets.UTF_8)).contains("Unknown command: seed");
+    }
+
+    @Test
+    void export_shouldStreamPdfToStdout() throws Exception {
+        int status = execute("export", "--user=alice", "--format=pdf");
+
+        assertThat(status).isZero();
+        verify(expenseService).exportToPdf(eq(alice), isNull(), isNull(), any(OutputStream.class), any());
+    }
+
+    @Test
+    void export_shouldWriteOneUserToAFile() throws Exception {
+        File gzip = new File(tempDir, "alice.csv.gz");
+        File pdf = new File(tempDir, "bob.pdf");
+        when(expenseService.exportToCsv(eq(alice), any(), any(), eq(gzip), eq(true), any())).thenReturn(1_234L);
+        when(expenseService.exportToPdf(eq(bob), any(), any(), eq(pdf), any())).thenReturn(5L);
+
+        assertThat(execute("export", "--user=alice", "--format=csv.gz", "--out=" + gzip)).isZero();
+        assertThat(execute("export", "--user=bob", "--format=pdf", "--out=" + pdf)).isZero();
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).contains("Exported 1,234 rows to " + gzip.getAbsolutePath(),
+                "Exported 5 rows to " + pdf.getAbsolutePath());
+    }
+
+    @Test
+    void import_shouldReadAGzippedFile() throws Exception {
+        File file = new File(tempDir, "expenses.csv.gz");
+        try (OutputStream gzip = new java.util.zip.GZIPOutputStream(new java.io.FileOutputStream(file))) {
+            gzip.write("2024-01-02,Food,Lunch,12.50\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        int status = execute("import", "--user=bob", "--file=" + file);
+
+        assertThat(status).isZero();
+        assertThat(batches).singleElement().satisfies(batch -> assertThat(batch).singleElement()
+                .satisfies(expense -> assertThat(expense.getUser()).isSameAs(bob)));
+    }
+
+    @Test
+    void import_shouldRejectUnparsableValues() {
+        input = "2024-02-30,Food,Lunch,12.50\n";
+
+        int status = execute("import", "--user=alice", "--file=-");
+
+        assertThat(status).isEqualTo(1);
+        assertThat(err.toString(StandardCharsets.UTF_8)).contains("Line 1: Text '2024-02-30' could not be parsed");
+    }
+
+    @Test
+    void report_shouldListDays_andFailForUsersWhoseReportFails() {
+        LocalDate day = LocalDate.of(2024, 2, 15);
+        when(expenseService.getStatistics(eq(alice), any(), any())).thenReturn(new ExpenseStatistics(
+                Money.of(new BigDecimal("9.00")), 1, List.of(), List.of(),
+                List.of(new PeriodTotal(day, new BigDecimal("9.00"), 1)), List.of(), List.of()));
+        when(expenseService.getStatistics(eq(bob), any(), any())).thenThrow(new IllegalStateException("Timed out"));
+
+        int status = execute("report", "--user=alice,bob", "--period=weekly", "--date=" + day);
+
+        assertThat(status).isEqualTo(1);
+        assertThat(out.toString(StandardCharsets.UTF_8)).contains("By day:", "2024-02-15");
+        assertThat(err.toString(StandardCharsets.UTF_8)).contains("bob: Timed out");
+    }
+
+    @Test
+    void report_shouldRejectBadUsage() {
+        assertThat(execute("report", "--period=hourly")).isEqualTo(2);
+        assertThat(execute("report", "--threads=0")).isEqualTo(2);
+        assertThat(err.toString(StandardCharsets.UTF_8)).contains("--period must be", "--threads must be positive");
+    }
+
+    @Test
+    void serve_shouldServeTheApiUntilShutdown() throws Exception {
+        AtomicInteger status = new AtomicInteger(-1);
+        Thread serving = new Thread(() -> status.set(execute("serve", "--port=0", "--threads=2")));
+        serving.start();
+        Matcher address = Pattern.compile("http://localhost:\\d+").matcher("");
+        for (int i = 0; i < 200 && !address.reset(out.toString(StandardCharsets.UTF_8)).find(); i++) {
+            Thread.sleep(50);
+        }
+
+        HttpResponse<String> response = HttpClient.newHttpClient().send(HttpRequest.newBuilder(
+                URI.create(address.group() + ApiHandler.PREFIX + "/categories")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertThat(shutdownHooks).hasSize(1);
+        shutdownHooks.get(0).run();
+        serving.join(10_000);
+
+        assertThat(response.statusCode()).isEqualTo(401);
+        assertThat(status.get()).isZero();
+    }
+
+    @Test
+    void serve_shouldRejectBadUsage() {
+        assertThat(execute("serve", "--port=70000")).isEqualTo(2);
+        assertThat(execute("serve", "--threads=0")).isEqualTo(2);
+        assertThat(execute("serve", "--session-minutes=0")).isEqualTo(2);
+        assertThat(err.toString(StandardCharsets.UTF_8)).contains("--port must be", "--threads must be",
+                "--session-minutes must be");
+    }
+
+    private static ExpenseStatistics statistics(String total, long count) {
+        return new ExpenseStatistics(Money.of(new BigDecimal(total)), count,
+                List.of(new CategoryTotal("Food", new BigDecimal(total), count)), List.of(), List.of(), List.of(),
+                List.of());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.expense.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDate;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class CommandLineOptionsTest {
+
+    @AfterEach
+    void tearDown() {
+        DatabaseOverrides.clear();
+    }
+
+    @Test
+    void parse_shouldReadValuesFlagsAndPositionalArguments() {
+        CommandLineOptions options = CommandLineOptions.parse("export", "--users=5", "--gzip", "out.csv",
+                "--from=2024-01-31");
+
+        assertThat(options.positional()).containsExactly("export", "out.csv");
+        assertThat(options.getInt("users", 1)).isEqualTo(5);
+        assertThat(options.getLong("seed", 9)).isEqualTo(9);
+        assertThat(options.has("gzip")).isTrue();
+        assertThat(options.getString("gzip", null)).isEqualTo("true");
+        assertThat(options.getDate("from", null)).isEqualTo(LocalDate.of(2024, 1, 31));
+    }
+
+    @Test
+    void getters_shouldRejectMalformedValues() {
+        CommandLineOptions options = CommandLineOptions.parse("--users=x", "--from=yesterday");
+
+        assertThatThrownBy(() -> options.getInt("users", 1)).hasMessageContaining("--users");
+        assertThatThrownBy(() -> options.getLong("users", 1)).hasMessageContaining("--users");
+        assertThatThrownBy(() -> options.getDate("from", null)).hasMessageContaining("--from");
+    }
+
+    @Test
+    void applyDatabaseOverrides_shouldPointThePersistenceUnitAtAnH2File() {
+        CommandLineOptions.parse("--h2=./data/test").applyDatabaseOverrides();
+
+        assertThat(System.getProperty("jakarta.persistence.jdbc.url")).isEqualTo("jdbc:h2:./data/test");
+        assertThat(System.getProperty("jakarta.persistence.jdbc.driver")).isEqualTo("org.h2.Driver");
+        assertThat(System.getProperty("hibernate.dialect")).isEqualTo("org.hibernate.dialect.H2Dialect");
+    }
+
+    @Test
+    void applyDatabaseOverrides_shouldKeepTheConfiguredDatabase_withoutH2() {
+        CommandLineOptions.parse("--users=1").applyDatabaseOverrides();
+
+        assertThat(System.getProperty("jakarta.persistence.jdbc.url")).isNull();
+    }
+
+    @Test
+    void requireKnown_shouldNameTheUnknownOption() {
+        CommandLineOptions options = CommandLineOptions.parse("--users=1", "--colour=red");
+
+        assertThatThrownBy(() -> options.requireKnown(Set.of("users")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unknown option --colour");
+    }
+}
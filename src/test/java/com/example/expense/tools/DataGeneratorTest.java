@@ -0,0 +1,189 @@
+package com.example.expense.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import com.example.expense.model.Category;
+import com.example.expense.model.Expense;
+import com.example.expense.model.Role;
+import com.example.expense.model.User;
+import com.example.expense.service.CategoryService;
+import com.example.expense.service.ExpenseService;
+import com.example.expense.service.UserService;
+import java.io.File;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DataGeneratorTest {
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private CategoryService categoryService;
+
+    @Mock
+    private ExpenseService expenseService;
+
+    @TempDir
+    File tempDir;
+
+    private final List<Expense> saved = new ArrayList<>();
+    private final List<Integer> batchSizes = new ArrayList<>();
+    private DataGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        when(userService.registerUsers(anyList(), anyString(), eq(Role.USER))).thenAnswer(invocation -> {
+            List<String> usernames = invocation.getArgument(0);
+            return usernames.stream().map(name -> new User(null, name, "hash", Role.USER)).toList();
+        });
+        when(categoryService.getOrCreateCategory(anyString()))
+                .thenAnswer(invocation -> new Category(invocation.<String>getArgument(0)));
+        when(expenseService.addExpenses(any())).thenAnswer(invocation -> {
+            List<Expense> batch = List.copyOf(invocation.getArgument(0));
+            batchSizes.add(batch.size());
+            saved.addAll(batch);
+            return batch;
+        });
+        generator = new DataGenerator(userService, categoryService, expenseService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        DatabaseOverrides.clear();
+    }
+
+    private List<String> generate(long seed) {
+        saved.clear();
+        generator.generate(DataGenerator.Settings.of(5, 3, 500, seed));
+        return saved.stream()
+                .map(e -> e.getUser().getUsername() + e.getDate() + e.getAmount() + e.getDescription())
+                .toList();
+    }
+
+    @Test
+    void generate_shouldBeDeterministicFromTheSeed() {
+        assertThat(generate(7)).isEqualTo(generate(7)).isNotEqualTo(generate(8));
+    }
+
+    @Test
+    void generate_shouldWriteInBatchesAndReportProgress() {
+        List<Long> progress = new ArrayList<>();
+
+        DataGenerator.Result result = generator.generate(
+                DataGenerator.Settings.of(3, 2, DataGenerator.BATCH_SIZE * 2 + 10, 1), progress::add);
+
+        assertThat(result.expenses()).isEqualTo(DataGenerator.BATCH_SIZE * 2 + 10);
+        assertThat(batchSizes).containsExactly(DataGenerator.BATCH_SIZE, DataGenerator.BATCH_SIZE, 10);
+        assertThat(progress).containsExactly((long) DataGenerator.BATCH_SIZE, DataGenerator.BATCH_SIZE * 2L,
+                DataGenerator.BATCH_SIZE * 2L + 10);
+        assertThat(result.users()).extracting(User::getUsername).containsExactly("load00001", "load00002",
+                "load00003");
+        assertThat(result.categories()).extracting(Category::getName).containsExactly("Food", "Transport");
+    }
+
+    @Test
+    void generate_shouldSkewUsersAndFollowTheSeasons() {
+        DataGenerator.Settings settings = DataGenerator.Settings.of(20, 10, 20_000, 3)
+                .between(LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31));
+
+        generator.generate(settings);
+
+        Map<String, Long> perUser = saved.stream()
+                .collect(Collectors.groupingBy(e -> e.getUser().getUsername(), Collectors.counting()));
+        assertThat(perUser.get("load00001")).isGreaterThan(10 * perUser.get("load00020"));
+        Map<Month, Long> perMonth = saved.stream()
+                .collect(Collectors.groupingBy(e -> e.getDate().getMonth(), Collectors.counting()));
+        assertThat(perMonth.get(Month.DECEMBER)).isGreaterThan(perMonth.get(Month.JUNE) * 3 / 2);
+        assertThat(saved).allSatisfy(expense -> {
+            assertThat(expense.getDate()).isBetween(settings.firstDay(), settings.lastDay());
+            assertThat(expense.getAmount().scale()).isEqualTo(2);
+            assertThat(expense.getAmount()).isGreaterThanOrEqualTo(new BigDecimal("0.50"));
+            assertThat(expense.getDescription()).startsWith(expense.getCategory().getName());
+        });
+    }
+
+    @Test
+    void generate_shouldNameCategoriesBeyondTheBuiltInList() {
+        DataGenerator.Result result = generator.generate(DataGenerator.Settings.of(1, 22, 0, 1));
+
+        assertThat(result.categories()).extracting(Category::getName).contains("Charity", "Category 21",
+                "Category 22");
+        assertThat(batchSizes).isEmpty();
+    }
+
+    @Test
+    void zipfCumulative_shouldEndAtOneAndFavourLowRanks() {
+        double[] cumulative = DataGenerator.zipfCumulative(4, 1);
+
+        assertThat(cumulative[3]).isEqualTo(1.0);
+        assertThat(cumulative[0]).isGreaterThan(cumulative[1] - cumulative[0]);
+    }
+
+    @Test
+    void seasonality_shouldPeakInDecemberAndAtWeekends() {
+        Function<LocalDate, Double> seasonality = DataGenerator::seasonality;
+
+        assertThat(seasonality.apply(LocalDate.of(2023, 12, 20))).isGreaterThan(seasonality.apply(LocalDate.of(2023, 6, 21)));
+        assertThat(seasonality.apply(LocalDate.of(2023, 6, 24))).isGreaterThan(seasonality.apply(LocalDate.of(2023, 6, 22)));
+    }
+
+    @Test
+    void settings_shouldRejectInvalidValues() {
+        assertThatThrownBy(() -> DataGenerator.Settings.of(0, 1, 1, 1)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> DataGenerator.Settings.of(1, 1, 1, 1)
+                .between(LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void run_shouldRejectUnknownOptions() {
+        assertThat(DataGenerator.run("--rows=5")).isEqualTo(2);
+        assertThat(DataGenerator.run("--users=many")).isEqualTo(2);
+        assertThat(DataGenerator.run("--from=2024-02-01", "--to=2024-01-01")).isEqualTo(2);
+    }
+
+    @Test
+    void run_shouldSeedAnH2DatabaseOnce() {
+        String h2 = DatabaseOverrides.h2Option(tempDir);
+
+        assertThat(DataGenerator.run("--users=3", "--categories=2", "--expenses=40", "--from=2024-01-01",
+                "--to=2024-01-31", h2)).isZero();
+        // The usernames are taken now
+        assertThat(DataGenerator.run("--users=3", "--categories=2", "--expenses=40", h2)).isEqualTo(1);
+    }
+
+    @Test
+    void main_shouldExitWithTheStatusOfTheRun() throws Exception {
+        MainProcess.Result seeded = MainProcess.run(DataGenerator.class, "--users=2", "--categories=1",
+                "--expenses=10", DatabaseOverrides.h2Option(tempDir));
+        MainProcess.Result rejected = MainProcess.run(DataGenerator.class, "--rows=5");
+
+        assertThat(seeded.status()).as(seeded.output()).isZero();
+        assertThat(rejected.status()).isEqualTo(2);
+        assertThat(rejected.output()).contains("Usage:");
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.expense.tools;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Helps tests run the commands against a throwaway H2 file, and removes the
+ * system properties {@link CommandLineOptions#applyDatabaseOverrides()} sets
+ * for it afterwards, so later tests see the JVM as it was.
+ */
+final class DatabaseOverrides {
+
+    private static final List<String> PROPERTIES = List.of("jakarta.persistence.jdbc.url",
+            "jakarta.persistence.jdbc.driver", "jakarta.persistence.jdbc.user", "jakarta.persistence.jdbc.password",
+            "hibernate.dialect");
+
+    private DatabaseOverrides() {
+    }
+
+    static String h2Option(File directory) {
+        return "--h2=" + new File(directory, "expenses").getAbsolutePath();
+    }
+
+    static void clear() {
+        PROPERTIES.forEach(System::clearProperty);
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.expense.tools;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+import com.example.expense.model.Category;
+import com.example.expense.model.Expense;
+import com.example.expense.model.Role;
+import com.example.expense.model.User;
+import com.example.expense.service.ExpenseService;
+import com.example.expense.tools.LoadDriver.Operation;
+import com.example.expense.tools.LoadDriver.OperationStats;
+import java.io.File;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class LoadDriverTest {
+
+    @Mock
+    private ExpenseService expenseService;
+
+    private final AtomicLong ids = new AtomicLong();
+    private final Set<Long> added = ConcurrentHashMap.newKeySet();
+    private final Set<Long> deleted = ConcurrentHashMap.newKeySet();
+    private LoadDriver driver;
+
+    @TempDir
+    File tempDir;
+
+    @BeforeEach
+    void setUp() {
+        when(expenseService.addExpense(any())).thenAnswer(invocation -> {
+            Expense expense = invocation.getArgument(0);
+            expense.setId(ids.incrementAndGet());
+            added.add(expense.getId());
+            return expense;
+        });
+        doAnswer(invocation -> deleted.add(invocation.getArgument(0))).when(expenseService).deleteExpense(anyLong());
+        driver = new LoadDriver(expenseService, List.of(new User(1L, "ann", "x", Role.USER)),
+                List.of(new Category("Food")));
+    }
+
+    @AfterEach
+    void tearDown() {
+        DatabaseOverrides.clear();
+    }
+
+    @Test
+    void run_shouldMixOperationsFromEveryClient() {
+        LoadDriver.Settings settings = LoadDriver.Settings.of(4, Duration.ofMinutes(1)).limitedTo(250)
+                .withMix(50, 30, 20);
+
+        LoadDriver.Report report = driver.run(settings);
+
+        assertThat(report.totalOperations()).isEqualTo(1000);
+        assertThat(report.operations().get(Operation.REPORT).count()).isBetween(400L, 600L);
+        assertThat(report.operations().get(Operation.DELETE).count()).isPositive();
+        assertThat(report.operations().get(Operation.ADD).count()).isEqualTo(added.size());
+        assertThat(added).containsAll(deleted);
+        assertThat(report.throughputPerSecond()).isPositive();
+        for (OperationStats stats : report.operations().values()) {
+            assertThat(stats.errors()).isZero();
+            assertThat(stats.p50Micros()).isLessThanOrEqualTo(stats.p90Micros());
+            assertThat(stats.p90Micros()).isLessThanOrEqualTo(stats.p99Micros());
+            assertThat(stats.p99Micros()).isLessThanOrEqualTo(stats.maxMicros());
+        }
+    }
+
+    @Test
+    void run_shouldStopAtTheDeadline() {
+        LoadDriver.Report report = driver.run(LoadDriver.Settings.of(2, Duration.ofMillis(100)));
+
+        assertThat(report.elapsed()).isLessThan(Duration.ofSeconds(5));
+        assertThat(report.totalOperations()).isPositive();
+    }
+
+    @Test
+    void run_shouldCountFailedOperations() {
+        when(expenseService.getReport(any(), any(), any())).thenThrow(new IllegalStateException("down"));
+
+        LoadDriver.Report report = driver.run(LoadDriver.Settings.of(1, Duration.ofMinutes(1)).limitedTo(20)
+                .withMix(1, 0, 0));
+
+        assertThat(report.operations().get(Operation.REPORT).errors()).isEqualTo(20);
+        assertThat(report.operations().get(Operation.REPORT).count()).isZero();
+        assertThat(report.format()).contains("REPORT", "p99 us");
+    }
+
+    @Test
+    void run_shouldKeepEveryLatency_beyondTheInitialBuffer() {
+        LoadDriver.Report report = driver.run(LoadDriver.Settings.of(1, Duration.ofMinutes(1)).limitedTo(1500)
+                .withMix(1, 0, 0));
+
+        assertThat(report.operations().get(Operation.REPORT).count()).isEqualTo(1500);
+    }
+
+    @Test
+    void run_shouldFail_whenAClientDies() {
+        when(expenseService.getReport(any(), any(), any())).thenThrow(new AssertionError("boom"));
+
+        assertThatThrownBy(() -> driver.run(LoadDriver.Settings.of(2, Duration.ofMinutes(1)).limitedTo(5)
+                .withMix(1, 0, 0)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("A client failed")
+                .hasCauseInstanceOf(AssertionError.class);
+    }
+
+    @Test
+    void run_shouldStopWaiting_whenInterrupted() {
+        Thread.currentThread().interrupt();
+        try {
+            assertThatThrownBy(() -> driver.run(LoadDriver.Settings.of(1, Duration.ofMinutes(1)).limitedTo(5)))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("Interrupted");
+        } finally {
+            assertThat(Thread.interrupted()).isTrue();
+        }
+    }
+
+    @Test
+    void run_shouldDriveTheUsersOfAnH2Database() {
+        String h2 = DatabaseOverrides.h2Option(tempDir);
+
+        assertThat(LoadDriver.run("--clients=2", "--operations=5", h2)).isEqualTo(1);
+        assertThat(DataGenerator.run("--users=2", "--categories=2", "--expenses=20", h2)).isZero();
+        assertThat(LoadDriver.run("--clients=2", "--operations=10", "--reports=5", "--adds=3", "--deletes=2",
+                "--from=2024-01-01", "--to=2024-12-31", "--seed=3", h2)).isZero();
+    }
+
+    @Test
+    void main_shouldExitWithTheStatusOfTheRun() throws Exception {
+        String h2 = DatabaseOverrides.h2Option(tempDir);
+        assertThat(DataGenerator.run("--users=2", "--categories=2", "--expenses=20", h2)).isZero();
+
+        MainProcess.Result driven = MainProcess.run(LoadDriver.class, "--clients=2", "--operations=10", h2);
+        MainProcess.Result rejected = MainProcess.run(LoadDriver.class, "--clients=none");
+
+        assertThat(driven.status()).as(driven.output()).isZero();
+        assertThat(driven.output()).contains("operations in", "REPORT");
+        assertThat(rejected.status()).isEqualTo(2);
+        assertThat(rejected.output()).contains("Usage:");
+    }
+
+    @Test
+    void run_shouldFail_whenTheServerIsUnreachable() {
+        assertThat(LoadDriver.run("--url=http://127.0.0.1:1/api", "--users=1", "--operations=1")).isEqualTo(1);
+        assertThat(LoadDriver.run("--url=http://127.0.0.1:1/api", "--users=0")).isEqualTo(2);
+    }
+
+    @Test
+    void operationStats_shouldUseNearestRankPercentiles() {
+        long[] nanos = new long[100];
+        for (int i = 0; i < nanos.length; i++) {
+            nanos[i] = (100 - i) * 1_000L;
+        }
+
+        OperationStats stats = OperationStats.of(nanos, 100, 0);
+
+        assertThat(stats.p50Micros()).isEqualTo(50);
+        assertThat(stats.p90Micros()).isEqualTo(90);
+        assertThat(stats.p99Micros()).isEqualTo(99);
+        assertThat(stats.maxMicros()).isEqualTo(100);
+        assertThat(OperationStats.of(new long[0], 0, 0).p99Micros()).isZero();
+    }
+
+    @Test
+    void constructorAndSettings_shouldRejectInvalidInput() {
+        assertThatThrownBy(() -> new LoadDriver(expenseService, List.of(), List.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LoadDriver.Settings.of(1, Duration.ofSeconds(1)).withMix(0, 0, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LoadDriver.Settings.of(1, Duration.ofSeconds(1))
+                .between(LocalDate.of(2024, 1, 2), LocalDate.of(2024, 1, 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(LoadDriver.run("--clients=none")).isEqualTo(2);
+        assertThat(LoadDriver.run("--from=2024-02-01", "--to=2024-01-01")).isEqualTo(2);
+    }
+}
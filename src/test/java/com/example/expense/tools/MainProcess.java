@@ -0,0 +1,43 @@
+package com.example.expense.tools;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a tool's {@code main} in a child JVM, since it ends with
+ * {@code System.exit}, and returns the exit status with everything the
+ * child printed. The child gets this JVM's options and class path.
+ */
+final class MainProcess {
+
+    record Result(int status, String output) {
+    }
+
+    private MainProcess() {
+    }
+
+    static Result run(Class<?> mainClass, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                // A debugger's port is taken by this JVM already
+                .filter(argument -> !argument.startsWith("-agentlib:jdwp"))
+                .forEach(command::add);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(mainClass.getName());
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        if (!process.waitFor(60, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+            throw new AssertionError(mainClass.getSimpleName() + " did not exit:\n" + output);
+        }
+        return new Result(process.exitValue(), output);
+    }
+}
@@ -93,14 +93,14 @@ public class AddExpenseViewTest extends AssertJSwingJUnitTestCase {
         window.robot().pressAndReleaseKey(java.awt.event.KeyEvent.VK_ENTER);
         window.robot().waitForIdle();
 
-        when(categoryService.saveCategory("Travel")).thenReturn(new Category("Travel"));
+        when(categoryService.getOrCreateCategory("Travel")).thenReturn(new Category("Travel"));
 
         window.button("saveButton").click();
         org.assertj.swing.timing.Pause.pause(new org.assertj.swing.timing.Condition("category saved") {
             @Override
             public boolean test() {
                 try {
-                    verify(categoryService).saveCategory("Travel");
+                    verify(categoryService).getOrCreateCategory("Travel");
                     return true;
                 } catch (Throwable t) {
                     return false;
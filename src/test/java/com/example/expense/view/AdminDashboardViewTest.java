@@ -3,12 +3,16 @@ package com.example.expense.view;
 import static org.mockito.Mockito.*;
 import static org.assertj.swing.edt.GuiActionRunner.execute;
 
+import com.example.expense.model.ExpenseStatistics;
+import com.example.expense.model.Money;
 import com.example.expense.model.Role;
 import com.example.expense.model.User;
 import com.example.expense.service.CategoryService;
 import com.example.expense.service.ExpenseService;
+import com.example.expense.service.ExportJobService;
 import com.example.expense.service.UserService;
 import java.util.ArrayList;
+import java.util.List;
 import org.assertj.swing.fixture.FrameFixture;
 import org.assertj.swing.junit.testcase.AssertJSwingJUnitTestCase;
 import org.junit.Test;
@@ -21,6 +25,7 @@ public class AdminDashboardViewTest extends AssertJSwingJUnitTestCase {
     private ExpenseService expenseService;
     private CategoryService categoryService;
     private User admin;
+    private javax.swing.JFileChooser directoryChooser;
 
     @Override
     protected void onSetUp() {
@@ -28,12 +33,21 @@ public class AdminDashboardViewTest extends AssertJSwingJUnitTestCase {
         expenseService = mock(ExpenseService.class);
         categoryService = mock(CategoryService.class);
         admin = new User(1L, "admin", "admin", Role.ADMIN);
+        directoryChooser = mock(javax.swing.JFileChooser.class);
 
         when(userService.getAllUsers()).thenReturn(new ArrayList<>());
         when(categoryService.getAllCategories()).thenReturn(new ArrayList<>());
+        when(expenseService.getStatistics(null)).thenReturn(
+                new ExpenseStatistics(Money.ZERO, 0, List.of(), List.of(), List.of(), List.of(), List.of()));
 
         AdminDashboardView frame = execute(
-                () -> new AdminDashboardView(userService, expenseService, categoryService, admin));
+                () -> new AdminDashboardView(userService, expenseService, categoryService,
+                        new ExportJobService(expenseService, Runnable::run), admin, Runnable::run) {
+                    @Override
+                    protected javax.swing.JFileChooser createDirectoryChooser() {
+                        return directoryChooser;
+                    }
+                });
         window = new FrameFixture(robot(), frame);
         robot().settings().delayBetweenEvents(300);
         window.show();
@@ -156,7 +170,7 @@ public class AdminDashboardViewTest extends AssertJSwingJUnitTestCase {
             }
         }, 5000);
         window.button("refreshExpensesButton").click();
-        verify(expenseService, atLeastOnce()).getAllExpenses();
+        verify(expenseService, atLeastOnce()).countExpenseRows(any());
     }
 
     @Test
@@ -173,4 +187,29 @@ public class AdminDashboardViewTest extends AssertJSwingJUnitTestCase {
                 .requireMessage("Error: Existing user");
         window.optionPane().okButton().click();
     }
+
+    @Test
+    public void shouldQueueOneExportPerSelectedUser() throws Exception {
+        User first = new User(2L, "first", "pass", Role.USER);
+        User second = new User(3L, "second", "pass", Role.USER);
+        when(userService.getAllUsers()).thenReturn(java.util.List.of(first, second));
+        window.button("refreshUsersButton").click();
+        window.robot().waitForIdle();
+        java.io.File directory = new java.io.File(System.getProperty("java.io.tmpdir"));
+        when(directoryChooser.showSaveDialog(any())).thenReturn(javax.swing.JFileChooser.APPROVE_OPTION);
+        when(directoryChooser.getSelectedFile()).thenReturn(directory);
+
+        window.tabbedPane().selectTab("Exports");
+        window.button("selectAllUsersButton").click();
+        window.textBox("exportFromField").enterText("2024-01-01");
+        window.button("queueExportsButton").click();
+        window.robot().waitForIdle();
+
+        java.time.LocalDate from = java.time.LocalDate.of(2024, 1, 1);
+        verify(expenseService).exportToCsv(eq(first), eq(from), isNull(),
+                eq(new java.io.File(directory, "Expense_Report_first.csv")), eq(false), any());
+        verify(expenseService).exportToCsv(eq(second), eq(from), isNull(),
+                eq(new java.io.File(directory, "Expense_Report_second.csv")), eq(false), any());
+        assertThat(execute(() -> window.table("exportJobsTable").target().getRowCount())).isEqualTo(2);
+    }
 }
@@ -0,0 +1,104 @@
+package com.example.expense.view;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.swing.SwingUtilities;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BackgroundLoaderTest {
+
+    private final Deque<Runnable> queued = new ArrayDeque<>();
+    private final List<String> events = new ArrayList<>();
+    private BackgroundLoader loader;
+
+    @BeforeEach
+    void setUp() {
+        loader = new BackgroundLoader(busy -> events.add(busy ? "busy" : "idle"), queued::add);
+    }
+
+    @Test
+    void shouldDeliverResultOnEventDispatchThread() throws Exception {
+        AtomicBoolean onEdt = new AtomicBoolean();
+        onEdt(() -> loader.load(() -> "rows", result -> {
+            onEdt.set(SwingUtilities.isEventDispatchThread());
+            events.add(result);
+        }, e -> events.add("error")));
+
+        runQueued();
+
+        assertThat(events).containsExactly("busy", "idle", "rows");
+        assertThat(onEdt).isTrue();
+    }
+
+    @Test
+    void shouldSkipSupersededLoadThatHasNotStarted() throws Exception {
+        AtomicBoolean firstQueried = new AtomicBoolean();
+        onEdt(() -> {
+            loader.load(() -> {
+                firstQueried.set(true);
+                return "first";
+            }, events::add, e -> events.add("error"));
+            loader.load(() -> "second", events::add, e -> events.add("error"));
+        });
+
+        runQueued();
+
+        assertThat(firstQueried).isFalse();
+        assertThat(events).containsExactly("busy", "busy", "idle", "second");
+    }
+
+    @Test
+    void shouldDropResultOfSupersededLoadThatAlreadyRan() throws Exception {
+        onEdt(() -> loader.load(() -> "first", events::add, e -> events.add("error")));
+        Runnable first = queued.poll();
+        onEdt(() -> loader.load(() -> "second", events::add, e -> events.add("error")));
+
+        first.run();
+        runQueued();
+
+        assertThat(events).containsExactly("busy", "busy", "idle", "second");
+    }
+
+    @Test
+    void shouldDeliverFailures() throws Exception {
+        onEdt(() -> loader.load(() -> {
+            throw new IllegalStateException("db down");
+        }, result -> events.add("result"), e -> events.add(e.getMessage())));
+
+        runQueued();
+
+        assertThat(events).containsExactly("busy", "idle", "db down");
+    }
+
+    @Test
+    void cancelShouldDropPendingResult() throws Exception {
+        onEdt(() -> loader.load(() -> "rows", events::add, e -> events.add("error")));
+        Runnable task = queued.poll();
+        onEdt(loader::cancel);
+
+        task.run();
+        onEdt(() -> {
+        });
+
+        assertThat(events).containsExactly("busy", "idle");
+    }
+
+    private void runQueued() throws Exception {
+        while (!queued.isEmpty()) {
+            queued.poll().run();
+        }
+        // Flush the deliveries queued on the EDT
+        onEdt(() -> {
+        });
+    }
+
+    private static void onEdt(Runnable action) throws Exception {
+        SwingUtilities.invokeAndWait(action);
+    }
+}
@@ -5,6 +5,7 @@ import com.example.expense.model.Role;
 import com.example.expense.model.User;
 import com.example.expense.service.CategoryService;
 import com.example.expense.service.ExpenseService;
+import com.example.expense.service.ExportJobService;
 import com.example.expense.service.UserService;
 import org.assertj.swing.core.GenericTypeMatcher;
 import org.assertj.swing.edt.GuiActionRunner;
@@ -12,7 +13,6 @@ import org.assertj.swing.fixture.DialogFixture;
 import org.assertj.swing.fixture.FrameFixture;
 import org.assertj.swing.junit.testcase.AssertJSwingJUnitTestCase;
 import org.junit.Test;
-import java.util.ArrayList;
 import java.util.List;
 import javax.swing.JDialog;
 import static org.mockito.Mockito.*;
@@ -33,11 +33,12 @@ public class ExpenseJourneyTest extends AssertJSwingJUnitTestCase {
         currentUser = new User(1L, "testuser", "password", Role.USER);
 
         // Mock initial data
-        when(expenseService.getExpensesByUser(currentUser)).thenReturn(new ArrayList<>());
+        when(expenseService.getTotalByUser(currentUser)).thenReturn(java.math.BigDecimal.ZERO);
         when(categoryService.getAllCategories()).thenReturn(List.of(new Category("Food"), new Category("Transport")));
 
         MainView frame = GuiActionRunner
-                .execute(() -> new MainView(userService, expenseService, categoryService, currentUser));
+                .execute(() -> new MainView(userService, expenseService, categoryService,
+                        mock(ExportJobService.class), currentUser, Runnable::run));
         window = new FrameFixture(robot(), frame);
         window.show();
     }
@@ -4,12 +4,16 @@ import static org.assertj.core.api.Assertions.assertThat;
 
 import com.example.expense.model.Category;
 import com.example.expense.model.Expense;
+import com.example.expense.model.ExpenseRow;
 import com.example.expense.model.User;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -18,16 +22,18 @@ class ExpenseTableModelTest {
     private ExpenseTableModel model;
     private User user;
     private Category category;
-    private Expense expense1;
-    private Expense expense2;
+    private ExpenseRow expense1;
+    private ExpenseRow expense2;
 
     @BeforeEach
     void setUp() {
         model = new ExpenseTableModel();
         user = new User(1L, "test", "pass", com.example.expense.model.Role.USER);
         category = new Category("Food");
-        expense1 = new Expense(new BigDecimal("50.00"), LocalDate.of(2023, 6, 15), "Lunch", user, category);
-        expense2 = new Expense(new BigDecimal("20.00"), LocalDate.of(2023, 6, 16), "Coffee", user, null);
+        expense1 = ExpenseRow.of(
+                new Expense(new BigDecimal("50.00"), LocalDate.of(2023, 6, 15), "Lunch", user, category));
+        expense2 = ExpenseRow.of(
+                new Expense(new BigDecimal("20.00"), LocalDate.of(2023, 6, 16), "Coffee", user, null));
     }
 
     @Test
@@ -102,7 +108,7 @@ class ExpenseTableModelTest {
     @Test
     void getExpenses_shouldReturnDefensiveCopy() {
         model.setExpenses(List.of(expense1));
-        List<Expense> copy = model.getExpenses();
+        List<ExpenseRow> copy = model.getExpenses();
         copy.clear();
         assertThat(model.getRowCount()).isEqualTo(1); // Original list unaffected
     }
@@ -113,4 +119,81 @@ class ExpenseTableModelTest {
         assertThat(model.getExpenseAt(0)).isEqualTo(expense1);
         assertThat(model.getExpenseAt(1)).isEqualTo(expense2);
     }
+
+    @Test
+    void getColumnClass_shouldExposeTypedColumns() {
+        assertThat(model.getColumnClass(0)).isEqualTo(LocalDate.class);
+        assertThat(model.getColumnClass(1)).isEqualTo(String.class);
+        assertThat(model.getColumnClass(3)).isEqualTo(BigDecimal.class);
+    }
+
+    @Test
+    void rowSorter_shouldSortAmountsNumerically() {
+        model.setExpenses(List.of(row(1L, "2023-01-01", "Food", "a", "100.00"), row(2L, "2023-01-01", "Food", "b",
+                "20.00"), row(3L, "2023-01-01", "Food", "c", "3.50")));
+
+        assertThat(sortedIds(3, SortOrder.ASCENDING)).containsExactly(3L, 2L, 1L);
+        assertThat(sortedIds(3, SortOrder.DESCENDING)).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    void rowSorter_shouldSortDatesChronologically() {
+        model.setExpenses(List.of(row(1L, "2023-10-02", "Food", "a", "1.00"), row(2L, "2023-09-30", "Food", "b",
+                "1.00"), row(3L, "2022-12-31", "Food", "c", "1.00")));
+
+        assertThat(sortedIds(0, SortOrder.ASCENDING)).containsExactly(3L, 2L, 1L);
+    }
+
+    @Test
+    void rowSorter_shouldSortCategoriesAndDescriptionsAlphabetically() {
+        model.setExpenses(List.of(row(1L, "2023-01-01", "Transport", "bus", "1.00"), row(2L, "2023-01-01", null,
+                "Apple", "1.00"), row(3L, "2023-01-01", "Food", "cake", "1.00")));
+
+        assertThat(sortedIds(1, SortOrder.ASCENDING)).containsExactly(3L, 2L, 1L);
+        assertThat(sortedIds(2, SortOrder.ASCENDING)).containsExactly(2L, 1L, 3L);
+    }
+
+    @Test
+    void rowSorter_shouldKeepModelOrderForTies() {
+        model.setExpenses(List.of(row(1L, "2023-01-01", "Food", "a", "5.00"), row(2L, "2023-01-01", "Food", "b",
+                "1.00"), row(3L, "2023-01-01", "Food", "c", "5.00")));
+
+        assertThat(sortedIds(3, SortOrder.DESCENDING)).containsExactly(1L, 3L, 2L);
+    }
+
+    @Test
+    void toggleSortOrder_shouldFlipDirectionOfSameColumn() {
+        model.setExpenses(List.of(expense1, expense2));
+        RowSorter<ExpenseTableModel> sorter = model.createRowSorter();
+
+        sorter.toggleSortOrder(3);
+        sorter.toggleSortOrder(3);
+
+        assertThat(sorter.getSortKeys()).isEqualTo(List.of(new RowSorter.SortKey(3, SortOrder.DESCENDING)));
+        assertThat(sorter.convertRowIndexToView(0)).isZero();
+    }
+
+    @Test
+    void rowSorter_shouldFollowReplacedRows() {
+        RowSorter<ExpenseTableModel> sorter = model.createRowSorter();
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(3, SortOrder.ASCENDING)));
+        model.setExpenses(List.of(expense1, expense2));
+        sorter.allRowsChanged();
+
+        assertThat(model.getExpenseAt(sorter.convertRowIndexToModel(0))).isEqualTo(expense2);
+    }
+
+    private List<Long> sortedIds(int column, SortOrder order) {
+        RowSorter<ExpenseTableModel> sorter = model.createRowSorter();
+        sorter.setSortKeys(List.of(new RowSorter.SortKey(column, order)));
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < sorter.getViewRowCount(); i++) {
+            ids.add(model.getExpenseAt(sorter.convertRowIndexToModel(i)).id());
+        }
+        return ids;
+    }
+
+    private static ExpenseRow row(Long id, String date, String category, String description, String amount) {
+        return new ExpenseRow(id, LocalDate.parse(date), category, description, new BigDecimal(amount));
+    }
 }
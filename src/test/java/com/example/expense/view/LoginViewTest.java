@@ -4,6 +4,7 @@ import com.example.expense.model.Role;
 import com.example.expense.model.User;
 import com.example.expense.service.CategoryService;
 import com.example.expense.service.ExpenseService;
+import com.example.expense.service.ExportJobService;
 import com.example.expense.service.UserService;
 import org.assertj.swing.edt.GuiActionRunner;
 import org.assertj.swing.fixture.FrameFixture;
@@ -24,7 +25,8 @@ public class LoginViewTest extends AssertJSwingJUnitTestCase {
         expenseService = mock(ExpenseService.class);
         categoryService = mock(CategoryService.class);
 
-        LoginView frame = GuiActionRunner.execute(() -> new LoginView(userService, expenseService, categoryService));
+        LoginView frame = GuiActionRunner.execute(() -> new LoginView(userService, expenseService, categoryService,
+                mock(ExportJobService.class), Runnable::run));
         window = new FrameFixture(robot(), frame);
         robot().settings().delayBetweenEvents(60);
         window.show();
@@ -87,7 +89,7 @@ public class LoginViewTest extends AssertJSwingJUnitTestCase {
         User user = new User(1L, "test", "pass", Role.USER);
         user.setEnabled(true);
         when(userService.authenticate("test", "pass")).thenReturn(java.util.Optional.of(user));
-        when(expenseService.getExpensesByUser(user)).thenReturn(java.util.Collections.emptyList());
+        when(expenseService.getTotalByUser(user)).thenReturn(java.math.BigDecimal.ZERO);
 
         window.textBox("username").enterText("test");
         window.textBox("password").enterText("pass");
@@ -8,9 +8,9 @@ import com.example.expense.model.Expense;
 import com.example.expense.model.User;
 import com.example.expense.model.Role;
 import com.example.expense.service.ExpenseService;
+import com.example.expense.service.ExportJobService;
 import com.example.expense.service.UserService;
 import com.example.expense.service.CategoryService;
-import java.util.Collections;
 import org.assertj.swing.edt.GuiActionRunner;
 import org.assertj.swing.fixture.DialogFixture;
 import org.assertj.swing.fixture.FrameFixture;
@@ -32,11 +32,12 @@ public class MainViewTest extends AssertJSwingJUnitTestCase {
         userService = mock(UserService.class);
         currentUser = new User(1L, "test", "pass", Role.USER);
 
-        when(expenseService.getExpensesByUser(currentUser)).thenReturn(Collections.emptyList());
+        when(expenseService.getTotalByUser(currentUser)).thenReturn(java.math.BigDecimal.ZERO);
 
         CategoryService categoryService = mock(CategoryService.class);
         MainView frame = GuiActionRunner
-                .execute(() -> new MainView(userService, expenseService, categoryService, currentUser));
+                .execute(() -> new MainView(userService, expenseService, categoryService,
+                        mock(ExportJobService.class), currentUser, Runnable::run));
         window = new FrameFixture(robot(), frame);
         robot().settings().delayBetweenEvents(100);
         window.show();
@@ -85,7 +86,9 @@ public class MainViewTest extends AssertJSwingJUnitTestCase {
         Expense expense = new Expense(new java.math.BigDecimal("10.00"), java.time.LocalDate.now(), "Pizza",
                 currentUser, null);
         expense.setId(1L);
-        when(expenseService.getExpensesByUser(currentUser)).thenReturn(java.util.Collections.singletonList(expense));
+        when(expenseService.countExpenseRows(any())).thenReturn(1L);
+        when(expenseService.getExpenseRows(any(), anyInt(), anyInt()))
+                .thenReturn(java.util.Collections.singletonList(com.example.expense.model.ExpenseRow.of(expense)));
 
         window.button(org.assertj.swing.core.matcher.JButtonMatcher.withText("Refresh")).click();
         window.table().selectRows(0);
@@ -98,6 +101,28 @@ public class MainViewTest extends AssertJSwingJUnitTestCase {
         verify(expenseService).deleteExpense(1L);
     }
 
+    @Test
+    public void shouldShowErrorWhenDeleteFails() {
+        Expense expense = new Expense(new java.math.BigDecimal("10.00"), java.time.LocalDate.now(), "Pizza",
+                currentUser, null);
+        expense.setId(1L);
+        when(expenseService.countExpenseRows(any())).thenReturn(1L);
+        when(expenseService.getExpenseRows(any(), anyInt(), anyInt()))
+                .thenReturn(java.util.Collections.singletonList(com.example.expense.model.ExpenseRow.of(expense)));
+        doThrow(new IllegalStateException("Database down")).when(expenseService).deleteExpense(1L);
+
+        window.button(org.assertj.swing.core.matcher.JButtonMatcher.withText("Refresh")).click();
+        window.table().selectRows(0);
+        window.button("mainDeleteButton").click();
+        window.robot().waitForIdle();
+        window.optionPane().yesButton().click();
+        window.robot().waitForIdle();
+
+        window.optionPane().requireMessage("Error deleting expense: Database down");
+        window.optionPane().okButton().click();
+        window.button("mainDeleteButton").requireEnabled();
+    }
+
     @Test
     public void shouldClearFilter() {
         window.textBox("searchField").enterText("Pizza");
@@ -146,7 +171,7 @@ public class MainViewTest extends AssertJSwingJUnitTestCase {
     @Test
     public void shouldClickRefreshButton() {
         window.button("mainRefreshButton").click();
-        verify(expenseService, atLeastOnce()).getExpensesByUser(currentUser);
+        verify(expenseService, atLeastOnce()).countExpenseRows(any());
     }
 
     @Test
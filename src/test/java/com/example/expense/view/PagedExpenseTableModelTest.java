@@ -0,0 +1,304 @@
+package com.example.expense.view;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.expense.model.ExpenseQuery;
+import com.example.expense.model.ExpenseRow;
+import com.example.expense.model.User;
+import com.example.expense.service.ExpenseChange;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import javax.swing.SwingUtilities;
+import javax.swing.event.TableModelEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PagedExpenseTableModelTest {
+
+    private static final int PAGE_SIZE = 10;
+
+    private final List<String> fetches = new ArrayList<>();
+    private final List<ExpenseQuery> queries = new ArrayList<>();
+    private int rowTotal = 1_000_000;
+    private long insertPosition;
+    private final Map<Long, Long> positions = new HashMap<>();
+    private PagedExpenseTableModel model;
+    // Tests swap in a queue to hold background work back
+    private Executor executor = Runnable::run;
+    private final Executor delegating = task -> executor.execute(task);
+
+    private final PagedExpenseTableModel.RowSource source = new PagedExpenseTableModel.RowSource() {
+        @Override
+        public long count(ExpenseQuery query) {
+            queries.add(query);
+            return rowTotal;
+        }
+
+        @Override
+        public List<ExpenseRow> rows(ExpenseQuery query, int offset, int limit) {
+            fetches.add(offset + "+" + limit);
+            List<ExpenseRow> rows = new ArrayList<>();
+            for (int i = offset; i < Math.min(offset + limit, rowTotal); i++) {
+                rows.add(new ExpenseRow((long) i, LocalDate.of(2023, 1, 1), "Food", "Row " + i, BigDecimal.ONE));
+            }
+            return rows;
+        }
+
+        @Override
+        public long position(ExpenseQuery query, ExpenseRow row) {
+            return positions.getOrDefault(row.id(), insertPosition);
+        }
+    };
+
+    @BeforeEach
+    void setUp() throws Exception {
+        onEdt(() -> {
+            model = new PagedExpenseTableModel(source, ExpenseQuery.all(), PAGE_SIZE, 3, delegating);
+            model.refresh();
+        });
+        onEdt(() -> {
+        });
+        fetches.clear();
+    }
+
+    @Test
+    void refreshShouldLoadCountAndFirstPageOnly() {
+        assertThat(model.getRowCount()).isEqualTo(1_000_000);
+        assertThat(model.loadedPageCount()).isEqualTo(1);
+    }
+
+    @Test
+    void unloadedRowShouldReadAsLoadingUntilItsPageArrives() throws Exception {
+        onEdt(() -> {
+            assertThat(model.getExpenseAt(500_005)).isNull();
+            assertThat(model.getValueAt(500_005, 2)).isEqualTo(PagedExpenseTableModel.LOADING);
+        });
+        onEdt(() -> assertThat(model.getValueAt(500_005, 2)).isEqualTo("Row 500005"));
+
+        assertThat(fetches).startsWith("500000+10");
+    }
+
+    @Test
+    void readingAPageShouldPrefetchTheNextOne() throws Exception {
+        onEdt(() -> model.getExpenseAt(3));
+
+        assertThat(fetches).containsExactly("10+10");
+    }
+
+    @Test
+    void shouldKeepOnlyTheMostRecentlyUsedPages() throws Exception {
+        for (int page = 10; page < 50; page += 10) {
+            int row = page * PAGE_SIZE;
+            onEdt(() -> model.getExpenseAt(row));
+            onEdt(() -> {
+            });
+        }
+
+        assertThat(model.loadedPageCount()).isEqualTo(3);
+    }
+
+    @Test
+    void sortByShouldRequeryAndToggleDirection() throws Exception {
+        onEdt(() -> model.sortBy(3));
+        onEdt(() -> model.sortBy(3));
+        onEdt(() -> {
+        });
+
+        assertThat(queries).extracting(ExpenseQuery::sortColumn).endsWith(ExpenseQuery.SortColumn.AMOUNT,
+                ExpenseQuery.SortColumn.AMOUNT);
+        assertThat(queries).extracting(ExpenseQuery::descending).endsWith(false, true);
+    }
+
+    @Test
+    void setSearchShouldPushFilterToTheQuery() throws Exception {
+        rowTotal = 3;
+        onEdt(() -> model.setSearch("pizza"));
+        onEdt(() -> {
+        });
+
+        assertThat(model.getQuery().search()).isEqualTo("pizza");
+        assertThat(model.getRowCount()).isEqualTo(3);
+    }
+
+    @Test
+    void pageOfASupersededQueryShouldBeDropped() throws Exception {
+        List<Runnable> queued = new ArrayList<>();
+        executor = queued::add;
+        onEdt(() -> model.getExpenseAt(500));
+        Runnable stalePage = queued.remove(0);
+        onEdt(() -> model.setSearch("pizza"));
+
+        stalePage.run();
+        onEdt(() -> {
+        });
+
+        assertThat(model.loadedPageCount()).isEqualTo(1);
+    }
+
+    @Test
+    void deletedRowShouldBeRemovedInPlaceAndPullLaterRowsForward() throws Exception {
+        List<TableModelEvent> events = new ArrayList<>();
+        onEdt(() -> model.getExpenseAt(3));
+        onEdt(() -> {
+            model.addTableModelListener(events::add);
+            model.apply(List.of(ExpenseChange.deleted(null, row(2L))));
+        });
+
+        assertThat(events).singleElement().satisfies(event -> {
+            assertThat(event.getType()).isEqualTo(TableModelEvent.DELETE);
+            assertThat(event.getFirstRow()).isEqualTo(2);
+        });
+        assertThat(queries).hasSize(1);
+        assertThat(model.getRowCount()).isEqualTo(999_999);
+        onEdt(() -> {
+            assertThat(model.getExpenseAt(2).id()).isEqualTo(3L);
+            assertThat(model.getExpenseAt(9).id()).isEqualTo(10L);
+            assertThat(model.getExpenseAt(10).id()).isEqualTo(11L);
+        });
+    }
+
+    @Test
+    void addedRowShouldBeInsertedAtItsPositionAndPushLaterRowsBack() throws Exception {
+        insertPosition = 5;
+        List<TableModelEvent> events = new ArrayList<>();
+        onEdt(() -> model.getExpenseAt(3));
+        onEdt(() -> {
+            model.addTableModelListener(events::add);
+            model.apply(List.of(ExpenseChange.added(null, row(-1L))));
+        });
+        onEdt(() -> {
+        });
+
+        assertThat(events).extracting(TableModelEvent::getType).containsExactly(TableModelEvent.INSERT);
+        assertThat(queries).hasSize(1);
+        assertThat(model.getRowCount()).isEqualTo(1_000_001);
+        onEdt(() -> {
+            assertThat(model.getExpenseAt(5).id()).isEqualTo(-1L);
+            assertThat(model.getExpenseAt(6).id()).isEqualTo(5L);
+            assertThat(model.getExpenseAt(10).id()).isEqualTo(9L);
+        });
+    }
+
+    @Test
+    void addedRowsShouldBeLookedUpTogetherAndInsertedInAscendingOrder() throws Exception {
+        // Positions in the final order: -3 goes after -2, which the batch lists last
+        positions.putAll(Map.of(-1L, 6L, -2L, 3L, -3L, 4L, -4L, -1L));
+        List<Runnable> queued = new ArrayList<>();
+        List<Integer> inserted = new ArrayList<>();
+        onEdt(() -> model.getExpenseAt(3));
+        executor = queued::add;
+        onEdt(() -> {
+            model.addTableModelListener(event -> inserted.add(event.getFirstRow()));
+            model.apply(List.of(ExpenseChange.added(null, row(-1L)), ExpenseChange.added(null, row(-3L)),
+                    ExpenseChange.added(null, row(-4L)), ExpenseChange.added(null, row(-2L))));
+        });
+
+        assertThat(queued).hasSize(1);
+        queued.get(0).run();
+        onEdt(() -> {
+        });
+
+        assertThat(inserted).containsExactly(3, 4, 6);
+        assertThat(model.getRowCount()).isEqualTo(1_000_003);
+        onEdt(() -> {
+            assertThat(model.getExpenseAt(2).id()).isEqualTo(2L);
+            assertThat(model.getExpenseAt(3).id()).isEqualTo(-2L);
+            assertThat(model.getExpenseAt(4).id()).isEqualTo(-3L);
+            assertThat(model.getExpenseAt(5).id()).isEqualTo(3L);
+            assertThat(model.getExpenseAt(6).id()).isEqualTo(-1L);
+            assertThat(model.getExpenseAt(7).id()).isEqualTo(4L);
+        });
+    }
+
+    @Test
+    void addedRowsOfASupersededQueryShouldBeDropped() throws Exception {
+        List<Runnable> queued = new ArrayList<>();
+        onEdt(() -> model.getExpenseAt(3));
+        executor = queued::add;
+        onEdt(() -> model.apply(List.of(ExpenseChange.added(null, row(-1L)))));
+        Runnable staleInsert = queued.remove(0);
+        executor = Runnable::run;
+        onEdt(() -> model.setSearch("pizza"));
+
+        staleInsert.run();
+        onEdt(() -> {
+        });
+
+        assertThat(model.getRowCount()).isEqualTo(1_000_000);
+    }
+
+    @Test
+    void failedPositionLookupShouldReachTheErrorHandler() throws Exception {
+        RuntimeException failure = new IllegalStateException("Connection lost");
+        List<RuntimeException> errors = new ArrayList<>();
+        PagedExpenseTableModel.RowSource failing = new PagedExpenseTableModel.RowSource() {
+            @Override
+            public long count(ExpenseQuery query) {
+                return source.count(query);
+            }
+
+            @Override
+            public List<ExpenseRow> rows(ExpenseQuery query, int offset, int limit) {
+                return source.rows(query, offset, limit);
+            }
+
+            @Override
+            public long position(ExpenseQuery query, ExpenseRow row) {
+                throw failure;
+            }
+        };
+        onEdt(() -> {
+            model = new PagedExpenseTableModel(failing, ExpenseQuery.all(), PAGE_SIZE, 3, delegating);
+            model.setErrorHandler(errors::add);
+            model.refresh();
+        });
+        onEdt(() -> model.apply(List.of(ExpenseChange.added(null, row(-1L)))));
+        onEdt(() -> {
+        });
+
+        assertThat(errors).containsExactly(failure);
+        assertThat(model.getRowCount()).isEqualTo(1_000_000);
+    }
+
+    @Test
+    void deletedRowThatIsNotLoadedShouldTriggerRefresh() throws Exception {
+        onEdt(() -> model.apply(List.of(ExpenseChange.deleted(null, row(500_000L)))));
+        onEdt(() -> {
+        });
+
+        assertThat(queries).hasSize(2);
+    }
+
+    @Test
+    void changesOfOtherUsersShouldBeIgnored() throws Exception {
+        User user = new User(1L, "alice", "pass", null);
+        onEdt(() -> {
+            model = new PagedExpenseTableModel(source, ExpenseQuery.forUser(user), PAGE_SIZE, 3, delegating);
+            model.refresh();
+        });
+        onEdt(() -> model.apply(List.of(ExpenseChange.deleted(2L, row(500_000L)))));
+
+        assertThat(model.getRowCount()).isEqualTo(1_000_000);
+        assertThat(queries).hasSize(2);
+    }
+
+    @Test
+    void constructorShouldRejectTooFewPages() {
+        assertThatThrownBy(() -> new PagedExpenseTableModel(source, ExpenseQuery.all(), PAGE_SIZE, 1, delegating))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ExpenseRow row(Long id) {
+        return new ExpenseRow(id, LocalDate.of(2023, 1, 1), "Food", "Row " + id, BigDecimal.ONE);
+    }
+
+    private static void onEdt(Runnable action) throws Exception {
+        SwingUtilities.invokeAndWait(action);
+    }
+}
@@ -5,9 +5,11 @@ import static org.assertj.swing.edt.GuiActionRunner.execute;
 
 import com.example.expense.model.Category;
 import com.example.expense.model.Expense;
+import com.example.expense.model.ExpenseRow;
 import com.example.expense.model.Role;
 import com.example.expense.model.User;
 import com.example.expense.service.ExpenseService;
+import com.example.expense.service.ExportJobService;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.Arrays;
@@ -21,16 +23,19 @@ public class ReportViewTest extends AssertJSwingJUnitTestCase {
 
     private DialogFixture window;
     private ExpenseService expenseService;
+    private ExportJobService exportJobService;
     private User currentUser;
     private JFileChooser mockFileChooser;
 
     @Override
     protected void onSetUp() {
         expenseService = mock(ExpenseService.class);
+        exportJobService = new ExportJobService(expenseService, Runnable::run);
         currentUser = new User(1L, "test", "pass", Role.USER);
         mockFileChooser = mock(JFileChooser.class);
 
-        ReportView dialog = execute(() -> new ReportView(null, expenseService, currentUser) {
+        ReportView dialog = execute(() -> new ReportView(null, expenseService, exportJobService, currentUser,
+                Runnable::run) {
             @Override
             protected javax.swing.JFileChooser createFileChooser(String defaultName) {
                 return mockFileChooser;
@@ -59,8 +64,8 @@ public class ReportViewTest extends AssertJSwingJUnitTestCase {
     @Test
     public void shouldGenerateDailyReport() {
         Category food = new Category("Food");
-        Expense e1 = new Expense(new BigDecimal("25.50"), LocalDate.now(), "Lunch", currentUser, food);
-        List<Expense> expenses = Arrays.asList(e1);
+        ExpenseRow e1 = ExpenseRow.of(new Expense(new BigDecimal("25.50"), LocalDate.now(), "Lunch", currentUser, food));
+        List<ExpenseRow> expenses = Arrays.asList(e1);
         when(expenseService.getDailyReport(eq(currentUser), any())).thenReturn(expenses);
 
         window.comboBox("typeCombo").selectItem("Daily");
@@ -116,25 +121,23 @@ public class ReportViewTest extends AssertJSwingJUnitTestCase {
     }
 
     @Test
-    public void shouldShowNoDataMessageOnPdfExport() {
-        window.button("exportPdfButton").click();
-        window.robot().waitForIdle();
-        window.optionPane().requireMessage("No data to export. Generate a report first.");
-        window.optionPane().okButton().click();
-    }
+    public void shouldExportCsvWithoutGeneratingReport() throws Exception {
+        java.io.File file = new java.io.File("test.csv.gz");
+        when(mockFileChooser.showSaveDialog(any())).thenReturn(JFileChooser.APPROVE_OPTION);
+        when(mockFileChooser.getSelectedFile()).thenReturn(file);
 
-    @Test
-    public void shouldShowNoDataMessageOnCsvExport() {
         window.button("exportCsvButton").click();
-        window.robot().waitForIdle();
-        window.optionPane().requireMessage("No data to export. Generate a report first.");
+        window.optionPane().requireMessage(java.util.regex.Pattern.compile(".*CSV Exported successfully.*"));
         window.optionPane().okButton().click();
+
+        LocalDate today = LocalDate.now();
+        verify(expenseService).exportToCsv(eq(currentUser), eq(today), eq(today), eq(file), eq(true), any());
     }
 
     @Test
     public void shouldExportPdfSuccessfully() throws Exception {
         // Populate table first
-        Expense e1 = new Expense(new BigDecimal("25.50"), LocalDate.now(), "Lunch", currentUser, new Category("Food"));
+        ExpenseRow e1 = ExpenseRow.of(new Expense(new BigDecimal("25.50"), LocalDate.now(), "Lunch", currentUser, new Category("Food")));
         when(expenseService.getDailyReport(eq(currentUser), any())).thenReturn(Arrays.asList(e1));
         window.button("generateButton").click();
 
@@ -146,13 +149,13 @@ public class ReportViewTest extends AssertJSwingJUnitTestCase {
         window.optionPane().requireMessage(java.util.regex.Pattern.compile(".*PDF Exported successfully.*"));
         window.optionPane().okButton().click();
 
-        verify(expenseService).exportToPdf(anyList(), eq(file), anyString());
+        verify(expenseService).exportToPdf(eq(currentUser), any(), any(), eq(file), any());
     }
 
     @Test
     public void shouldExportCsvSuccessfully() throws Exception {
         // Populate table first
-        Expense e1 = new Expense(new BigDecimal("25.50"), LocalDate.now(), "Lunch", currentUser, new Category("Food"));
+        ExpenseRow e1 = ExpenseRow.of(new Expense(new BigDecimal("25.50"), LocalDate.now(), "Lunch", currentUser, new Category("Food")));
         when(expenseService.getDailyReport(eq(currentUser), any())).thenReturn(Arrays.asList(e1));
         window.button("generateButton").click();
 
@@ -164,18 +167,19 @@ public class ReportViewTest extends AssertJSwingJUnitTestCase {
         window.optionPane().requireMessage(java.util.regex.Pattern.compile(".*CSV Exported successfully.*"));
         window.optionPane().okButton().click();
 
-        verify(expenseService).exportToCsv(anyList(), eq(file));
+        verify(expenseService).exportToCsv(eq(currentUser), any(), any(), eq(file), eq(false), any());
     }
 
     @Test
     public void shouldHandlePdfExportError() throws Exception {
-        Expense e1 = new Expense(new BigDecimal("25.50"), LocalDate.now(), "Lunch", currentUser, new Category("Food"));
+        ExpenseRow e1 = ExpenseRow.of(new Expense(new BigDecimal("25.50"), LocalDate.now(), "Lunch", currentUser, new Category("Food")));
         when(expenseService.getDailyReport(eq(currentUser), any())).thenReturn(Arrays.asList(e1));
         window.button("generateButton").click();
 
         when(mockFileChooser.showSaveDialog(any())).thenReturn(JFileChooser.APPROVE_OPTION);
         when(mockFileChooser.getSelectedFile()).thenReturn(new java.io.File("test.pdf"));
-        doThrow(new RuntimeException("Disk full")).when(expenseService).exportToPdf(any(), any(), any());
+        doThrow(new java.io.IOException("Disk full")).when(expenseService).exportToPdf(any(), any(), any(), any(java.io.File.class),
+                any());
 
         window.button("exportPdfButton").click();
         org.assertj.swing.timing.Pause.pause(1000);
@@ -187,13 +191,14 @@ public class ReportViewTest extends AssertJSwingJUnitTestCase {
 
     @Test
     public void shouldHandleCsvExportError() throws Exception {
-        Expense e1 = new Expense(new BigDecimal("25.50"), LocalDate.now(), "Lunch", currentUser, new Category("Food"));
+        ExpenseRow e1 = ExpenseRow.of(new Expense(new BigDecimal("25.50"), LocalDate.now(), "Lunch", currentUser, new Category("Food")));
         when(expenseService.getDailyReport(eq(currentUser), any())).thenReturn(Arrays.asList(e1));
         window.button("generateButton").click();
 
         when(mockFileChooser.showSaveDialog(any())).thenReturn(JFileChooser.APPROVE_OPTION);
         when(mockFileChooser.getSelectedFile()).thenReturn(new java.io.File("test.csv"));
-        doThrow(new RuntimeException("CSV Error")).when(expenseService).exportToCsv(any(), any());
+        doThrow(new java.io.IOException("CSV Error")).when(expenseService).exportToCsv(any(), any(), any(), any(java.io.File.class),
+                anyBoolean(), any());
 
         window.button("exportCsvButton").click();
         org.assertj.swing.timing.Pause.pause(1000);
@@ -207,7 +212,7 @@ public class ReportViewTest extends AssertJSwingJUnitTestCase {
     public void testBaseCreateFileChooser() {
         // Direct call to cover base implementation without affecting GUI
         execute(() -> {
-            ReportView rv = new ReportView(null, expenseService, currentUser);
+            ReportView rv = new ReportView(null, expenseService, exportJobService, currentUser, Runnable::run);
             JFileChooser fc = rv.createFileChooser("test.txt");
             org.assertj.core.api.Assertions.assertThat(fc.getSelectedFile().getName()).isEqualTo("test.txt");
         });
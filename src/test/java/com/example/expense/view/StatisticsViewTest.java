@@ -1,13 +1,10 @@
 package com.example.expense.view;
 
-import com.example.expense.model.Category;
-import com.example.expense.model.Expense;
-import com.example.expense.model.Role;
-import com.example.expense.model.User;
+import com.example.expense.model.CategoryTotal;
+import com.example.expense.model.ExpenseStatistics;
+import com.example.expense.model.Money;
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
 import org.assertj.swing.fixture.DialogFixture;
 import org.assertj.swing.junit.testcase.AssertJSwingJUnitTestCase;
@@ -20,20 +17,27 @@ public class StatisticsViewTest extends AssertJSwingJUnitTestCase {
 
     @Override
     protected void onSetUp() {
-        User user = new User(1L, "test", "pass", Role.USER);
-        Category c1 = new Category("Food");
-        Category c2 = new Category("Transport");
-        // Include an expense with null category to cover the filter branch
-        List<Expense> expenses = Arrays.asList(
-                new Expense(new BigDecimal("50.00"), LocalDate.now(), "Lunch", user, c1),
-                new Expense(new BigDecimal("20.00"), LocalDate.now(), "Bus", user, c2),
-                new Expense(new BigDecimal("15.00"), LocalDate.now(), "Unknown", user, null));
-
-        StatisticsView dialog = GuiActionRunner.execute(() -> new StatisticsView(null, expenses));
+        ExpenseStatistics statistics = statistics(Arrays.asList(
+                new CategoryTotal("Food", new BigDecimal("50.00"), 1),
+                new CategoryTotal("Transport", new BigDecimal("20.00"), 1)));
+
+        StatisticsView dialog = GuiActionRunner.execute(() -> new StatisticsView(null, statistics));
         window = new DialogFixture(robot(), dialog);
         window.show();
     }
 
+    @Test
+    public void shouldLoadTotalsBeforeDrawingCharts() {
+        ExpenseStatistics statistics = statistics(List.of(new CategoryTotal("Food", new BigDecimal("50.00"), 1)));
+        StatisticsView dialog = GuiActionRunner.execute(() -> new StatisticsView(null, () -> statistics, Runnable::run));
+        DialogFixture loaded = new DialogFixture(robot(), dialog);
+        loaded.show();
+        robot().waitForIdle();
+
+        org.assertj.core.api.Assertions.assertThat(dialog.getContentPane().getComponentCount()).isEqualTo(2);
+        loaded.cleanUp();
+    }
+
     @Test
     public void shouldShowCharts() {
         window.requireVisible();
@@ -43,4 +47,10 @@ public class StatisticsViewTest extends AssertJSwingJUnitTestCase {
     public void shouldShowCorrectTitle() {
         window.requireVisible();
     }
+
+    private static ExpenseStatistics statistics(List<CategoryTotal> byCategory) {
+        BigDecimal total = byCategory.stream().map(CategoryTotal::total).reduce(BigDecimal.ZERO, BigDecimal::add);
+        return new ExpenseStatistics(Money.of(total), byCategory.size(), byCategory, List.of(), List.of(), List.of(),
+                List.of());
+    }
 }